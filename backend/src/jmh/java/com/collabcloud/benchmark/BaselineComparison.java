@@ -0,0 +1,91 @@
+package com.collabcloud.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file with the committed baseline and exits
+ * non-zero when any benchmark got slower by more than the allowed ratio and
+ * by more than the combined error of the two runs.
+ *
+ * Usage: BaselineComparison baseline.json result.json maxRegression
+ */
+public final class BaselineComparison {
+
+    private BaselineComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        File baselineFile = new File(args[0]);
+        File resultFile = new File(args[1]);
+        double maxRegression = Double.parseDouble(args[2]);
+        if (!baselineFile.isFile()) {
+            System.out.println("No baseline at " + baselineFile + "; copy " + resultFile + " there to create one");
+            return;
+        }
+
+        Map<String, JsonNode> baseline = read(baselineFile);
+        Map<String, JsonNode> result = read(resultFile);
+        int regressions = 0;
+        System.out.printf("%-84s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, JsonNode> entry : result.entrySet()) {
+            JsonNode current = entry.getValue();
+            JsonNode previous = baseline.get(entry.getKey());
+            String unit = current.path("primaryMetric").path("scoreUnit").asText();
+            double score = current.path("primaryMetric").path("score").asDouble();
+            if (previous == null || !unit.equals(previous.path("primaryMetric").path("scoreUnit").asText())) {
+                System.out.printf("%-84s %14s %14.3f %9s  %s%n", entry.getKey(), "-", score, "new", unit);
+                continue;
+            }
+            double before = previous.path("primaryMetric").path("score").asDouble();
+            // Throughput modes report ops per time unit, so higher is better there
+            boolean higherIsBetter = "thrpt".equals(current.path("mode").asText());
+            double delta = higherIsBetter ? before - score : score - before;
+            double change = delta / before;
+            // A change inside the two runs' combined error is noise, whatever its size
+            double noise = error(current) + error(previous);
+            boolean regressed = change > maxRegression && delta > noise;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-84s %14.3f %14.3f %+8.1f%%  %s%s%n", entry.getKey(), before, score, change * 100,
+                    unit, regressed ? "  REGRESSION" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.0f%%%n", regressions, maxRegression * 100);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> runs = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            runs.put(key(run), run);
+        }
+        return runs;
+    }
+
+    private static double error(JsonNode run) {
+        double error = run.path("primaryMetric").path("scoreError").asDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static String key(JsonNode run) {
+        String name = run.path("benchmark").asText().replace("com.collabcloud.", "");
+        Map<String, String> params = new TreeMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = run.path("params").fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            params.put(field.getKey(), field.getValue().asText());
+        }
+        return params.isEmpty() ? name : name + params;
+    }
+}
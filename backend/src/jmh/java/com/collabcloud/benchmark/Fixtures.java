@@ -0,0 +1,81 @@
+package com.collabcloud.benchmark;
+
+import com.collabcloud.entity.FileEntity;
+import com.collabcloud.entity.FileHistoryEntity;
+import com.collabcloud.entity.ProjectCollaboratorEntity;
+import com.collabcloud.entity.ProjectEntity;
+import com.collabcloud.entity.UserEntity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detached entity graphs shaped like the ones the controllers load, built
+ * without a database.
+ */
+final class Fixtures {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private Fixtures() {
+    }
+
+    static UserEntity user(long id) {
+        UserEntity user = new UserEntity("User " + id, "user" + id + "@example.com",
+                "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3bkFkpL1pQGz7q2dYb8X8Ba", "USER");
+        user.setUserId(id);
+        user.setBio("Bio of user " + id);
+        return user;
+    }
+
+    static ProjectEntity project(long id, int collaborators) {
+        ProjectEntity project = new ProjectEntity("Project " + id, "Description of project " + id, user(1));
+        project.setProjectId(id);
+        project.setCreatedDate(NOW);
+        project.setLastModified(NOW);
+        for (int i = 0; i < collaborators; i++) {
+            ProjectCollaboratorEntity collaborator = new ProjectCollaboratorEntity(project, user(100 + i), "edit");
+            collaborator.setId(id * 1000 + i);
+            collaborator.setAddedAt(NOW);
+            project.getCollaborators().add(collaborator);
+        }
+        return project;
+    }
+
+    static List<FileEntity> files(ProjectEntity project, int count) {
+        List<FileEntity> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FileEntity file = new FileEntity("file-" + i + ".txt", "text/plain",
+                    "uploads/1700000000000_" + i + "_file-" + i + ".txt", project);
+            file.setFileId((long) i);
+            file.setUploadDate(NOW);
+            files.add(file);
+        }
+        return files;
+    }
+
+    static List<FileHistoryEntity> history(int count, int contentLines) {
+        ProjectEntity project = project(1, 0);
+        FileEntity file = files(project, 1).get(0);
+        UserEntity user = user(2);
+        String content = content(contentLines);
+        List<FileHistoryEntity> history = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FileHistoryEntity entry = new FileHistoryEntity(file, user, content, "UPDATE", "Edit " + i);
+            entry.setHistoryId((long) i);
+            entry.setModifiedDate(NOW);
+            entry.setFilePath(file.getFilePath());
+            history.add(entry);
+        }
+        return history;
+    }
+
+    static String content(int lines) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            builder.append("    line ").append(i).append(" of a typical source file;\n");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package com.collabcloud.benchmark;
+
+import com.collabcloud.dto.FileDTO;
+import com.collabcloud.dto.FileHistoryDTO;
+import com.collabcloud.dto.ProjectDTO;
+import com.collabcloud.entity.FileEntity;
+import com.collabcloud.entity.FileHistoryEntity;
+import com.collabcloud.entity.ProjectEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response mapping and JSON encoding, with an ObjectMapper configured the
+ * way Spring Boot configures the one behind the controllers. Entity graphs
+ * are serialized next to their DTOs so the two shapes can be compared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({ "20" })
+    private int collaborators;
+
+    @Param({ "100" })
+    private int listSize;
+
+    private ObjectMapper objectMapper;
+    private ProjectEntity project;
+    private List<FileEntity> files;
+    private List<FileHistoryEntity> history;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        project = Fixtures.project(1, collaborators);
+        files = Fixtures.files(project, listSize);
+        history = Fixtures.history(listSize, 40);
+    }
+
+    @Benchmark
+    public byte[] projectEntity() throws Exception {
+        return objectMapper.writeValueAsBytes(project);
+    }
+
+    @Benchmark
+    public byte[] projectDto() throws Exception {
+        return objectMapper.writeValueAsBytes(ProjectDTO.from(project));
+    }
+
+    @Benchmark
+    public byte[] fileEntityList() throws Exception {
+        return objectMapper.writeValueAsBytes(files);
+    }
+
+    @Benchmark
+    public byte[] fileDtoList() throws Exception {
+        List<FileDTO> dtos = new ArrayList<>(files.size());
+        for (FileEntity file : files) {
+            dtos.add(FileDTO.from(file));
+        }
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+
+    @Benchmark
+    public List<FileHistoryDTO> fileHistoryMapping() {
+        List<FileHistoryDTO> dtos = new ArrayList<>(history.size());
+        for (FileHistoryEntity entry : history) {
+            dtos.add(FileHistoryDTO.from(entry));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public byte[] fileHistoryJson() throws Exception {
+        return objectMapper.writeValueAsBytes(fileHistoryMapping());
+    }
+}
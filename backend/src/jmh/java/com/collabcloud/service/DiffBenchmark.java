@@ -0,0 +1,65 @@
+package com.collabcloud.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LineDiff on interned lines: a typical edit (a few scattered changes) and
+ * two unrelated bodies, which run into the cost budget.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiffBenchmark {
+
+    private static final long MAX_COST = 20_000_000L;
+
+    @Param({ "1000", "10000" })
+    private int lines;
+
+    private int[] original;
+    private int[] edited;
+    private int[] unrelated;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        original = new int[lines];
+        for (int i = 0; i < lines; i++) {
+            original[i] = i;
+        }
+        edited = original.clone();
+        for (int i = 0; i < 10; i++) {
+            edited[random.nextInt(lines)] = lines + i;
+        }
+        unrelated = new int[lines];
+        for (int i = 0; i < lines; i++) {
+            unrelated[i] = random.nextInt(lines);
+        }
+    }
+
+    @Benchmark
+    public LineDiff fewEdits() {
+        return LineDiff.compute(original, edited, MAX_COST);
+    }
+
+    @Benchmark
+    public LineDiff unrelated() {
+        return LineDiff.compute(original, unrelated, MAX_COST);
+    }
+}
@@ -0,0 +1,76 @@
+package com.collabcloud.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU-bound parts of FileStorageService that run on every storage call:
+ * object path handling and data URL decoding. No HTTP is involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageBenchmark {
+
+    private FileStorageService storage;
+    private String storedPath;
+    private String objectPath;
+
+    @State(Scope.Benchmark)
+    public static class DataUrl {
+
+        @Param({ "1024", "1048576" })
+        private int payloadBytes;
+
+        private String value;
+
+        @Setup
+        public void setUp() {
+            byte[] payload = new byte[payloadBytes];
+            new Random(42).nextBytes(payload);
+            value = "data:application/octet-stream;base64,"
+                    + new String(Base64.getEncoder().encode(payload), StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        storage = new FileStorageService();
+        ReflectionTestUtils.setField(storage, "bucket", "files");
+        storedPath = "files/uploads/1700000000000_a1b2c3d4_Quarterly report (final).pdf";
+        objectPath = storage.extractObjectPath(storedPath);
+    }
+
+    @Benchmark
+    public String extractObjectPath() {
+        return storage.extractObjectPath(storedPath);
+    }
+
+    @Benchmark
+    public String encodeObjectPath() {
+        return storage.encodeObjectPath(objectPath);
+    }
+
+    @Benchmark
+    public byte[] decodeDataUrl(DataUrl dataUrl) {
+        return FileStorageService.decodeDataUrl(dataUrl.value);
+    }
+}
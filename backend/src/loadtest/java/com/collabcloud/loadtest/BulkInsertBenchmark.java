@@ -0,0 +1,300 @@
+package com.collabcloud.loadtest;
+
+import com.collabcloud.entity.ActivityLogEntity;
+import com.collabcloud.entity.FileEntity;
+import com.collabcloud.entity.FileHistoryEntity;
+import com.collabcloud.entity.ProjectEntity;
+import com.collabcloud.entity.UserEntity;
+import com.collabcloud.repository.ActivityLogRepository;
+import com.collabcloud.repository.FileHistoryRepository;
+import com.collabcloud.repository.FileRepository;
+import com.collabcloud.repository.ProjectRepository;
+import com.collabcloud.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows per second for bulk file history and activity log inserts, before
+ * and after the switch from identity columns to pooled sequences with JDBC
+ * batching. Boots the application against an embedded Postgres so the
+ * tables, sequences and Hibernate settings are the real ones. Every
+ * connection goes through LatencyProxy, which adds loadtest.dbLatencyMs of
+ * round trip (default 1, about a database in the same region).
+ *
+ * Modes, each inserting loadtest.rows rows in transactions of
+ * loadtest.transactionRows:
+ * - identity: what Hibernate does with GenerationType.IDENTITY, one
+ *   INSERT ... RETURNING round trip per row (into a copy of the table with
+ *   an identity id, since the entities no longer use one)
+ * - sequence-batched: ids from the pooled sequence, inserts sent as JDBC
+ *   batches of 50
+ * - sequence-rewritten: the same with reWriteBatchedInserts, so each batch
+ *   becomes one multi-row INSERT
+ * - hibernate: saveAll through the repositories with the application's
+ *   settings, the path the service code takes
+ */
+public class BulkInsertBenchmark {
+
+    private static final int BATCH_SIZE = 50;
+    private static final String[] MODES = { "identity", "sequence-batched", "sequence-rewritten", "hibernate" };
+
+    private final int rows = Integer.getInteger("loadtest.rows", 20000);
+    private final int transactionRows = Integer.getInteger("loadtest.transactionRows", 1000);
+    private final double dbLatencyMillis = Double.parseDouble(System.getProperty("loadtest.dbLatencyMs", "1"));
+    private final String out = System.getProperty("loadtest.bulkOut", "target/bulk-insert-result.json");
+
+    private final String content = "x".repeat(512);
+    private ConfigurableApplicationContext context;
+    private String jdbcUrl;
+    private UserEntity user;
+    private ProjectEntity project;
+    private FileEntity file;
+
+    /** A table written by the benchmark: its id sequence and non-id columns. */
+    private static final class Table {
+        final String name;
+        final String idColumn;
+        final String sequence;
+        final String columns;
+        final int columnCount;
+
+        Table(String name, String idColumn, String sequence, String columns) {
+            this.name = name;
+            this.idColumn = idColumn;
+            this.sequence = sequence;
+            this.columns = columns;
+            this.columnCount = columns.split(",").length;
+        }
+
+        String insert(String table, boolean withId) {
+            String placeholders = "?" + ", ?".repeat(columnCount - 1);
+            return withId
+                    ? "INSERT INTO " + table + " (" + idColumn + ", " + columns + ") VALUES (?, " + placeholders + ")"
+                    : "INSERT INTO " + table + " (" + columns + ") VALUES (" + placeholders + ")";
+        }
+    }
+
+    private static final Table HISTORY = new Table("file_history", "history_id", "file_history_seq",
+            "file_id, user_id, content, modified_date, change_description, change_type, file_path");
+    private static final Table ACTIVITY = new Table("activity_logs", "activity_id", "activity_logs_seq",
+            "action_type, timestamp, data, action_description, action_timestamp, project_id, user_id");
+
+    public static void main(String[] args) throws Exception {
+        int status = new BulkInsertBenchmark().run();
+        System.exit(status);
+    }
+
+    private int run() throws Exception {
+        FakeStorageServer storage = new FakeStorageServer(0);
+        storage.start();
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            LatencyProxy proxy = new LatencyProxy(postgres.getPort(), dbLatencyMillis);
+            proxy.start();
+            // The application and the JDBC modes all reach the database through the proxy
+            jdbcUrl = "jdbc:postgresql://127.0.0.1:" + proxy.getPort() + "/postgres?user=postgres";
+            context = LoadTest.startApplication(jdbcUrl, storage, "--logging.level.com.collabcloud=WARN");
+            try {
+                seed();
+                createIdentityCopies();
+                List<Map<String, Object>> results = new ArrayList<>();
+                for (Table table : new Table[] { HISTORY, ACTIVITY }) {
+                    for (String mode : MODES) {
+                        // Warm up the JIT, the connection and the table's pages before measuring
+                        measure(table, mode, Math.min(rows, 5 * transactionRows));
+                        results.add(measure(table, mode, rows));
+                    }
+                }
+                print(results);
+                write(results);
+            } finally {
+                context.close();
+                proxy.close();
+            }
+        } finally {
+            storage.stop();
+        }
+        return 0;
+    }
+
+    private void seed() {
+        user = context.getBean(UserRepository.class)
+                .save(new UserEntity("Bulk User", "bulk-" + System.nanoTime() + "@example.com", "password", "USER"));
+        project = context.getBean(ProjectRepository.class).save(new ProjectEntity("Bulk project", "", user));
+        FileEntity entity = new FileEntity("bulk.txt", "text/plain", "bulk.txt", project);
+        entity.setUploadDate(LocalDateTime.now());
+        file = context.getBean(FileRepository.class).save(entity);
+    }
+
+    private void createIdentityCopies() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(jdbcUrl);
+                Statement statement = connection.createStatement()) {
+            for (Table table : new Table[] { HISTORY, ACTIVITY }) {
+                statement.execute("CREATE TABLE identity_" + table.name + " (LIKE " + table.name + ")");
+                statement.execute("ALTER TABLE identity_" + table.name + " ALTER COLUMN " + table.idColumn
+                        + " ADD GENERATED BY DEFAULT AS IDENTITY");
+            }
+        }
+    }
+
+    private Map<String, Object> measure(Table table, String mode, int count) throws Exception {
+        long start = System.nanoTime();
+        for (int done = 0; done < count; done += transactionRows) {
+            int chunk = Math.min(transactionRows, count - done);
+            switch (mode) {
+                case "identity":
+                    insertIdentity(table, chunk);
+                    break;
+                case "sequence-batched":
+                    insertBatched(table, chunk, false);
+                    break;
+                case "sequence-rewritten":
+                    insertBatched(table, chunk, true);
+                    break;
+                default:
+                    insertHibernate(table, chunk);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("table", table.name);
+        row.put("mode", mode);
+        row.put("rows", count);
+        row.put("seconds", seconds);
+        row.put("rowsPerSecond", count / seconds);
+        return row;
+    }
+
+    private void insertIdentity(Table table, int count) throws SQLException {
+        try (Connection connection = connect(false)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(table.insert("identity_" + table.name, false),
+                    new String[] { table.idColumn })) {
+                for (int i = 0; i < count; i++) {
+                    bind(table, insert, 1);
+                    insert.executeUpdate();
+                    try (ResultSet keys = insert.getGeneratedKeys()) {
+                        keys.next();
+                    }
+                }
+            }
+            connection.commit();
+        }
+    }
+
+    private void insertBatched(Table table, int count, boolean rewrite) throws SQLException {
+        try (Connection connection = connect(rewrite)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement nextval = connection.prepareStatement("SELECT nextval('" + table.sequence + "')");
+                    PreparedStatement insert = connection.prepareStatement(table.insert(table.name, true))) {
+                long nextId = 0;
+                long lastId = -1;
+                for (int i = 0; i < count; i++) {
+                    if (nextId > lastId) {
+                        // Pooled optimizer: nextval v covers ids (v - 50, v]
+                        try (ResultSet value = nextval.executeQuery()) {
+                            value.next();
+                            lastId = value.getLong(1);
+                        }
+                        nextId = lastId - BATCH_SIZE + 1;
+                    }
+                    insert.setLong(1, nextId++);
+                    bind(table, insert, 2);
+                    insert.addBatch();
+                    if ((i + 1) % BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+
+    private void insertHibernate(Table table, int count) {
+        context.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+            if (table == HISTORY) {
+                List<FileHistoryEntity> entities = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    entities.add(new FileHistoryEntity(file, user, content, "UPDATE", "Bulk insert"));
+                }
+                context.getBean(FileHistoryRepository.class).saveAll(entities);
+            } else {
+                List<ActivityLogEntity> entities = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    ActivityLogEntity entity = new ActivityLogEntity("EDIT", content, "Bulk insert", project);
+                    entity.setUser(user);
+                    entities.add(entity);
+                }
+                context.getBean(ActivityLogRepository.class).saveAll(entities);
+            }
+        });
+    }
+
+    private void bind(Table table, PreparedStatement statement, int index) throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (table == HISTORY) {
+            statement.setLong(index, file.getFileId());
+            statement.setLong(index + 1, user.getUserId());
+            statement.setString(index + 2, content);
+            statement.setTimestamp(index + 3, now);
+            statement.setString(index + 4, "Bulk insert");
+            statement.setString(index + 5, "UPDATE");
+            statement.setString(index + 6, file.getFilePath());
+        } else {
+            statement.setString(index, "EDIT");
+            statement.setTimestamp(index + 1, now);
+            statement.setString(index + 2, content);
+            statement.setString(index + 3, "Bulk insert");
+            statement.setTimestamp(index + 4, now);
+            statement.setLong(index + 5, project.getProjectId());
+            statement.setLong(index + 6, user.getUserId());
+        }
+    }
+
+    private Connection connect(boolean rewrite) throws SQLException {
+        return DriverManager.getConnection(jdbcUrl + "&reWriteBatchedInserts=" + rewrite);
+    }
+
+    private void print(List<Map<String, Object>> results) {
+        System.out.printf("%n%-15s %-20s %9s %9s %12s%n", "Table", "Mode", "Rows", "Seconds", "Rows/s");
+        for (Map<String, Object> row : results) {
+            System.out.printf("%-15s %-20s %9d %9.2f %12.0f%n", row.get("table"), row.get("mode"), row.get("rows"),
+                    row.get("seconds"), row.get("rowsPerSecond"));
+        }
+    }
+
+    private void write(List<Map<String, Object>> results) throws IOException {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("rows", rows);
+        config.put("transactionRows", transactionRows);
+        config.put("batchSize", BATCH_SIZE);
+        config.put("dbLatencyMs", dbLatencyMillis);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config);
+        report.put("results", results);
+        File file = new File(out);
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+        System.out.println("Results written to " + file.getAbsolutePath());
+    }
+}
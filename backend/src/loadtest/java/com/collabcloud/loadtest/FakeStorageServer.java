@@ -0,0 +1,224 @@
+package com.collabcloud.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+
+/**
+ * In-memory stand-in for the Supabase storage REST API, covering the calls
+ * FileStorageService makes: upload (POST/PUT, x-upsert), read, signed URLs
+ * (sign, then GET/HEAD on the signed path), bulk delete by prefixes and
+ * list. An optional fixed delay per request approximates a remote store.
+ */
+public class FakeStorageServer {
+
+    private static final String OBJECT = "/storage/v1/object/";
+    private static final String SIGN = OBJECT + "sign/";
+    private static final String LIST = OBJECT + "list/";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final NavigableMap<String, byte[]> objects = new ConcurrentSkipListMap<>();
+    private final long latencyMillis;
+    private HttpServer server;
+
+    public FakeStorageServer(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public int getObjectCount() {
+        return objects.size();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            String path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), StandardCharsets.UTF_8);
+            String method = exchange.getRequestMethod();
+            if (path.startsWith(SIGN)) {
+                String key = path.substring(SIGN.length());
+                if ("POST".equals(method)) {
+                    requireAuth(exchange);
+                    sign(exchange, key);
+                } else {
+                    read(exchange, key, "HEAD".equals(method));
+                }
+            } else if (path.startsWith(LIST) && "POST".equals(method)) {
+                requireAuth(exchange);
+                list(exchange, path.substring(LIST.length()));
+            } else if (path.startsWith(OBJECT)) {
+                requireAuth(exchange);
+                String key = path.substring(OBJECT.length());
+                switch (method) {
+                    case "POST":
+                    case "PUT":
+                        upload(exchange, key);
+                        break;
+                    case "GET":
+                    case "HEAD":
+                        read(exchange, key, "HEAD".equals(method));
+                        break;
+                    case "DELETE":
+                        delete(exchange, key);
+                        break;
+                    default:
+                        sendError(exchange, 405, "Method not allowed");
+                }
+            } else {
+                sendError(exchange, 404, "Not found");
+            }
+        } catch (SecurityException e) {
+            sendError(exchange, 403, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void requireAuth(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            throw new SecurityException("Missing bearer token");
+        }
+    }
+
+    private void upload(HttpExchange exchange, String key) throws IOException {
+        byte[] body = readBody(exchange);
+        boolean upsert = "true".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("x-upsert"));
+        if (!upsert && objects.putIfAbsent(key, body) != null) {
+            sendError(exchange, 409, "The resource already exists");
+            return;
+        }
+        objects.put(key, body);
+        sendJson(exchange, 200, Map.of("Key", key));
+    }
+
+    private void read(HttpExchange exchange, String key, boolean headOnly) throws IOException {
+        byte[] body = objects.get(key);
+        if (body == null) {
+            sendError(exchange, 404, "Object not found");
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        if (headOnly) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(body.length));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void sign(HttpExchange exchange, String key) throws IOException {
+        readBody(exchange);
+        if (!objects.containsKey(key)) {
+            sendError(exchange, 404, "Object not found");
+            return;
+        }
+        sendJson(exchange, 200, Map.of("signedURL", "/object/sign/" + key + "?token=" + UUID.randomUUID()));
+    }
+
+    private void delete(HttpExchange exchange, String bucket) throws IOException {
+        JsonNode request = objectMapper.readTree(readBody(exchange));
+        List<Map<String, Object>> deleted = new ArrayList<>();
+        for (JsonNode prefix : request.path("prefixes")) {
+            String name = prefix.asText();
+            if (objects.remove(bucket + "/" + name) != null) {
+                deleted.add(Map.of("name", name, "bucket_id", bucket));
+            }
+        }
+        sendJson(exchange, 200, deleted);
+    }
+
+    private void list(HttpExchange exchange, String bucket) throws IOException {
+        JsonNode request = objectMapper.readTree(readBody(exchange));
+        String prefix = request.path("prefix").asText("");
+        int limit = request.path("limit").asInt(100);
+        int offset = request.path("offset").asInt(0);
+        String start = bucket + "/" + (prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/");
+        // Like Supabase, one level at a time: deeper keys show up as folder entries with a null id
+        List<Map<String, Object>> entries = new ArrayList<>();
+        String lastFolder = null;
+        int index = 0;
+        for (Map.Entry<String, byte[]> entry : objects.tailMap(start, true).entrySet()) {
+            if (!entry.getKey().startsWith(start) || entries.size() >= limit) {
+                break;
+            }
+            String name = entry.getKey().substring(start.length());
+            int slash = name.indexOf('/');
+            Map<String, Object> item = new LinkedHashMap<>();
+            if (slash >= 0) {
+                String folder = name.substring(0, slash);
+                if (folder.equals(lastFolder)) {
+                    continue;
+                }
+                lastFolder = folder;
+                item.put("name", folder);
+                item.put("id", null);
+                item.put("metadata", null);
+            } else {
+                item.put("name", name);
+                item.put("id", UUID.nameUUIDFromBytes(entry.getKey().getBytes(StandardCharsets.UTF_8)).toString());
+                item.put("metadata", Map.of("size", entry.getValue().length));
+            }
+            if (index++ >= offset) {
+                entries.add(item);
+            }
+        }
+        sendJson(exchange, 200, entries);
+    }
+
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, Map.of("statusCode", String.valueOf(status), "error", message, "message", message));
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.collabcloud.loadtest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * TCP relay that holds every chunk for half the configured round trip in
+ * each direction, so a local database answers like one across a network.
+ * Costs that scale with round trips (one INSERT per row) show up the way
+ * they do against a remote database.
+ */
+final class LatencyProxy implements Closeable {
+
+    private final int targetPort;
+    private final long oneWayNanos;
+    private ServerSocket serverSocket;
+
+    LatencyProxy(int targetPort, double roundTripMillis) {
+        this.targetPort = targetPort;
+        this.oneWayNanos = (long) (roundTripMillis * 1_000_000 / 2);
+    }
+
+    void start() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "latency-proxy");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                Socket target = new Socket(InetAddress.getLoopbackAddress(), targetPort);
+                client.setTcpNoDelay(true);
+                target.setTcpNoDelay(true);
+                pump(client, target);
+                pump(target, client);
+            } catch (IOException e) {
+                // Closed while accepting
+            }
+        }
+    }
+
+    private void pump(Socket from, Socket to) {
+        Thread thread = new Thread(() -> {
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    if (oneWayNanos > 0) {
+                        LockSupport.parkNanos(oneWayNanos);
+                    }
+                    out.write(buffer, 0, read);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // Either side closed the connection
+            } finally {
+                closeQuietly(from);
+                closeQuietly(to);
+            }
+        }, "latency-proxy-pump");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,88 @@
+package com.collabcloud.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects every request latency per endpoint and summarizes them as
+ * percentiles. Samples are kept exactly rather than bucketed; a run of a
+ * few minutes stays well within memory.
+ */
+class LatencyRecorder {
+
+    private final Map<String, Samples> samples = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long nanos, boolean success) {
+        samples.computeIfAbsent(endpoint, key -> new Samples()).add(nanos, success);
+    }
+
+    /**
+     * One row per endpoint plus a "TOTAL" row, in endpoint name order.
+     */
+    List<Map<String, Object>> summarize(double seconds) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Samples total = new Samples();
+        for (Map.Entry<String, Samples> entry : new TreeMap<>(samples).entrySet()) {
+            rows.add(entry.getValue().summarize(entry.getKey(), seconds));
+            total.addAll(entry.getValue());
+        }
+        rows.add(total.summarize("TOTAL", seconds));
+        return rows;
+    }
+
+    private static final class Samples {
+        private long[] nanos = new long[1024];
+        private int count;
+        private int errors;
+
+        synchronized void add(long value, boolean success) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = value;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        synchronized void addAll(Samples other) {
+            long[] values = other.snapshot();
+            for (long value : values) {
+                add(value, true);
+            }
+            errors += other.errors;
+        }
+
+        synchronized long[] snapshot() {
+            return Arrays.copyOf(nanos, count);
+        }
+
+        synchronized Map<String, Object> summarize(String endpoint, double seconds) {
+            long[] sorted = snapshot();
+            Arrays.sort(sorted);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("endpoint", endpoint);
+            row.put("requests", count);
+            row.put("errors", errors);
+            row.put("throughput", count / seconds);
+            row.put("p50Millis", percentile(sorted, 0.50));
+            row.put("p90Millis", percentile(sorted, 0.90));
+            row.put("p99Millis", percentile(sorted, 0.99));
+            row.put("maxMillis", sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1e6);
+            return row;
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.collabcloud.loadtest;
+
+import com.collabcloud.CollabCloudApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load test: boots the application against an embedded Postgres
+ * and FakeStorageServer, seeds users, projects and files through the REST
+ * API, then runs a weighted mix of operations from a fixed number of
+ * closed-loop workers and reports latency percentiles and throughput per
+ * endpoint.
+ *
+ * Settings are system properties (see the loadtest profile in pom.xml):
+ * loadtest.concurrency, loadtest.warmup and loadtest.duration (seconds),
+ * loadtest.mix (e.g. "upload:1,edit:4,history:3,list:4"), loadtest.users,
+ * loadtest.projects, loadtest.files (per project), loadtest.fileBytes,
+ * loadtest.storageLatencyMs and loadtest.out (JSON result file).
+ */
+public class LoadTest {
+
+    private static final String[] OPERATIONS = { "upload", "edit", "history", "list" };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LatencyRecorder recorder = new LatencyRecorder();
+    private final AtomicLong edits = new AtomicLong();
+    private final List<FileRef> files = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> projects = new ArrayList<>();
+    private final Map<Long, Long> owners = new LinkedHashMap<>();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+    private final int warmupSeconds = Integer.getInteger("loadtest.warmup", 10);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration", 60);
+    private final String mix = System.getProperty("loadtest.mix", "upload:1,edit:4,history:3,list:4");
+    private final int userCount = Integer.getInteger("loadtest.users", 10);
+    private final int projectCount = Integer.getInteger("loadtest.projects", 20);
+    private final int filesPerProject = Integer.getInteger("loadtest.files", 10);
+    private final int fileBytes = Integer.getInteger("loadtest.fileBytes", 8192);
+    private final long storageLatencyMillis = Long.getLong("loadtest.storageLatencyMs", 0L);
+    private final String out = System.getProperty("loadtest.out", "target/loadtest-result.json");
+
+    private String baseUrl;
+    private int[] weights;
+    private volatile long recordFrom;
+
+    private static final class FileRef {
+        final long fileId;
+        final long ownerId;
+
+        FileRef(long fileId, long ownerId) {
+            this.fileId = fileId;
+            this.ownerId = ownerId;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int status = new LoadTest().run();
+        // Embedded Postgres and the HTTP client leave non-daemon threads behind
+        System.exit(status);
+    }
+
+    private int run() throws Exception {
+        weights = parseMix(mix);
+        FakeStorageServer storage = new FakeStorageServer(storageLatencyMillis);
+        storage.start();
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            ConfigurableApplicationContext context = startApplication(postgres.getJdbcUrl("postgres", "postgres"),
+                    storage);
+            try {
+                baseUrl = "http://127.0.0.1:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+                seed();
+                List<Map<String, Object>> results = drive();
+                print(results);
+                write(results, storage);
+            } finally {
+                context.close();
+            }
+        } finally {
+            storage.stop();
+        }
+        return 0;
+    }
+
+    /**
+     * Boot the application against the embedded database (user postgres)
+     * and fake storage; extra arguments are appended to the command line.
+     */
+    static ConfigurableApplicationContext startApplication(String jdbcUrl, FakeStorageServer storage,
+            String... extraArgs) {
+        // Command-line arguments outrank secret.properties, so a local Supabase configuration is never used
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=" + jdbcUrl,
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--supabase.url=" + storage.getUrl(),
+                "--supabase.service-key=loadtest",
+                "--supabase.bucket=loadtest",
+                // One summary line per request would flood the console; 5xx responses still show as warnings
+                "--logging.level.com.collabcloud.request=WARN",
+                // Background executor threads outlive Tomcat at shutdown; its leak warnings are noise here
+                "--logging.level.org.apache.catalina.loader.WebappClassLoaderBase=ERROR"));
+        args.addAll(List.of(extraArgs));
+        return SpringApplication.run(CollabCloudApplication.class, args.toArray(new String[0]));
+    }
+
+    private void seed() throws Exception {
+        System.out.printf("Seeding %d users, %d projects, %d files%n", userCount, projectCount,
+                projectCount * filesPerProject);
+        List<Long> users = new ArrayList<>();
+        for (int i = 0; i < userCount; i++) {
+            Map<String, Object> body = Map.of("email", "load" + i + "-" + UUID.randomUUID() + "@example.com",
+                    "password", "password", "name", "Load User " + i);
+            users.add(send(jsonRequest("POST", "/auth/register", body)).path("userId").asLong());
+        }
+        for (int p = 0; p < projectCount; p++) {
+            long ownerId = users.get(p % users.size());
+            Map<String, Object> body = Map.of("title", "Load project " + p, "description", "Seeded for load testing",
+                    "creator", Map.of("userId", ownerId));
+            long projectId = send(jsonRequest("POST", "/api/projects", body)).path("projectId").asLong();
+            projects.add(projectId);
+            owners.put(projectId, ownerId);
+            for (int c = 1; c <= 2 && c < users.size(); c++) {
+                long collaboratorId = users.get((p + c) % users.size());
+                send(HttpRequest.newBuilder(uri("/api/projects/" + projectId + "/collaborators/" + collaboratorId))
+                        .header("X-User-Id", String.valueOf(ownerId))
+                        .POST(HttpRequest.BodyPublishers.noBody())
+                        .build());
+            }
+            for (int f = 0; f < filesPerProject; f++) {
+                long fileId = send(uploadRequest(projectId, "seed-" + f + ".txt")).path("fileId").asLong();
+                files.add(new FileRef(fileId, ownerId));
+            }
+        }
+    }
+
+    private List<Map<String, Object>> drive() throws InterruptedException {
+        System.out.printf("Running %s with %d workers: %ds warmup, %ds measured%n", mix, concurrency,
+                warmupSeconds, durationSeconds);
+        long start = System.nanoTime();
+        recordFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = recordFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.execute(() -> {
+                while (System.nanoTime() < end) {
+                    runOperation(pick());
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(warmupSeconds + durationSeconds + 60L, TimeUnit.SECONDS);
+        return recorder.summarize(durationSeconds);
+    }
+
+    private void runOperation(String operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            switch (operation) {
+                case "upload": {
+                    long projectId = projects.get(random.nextInt(projects.size()));
+                    JsonNode file = timed("POST /api/files/upload", uploadRequest(projectId, "upload.txt"));
+                    if (file != null) {
+                        files.add(new FileRef(file.path("fileId").asLong(), owners.get(projectId)));
+                    }
+                    break;
+                }
+                case "edit": {
+                    FileRef file = files.get(random.nextInt(files.size()));
+                    timed("GET /api/files/{id}/content", HttpRequest.newBuilder(uri("/api/files/" + file.fileId + "/content"))
+                            .GET().build());
+                    Map<String, Object> body = Map.of("content", content(edits.incrementAndGet()),
+                            "userId", String.valueOf(file.ownerId));
+                    timed("PUT /api/files/{id}/content", jsonRequest("PUT", "/api/files/" + file.fileId + "/content", body));
+                    break;
+                }
+                case "history": {
+                    FileRef file = files.get(random.nextInt(files.size()));
+                    JsonNode history = timed("GET /api/file-history/file/{id}",
+                            HttpRequest.newBuilder(uri("/api/file-history/file/" + file.fileId + "?size=20")).GET().build());
+                    if (history != null && history.size() > 0) {
+                        long historyId = history.get(random.nextInt(history.size())).path("historyId").asLong();
+                        timed("GET /api/file-history/{id}",
+                                HttpRequest.newBuilder(uri("/api/file-history/" + historyId)).GET().build());
+                    }
+                    break;
+                }
+                case "list": {
+                    timed("GET /api/projects", HttpRequest.newBuilder(uri("/api/projects?size=20&sort=lastModified,desc"))
+                            .GET().build());
+                    long projectId = projects.get(random.nextInt(projects.size()));
+                    timed("GET /api/files/project/{id}",
+                            HttpRequest.newBuilder(uri("/api/files/project/" + projectId + "?size=50")).GET().build());
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown operation " + operation);
+            }
+        } catch (IOException e) {
+            System.err.println(operation + " failed: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Send a request and record its latency once warmup is over. Returns the
+     * parsed JSON body on success, or null.
+     */
+    private JsonNode timed(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        long elapsed = System.nanoTime() - started;
+        boolean success = response.statusCode() / 100 == 2;
+        if (started >= recordFrom) {
+            recorder.record(endpoint, elapsed, success);
+        }
+        if (!success) {
+            return null;
+        }
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        return contentType.contains("json") ? objectMapper.readTree(response.body()) : null;
+    }
+
+    private JsonNode send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " returned "
+                    + response.statusCode() + ": " + new String(response.body(), StandardCharsets.UTF_8));
+        }
+        return response.body().length == 0 ? objectMapper.nullNode() : objectMapper.readTree(response.body());
+    }
+
+    private HttpRequest jsonRequest(String method, String path, Object body) throws IOException {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private HttpRequest uploadRequest(long projectId, String fileName) throws IOException {
+        String boundary = "loadtest-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(content(0).getBytes(StandardCharsets.UTF_8));
+        body.write(("\r\n--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"projectId\"\r\n\r\n" + projectId + "\r\n"
+                + "--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return HttpRequest.newBuilder(uri("/api/files/upload"))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    /**
+     * Roughly fileBytes of source-like text; the revision number changes one
+     * line so successive edits differ.
+     */
+    private String content(long revision) {
+        StringBuilder builder = new StringBuilder(fileBytes + 64);
+        builder.append("// revision ").append(revision).append('\n');
+        for (int line = 0; builder.length() < fileBytes; line++) {
+            builder.append("    int value").append(line).append(" = compute(").append(line).append(");\n");
+        }
+        return builder.toString();
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private String pick() {
+        int roll = ThreadLocalRandom.current().nextInt(weights[weights.length - 1]);
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            if (roll < weights[i]) {
+                return OPERATIONS[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Cumulative weights in OPERATIONS order from "name:weight,..."; missing
+     * operations get weight 0.
+     */
+    private static int[] parseMix(String mix) {
+        int[] cumulative = new int[OPERATIONS.length];
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            int index = List.of(OPERATIONS).indexOf(pair[0]);
+            if (index < 0 || pair.length != 2) {
+                throw new IllegalArgumentException("Bad mix entry '" + part + "'; operations are "
+                        + String.join(", ", OPERATIONS));
+            }
+            cumulative[index] = Integer.parseInt(pair[1]);
+        }
+        for (int i = 1; i < cumulative.length; i++) {
+            cumulative[i] += cumulative[i - 1];
+        }
+        if (cumulative[cumulative.length - 1] <= 0) {
+            throw new IllegalArgumentException("Mix has no operations: " + mix);
+        }
+        return cumulative;
+    }
+
+    private void print(List<Map<String, Object>> results) {
+        System.out.printf("%n%-34s %9s %7s %10s %9s %9s %9s %9s%n", "Endpoint", "Requests", "Errors", "Req/s",
+                "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Map<String, Object> row : results) {
+            System.out.printf("%-34s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n", row.get("endpoint"),
+                    row.get("requests"), row.get("errors"), row.get("throughput"), row.get("p50Millis"),
+                    row.get("p90Millis"), row.get("p99Millis"), row.get("maxMillis"));
+        }
+    }
+
+    private void write(List<Map<String, Object>> results, FakeStorageServer storage) throws IOException {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("concurrency", concurrency);
+        config.put("warmupSeconds", warmupSeconds);
+        config.put("durationSeconds", durationSeconds);
+        config.put("mix", mix);
+        config.put("users", userCount);
+        config.put("projects", projectCount);
+        config.put("filesPerProject", filesPerProject);
+        config.put("fileBytes", fileBytes);
+        config.put("storageLatencyMs", storageLatencyMillis);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config);
+        report.put("results", results);
+        report.put("storageObjects", storage.getObjectCount());
+        File file = new File(out);
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+        System.out.println("Results written to " + file.getAbsolutePath());
+    }
+}
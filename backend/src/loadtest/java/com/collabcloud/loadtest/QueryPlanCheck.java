@@ -0,0 +1,199 @@
+package com.collabcloud.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fails when a hot lookup can only be answered by a sequential scan. Boots
+ * the application twice against an embedded Postgres: once on an empty
+ * database, so the schema is the one the Flyway migrations build, and once
+ * on a database holding the schema the pre-Flyway application created
+ * (legacy-schema.sql), which Flyway baselines at V1. Hibernate validates
+ * both. It then runs EXPLAIN on the SQL behind each repository lookup with
+ * enable_seqscan off: the planner still picks a Seq Scan only when no index
+ * can serve the query, which keeps the check independent of table sizes and
+ * statistics.
+ *
+ * Exits 1 and lists the offending plans if any lookup regresses.
+ */
+public class QueryPlanCheck {
+
+    /** Lookup name and the SQL the repository method issues. */
+    private static final Map<String, String> QUERIES = new LinkedHashMap<>();
+
+    static {
+        QUERIES.put("files by project",
+                "SELECT * FROM files WHERE project_id = 1 ORDER BY upload_date DESC LIMIT 100");
+        QUERIES.put("versions by file",
+                "SELECT * FROM versions WHERE file_id = 1 ORDER BY timestamp DESC");
+        QUERIES.put("versions by content path",
+                "SELECT 1 FROM versions WHERE content_path = 'versions/1/x' LIMIT 1");
+        QUERIES.put("files by path",
+                "SELECT file_path FROM files WHERE file_path IN ('files/a.txt', 'a.txt')");
+        QUERIES.put("history by file",
+                "SELECT * FROM file_history WHERE file_id = 1 ORDER BY modified_date DESC");
+        QUERIES.put("history by user",
+                "SELECT * FROM file_history WHERE user_id = 1 ORDER BY modified_date DESC");
+        QUERIES.put("history by path",
+                "SELECT file_path FROM file_history WHERE file_path IN ('files/a.txt', 'a.txt')");
+        QUERIES.put("comments by file",
+                "SELECT * FROM comments WHERE file_id = 1 ORDER BY created_date");
+        QUERIES.put("comments by project",
+                "SELECT * FROM comments WHERE project_id = 1 ORDER BY created_date");
+        QUERIES.put("comments by user",
+                "SELECT * FROM comments WHERE user_id = 1 ORDER BY created_date");
+        QUERIES.put("collaborator by project and user",
+                "SELECT * FROM project_collaborators WHERE project_id = 1 AND user_id = 2");
+        QUERIES.put("collaborators by project",
+                "SELECT * FROM project_collaborators WHERE project_id = 1");
+        QUERIES.put("collaborations by user",
+                "SELECT p.* FROM projects p JOIN project_collaborators c ON c.project_id = p.project_id "
+                        + "WHERE c.user_id = 2");
+        QUERIES.put("projects by creator",
+                "SELECT * FROM projects WHERE creator_id = 1 ORDER BY last_modified DESC");
+        QUERIES.put("user by email",
+                "SELECT * FROM users WHERE email = 'someone@example.com'");
+        QUERIES.put("activity by project",
+                "SELECT * FROM activity_logs WHERE project_id = 1 ORDER BY timestamp DESC");
+        QUERIES.put("activity by user",
+                "SELECT * FROM activity_logs WHERE user_id = 1");
+        QUERIES.put("search documents by project",
+                "SELECT id FROM search_documents WHERE project_id = 1");
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        int status = new QueryPlanCheck().run();
+        System.exit(status);
+    }
+
+    private int run() throws Exception {
+        FakeStorageServer storage = new FakeStorageServer(0);
+        storage.start();
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            String emptyUrl = postgres.getJdbcUrl("postgres", "postgres");
+            try (Connection connection = DriverManager.getConnection(emptyUrl);
+                    Statement statement = connection.createStatement()) {
+                statement.execute("CREATE DATABASE legacy");
+            }
+            String legacyUrl = postgres.getJdbcUrl("postgres", "legacy");
+            try (Connection connection = DriverManager.getConnection(legacyUrl);
+                    Statement statement = connection.createStatement()) {
+                statement.execute(legacySchema());
+            }
+            int failures = checkDatabase("migrated empty database", emptyUrl, storage, false);
+            failures += checkDatabase("baselined legacy database", legacyUrl, storage, true);
+            if (failures > 0) {
+                return 1;
+            }
+            System.out.printf("%nAll %d lookups use an index in both databases%n", QUERIES.size());
+            return 0;
+        } finally {
+            storage.stop();
+        }
+    }
+
+    private String legacySchema() throws Exception {
+        try (InputStream in = QueryPlanCheck.class.getResourceAsStream("/legacy-schema.sql")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private int checkDatabase(String name, String jdbcUrl, FakeStorageServer storage, boolean backfill)
+            throws Exception {
+        ConfigurableApplicationContext context = LoadTest.startApplication(jdbcUrl, storage,
+                "--logging.level.com.collabcloud=WARN");
+        try {
+            if (backfill && !awaitBackfill(jdbcUrl)) {
+                System.out.printf("%nStartup backfill did not finish in the %s%n", name);
+                return 1;
+            }
+            return check(name, jdbcUrl);
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Waits for the startup tasks that move legacy version bodies to storage
+     * and build the search index, so they neither race the shutdown nor go
+     * unexercised.
+     */
+    private boolean awaitBackfill(String jdbcUrl) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        try (Connection connection = DriverManager.getConnection(jdbcUrl);
+                Statement statement = connection.createStatement()) {
+            while (System.nanoTime() < deadline) {
+                try (ResultSet result = statement.executeQuery(
+                        "SELECT NOT EXISTS (SELECT 1 FROM versions WHERE content_path IS NULL) "
+                                + "AND EXISTS (SELECT 1 FROM search_documents)")) {
+                    result.next();
+                    if (result.getBoolean(1)) {
+                        return true;
+                    }
+                }
+                Thread.sleep(200);
+            }
+        }
+        return false;
+    }
+
+    /** Returns the number of lookups that fall back to a sequential scan. */
+    private int check(String name, String jdbcUrl) throws Exception {
+        List<String> failures = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(jdbcUrl);
+                Statement statement = connection.createStatement()) {
+            statement.execute("SET enable_seqscan = off");
+            System.out.printf("%n%s%n%-35s %s%n", name, "Lookup", "Scans");
+            for (Map.Entry<String, String> query : QUERIES.entrySet()) {
+                JsonNode plan;
+                try (ResultSet result = statement.executeQuery("EXPLAIN (FORMAT JSON) " + query.getValue())) {
+                    result.next();
+                    plan = mapper.readTree(result.getString(1)).get(0).get("Plan");
+                }
+                List<String> scans = new ArrayList<>();
+                boolean seqScan = collectScans(plan, scans);
+                System.out.printf("%-35s %s%n", query.getKey(), String.join(", ", scans));
+                if (seqScan) {
+                    failures.add(query.getKey() + ": " + query.getValue() + System.lineSeparator()
+                            + mapper.writerWithDefaultPrettyPrinter().writeValueAsString(plan));
+                }
+            }
+        }
+        if (!failures.isEmpty()) {
+            System.out.printf("%n%d lookup(s) fall back to a sequential scan in the %s:%n", failures.size(), name);
+            failures.forEach(System.out::println);
+        }
+        return failures.size();
+    }
+
+    /** Adds "Node Type on relation" for every scan in the plan; true if any is a Seq Scan. */
+    private boolean collectScans(JsonNode node, List<String> scans) {
+        String type = node.path("Node Type").asText();
+        boolean seqScan = "Seq Scan".equals(type);
+        if (node.has("Relation Name") || node.has("Index Name")) {
+            String relation = node.has("Relation Name") ? " on " + node.get("Relation Name").asText() : "";
+            String index = node.has("Index Name") ? " (" + node.get("Index Name").asText() + ")" : "";
+            scans.add(type + relation + index);
+        }
+        for (JsonNode child : node.path("Plans")) {
+            seqScan |= collectScans(child, scans);
+        }
+        return seqScan;
+    }
+}
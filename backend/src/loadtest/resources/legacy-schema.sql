@@ -0,0 +1,118 @@
+-- Schema the application created with ddl-auto=update before Flyway took over
+-- (identity ids, version bodies inline, no search table, no secondary indexes),
+-- with a few rows so the migrations run against data.
+
+CREATE TABLE users (
+    user_id bigserial NOT NULL,
+    bio varchar(255),
+    email varchar(255) NOT NULL,
+    last_login date,
+    name varchar(255) NOT NULL,
+    password varchar(255) NOT NULL,
+    profile_picture varchar(255),
+    role varchar(255) NOT NULL,
+    PRIMARY KEY (user_id),
+    CONSTRAINT uk_6dotkott2kjsp8vw4d0m25fb7 UNIQUE (email)
+);
+
+CREATE TABLE projects (
+    project_id bigserial NOT NULL,
+    created_date timestamp NOT NULL,
+    description text,
+    last_modified timestamp NOT NULL,
+    title varchar(255) NOT NULL,
+    creator_id int8 NOT NULL,
+    PRIMARY KEY (project_id),
+    CONSTRAINT fk14mww7skdu5cpg6nq2kwcnx0e FOREIGN KEY (creator_id) REFERENCES users
+);
+
+CREATE TABLE project_collaborators (
+    id bigserial NOT NULL,
+    added_at timestamp NOT NULL,
+    permission varchar(255) NOT NULL,
+    project_id int8 NOT NULL,
+    user_id int8 NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk6jm69ckt1k99lmtb50ckx5u89 FOREIGN KEY (project_id) REFERENCES projects,
+    CONSTRAINT fk8hyigkyeagt8sh0aqpcr5ouvd FOREIGN KEY (user_id) REFERENCES users
+);
+
+CREATE TABLE files (
+    file_id bigserial NOT NULL,
+    file_name varchar(255) NOT NULL,
+    file_path text NOT NULL,
+    file_type varchar(255) NOT NULL,
+    upload_date timestamp NOT NULL,
+    project_id int8 NOT NULL,
+    PRIMARY KEY (file_id),
+    CONSTRAINT fkncpjdlvw4479eu6qnh5a4fo9t FOREIGN KEY (project_id) REFERENCES projects
+);
+
+CREATE TABLE versions (
+    version_id bigserial NOT NULL,
+    content text NOT NULL,
+    timestamp timestamp NOT NULL,
+    version_message varchar(255) NOT NULL,
+    version_number varchar(255) NOT NULL,
+    file_id int8 NOT NULL,
+    PRIMARY KEY (version_id),
+    CONSTRAINT fkio7f4mo8crbpt2a1v94vyyliw FOREIGN KEY (file_id) REFERENCES files
+);
+
+CREATE TABLE file_history (
+    history_id bigserial NOT NULL,
+    change_description varchar(100),
+    change_type varchar(50),
+    content text NOT NULL,
+    file_path varchar(500),
+    modified_date timestamp NOT NULL,
+    version_reference int8,
+    file_id int8 NOT NULL,
+    user_id int8,
+    PRIMARY KEY (history_id),
+    CONSTRAINT fk57jm9l9o9gcdeaamdp2lurxah FOREIGN KEY (file_id) REFERENCES files,
+    CONSTRAINT fkex4t9e62f4wjet7sv3wc6vmva FOREIGN KEY (user_id) REFERENCES users
+);
+
+CREATE TABLE comments (
+    comment_id bigserial NOT NULL,
+    content text NOT NULL,
+    created_date timestamp,
+    email varchar(255) NOT NULL,
+    updated_date timestamp,
+    file_id int8,
+    project_id int8,
+    user_id int8 NOT NULL,
+    PRIMARY KEY (comment_id),
+    CONSTRAINT fkr9lyd4h3md3nxcpde95yhyj9t FOREIGN KEY (file_id) REFERENCES files,
+    CONSTRAINT fkgkoamotsfr3mc0pwa1qrrmwhi FOREIGN KEY (project_id) REFERENCES projects,
+    CONSTRAINT fk8omq0tc18jd43bu5tjh6jvraq FOREIGN KEY (user_id) REFERENCES users
+);
+
+CREATE TABLE activity_logs (
+    activity_id bigserial NOT NULL,
+    action_description varchar(255) NOT NULL,
+    action_timestamp timestamp NOT NULL,
+    action_type varchar(255) NOT NULL,
+    data text NOT NULL,
+    timestamp timestamp NOT NULL,
+    project_id int8,
+    user_id int8,
+    PRIMARY KEY (activity_id),
+    CONSTRAINT fkavkl7v9l6yfc9hhpaqi1q6f5u FOREIGN KEY (project_id) REFERENCES projects,
+    CONSTRAINT fk5bm1lt4f4eevt8lv2517soakd FOREIGN KEY (user_id) REFERENCES users
+);
+
+INSERT INTO users (email, name, password, role) VALUES ('legacy@example.com', 'Legacy', 'x', 'USER');
+INSERT INTO projects (created_date, description, last_modified, title, creator_id)
+VALUES (now(), 'Created before migrations', now(), 'Legacy', 1);
+INSERT INTO files (file_name, file_path, file_type, upload_date, project_id)
+VALUES ('a.txt', 'files/a.txt', 'text/plain', now(), 1);
+INSERT INTO versions (content, timestamp, version_message, version_number, file_id)
+VALUES ('first', now(), 'Initial', '1', 1), ('second', now(), 'Edit', '2', 1);
+INSERT INTO file_history (change_description, change_type, content, file_path, modified_date, file_id, user_id)
+VALUES ('Uploaded', 'UPLOAD', 'first', 'files/a.txt', now(), 1, 1);
+INSERT INTO comments (content, created_date, email, file_id, project_id, user_id)
+VALUES ('Looks good', now(), 'legacy@example.com', 1, 1, 1);
+INSERT INTO activity_logs (action_description, action_timestamp, action_type, data, timestamp, project_id, user_id)
+VALUES ('Created project', now(), 'CREATE_PROJECT', '{}', now(), 1, 1);
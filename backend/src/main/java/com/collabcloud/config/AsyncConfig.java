@@ -0,0 +1,22 @@
+package com.collabcloud.config;
+
+import org.springframework.boot.task.TaskExecutorCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    /**
+     * When the bounded queue is full, run the task on the caller instead of
+     * failing the request that triggered it.
+     */
+    @Bean
+    public TaskExecutorCustomizer callerRunsWhenSaturated() {
+        return executor -> executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
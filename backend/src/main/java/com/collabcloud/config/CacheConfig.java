@@ -0,0 +1,68 @@
+package com.collabcloud.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Caffeine caches behind Hibernate's second-level and query cache. Every
+ * region is created here with a size bound and a time-to-live (Hibernate is
+ * set to fail on a region it does not find), except the update timestamps
+ * region, which must never lose entries or cached queries could go stale.
+ */
+@Configuration
+public class CacheConfig {
+
+    /** Entity and collection regions named by the @Cache annotations. */
+    private static final String[] ENTITY_REGIONS = { "users", "projects", "project-collaborators",
+            "projects.collaborators" };
+
+    private static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Value("${app.cache.entity-max-size:10000}")
+    private long entityMaxSize;
+
+    @Value("${app.cache.query-max-size:10000}")
+    private long queryMaxSize;
+
+    @Value("${app.cache.ttl:PT5M}")
+    private Duration ttl;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+        for (String region : ENTITY_REGIONS) {
+            cacheManager.createCache(region, bounded(entityMaxSize));
+        }
+        cacheManager.createCache(QUERY_RESULTS_REGION, bounded(queryMaxSize));
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStatisticsEnabled(true);
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, timestamps);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private CaffeineConfiguration<Object, Object> bounded(long maxSize) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        // Bounds staleness from writes that bypass Hibernate (SQL consoles, other instances)
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
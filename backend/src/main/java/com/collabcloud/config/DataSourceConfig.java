@@ -0,0 +1,92 @@
+package com.collabcloud.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Connection pools. The primary pool takes all writes and every read not
+ * routed elsewhere. When app.datasource.replica.url is set, a second pool
+ * opens against the read replica and @Transactional(readOnly = true) service
+ * methods (listings, history, search) run there. Both pools take their
+ * settings from spring.datasource.hikari, which app.datasource.replica.hikari
+ * overrides for the replica.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceConfig.class);
+
+    private static final String REPLICA_ENABLED = "!'${app.datasource.replica.url:}'.isEmpty()";
+
+    @Bean
+    public HikariDataSource primaryDataSource(DataSourceProperties properties, Environment environment) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnExpression(REPLICA_ENABLED)
+    public HikariDataSource replicaDataSource(DataSourceProperties properties, Environment environment) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                .url(environment.getProperty("app.datasource.replica.url"))
+                .username(environment.getProperty("app.datasource.replica.username", properties.determineUsername()))
+                .password(environment.getProperty("app.datasource.replica.password", properties.determinePassword()))
+                .build();
+        Binder binder = Binder.get(environment);
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(ReadReplicaRoutingDataSource.REPLICA);
+        binder.bind("app.datasource.replica.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource) {
+        DataSource replica = replicaDataSource.getIfAvailable();
+        if (replica == null) {
+            return primaryDataSource;
+        }
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                ReadReplicaRoutingDataSource.PRIMARY, primaryDataSource,
+                ReadReplicaRoutingDataSource.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        logger.info("Read-only service transactions use the read replica");
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * With open-in-view a session otherwise keeps its first connection for
+     * the whole request, so a read-only call made before a write would leave
+     * the write on the replica. Releasing after each transaction lets every
+     * transaction route on its own.
+     */
+    @Bean
+    @ConditionalOnExpression(REPLICA_ENABLED)
+    public HibernatePropertiesCustomizer replicaConnectionHandlingCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
@@ -0,0 +1,22 @@
+package com.collabcloud.config;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Request summary logging. Appenders and the JSON layout are configured in
+ * logback-spring.xml.
+ */
+@Configuration
+public class LoggingConfig {
+
+    @Bean
+    public FilterRegistrationBean<RequestLogFilter> requestLogFilter() {
+        FilterRegistrationBean<RequestLogFilter> registration = new FilterRegistrationBean<>(new RequestLogFilter());
+        // Inside the tracing filter, so the server span (and its trace id) is current
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+}
@@ -0,0 +1,39 @@
+package com.collabcloud.config;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Tag http.server.requests with the handling controller class, so
+     * request timers can be grouped per controller as well as per URI
+     * template. Both are bounded by the set of mappings.
+     */
+    @Bean
+    public WebMvcTagsContributor controllerTagContributor() {
+        return new WebMvcTagsContributor() {
+            @Override
+            public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler,
+                    Throwable exception) {
+                String controller = handler instanceof HandlerMethod
+                        ? ((HandlerMethod) handler).getBeanType().getSimpleName()
+                        : "none";
+                return Tags.of("controller", controller);
+            }
+
+            @Override
+            public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+                return Tags.empty();
+            }
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package com.collabcloud.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions opened by service methods to the replica and
+ * everything else to the primary. Spring Data also opens a read-only
+ * transaction for each repository read made outside a transaction, but the
+ * services read an entity that way and then save it, so those reads stay on
+ * the primary: a lagging replica would hand them stale rows to write back.
+ *
+ * The lookup happens when a statement needs a physical connection, so this
+ * must sit behind a LazyConnectionDataSourceProxy; by then the transaction's
+ * read-only flag and name are set.
+ */
+class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    /** @Transactional names transactions after the declaring class and method. */
+    private static final String SERVICE_PACKAGE = "com.collabcloud.service.";
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        String transaction = TransactionSynchronizationManager.getCurrentTransactionName();
+        return transaction != null && transaction.startsWith(SERVICE_PACKAGE) ? REPLICA : PRIMARY;
+    }
+}
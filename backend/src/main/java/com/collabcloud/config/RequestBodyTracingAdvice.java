@@ -0,0 +1,65 @@
+package com.collabcloud.config;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Times @RequestBody deserialization as its own span, so JSON parsing shows
+ * up separately from the controller method that receives the result.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "app.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class RequestBodyTracingAdvice extends RequestBodyAdviceAdapter {
+
+    @Autowired
+    private Tracer tracer;
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+            Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+            Class<? extends HttpMessageConverter<?>> converterType) {
+        Span span = tracer.spanBuilder("read " + parameter.getParameterType().getSimpleName()).startSpan();
+        RequestContextHolder.currentRequestAttributes()
+                .setAttribute(TracingFilter.BODY_SPAN_ATTRIBUTE, span, RequestAttributes.SCOPE_REQUEST);
+        return inputMessage;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+            Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        endBodySpan();
+        return body;
+    }
+
+    @Override
+    public Object handleEmptyBody(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+            Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        endBodySpan();
+        return body;
+    }
+
+    private void endBodySpan() {
+        RequestAttributes attributes = RequestContextHolder.currentRequestAttributes();
+        Object span = attributes.getAttribute(TracingFilter.BODY_SPAN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (span instanceof Span) {
+            ((Span) span).end();
+            attributes.removeAttribute(TracingFilter.BODY_SPAN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.collabcloud.config;
+
+import com.collabcloud.service.LogValues;
+import com.collabcloud.service.RequestTimings;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Writes one summary line per request to the com.collabcloud.request logger:
+ * method, route template, status, total time and the time spent in storage
+ * calls. The trace id is put in the MDC so every line logged while handling
+ * the request carries it. Actuator requests are not logged.
+ */
+public class RequestLogFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger("com.collabcloud.request");
+
+    private static final String TRACE_ID = "trace_id";
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        SpanContext spanContext = Span.current().getSpanContext();
+        if (spanContext.isValid()) {
+            MDC.put(TRACE_ID, spanContext.getTraceId());
+        }
+        RequestTimings timings = RequestTimings.begin();
+        boolean failed = false;
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            failed = true;
+            throw e;
+        } finally {
+            RequestTimings.end();
+            int status = failed ? 500 : response.getStatus();
+            if (status >= 500 ? logger.isWarnEnabled() : logger.isInfoEnabled()) {
+                Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                Object[] fields = {
+                        kv("method", request.getMethod()),
+                        kv("route", route != null ? route : LogValues.truncate(request.getRequestURI(), 100)),
+                        kv("status", status),
+                        kv("duration_ms", (System.nanoTime() - start) / 1_000_000),
+                        kv("storage_calls", timings.getStorageCalls()),
+                        kv("storage_ms", timings.getStorageMillis()),
+                        kv("request_bytes", Math.max(0, request.getContentLengthLong())) };
+                if (status >= 500) {
+                    logger.warn("{} {} {} {} {} {} {}", fields);
+                } else {
+                    logger.info("{} {} {} {} {} {} {}", fields);
+                }
+            }
+            MDC.remove(TRACE_ID);
+        }
+    }
+}
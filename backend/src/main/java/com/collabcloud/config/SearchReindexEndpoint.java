@@ -0,0 +1,41 @@
+package com.collabcloud.config;
+
+import com.collabcloud.service.SearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Operator trigger for a full search index rebuild, at
+ * /actuator/searchreindex. Not in the default exposure list: enable it with
+ * management.endpoints.web.exposure.include, ideally together with a
+ * management.server.port that is not reachable from outside. A POST starts
+ * a rebuild (202) or is refused while one is running (409).
+ */
+@Component
+@WebEndpoint(id = "searchreindex")
+public class SearchReindexEndpoint {
+
+    @Autowired
+    private SearchService searchService;
+
+    @ReadOperation
+    public Map<String, Boolean> status() {
+        return Map.of("running", searchService.isReindexing());
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Map<String, String>> reindex() {
+        if (!searchService.startReindex()) {
+            return new WebEndpointResponse<>(Map.of("error", "A search index rebuild is already running"),
+                    HttpStatus.CONFLICT.value());
+        }
+        return new WebEndpointResponse<>(Map.of("status", "started"), HttpStatus.ACCEPTED.value());
+    }
+}
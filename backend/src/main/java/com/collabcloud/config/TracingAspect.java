@@ -0,0 +1,72 @@
+package com.collabcloud.config;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One span per controller, service and repository method call, named
+ * "Class.method". Spring Data repositories are named after the application
+ * interface (ProjectRepository.findById), not the CrudRepository that
+ * declares the method.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "app.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingAspect {
+
+    @Autowired
+    private Tracer tracer;
+
+    private final Map<Class<?>, String> names = new ConcurrentHashMap<>();
+
+    @Around("within(com.collabcloud..*) && (@within(org.springframework.web.bind.annotation.RestController)"
+            + " || @within(org.springframework.stereotype.Service))")
+    public Object traceComponent(ProceedingJoinPoint joinPoint) throws Throwable {
+        String type = names.computeIfAbsent(AopUtils.getTargetClass(joinPoint.getTarget()), Class::getSimpleName);
+        return trace(type + "." + joinPoint.getSignature().getName(), false, joinPoint);
+    }
+
+    @Around("this(org.springframework.data.repository.Repository)"
+            + " || (within(com.collabcloud.repository..*) && @within(org.springframework.stereotype.Repository))")
+    public Object traceRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        String type = names.computeIfAbsent(joinPoint.getThis().getClass(), TracingAspect::repositoryName);
+        return trace(type + "." + joinPoint.getSignature().getName(), true, joinPoint);
+    }
+
+    private Object trace(String name, boolean database, ProceedingJoinPoint joinPoint) throws Throwable {
+        Span span = tracer.spanBuilder(name).startSpan();
+        if (database) {
+            span.setAttribute("db.system", "postgresql");
+        }
+        try (Scope ignored = span.makeCurrent()) {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private static String repositoryName(Class<?> proxyClass) {
+        for (Class<?> type : proxyClass.getInterfaces()) {
+            if (type.getName().startsWith("com.collabcloud.")) {
+                return type.getSimpleName();
+            }
+        }
+        return AopUtils.isAopProxy(proxyClass) ? proxyClass.getSuperclass().getSimpleName() : proxyClass.getSimpleName();
+    }
+}
@@ -0,0 +1,148 @@
+package com.collabcloud.config;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.TaskDecorator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * OpenTelemetry tracing. Spans are sampled by trace id ratio (honouring an
+ * incoming sampled flag) and exported in batches, either as OTLP JSON lines
+ * to a local file or as one log line per span, so nothing needs a collector.
+ */
+@Configuration
+public class TracingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(TracingConfig.class);
+
+    @Value("${app.tracing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.tracing.service-name:collabcloud-backend}")
+    private String serviceName;
+
+    @Value("${app.tracing.sample-ratio:0.1}")
+    private double sampleRatio;
+
+    @Value("${app.tracing.exporter:otlp-file}")
+    private String exporter;
+
+    @Value("${app.tracing.file:logs/traces-%g.jsonl}")
+    private String file;
+
+    @Value("${app.tracing.file-max-bytes:52428800}")
+    private int fileMaxBytes;
+
+    // Held so java.util.logging cannot collect the configured logger
+    private java.util.logging.Logger otlpLogger;
+
+    @Bean(destroyMethod = "close")
+    public SdkTracerProvider sdkTracerProvider() throws IOException {
+        SdkTracerProviderBuilder builder = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().merge(
+                        Resource.create(Attributes.of(AttributeKey.stringKey("service.name"), serviceName))))
+                .setSampler(Sampler.parentBased(Sampler.traceIdRatioBased(sampleRatio)));
+        SpanExporter spanExporter = enabled ? spanExporter() : null;
+        if (spanExporter != null) {
+            builder.addSpanProcessor(BatchSpanProcessor.builder(spanExporter).build());
+            logger.info("Tracing enabled: exporter={}, sample ratio={}", exporter, sampleRatio);
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public OpenTelemetry openTelemetry(SdkTracerProvider tracerProvider) {
+        if (!enabled) {
+            return OpenTelemetry.noop();
+        }
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider)
+                .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                .build();
+    }
+
+    @Bean
+    public Tracer tracer(OpenTelemetry openTelemetry) {
+        return openTelemetry.getTracer("com.collabcloud");
+    }
+
+    @Bean
+    public FilterRegistrationBean<TracingFilter> tracingFilter(OpenTelemetry openTelemetry, Tracer tracer) {
+        FilterRegistrationBean<TracingFilter> registration =
+                new FilterRegistrationBean<>(new TracingFilter(openTelemetry, tracer));
+        // Ahead of Spring Security, so the server span covers the whole request
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    /**
+     * Run @Async and executor tasks in the context of the request that
+     * queued them, so their spans join its trace.
+     */
+    @Bean
+    public TaskDecorator tracingTaskDecorator() {
+        return runnable -> Context.current().wrap(runnable);
+    }
+
+    private SpanExporter spanExporter() throws IOException {
+        switch (exporter) {
+            case "otlp-file":
+                routeOtlpLoggerToFile();
+                return OtlpJsonLoggingSpanExporter.create();
+            case "logging":
+                return LoggingSpanExporter.create();
+            case "none":
+                return null;
+            default:
+                throw new IllegalArgumentException("Unknown app.tracing.exporter: " + exporter);
+        }
+    }
+
+    /**
+     * The OTLP JSON exporter writes each batch to a java.util.logging logger;
+     * send that logger to a rotating file of JSON lines instead of the
+     * application log.
+     */
+    private void routeOtlpLoggerToFile() throws IOException {
+        File target = new File(file).getAbsoluteFile();
+        target.getParentFile().mkdirs();
+        FileHandler handler = new FileHandler(target.getPath(), fileMaxBytes, 2, true);
+        handler.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return record.getMessage() + System.lineSeparator();
+            }
+        });
+        otlpLogger = java.util.logging.Logger.getLogger(OtlpJsonLoggingSpanExporter.class.getName());
+        otlpLogger.setUseParentHandlers(false);
+        otlpLogger.setLevel(Level.INFO);
+        otlpLogger.addHandler(handler);
+    }
+}
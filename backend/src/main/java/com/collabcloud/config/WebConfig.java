@@ -40,6 +40,8 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOrigins(origins.toArray(new String[0]))
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS")
                 .allowedHeaders("*")
+                .exposedHeaders("X-Total-Count", "X-Page", "X-Page-Size", "X-Next-After",
+                        "X-Next-Before")
                 .allowCredentials(true)
                 .maxAge(3600);
     }
@@ -54,6 +56,8 @@ public class WebConfig implements WebMvcConfigurer {
         log.debug("CORS origins: {} patterns: {}", origins, configuration.getAllowedOriginPatterns());
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
         configuration.addAllowedHeader("*");
+        configuration.setExposedHeaders(Arrays.asList("X-Total-Count", "X-Page", "X-Page-Size", "X-Next-After",
+                "X-Next-Before"));
         configuration.setAllowCredentials(true);
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
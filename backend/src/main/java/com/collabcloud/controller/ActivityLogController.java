@@ -1,12 +1,18 @@
 package com.collabcloud.controller;
 
+import com.collabcloud.dto.ActivityLogDTO;
 import com.collabcloud.entity.ActivityLogEntity;
 import com.collabcloud.service.ActivityLogService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -16,41 +22,52 @@ public class ActivityLogController {
     @Autowired
     private ActivityLogService activityLogService;
 
+    private static final String[] SORTABLE = { "activityId", "timestamp", "actionType" };
+
     @GetMapping
-    public ResponseEntity<List<ActivityLogEntity>> getAllActivityLogs() {
-        List<ActivityLogEntity> activityLogs = activityLogService.getAllActivityLogs();
-        return ResponseEntity.ok(activityLogs);
+    public ResponseEntity<List<ActivityLogDTO>> getAllActivityLogs(
+            @RequestParam(value = "actionType", required = false) String actionType,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "timestamp", direction = Sort.Direction.DESC) Pageable pageable) {
+        return Paging.ok(activityLogService.getAllActivityLogs(actionType, from, to,
+                Paging.restrict(pageable, SORTABLE)));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ActivityLogEntity> getActivityLogById(@PathVariable("id") Long activityId) {
+    public ResponseEntity<ActivityLogDTO> getActivityLogById(@PathVariable("id") Long activityId) {
         return activityLogService.getActivityLogById(activityId)
-                .map(ResponseEntity::ok)
+                .map(log -> ResponseEntity.ok(ActivityLogDTO.from(log)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/project/{projectId}")
-    public ResponseEntity<List<ActivityLogEntity>> getActivityLogsByProjectId(
-            @PathVariable("projectId") Long projectId) {
-        List<ActivityLogEntity> activityLogs = activityLogService.getActivityLogsByProjectId(projectId);
-        return ResponseEntity.ok(activityLogs);
+    public ResponseEntity<List<ActivityLogDTO>> getActivityLogsByProjectId(
+            @PathVariable("projectId") Long projectId,
+            @RequestParam(value = "actionType", required = false) String actionType,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "timestamp") Pageable pageable) {
+        return Paging.ok(activityLogService.getActivityLogsByProjectId(projectId, actionType, from, to,
+                Paging.restrict(pageable, SORTABLE)));
     }
 
     @GetMapping("/project/{projectId}/ordered")
-    public ResponseEntity<List<ActivityLogEntity>> getActivityLogsByProjectIdOrdered(
-            @PathVariable("projectId") Long projectId) {
+    public ResponseEntity<List<ActivityLogDTO>> getActivityLogsByProjectIdOrdered(
+            @PathVariable("projectId") Long projectId,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "timestamp", direction = Sort.Direction.DESC) Pageable pageable) {
         try {
-            List<ActivityLogEntity> activityLogs = activityLogService.getActivityLogsByProjectIdOrdered(projectId);
-            return ResponseEntity.ok(activityLogs);
+            return Paging.ok(activityLogService.getActivityLogsByProjectIdOrdered(projectId,
+                    Paging.restrict(pageable, SORTABLE)));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
     @PostMapping
-    public ResponseEntity<ActivityLogEntity> createActivityLog(@RequestBody ActivityLogEntity activityLog) {
+    public ResponseEntity<ActivityLogDTO> createActivityLog(@RequestBody ActivityLogEntity activityLog) {
         ActivityLogEntity createdActivityLog = activityLogService.createActivityLog(activityLog);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdActivityLog);
+        return ResponseEntity.status(HttpStatus.CREATED).body(ActivityLogDTO.from(createdActivityLog));
     }
 
     @DeleteMapping("/{id}")
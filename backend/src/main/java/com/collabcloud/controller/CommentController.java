@@ -1,12 +1,20 @@
 package com.collabcloud.controller;
 
+import com.collabcloud.dto.CommentDTO;
+import com.collabcloud.dto.CommentThreadDTO;
 import com.collabcloud.entity.CommentEntity;
 import com.collabcloud.service.CommentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -16,42 +24,85 @@ public class CommentController {
     @Autowired
     private CommentService commentService;
 
+    private static final String[] SORTABLE = { "commentId", "createdDate", "updatedDate" };
+
     @GetMapping
-    public ResponseEntity<List<CommentEntity>> getAllComments() {
-        List<CommentEntity> comments = commentService.getAllComments();
-        return ResponseEntity.ok(comments);
+    public ResponseEntity<List<CommentDTO>> getAllComments(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "createdDate", direction = Sort.Direction.DESC) Pageable pageable) {
+        return Paging.ok(commentService.getAllComments(from, to, Paging.restrict(pageable, SORTABLE)));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<CommentEntity> getCommentById(@PathVariable("id") Long commentId) {
+    public ResponseEntity<CommentDTO> getCommentById(@PathVariable("id") Long commentId) {
         return commentService.getCommentById(commentId)
-                .map(ResponseEntity::ok)
+                .map(comment -> ResponseEntity.ok(CommentDTO.from(comment)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/file/{fileId}")
-    public ResponseEntity<List<CommentEntity>> getCommentsByFileId(@PathVariable("fileId") Long fileId) {
-        List<CommentEntity> comments = commentService.getCommentsByFileId(fileId);
-        return ResponseEntity.ok(comments);
+    public ResponseEntity<List<CommentDTO>> getCommentsByFileId(@PathVariable("fileId") Long fileId,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "createdDate") Pageable pageable) {
+        return Paging.ok(commentService.getCommentsByFileId(fileId, Paging.restrict(pageable, SORTABLE)));
+    }
+
+    /**
+     * The file's threads oldest first, a keyset page at a time: pass the
+     * previous response's X-Next-After as after. fromLine/toLine keep only
+     * threads anchored to lines overlapping that range; replies sets how
+     * many of each thread's first replies come along.
+     */
+    @GetMapping("/file/{fileId}/threads")
+    public ResponseEntity<List<CommentThreadDTO>> getThreadsByFileId(@PathVariable("fileId") Long fileId,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "fromLine", required = false) Integer fromLine,
+            @RequestParam(value = "toLine", required = false) Integer toLine,
+            @RequestParam(value = "limit", defaultValue = "50") int limit,
+            @RequestParam(value = "replies", defaultValue = "3") int replies) {
+        if (fromLine != null && toLine != null && fromLine > toLine) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fromLine is after toLine");
+        }
+        int pageLimit = Paging.limit(limit);
+        try {
+            return Paging.keyset(commentService.getThreadsByFileId(fileId, after, fromLine, toLine, pageLimit,
+                    Math.max(0, Math.min(replies, Paging.DEFAULT_SIZE))), pageLimit,
+                    thread -> thread.getComment().getCommentId());
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/{id}/replies")
+    public ResponseEntity<List<CommentDTO>> getReplies(@PathVariable("id") Long commentId,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        int pageLimit = Paging.limit(limit);
+        try {
+            return Paging.keyset(commentService.getReplies(commentId, after, pageLimit), pageLimit,
+                    CommentDTO::getCommentId);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<CommentEntity>> getCommentsByUserId(@PathVariable("userId") Long userId) {
-        List<CommentEntity> comments = commentService.getCommentsByUserId(userId);
-        return ResponseEntity.ok(comments);
+    public ResponseEntity<List<CommentDTO>> getCommentsByUserId(@PathVariable("userId") Long userId,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "createdDate", direction = Sort.Direction.DESC) Pageable pageable) {
+        return Paging.ok(commentService.getCommentsByUserId(userId, Paging.restrict(pageable, SORTABLE)));
     }
 
     @GetMapping("/project/{projectId}")
-    public ResponseEntity<List<CommentEntity>> getCommentsByProjectId(@PathVariable("projectId") Long projectId) {
-        List<CommentEntity> comments = commentService.getCommentsByProjectId(projectId);
-        return ResponseEntity.ok(comments);
+    public ResponseEntity<List<CommentDTO>> getCommentsByProjectId(@PathVariable("projectId") Long projectId,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "createdDate") Pageable pageable) {
+        return Paging.ok(commentService.getCommentsByProjectId(projectId, Paging.restrict(pageable, SORTABLE)));
     }
 
     @PostMapping
     public ResponseEntity<?> createComment(@RequestBody CommentEntity comment) {
         try {
             CommentEntity createdComment = commentService.createComment(comment);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdComment);
+            return ResponseEntity.status(HttpStatus.CREATED).body(CommentDTO.from(createdComment));
         } catch (RuntimeException e) {
             java.util.Map<String, String> error = new java.util.HashMap<>();
             error.put("error", e.getMessage());
@@ -60,12 +111,12 @@ public class CommentController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<CommentEntity> updateComment(
+    public ResponseEntity<CommentDTO> updateComment(
             @PathVariable("id") Long commentId,
             @RequestBody CommentEntity commentDetails) {
         try {
             CommentEntity updatedComment = commentService.updateComment(commentId, commentDetails);
-            return ResponseEntity.ok(updatedComment);
+            return ResponseEntity.ok(CommentDTO.from(updatedComment));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -0,0 +1,57 @@
+package com.collabcloud.controller;
+
+import com.collabcloud.service.ContentHashes;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * ETags for JSON responses, made from a validator read from the rows behind
+ * the response (see ProjectStatsService) and the request's path and
+ * parameters, so paging, filters and sort each get their own tag. The tag
+ * is known before the listing runs: a GET whose If-None-Match matches is
+ * answered with 304 without loading or serializing anything. Tags are weak
+ * because the same body goes out gzipped or not (Tomcat will not compress a
+ * response with a strong tag); If-None-Match compares weakly, so 304s are
+ * unaffected.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String tag(WebRequest request, String validator) {
+        StringBuilder key = new StringBuilder(request.getDescription(false)).append('\n');
+        new TreeMap<>(request.getParameterMap()).forEach(
+                (name, values) -> key.append(name).append('=').append(String.join(",", values)).append('\n'));
+        return weak(ContentHashes.sha256Hex(key.append(validator).toString()));
+    }
+
+    /** The tag, or null when there is no validator because the row is missing; the request then runs. */
+    static String tag(WebRequest request, Optional<String> validator) {
+        return validator.map(value -> tag(request, value)).orElse(null);
+    }
+
+    /** Whether the client's copy is current; Spring has then set up the 304. */
+    static boolean notModified(WebRequest request, String etag) {
+        return etag != null && request.checkNotModified(etag);
+    }
+
+    static <T> ResponseEntity<T> tagged(ResponseEntity<T> response, String etag) {
+        if (etag == null || !response.getStatusCode().is2xxSuccessful()) {
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(response.getBody());
+    }
+
+    static String weak(String hash) {
+        return "W/\"" + hash + "\"";
+    }
+}
@@ -1,27 +1,41 @@
 package com.collabcloud.controller;
 
+import com.collabcloud.dto.FileDTO;
+import com.collabcloud.service.ContentHashes;
 import com.collabcloud.entity.FileEntity;
 import com.collabcloud.entity.ProjectEntity;
 import com.collabcloud.entity.UserEntity;
 import com.collabcloud.service.FileService;
 import com.collabcloud.service.FileStorageService;
-import com.collabcloud.service.FileHistoryService;
+import com.collabcloud.service.LogValues;
+import com.collabcloud.service.ProjectStatsService;
+import com.collabcloud.service.ThumbnailService;
 import com.collabcloud.service.UserService;
 import com.collabcloud.repository.ProjectRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
 import java.time.LocalDateTime;
 import java.util.Objects;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 @RestController
 @RequestMapping("/api/files")
@@ -38,43 +52,69 @@ public class FileController {
     private ProjectRepository projectRepository;
 
     @Autowired
-    private FileHistoryService fileHistoryService;
+    private UserService userService;
 
     @Autowired
-    private UserService userService;
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private ProjectStatsService projectStatsService;
+
+    private static final String[] SORTABLE = { "fileId", "fileName", "fileType", "uploadDate" };
 
     @GetMapping
-    public ResponseEntity<List<FileEntity>> getAllFiles() {
-        List<FileEntity> files = fileService.getAllFiles();
-        return ResponseEntity.ok(files);
+    public ResponseEntity<List<FileDTO>> getAllFiles(
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "fileType", required = false) String fileType,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "uploadDate", direction = Sort.Direction.DESC) Pageable pageable,
+            WebRequest request) {
+        Pageable restricted = Paging.restrict(pageable, SORTABLE);
+        String etag = ETags.tag(request, projectStatsService.allTag());
+        if (ETags.notModified(request, etag)) {
+            return null;
+        }
+        return ETags.tagged(Paging.ok(fileService.getAllFiles(name, fileType, restricted)), etag);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<FileEntity> getFileById(@PathVariable("id") Long fileId) {
+    public ResponseEntity<FileDTO> getFileById(@PathVariable("id") Long fileId, WebRequest request) {
+        String etag = ETags.tag(request, projectStatsService.fileTag(fileId));
+        if (ETags.notModified(request, etag)) {
+            return null;
+        }
         return fileService.getFileById(fileId)
-                .map(ResponseEntity::ok)
+                .map(file -> ETags.tagged(ResponseEntity.ok(FileDTO.from(file)), etag))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/project/{projectId}")
-    public ResponseEntity<List<FileEntity>> getFilesByProjectId(@PathVariable("projectId") Long projectId) {
-        List<FileEntity> files = fileService.getFilesByProjectId(projectId);
-        return ResponseEntity.ok(files);
+    public ResponseEntity<List<FileDTO>> getFilesByProjectId(@PathVariable("projectId") Long projectId,
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "fileType", required = false) String fileType,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "uploadDate", direction = Sort.Direction.DESC) Pageable pageable,
+            WebRequest request) {
+        Pageable restricted = Paging.restrict(pageable, SORTABLE);
+        String etag = ETags.tag(request, projectStatsService.projectTag(projectId));
+        if (ETags.notModified(request, etag)) {
+            return null;
+        }
+        return ETags.tagged(Paging.ok(fileService.getFilesByProjectId(projectId, name, fileType, restricted)), etag);
     }
 
     /**
      * Upload file with multipart form data
      */
     @PostMapping(value = "/upload", consumes = "multipart/form-data")
-    public ResponseEntity<FileEntity> uploadFile(
+    public ResponseEntity<FileDTO> uploadFile(
             @RequestParam("file") MultipartFile file,
-            @RequestParam("projectId") Long projectId) {
+            @RequestParam("projectId") Long projectId,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
         try {
             logger.debug("Uploading file: name={}, size={}, projectId={}",
                     file.getOriginalFilename(), file.getSize(), projectId);
 
             // Store file on disk
-            String filePath = fileStorageService.storeFile(file);
+            FileStorageService.StoredContent stored = fileStorageService.storeFile(file);
 
             // Get project
                 Long safeProjectId = Objects.requireNonNull(projectId, "projectId");
@@ -85,15 +125,16 @@ public class FileController {
             FileEntity fileEntity = new FileEntity();
             fileEntity.setFileName(file.getOriginalFilename());
             fileEntity.setFileType(file.getContentType());
-            fileEntity.setFilePath(filePath);
+            fileEntity.setFilePath(stored.getFilePath());
+            fileEntity.setContentCodec(stored.getCodec());
             fileEntity.setProject(project);
             fileEntity.setUploadDate(LocalDateTime.now());
 
-            FileEntity savedFile = fileService.createFile(fileEntity);
-            logger.info("File uploaded: id={}, name={}, path={}",
+            FileEntity savedFile = fileService.createFile(fileEntity, userId);
+            logger.debug("File uploaded: id={}, name={}, path={}",
                     savedFile.getFileId(), savedFile.getFileName(), savedFile.getFilePath());
 
-            return ResponseEntity.status(HttpStatus.CREATED).body(savedFile);
+            return ResponseEntity.status(HttpStatus.CREATED).body(FileDTO.from(savedFile));
         } catch (Exception e) {
             logger.error("Error uploading file", e);
             String msg = e.getMessage() == null ? "Storage error" : e.getMessage();
@@ -106,97 +147,83 @@ public class FileController {
      */
     @PostMapping
     @SuppressWarnings("unchecked")
-    public ResponseEntity<FileEntity> createFile(@RequestBody Map<String, Object> payload) {
+    public ResponseEntity<FileDTO> createFile(@RequestBody Map<String, Object> payload,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
         try {
-            logger.info("=== POST /api/files - Received file upload request ===");
-            logger.info("Full payload: {}", payload);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Creating file from payload: {}", LogValues.payload(payload));
+            }
 
             String fileName = (String) payload.get("fileName");
             String fileType = (String) payload.get("fileType");
             String dataUrl = (String) payload.get("filePath");
             Long projectId = payload.get("projectId") != null ? ((Number) payload.get("projectId")).longValue() : null;
 
-            logger.info("Extracted - fileName: {}, fileType: {}, projectId: {}, dataUrl length: {}",
-                    fileName, fileType, projectId, dataUrl != null ? dataUrl.length() : 0);
-
             if (projectId == null && payload.get("project") instanceof Map) {
-                logger.info("ProjectId is null, checking nested project object");
                 Map<String, Object> projectMap = (Map<String, Object>) payload.get("project");
                 projectId = projectMap.get("projectId") != null ? ((Number) projectMap.get("projectId")).longValue()
                         : null;
-                logger.info("Extracted projectId from nested object: {}", projectId);
             }
 
             if (fileName == null || projectId == null) {
-                logger.error("Validation failed - fileName: {}, projectId: {}", fileName, projectId);
+                logger.warn("Rejected file payload: fileName={}, projectId={}", LogValues.truncate(fileName,
+                        LogValues.MAX_STRING), projectId);
                 return ResponseEntity.badRequest().build();
             }
 
-            logger.info("Validation passed - proceeding with file storage");
-
             final Long finalProjectId = projectId;
 
             // Get project
-            logger.info("Looking up project with ID: {}", finalProjectId);
             ProjectEntity project = projectRepository.findById(finalProjectId)
                     .orElseThrow(() -> new RuntimeException("Project not found with id: " + finalProjectId));
-            logger.info("Found project: id={}, title={}", project.getProjectId(), project.getTitle());
 
             String filePath;
+            String contentCodec = null;
             // Check if it's a data URL
             if (dataUrl != null && dataUrl.startsWith("data:")) {
-                logger.info("Data URL detected, storing file to disk...");
                 // Store file from data URL
-                filePath = fileStorageService.storeFileFromDataUrl(dataUrl, fileName);
-                logger.info("✅ File stored successfully from data URL to: {}", filePath);
+                FileStorageService.StoredContent stored = fileStorageService.storeFileFromDataUrl(dataUrl, fileName,
+                        fileType);
+                filePath = stored.getFilePath();
+                contentCodec = stored.getCodec();
             } else {
-                logger.warn("Not a data URL, using provided path: {}", dataUrl);
+                logger.warn("Not a data URL, using provided path: {}", LogValues.truncate(dataUrl, LogValues.MAX_STRING));
                 // Use the provided path (for backward compatibility)
                 filePath = dataUrl;
             }
 
             // Create file entity
-            logger.info("Creating file entity with path: {}", filePath);
             FileEntity fileEntity = new FileEntity();
             fileEntity.setFileName(fileName);
             fileEntity.setFileType(fileType);
             fileEntity.setFilePath(filePath);
+            fileEntity.setContentCodec(contentCodec);
             fileEntity.setProject(project);
             fileEntity.setUploadDate(LocalDateTime.now());
 
-            logger.info("Saving file entity to database...");
-            FileEntity savedFile = fileService.createFile(fileEntity);
-            logger.info("✅ File successfully created in database:");
-            logger.info("   - File ID: {}", savedFile.getFileId());
-            logger.info("   - File Name: {}", savedFile.getFileName());
-            logger.info("   - File Path: {}", savedFile.getFilePath());
-            logger.info("   - Project ID: {}", savedFile.getProject().getProjectId());
-            logger.info("=== File upload completed successfully ===");
-
-            return ResponseEntity.status(HttpStatus.CREATED).body(savedFile);
+            FileEntity savedFile = fileService.createFile(fileEntity, userId);
+            return ResponseEntity.status(HttpStatus.CREATED).body(FileDTO.from(savedFile));
         } catch (Exception e) {
-            logger.error("❌ Error creating file - Exception type: {}", e.getClass().getName());
-            logger.error("❌ Error message: {}", e.getMessage());
-            logger.error("❌ Full stack trace:", e);
+            logger.error("Error creating file", e);
             String msg = e.getMessage() == null ? "Storage error" : e.getMessage();
             throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, msg);
         }
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<FileEntity> updateFile(
+    public ResponseEntity<FileDTO> updateFile(
             @PathVariable("id") Long fileId,
             @RequestBody FileEntity fileDetails) {
         try {
             FileEntity updatedFile = fileService.updateFile(fileId, fileDetails);
-            return ResponseEntity.ok(updatedFile);
+            return ResponseEntity.ok(FileDTO.from(updatedFile));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
     @PutMapping("/{id}/content")
-    public ResponseEntity<FileEntity> updateFileContent(
+    public ResponseEntity<FileDTO> updateFileContent(
             @PathVariable("id") Long fileId,
             @RequestBody java.util.Map<String, String> payload) {
         try {
@@ -209,7 +236,7 @@ public class FileController {
             FileEntity file = fileService.getFileById(fileId)
                     .orElseThrow(() -> new RuntimeException("File not found with id: " + fileId));
             
-            // Track the change in history before updating
+            // The editor, recorded with the history entry
             UserEntity user = null;
             if (userIdStr != null) {
                 try {
@@ -220,24 +247,36 @@ public class FileController {
                 }
             }
             
-            fileHistoryService.createHistoryEntry(file, user, content, "UPDATE", "File content updated");
-            fileStorageService.updateFileContent(file.getFilePath(), content);
+            // Storage first: it holds the only copy. History, version and events then commit together
+            FileStorageService.StoredContent stored = fileStorageService.updateFileContent(file.getFilePath(),
+                    file.getContentCodec(), file.getFileName(), file.getFileType(), content);
+            fileService.recordContentUpdate(file, user, content, stored);
             
-            return ResponseEntity.ok(file);
+            return ResponseEntity.ok(FileDTO.from(fileService.getFileById(fileId).orElse(file)));
         } catch (RuntimeException e) {
             logger.error("Error updating file content: {}", e.getMessage());
             return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * The file's bytes. The ETag comes from the row, so a matching
+     * If-None-Match is answered with 304 without reading storage.
+     */
     @GetMapping("/{id}/content")
-    public ResponseEntity<byte[]> getFileContent(@PathVariable("id") Long fileId) {
+    public ResponseEntity<byte[]> getFileContent(@PathVariable("id") Long fileId, WebRequest request) {
         try {
             FileEntity file = fileService.getFileById(fileId)
                     .orElseThrow(() -> new RuntimeException("File not found with id: " + fileId));
 
-            byte[] content = fileStorageService.readFile(file.getFilePath());
+            String etag = ETags.weak(fileService.getContentTag(file));
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
+            byte[] content = fileStorageService.readFile(file.getFilePath(), file.getContentCodec());
             return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
                     .header("Content-Type", file.getFileType() != null ? file.getFileType() : "application/octet-stream")
                     .body(content);
         } catch (Exception e) {
@@ -246,25 +285,72 @@ public class FileController {
         }
     }
 
+    /**
+     * A JPEG thumbnail of an image file, at the configured size nearest the
+     * requested one. One not made yet is made now; if that takes longer than
+     * app.thumbnails.wait the answer is 202 and the client should retry.
+     */
+    @GetMapping("/{id}/thumbnail")
+    public ResponseEntity<byte[]> getThumbnail(@PathVariable("id") Long fileId,
+            @RequestParam(value = "size", required = false) Integer size, WebRequest request) {
+        try {
+            FileEntity file = fileService.getFileById(fileId)
+                    .orElseThrow(() -> new RuntimeException("File not found with id: " + fileId));
+            if (!thumbnailService.supports(file)) {
+                return ResponseEntity.notFound().build();
+            }
+
+            int fitted = thumbnailService.fitSize(size);
+            String etag = ETags.weak(ContentHashes.sha256Hex(fileService.getContentTag(file) + "\n" + fitted));
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
+            return thumbnailService.getThumbnail(file, fitted)
+                    .map(thumbnail -> ResponseEntity.ok()
+                            .eTag(etag)
+                            .cacheControl(CacheControl.noCache().cachePrivate())
+                            .header("Content-Type", "image/jpeg")
+                            .body(thumbnail))
+                    .orElseGet(() -> thumbnailService.isPending(fileId)
+                            ? ResponseEntity.status(HttpStatus.ACCEPTED).header("Retry-After", "1").build()
+                            : ResponseEntity.notFound().build());
+        } catch (Exception e) {
+            logger.error("Error reading thumbnail of file {}", fileId, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteFile(@PathVariable("id") Long fileId) {
-        logger.info("[FileController] ❌ DELETE request for file ID: {}", fileId);
+    public ResponseEntity<Void> deleteFile(@PathVariable("id") Long fileId,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
         try {
-            fileService.deleteFile(fileId);
-            logger.info("[FileController] ✅ File {} deleted successfully", fileId);
+            fileService.deleteFile(fileId, userId);
             return ResponseEntity.noContent().build();
         } catch (RuntimeException e) {
-            logger.error("[FileController] ❌ Error deleting file {}: {}", fileId, e.getMessage());
+            logger.error("Error deleting file {}: {}", fileId, e.getMessage());
             return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * Redirect to a signed storage URL. Content compressed at rest is
+     * streamed through instead, decoded, since storage would hand it out
+     * compressed.
+     */
     @GetMapping("/{id}/download")
-    public ResponseEntity<Void> downloadFile(@PathVariable("id") Long fileId) {
+    public ResponseEntity<Resource> downloadFile(@PathVariable("id") Long fileId) {
         try {
             FileEntity file = fileService.getFileById(fileId)
                     .orElseThrow(() -> new RuntimeException("File not found"));
 
+            if (file.getContentCodec() != null) {
+                return ResponseEntity.ok()
+                        .header("Content-Type", file.getFileType() != null ? file.getFileType() : "application/octet-stream")
+                        .header("Content-Disposition", ContentDisposition.attachment()
+                                .filename(file.getFileName(), StandardCharsets.UTF_8).build().toString())
+                        .body(new InputStreamResource(
+                                fileStorageService.openFile(file.getFilePath(), file.getContentCodec())));
+            }
             String signedUrl = fileStorageService.getSignedUrl(file.getFilePath());
             return ResponseEntity.status(302)
                     .header("Location", signedUrl)
@@ -281,6 +367,13 @@ public class FileController {
             FileEntity file = fileService.getFileById(fileId)
                     .orElseThrow(() -> new RuntimeException("File not found"));
 
+            if (file.getContentCodec() != null) {
+                // Storage holds it compressed; the content endpoint decodes it. Absolute, since the client uses
+                // it as a link or image source on its own origin
+                String contentUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/api/files/{id}/content").buildAndExpand(fileId).toUriString();
+                return ResponseEntity.ok(Map.of("url", contentUrl));
+            }
             String signedUrl = fileStorageService.getSignedUrl(file.getFilePath());
             return ResponseEntity.ok(Map.of("url", signedUrl));
         } catch (Exception e) {
@@ -294,20 +387,17 @@ public class FileController {
      * frontend)
      */
     @PostMapping("/batch")
-    public ResponseEntity<List<FileEntity>> uploadMultipleFiles(@RequestBody List<Map<String, Object>> filesPayload) {
+    public ResponseEntity<List<FileDTO>> uploadMultipleFiles(@RequestBody List<Map<String, Object>> filesPayload,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
         try {
-            logger.info("=== POST /api/files/batch - Batch upload request ===");
-            logger.info("Number of files in batch: {}", filesPayload.size());
-            List<FileEntity> savedFiles = new ArrayList<>();
+            List<FileEntity> fileEntities = new ArrayList<>();
 
             for (Map<String, Object> fileData : filesPayload) {
-                logger.info("Processing file #{} in batch", savedFiles.size() + 1);
                 String fileName = (String) fileData.get("fileName");
                 String fileType = (String) fileData.get("fileType");
                 String dataUrl = (String) fileData.get("filePath");
                 Long projectId = fileData.get("projectId") != null ? ((Number) fileData.get("projectId")).longValue()
                         : null;
-                logger.info("Batch file - name: {}, type: {}, projectId: {}", fileName, fileType, projectId);
 
                 if (projectId == null && fileData.get("project") instanceof Map) {
                     @SuppressWarnings("unchecked")
@@ -325,9 +415,12 @@ public class FileController {
                         .orElseThrow(() -> new RuntimeException("Project not found with id: " + finalProjectId));
 
                 String filePath;
+                String contentCodec = null;
                 if (dataUrl != null && dataUrl.startsWith("data:")) {
-                    filePath = fileStorageService.storeFileFromDataUrl(dataUrl, fileName);
-                    logger.info("File stored from data URL: {}", filePath);
+                    FileStorageService.StoredContent stored = fileStorageService.storeFileFromDataUrl(dataUrl,
+                            fileName, fileType);
+                    filePath = stored.getFilePath();
+                    contentCodec = stored.getCodec();
                 } else {
                     filePath = dataUrl;
                 }
@@ -336,14 +429,19 @@ public class FileController {
                 fileEntity.setFileName(fileName);
                 fileEntity.setFileType(fileType);
                 fileEntity.setFilePath(filePath);
+                fileEntity.setContentCodec(contentCodec);
                 fileEntity.setProject(project);
                 fileEntity.setUploadDate(LocalDateTime.now());
 
-                FileEntity savedFile = fileService.createFile(fileEntity);
-                savedFiles.add(savedFile);
+                fileEntities.add(fileEntity);
             }
 
-            logger.info("Batch uploaded {} files", savedFiles.size());
+            // One transaction for all rows, so the inserts are batched
+            List<FileDTO> savedFiles = new ArrayList<>();
+            for (FileEntity savedFile : fileService.createFiles(fileEntities, userId)) {
+                savedFiles.add(FileDTO.from(savedFile));
+            }
+            logger.debug("Batch uploaded {} of {} files", savedFiles.size(), filesPayload.size());
             return ResponseEntity.status(HttpStatus.CREATED).body(savedFiles);
         } catch (Exception e) {
             logger.error("Error in batch upload", e);
@@ -357,19 +455,7 @@ public class FileController {
         try {
             FileEntity file = fileService.getFileById(fileId)
                     .orElseThrow(() -> new RuntimeException("File not found"));
-            if (file.getFilePath().startsWith("data:")) {
-                // Estimate size from data URL
-                String dataUrl = file.getFilePath();
-                int comma = dataUrl.indexOf(',');
-                long size = 0L;
-                if (comma >= 0 && comma + 1 < dataUrl.length()) {
-                    String base64 = dataUrl.substring(comma + 1);
-                    size = (long) (base64.length() * 3 / 4);
-                }
-                return ResponseEntity.ok(Map.of("size", size));
-            }
-            long size = fileStorageService.getFileSize(file.getFilePath());
-            return ResponseEntity.ok(Map.of("size", size));
+            return ResponseEntity.ok(Map.of("size", fileService.getContentSize(file)));
         } catch (Exception e) {
             logger.error("Error fetching file meta for {}", fileId, e);
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
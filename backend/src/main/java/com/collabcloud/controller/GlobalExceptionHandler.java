@@ -7,6 +7,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -28,6 +29,19 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
     }
 
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Map<String, String>> handleResponseStatusException(ResponseStatusException ex,
+            WebRequest request) {
+        logger.warn("Request failed with status {}: {}", ex.getStatus(), ex.getReason());
+
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getStatus().getReasonPhrase());
+        error.put("message", ex.getReason() != null ? ex.getReason() : ex.getStatus().getReasonPhrase());
+        error.put("path", request.getDescription(false).replace("uri=", ""));
+
+        return ResponseEntity.status(ex.getStatus()).body(error);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, String>> handleRuntimeException(RuntimeException ex, WebRequest request) {
         logger.error("Runtime exception: ", ex);
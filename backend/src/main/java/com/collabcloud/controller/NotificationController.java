@@ -0,0 +1,51 @@
+package com.collabcloud.controller;
+
+import com.collabcloud.dto.NotificationDTO;
+import com.collabcloud.service.NotificationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/notifications")
+public class NotificationController {
+
+    @Autowired
+    private NotificationService notificationService;
+
+    /**
+     * The caller's notifications newest first, a keyset page at a time:
+     * pass the previous response's X-Next-Before as before.
+     */
+    @GetMapping
+    public ResponseEntity<List<NotificationDTO>> getNotifications(
+            @RequestHeader(value = "X-User-Id") Long userId,
+            @RequestParam(value = "before", required = false) Long before,
+            @RequestParam(value = "unread", defaultValue = "false") boolean unread,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        int pageLimit = Paging.limit(limit);
+        return Paging.keysetBefore(notificationService.getNotifications(userId, before, unread, pageLimit),
+                pageLimit, NotificationDTO::getNotificationId);
+    }
+
+    @GetMapping("/unread-count")
+    public ResponseEntity<Map<String, Long>> getUnreadCount(@RequestHeader(value = "X-User-Id") Long userId) {
+        return ResponseEntity.ok(Map.of("unread", notificationService.getUnreadCount(userId)));
+    }
+
+    @PostMapping("/{id}/read")
+    public ResponseEntity<Void> markRead(@PathVariable("id") Long notificationId,
+            @RequestHeader(value = "X-User-Id") Long userId) {
+        return notificationService.markRead(userId, notificationId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/read")
+    public ResponseEntity<Map<String, Integer>> markAllRead(@RequestHeader(value = "X-User-Id") Long userId) {
+        return ResponseEntity.ok(Map.of("read", notificationService.markAllRead(userId)));
+    }
+}
@@ -0,0 +1,78 @@
+package com.collabcloud.controller;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Shared paging contract for list endpoints: clients pass page, size and
+ * sort=property,direction; the body stays a plain JSON array and the totals
+ * travel in the X-Total-Count, X-Page and X-Page-Size headers. Keyset
+ * endpoints instead take after (or before, when newest first) and limit,
+ * and return the next one in X-Next-After (X-Next-Before) while there may
+ * be more.
+ */
+final class Paging {
+
+    static final int DEFAULT_SIZE = 100;
+
+    private Paging() {
+    }
+
+    /**
+     * Reject sort properties outside the endpoint's whitelist so clients
+     * cannot order by unindexed columns or association paths.
+     */
+    static Pageable restrict(Pageable pageable, String... sortable) {
+        List<String> allowed = Arrays.asList(sortable);
+        for (Sort.Order order : pageable.getSort()) {
+            if (!allowed.contains(order.getProperty())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unsupported sort property: " + order.getProperty() + " (allowed: " + allowed + ")");
+            }
+        }
+        return pageable;
+    }
+
+    /** A keyset limit within 1..DEFAULT_SIZE. */
+    static int limit(int requested) {
+        return Math.max(1, Math.min(requested, DEFAULT_SIZE));
+    }
+
+    /**
+     * A keyset page. A full page carries its last cursor in X-Next-After;
+     * a short one is the end.
+     */
+    static <T> ResponseEntity<List<T>> keyset(List<T> items, int limit, Function<T, Long> cursor) {
+        return keyset("X-Next-After", items, limit, cursor);
+    }
+
+    /** A keyset page in descending order, continued with before. */
+    static <T> ResponseEntity<List<T>> keysetBefore(List<T> items, int limit, Function<T, Long> cursor) {
+        return keyset("X-Next-Before", items, limit, cursor);
+    }
+
+    private static <T> ResponseEntity<List<T>> keyset(String header, List<T> items, int limit,
+            Function<T, Long> cursor) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (!items.isEmpty() && items.size() >= limit) {
+            ok.header(header, String.valueOf(cursor.apply(items.get(items.size() - 1))));
+        }
+        return ok.body(items);
+    }
+
+    static <T> ResponseEntity<List<T>> ok(Page<T> page) {
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(page.getTotalElements()))
+                .header("X-Page", String.valueOf(page.getNumber()))
+                .header("X-Page-Size", String.valueOf(page.getSize()))
+                .body(page.getContent());
+    }
+}
@@ -1,17 +1,40 @@
 package com.collabcloud.controller;
 
+import com.collabcloud.dto.ProjectDTO;
+import com.collabcloud.dto.ProjectDashboardDTO;
+import com.collabcloud.dto.ProjectDeletionDTO;
+import com.collabcloud.entity.ProjectDeletionEntity;
 import com.collabcloud.entity.ProjectEntity;
+import com.collabcloud.service.ProjectArchiveService;
+import com.collabcloud.service.ProjectDashboardService;
 import com.collabcloud.service.ProjectService;
+import com.collabcloud.service.ProjectStatsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/projects")
@@ -22,34 +45,70 @@ public class ProjectController {
     @Autowired
     private ProjectService projectService;
 
+    @Autowired
+    private ProjectArchiveService projectArchiveService;
+
+    @Autowired
+    private ProjectDashboardService projectDashboardService;
+
+    @Autowired
+    private ProjectStatsService projectStatsService;
+
+    private static final String[] SORTABLE = { "projectId", "title", "createdDate", "lastModified" };
+
     @GetMapping
-    public ResponseEntity<List<ProjectEntity>> getAllProjects() {
-        List<ProjectEntity> projects = projectService.getAllProjects();
-        return ResponseEntity.ok(projects);
+    public ResponseEntity<List<ProjectDTO>> getAllProjects(
+            @RequestParam(value = "title", required = false) String title,
+            @RequestParam(value = "creatorId", required = false) Long creatorId,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "lastModified", direction = Sort.Direction.DESC) Pageable pageable,
+            WebRequest request) {
+        Pageable restricted = Paging.restrict(pageable, SORTABLE);
+        String etag = ETags.tag(request, creatorId != null ? projectStatsService.creatorTag(creatorId)
+                : projectStatsService.allTag());
+        if (ETags.notModified(request, etag)) {
+            return null;
+        }
+        return ETags.tagged(Paging.ok(projectService.getAllProjects(title, creatorId, restricted)), etag);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ProjectEntity> getProjectById(@PathVariable("id") Long projectId) {
+    public ResponseEntity<ProjectDTO> getProjectById(@PathVariable("id") Long projectId, WebRequest request) {
+        String etag = ETags.tag(request, projectStatsService.projectTag(projectId));
+        if (ETags.notModified(request, etag)) {
+            return null;
+        }
         return projectService.getProjectById(projectId)
-                .map(ResponseEntity::ok)
+                .map(project -> ETags.tagged(ResponseEntity.ok(ProjectDTO.from(project)), etag))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/creator/{userId}")
-    public ResponseEntity<List<ProjectEntity>> getProjectsByCreator(@PathVariable("userId") Long userId) {
+    public ResponseEntity<List<ProjectDTO>> getProjectsByCreator(@PathVariable("userId") Long userId,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "lastModified", direction = Sort.Direction.DESC) Pageable pageable,
+            WebRequest request) {
+        Pageable restricted = Paging.restrict(pageable, SORTABLE);
+        String etag = ETags.tag(request, projectStatsService.creatorTag(userId));
+        if (ETags.notModified(request, etag)) {
+            return null;
+        }
         try {
-            List<ProjectEntity> projects = projectService.getProjectsByCreator(userId);
-            return ResponseEntity.ok(projects);
+            return ETags.tagged(Paging.ok(projectService.getProjectsByCreator(userId, restricted)), etag);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
     @GetMapping("/collaborator/{userId}")
-    public ResponseEntity<List<ProjectEntity>> getProjectsByCollaborator(@PathVariable("userId") Long userId) {
+    public ResponseEntity<List<ProjectDTO>> getProjectsByCollaborator(@PathVariable("userId") Long userId,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "lastModified", direction = Sort.Direction.DESC) Pageable pageable,
+            WebRequest request) {
+        Pageable restricted = Paging.restrict(pageable, SORTABLE);
+        String etag = ETags.tag(request, projectStatsService.collaboratorTag(userId));
+        if (ETags.notModified(request, etag)) {
+            return null;
+        }
         try {
-            List<ProjectEntity> projects = projectService.getProjectsByCollaborator(userId);
-            return ResponseEntity.ok(projects);
+            return ETags.tagged(Paging.ok(projectService.getProjectsByCollaborator(userId, restricted)), etag);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -60,7 +119,7 @@ public class ProjectController {
         try {
             logger.debug("Creating project: {}", project.getTitle());
             ProjectEntity createdProject = projectService.createProject(project);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdProject);
+            return ResponseEntity.status(HttpStatus.CREATED).body(ProjectDTO.from(createdProject));
         } catch (RuntimeException e) {
             logger.error("Error creating project: ", e);
             Map<String, String> error = new HashMap<>();
@@ -71,27 +130,123 @@ public class ProjectController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<ProjectEntity> updateProject(
+    public ResponseEntity<ProjectDTO> updateProject(
             @PathVariable("id") Long projectId,
             @RequestBody ProjectEntity projectDetails) {
         try {
             ProjectEntity updatedProject = projectService.updateProject(projectId, projectDetails);
-            return ResponseEntity.ok(updatedProject);
+            return ResponseEntity.ok(ProjectDTO.from(updatedProject));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * Accepted, not done: the project is deleted in the background and the
+     * returned job reports progress at GET /api/projects/{id}/deletion.
+     */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteProject(@PathVariable("id") Long projectId) {
+    public ResponseEntity<ProjectDeletionDTO> deleteProject(@PathVariable("id") Long projectId) {
         try {
-            projectService.deleteProject(projectId);
-            return ResponseEntity.noContent().build();
+            ProjectDeletionEntity deletion = projectService.deleteProject(projectId);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/projects/" + projectId + "/deletion"))
+                    .body(ProjectDeletionDTO.from(deletion));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    @GetMapping("/{id}/deletion")
+    public ResponseEntity<ProjectDeletionDTO> getDeletion(@PathVariable("id") Long projectId) {
+        return projectService.getDeletion(projectId)
+                .map(deletion -> ResponseEntity.ok(ProjectDeletionDTO.from(deletion)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * The project page in one request: the project with its newest files,
+     * comments and activity and the files' sizes. include picks sections
+     * (files, sizes, comments, activity; all by default); the limits are
+     * capped at app.dashboard.max-limit.
+     */
+    @GetMapping("/{id}/dashboard")
+    public ResponseEntity<ProjectDashboardDTO> getDashboard(@PathVariable("id") Long projectId,
+            @RequestParam(value = "include", required = false) Set<String> include,
+            @RequestParam(value = "files", defaultValue = "50") int files,
+            @RequestParam(value = "comments", defaultValue = "20") int comments,
+            @RequestParam(value = "activity", defaultValue = "20") int activity,
+            WebRequest request) {
+        Set<String> sections = include != null && !include.isEmpty() ? include : ProjectDashboardService.SECTIONS;
+        if (!ProjectDashboardService.SECTIONS.containsAll(sections)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported section in include " + sections
+                    + " (allowed: " + ProjectDashboardService.SECTIONS + ")");
+        }
+        // The stats row moves with every section, so an unchanged page costs one lookup
+        String etag = ETags.tag(request, projectStatsService.projectTag(projectId));
+        if (ETags.notModified(request, etag)) {
+            return null;
+        }
+        return projectDashboardService.getDashboard(projectId, sections, files, comments, activity)
+                .map(dashboard -> dashboard.isPartial()
+                        // Sizes are missing: keep clients from revalidating this copy
+                        ? ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(dashboard)
+                        : ETags.tagged(ResponseEntity.ok(dashboard), etag))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * The project's files as a ZIP, written straight to the response while
+     * the bodies are still arriving from storage.
+     */
+    @GetMapping("/{id}/archive")
+    public void exportArchive(@PathVariable("id") Long projectId, HttpServletResponse response) throws IOException {
+        ProjectEntity project = projectService.getProjectById(projectId).orElse(null);
+        if (project == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(project.getTitle() + ".zip", StandardCharsets.UTF_8).build().toString());
+        projectArchiveService.writeArchive(project, response.getOutputStream());
+    }
+
+    /** Import an archive sent as the request body (application/zip), unpacking it as it arrives. */
+    @PostMapping(value = "/{id}/archive", consumes = { "application/zip", "application/octet-stream" })
+    public ResponseEntity<?> importArchive(@PathVariable("id") Long projectId, HttpServletRequest request)
+            throws IOException {
+        return importArchive(projectId, request.getInputStream());
+    }
+
+    /** Import an archive uploaded as the multipart field "file". */
+    @PostMapping(value = "/{id}/archive", consumes = "multipart/form-data")
+    public ResponseEntity<?> importArchive(@PathVariable("id") Long projectId,
+            @RequestParam("file") MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return importArchive(projectId, in);
+        }
+    }
+
+    private ResponseEntity<?> importArchive(Long projectId, InputStream archive) throws IOException {
+        ProjectEntity project = projectService.getProjectById(projectId).orElse(null);
+        if (project == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            int imported = projectArchiveService.importArchive(project, archive);
+            Map<String, Object> result = new HashMap<>();
+            result.put("imported", imported);
+            return ResponseEntity.status(HttpStatus.CREATED).body(result);
+        } catch (RuntimeException e) {
+            logger.error("Error importing archive into project {}: ", projectId, e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("message", "Failed to import archive");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
     @PostMapping("/{projectId}/collaborators/{userId}")
     public ResponseEntity<?> addCollaborator(
             @PathVariable("projectId") Long projectId,
@@ -100,7 +255,7 @@ public class ProjectController {
         try {
             logger.debug("Adding collaborator userId={} to projectId={} by ownerId={}", userId, projectId, ownerId);
             ProjectEntity updatedProject = projectService.addCollaborator(projectId, userId, ownerId);
-            return ResponseEntity.ok(updatedProject);
+            return ResponseEntity.ok(ProjectDTO.from(updatedProject));
         } catch (RuntimeException e) {
             logger.error("Error adding collaborator: ", e);
             Map<String, String> error = new HashMap<>();
@@ -117,7 +272,7 @@ public class ProjectController {
         try {
             logger.debug("Removing collaborator userId={} from projectId={} by ownerId={}", userId, projectId, ownerId);
             ProjectEntity updatedProject = projectService.removeCollaborator(projectId, userId, ownerId);
-            return ResponseEntity.ok(updatedProject);
+            return ResponseEntity.ok(ProjectDTO.from(updatedProject));
         } catch (RuntimeException e) {
             logger.error("Error removing collaborator: ", e);
             Map<String, String> error = new HashMap<>();
@@ -136,7 +291,7 @@ public class ProjectController {
             logger.debug("Updating permission for userId={} in projectId={} by ownerId={}", userId, projectId, ownerId);
             ProjectEntity updatedProject = projectService.updateCollaboratorPermission(projectId, userId,
                     permissionRequest.getPermission(), ownerId);
-            return ResponseEntity.ok(updatedProject);
+            return ResponseEntity.ok(ProjectDTO.from(updatedProject));
         } catch (RuntimeException e) {
             logger.error("Error updating collaborator permission: ", e);
             Map<String, String> error = new HashMap<>();
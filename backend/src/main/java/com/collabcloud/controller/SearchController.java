@@ -0,0 +1,68 @@
+package com.collabcloud.controller;
+
+import com.collabcloud.repository.SearchDocumentRepository.SearchHit;
+import com.collabcloud.service.SearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private SearchService searchService;
+
+    public static class SearchResultDTO {
+        private String type;
+        private Long id;
+        private Long projectId;
+        private String title;
+        private String snippet;
+        private Float rank;
+
+        public SearchResultDTO(SearchHit hit) {
+            this.type = hit.getDocType();
+            this.id = hit.getRefId();
+            this.projectId = hit.getProjectId();
+            this.title = hit.getTitle();
+            this.snippet = hit.getSnippet();
+            this.rank = hit.getRank();
+        }
+
+        // Getters
+        public String getType() { return type; }
+        public Long getId() { return id; }
+        public Long getProjectId() { return projectId; }
+        public String getTitle() { return title; }
+        public String getSnippet() { return snippet; }
+        public Float getRank() { return rank; }
+    }
+
+    /**
+     * Ranked full-text search over projects, files and comments the caller can
+     * access. Results are always ordered by rank, so no sort is accepted.
+     */
+    @GetMapping
+    public ResponseEntity<List<SearchResultDTO>> search(
+            @RequestParam("q") String query,
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "projectId", required = false) Long projectId,
+            @PageableDefault(size = 20) Pageable pageable,
+            @RequestHeader(value = "X-User-Id") Long userId) {
+        Paging.restrict(pageable);
+        Pageable bounded = PageRequest.of(pageable.getPageNumber(), Math.min(pageable.getPageSize(), MAX_PAGE_SIZE));
+        if (query.isBlank()) {
+            return Paging.ok(Page.empty(bounded));
+        }
+        return Paging.ok(searchService.search(query, userId, type, projectId, bounded).map(SearchResultDTO::new));
+    }
+}
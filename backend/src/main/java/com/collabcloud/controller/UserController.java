@@ -1,8 +1,12 @@
 package com.collabcloud.controller;
 
+import com.collabcloud.dto.UserDTO;
 import com.collabcloud.entity.UserEntity;
 import com.collabcloud.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,41 +21,42 @@ public class UserController {
     private UserService userService;
 
     @GetMapping
-    public ResponseEntity<List<UserEntity>> getAllUsers() {
-        List<UserEntity> users = userService.getAllUsers();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<List<UserDTO>> getAllUsers(
+            @RequestParam(value = "q", required = false) String q,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "userId") Pageable pageable) {
+        return Paging.ok(userService.getAllUsers(q, Paging.restrict(pageable, "userId", "name", "email")));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<UserEntity> getUserById(@PathVariable("id") Long userId) {
+    public ResponseEntity<UserDTO> getUserById(@PathVariable("id") Long userId) {
         return userService.getUserById(userId)
-                .map(ResponseEntity::ok)
+                .map(user -> ResponseEntity.ok(UserDTO.from(user)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/email/{email}")
-    public ResponseEntity<UserEntity> getUserByEmail(@PathVariable("email") String email) {
+    public ResponseEntity<UserDTO> getUserByEmail(@PathVariable("email") String email) {
         return userService.getUserByEmail(email)
-                .map(ResponseEntity::ok)
+                .map(user -> ResponseEntity.ok(UserDTO.from(user)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping
-    public ResponseEntity<UserEntity> createUser(@RequestBody UserEntity user) {
+    public ResponseEntity<UserDTO> createUser(@RequestBody UserEntity user) {
         if (userService.existsByEmail(user.getEmail())) {
             return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
         UserEntity createdUser = userService.createUser(user);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdUser);
+        return ResponseEntity.status(HttpStatus.CREATED).body(UserDTO.from(createdUser));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<UserEntity> updateUser(
+    public ResponseEntity<UserDTO> updateUser(
             @PathVariable("id") Long userId,
             @RequestBody UserEntity userDetails) {
         try {
             UserEntity updatedUser = userService.updateUser(userId, userDetails);
-            return ResponseEntity.ok(updatedUser);
+            return ResponseEntity.ok(UserDTO.from(updatedUser));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -1,13 +1,28 @@
 package com.collabcloud.controller;
 
+import com.collabcloud.dto.VersionDTO;
 import com.collabcloud.entity.VersionEntity;
+import com.collabcloud.service.DiffService;
+import com.collabcloud.service.DiffTooLargeException;
 import com.collabcloud.service.VersionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/versions")
@@ -16,48 +31,97 @@ public class VersionController {
     @Autowired
     private VersionService versionService;
 
+    @Autowired
+    private DiffService diffService;
+
+    private static final String[] SORTABLE = { "versionId", "timestamp", "versionNumber" };
+
     @GetMapping
-    public ResponseEntity<List<VersionEntity>> getAllVersions() {
-        List<VersionEntity> versions = versionService.getAllVersions();
-        return ResponseEntity.ok(versions);
+    public ResponseEntity<List<VersionDTO>> getAllVersions(
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "timestamp", direction = Sort.Direction.DESC) Pageable pageable) {
+        return Paging.ok(versionService.getAllVersions(Paging.restrict(pageable, SORTABLE)));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<VersionEntity> getVersionById(@PathVariable("id") Long versionId) {
+    public ResponseEntity<VersionDTO> getVersionById(@PathVariable("id") Long versionId) {
         return versionService.getVersionById(versionId)
-                .map(ResponseEntity::ok)
+                .map(version -> ResponseEntity.ok(VersionDTO.from(version)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * The version body as UTF-8 text, streamed from storage. The ETag is the
+     * content hash from the row, so a matching If-None-Match is answered
+     * with 304 without touching storage.
+     */
+    @GetMapping("/{id}/content")
+    public ResponseEntity<Resource> getVersionContent(@PathVariable("id") Long versionId, WebRequest request) {
+        Optional<VersionEntity> found = versionService.getVersionById(versionId);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        VersionEntity version = found.get();
+        String etag = ETags.weak(versionService.getContentHash(version));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8));
+        if (version.getContentLength() != null) {
+            response.contentLength(version.getContentLength());
+        }
+        return response.body(new InputStreamResource(versionService.openContent(version)));
+    }
+
+    /**
+     * Unified-style line diff from one version to another. Bodies too large
+     * to diff are answered with 422.
+     */
+    @GetMapping("/{fromId}/diff/{toId}")
+    public ResponseEntity<?> diffVersions(@PathVariable("fromId") Long fromId, @PathVariable("toId") Long toId,
+            @RequestParam(value = "context", defaultValue = "" + DiffService.DEFAULT_CONTEXT) int context) {
+        try {
+            return diffService.diffVersions(fromId, toId, context)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (DiffTooLargeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.unprocessableEntity().body(error);
+        }
+    }
+
     @GetMapping("/file/{fileId}")
-    public ResponseEntity<List<VersionEntity>> getVersionsByFileId(@PathVariable("fileId") Long fileId) {
-        List<VersionEntity> versions = versionService.getVersionsByFileId(fileId);
-        return ResponseEntity.ok(versions);
+    public ResponseEntity<List<VersionDTO>> getVersionsByFileId(@PathVariable("fileId") Long fileId,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "timestamp") Pageable pageable) {
+        return Paging.ok(versionService.getVersionsByFileId(fileId, Paging.restrict(pageable, SORTABLE)));
     }
 
     @GetMapping("/file/{fileId}/ordered")
-    public ResponseEntity<List<VersionEntity>> getVersionsByFileIdOrdered(@PathVariable("fileId") Long fileId) {
+    public ResponseEntity<List<VersionDTO>> getVersionsByFileIdOrdered(@PathVariable("fileId") Long fileId,
+            @PageableDefault(size = Paging.DEFAULT_SIZE, sort = "timestamp", direction = Sort.Direction.DESC) Pageable pageable) {
         try {
-            List<VersionEntity> versions = versionService.getVersionsByFileIdOrdered(fileId);
-            return ResponseEntity.ok(versions);
+            return Paging.ok(versionService.getVersionsByFileIdOrdered(fileId, Paging.restrict(pageable, SORTABLE)));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
     @PostMapping
-    public ResponseEntity<VersionEntity> createVersion(@RequestBody VersionEntity version) {
+    public ResponseEntity<VersionDTO> createVersion(@RequestBody VersionEntity version) {
         VersionEntity createdVersion = versionService.createVersion(version);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdVersion);
+        return ResponseEntity.status(HttpStatus.CREATED).body(VersionDTO.from(createdVersion));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<VersionEntity> updateVersion(
+    public ResponseEntity<VersionDTO> updateVersion(
             @PathVariable("id") Long versionId,
             @RequestBody VersionEntity versionDetails) {
         try {
             VersionEntity updatedVersion = versionService.updateVersion(versionId, versionDetails);
-            return ResponseEntity.ok(updatedVersion);
+            return ResponseEntity.ok(VersionDTO.from(updatedVersion));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
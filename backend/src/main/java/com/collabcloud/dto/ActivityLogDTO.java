@@ -0,0 +1,62 @@
+package com.collabcloud.dto;
+
+import com.collabcloud.entity.ActivityLogEntity;
+import com.collabcloud.entity.ProjectEntity;
+import com.collabcloud.entity.UserEntity;
+
+import java.time.LocalDateTime;
+
+public class ActivityLogDTO {
+    // Entity attribute paths in constructor order, for ProjectionRepository
+    public static final String[] ATTRIBUTES = { "activityId", "actionType", "timestamp", "data",
+            "actionDescription", "actionTimestamp", "project.projectId", "project.title", "user.userId", "user.name",
+            "user.email" };
+
+    private final Long activityId;
+    private final String actionType;
+    private final LocalDateTime timestamp;
+    private final String data;
+    private final String actionDescription;
+    private final LocalDateTime actionTimestamp;
+    private final ProjectSummaryDTO project;
+    private final UserSummaryDTO user;
+
+    public ActivityLogDTO(Long activityId, String actionType, LocalDateTime timestamp, String data,
+            String actionDescription, LocalDateTime actionTimestamp, Long projectId, String projectTitle,
+            Long userId, String userName, String userEmail) {
+        this.activityId = activityId;
+        this.actionType = actionType;
+        this.timestamp = timestamp;
+        this.data = data;
+        this.actionDescription = actionDescription;
+        this.actionTimestamp = actionTimestamp;
+        this.project = ProjectSummaryDTO.of(projectId, projectTitle);
+        this.user = UserSummaryDTO.of(userId, userName, userEmail);
+    }
+
+    public static ActivityLogDTO from(ActivityLogEntity log) {
+        ProjectEntity project = log.getProject();
+        UserEntity user = log.getUser();
+        return new ActivityLogDTO(log.getActivityId(), log.getActionType(), log.getTimestamp(), log.getData(),
+                log.getActionDescription(), log.getActionTimestamp(),
+                project != null ? project.getProjectId() : null,
+                project != null ? project.getTitle() : null,
+                user != null ? user.getUserId() : null,
+                user != null ? user.getName() : null,
+                user != null ? user.getEmail() : null);
+    }
+
+    // Getters
+    public Long getActivityId() { return activityId; }
+    public String getActionType() { return actionType; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public String getData() { return data; }
+    public String getActionDescription() { return actionDescription; }
+    public LocalDateTime getActionTimestamp() { return actionTimestamp; }
+    public ProjectSummaryDTO getProject() { return project; }
+    public UserSummaryDTO getUser() { return user; }
+    // Flat fields read by the activity log page
+    public Long getProjectId() { return project != null ? project.getProjectId() : null; }
+    public String getProjectName() { return project != null ? project.getTitle() : null; }
+    public String getUserName() { return user != null ? user.getName() : null; }
+}
@@ -0,0 +1,41 @@
+package com.collabcloud.dto;
+
+import com.collabcloud.entity.ProjectCollaboratorEntity;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+public class CollaboratorDTO {
+    // Entity attribute paths in constructor order, for ProjectionRepository
+    public static final String[] ATTRIBUTES = { "id", "project.projectId", "user.userId", "user.name",
+            "user.email", "permission", "addedAt" };
+
+    private final Long id;
+    private final Long projectId;
+    private final UserSummaryDTO user;
+    private final String permission;
+    private final LocalDateTime addedAt;
+
+    public CollaboratorDTO(Long id, Long projectId, Long userId, String userName, String userEmail,
+            String permission, LocalDateTime addedAt) {
+        this.id = id;
+        this.projectId = projectId;
+        this.user = UserSummaryDTO.of(userId, userName, userEmail);
+        this.permission = permission;
+        this.addedAt = addedAt;
+    }
+
+    public static CollaboratorDTO from(ProjectCollaboratorEntity collaborator) {
+        return new CollaboratorDTO(collaborator.getId(), collaborator.getProject().getProjectId(),
+                collaborator.getUser().getUserId(), collaborator.getUser().getName(),
+                collaborator.getUser().getEmail(), collaborator.getPermission(), collaborator.getAddedAt());
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    @JsonIgnore // Only used to group rows; the collaborator is always nested in its project
+    public Long getProjectId() { return projectId; }
+    public UserSummaryDTO getUser() { return user; }
+    public String getPermission() { return permission; }
+    public LocalDateTime getAddedAt() { return addedAt; }
+}
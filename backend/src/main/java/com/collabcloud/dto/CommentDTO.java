@@ -0,0 +1,70 @@
+package com.collabcloud.dto;
+
+import com.collabcloud.entity.CommentEntity;
+import com.collabcloud.entity.UserEntity;
+
+import java.time.LocalDateTime;
+
+public class CommentDTO {
+    // Entity attribute paths in constructor order, for ProjectionRepository
+    public static final String[] ATTRIBUTES = { "commentId", "content", "email", "createdDate",
+            "updatedDate", "user.userId", "user.name", "user.email", "file.fileId", "project.projectId",
+            "parent.commentId", "lineStart", "lineEnd", "anchorTag" };
+
+    private final Long commentId;
+    private final String content;
+    private final String email;
+    private final LocalDateTime createdDate;
+    private final LocalDateTime updatedDate;
+    private final UserSummaryDTO user;
+    private final Long fileId;
+    private final Long projectId;
+    private final Long parentId;
+    private final Integer lineStart;
+    private final Integer lineEnd;
+    private final String anchorTag;
+
+    public CommentDTO(Long commentId, String content, String email, LocalDateTime createdDate,
+            LocalDateTime updatedDate, Long userId, String userName, String userEmail, Long fileId, Long projectId,
+            Long parentId, Integer lineStart, Integer lineEnd, String anchorTag) {
+        this.commentId = commentId;
+        this.content = content;
+        this.email = email;
+        this.createdDate = createdDate;
+        this.updatedDate = updatedDate;
+        this.user = UserSummaryDTO.of(userId, userName, userEmail);
+        this.fileId = fileId;
+        this.projectId = projectId;
+        this.parentId = parentId;
+        this.lineStart = lineStart;
+        this.lineEnd = lineEnd;
+        this.anchorTag = anchorTag;
+    }
+
+    public static CommentDTO from(CommentEntity comment) {
+        UserEntity user = comment.getUser();
+        return new CommentDTO(comment.getCommentId(), comment.getContent(), comment.getEmail(),
+                comment.getCreatedDate(), comment.getUpdatedDate(),
+                user != null ? user.getUserId() : null,
+                user != null ? user.getName() : null,
+                user != null ? user.getEmail() : null,
+                comment.getFile() != null ? comment.getFile().getFileId() : null,
+                comment.getProject() != null ? comment.getProject().getProjectId() : null,
+                comment.getParent() != null ? comment.getParent().getCommentId() : null,
+                comment.getLineStart(), comment.getLineEnd(), comment.getAnchorTag());
+    }
+
+    // Getters
+    public Long getCommentId() { return commentId; }
+    public String getContent() { return content; }
+    public String getEmail() { return email; }
+    public LocalDateTime getCreatedDate() { return createdDate; }
+    public LocalDateTime getUpdatedDate() { return updatedDate; }
+    public UserSummaryDTO getUser() { return user; }
+    public Long getFileId() { return fileId; }
+    public Long getProjectId() { return projectId; }
+    public Long getParentId() { return parentId; }
+    public Integer getLineStart() { return lineStart; }
+    public Integer getLineEnd() { return lineEnd; }
+    public String getAnchorTag() { return anchorTag; }
+}
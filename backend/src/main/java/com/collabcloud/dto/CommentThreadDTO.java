@@ -0,0 +1,25 @@
+package com.collabcloud.dto;
+
+import java.util.List;
+
+/**
+ * A root comment with its first replies, oldest first. When replyCount is
+ * larger than the list, the rest are paged from /api/comments/{id}/replies
+ * after the last reply's id.
+ */
+public class CommentThreadDTO {
+    private final CommentDTO comment;
+    private final long replyCount;
+    private final List<CommentDTO> replies;
+
+    public CommentThreadDTO(CommentDTO comment, long replyCount, List<CommentDTO> replies) {
+        this.comment = comment;
+        this.replyCount = replyCount;
+        this.replies = replies;
+    }
+
+    // Getters
+    public CommentDTO getComment() { return comment; }
+    public long getReplyCount() { return replyCount; }
+    public List<CommentDTO> getReplies() { return replies; }
+}
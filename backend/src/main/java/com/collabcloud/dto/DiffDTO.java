@@ -0,0 +1,65 @@
+package com.collabcloud.dto;
+
+import java.util.List;
+
+/**
+ * A line diff in unified-diff terms. Each hunk line starts with ' ' (context),
+ * '-' (only in the old text) or '+' (only in the new text). Instances are
+ * immutable because they are shared through the diff cache.
+ */
+public class DiffDTO {
+    private final String fromHash;
+    private final String toHash;
+    private final int fromLines;
+    private final int toLines;
+    private final int additions;
+    private final int deletions;
+    private final boolean exact;
+    private final List<Hunk> hunks;
+
+    public DiffDTO(String fromHash, String toHash, int fromLines, int toLines, int additions, int deletions,
+            boolean exact, List<Hunk> hunks) {
+        this.fromHash = fromHash;
+        this.toHash = toHash;
+        this.fromLines = fromLines;
+        this.toLines = toLines;
+        this.additions = additions;
+        this.deletions = deletions;
+        this.exact = exact;
+        this.hunks = List.copyOf(hunks);
+    }
+
+    public static class Hunk {
+        private final int fromStart;
+        private final int fromCount;
+        private final int toStart;
+        private final int toCount;
+        private final List<String> lines;
+
+        public Hunk(int fromStart, int fromCount, int toStart, int toCount, List<String> lines) {
+            this.fromStart = fromStart;
+            this.fromCount = fromCount;
+            this.toStart = toStart;
+            this.toCount = toCount;
+            this.lines = List.copyOf(lines);
+        }
+
+        // Getters
+        public int getFromStart() { return fromStart; }
+        public int getFromCount() { return fromCount; }
+        public int getToStart() { return toStart; }
+        public int getToCount() { return toCount; }
+        public List<String> getLines() { return lines; }
+    }
+
+    // Getters
+    public String getFromHash() { return fromHash; }
+    public String getToHash() { return toHash; }
+    public int getFromLines() { return fromLines; }
+    public int getToLines() { return toLines; }
+    public int getAdditions() { return additions; }
+    public int getDeletions() { return deletions; }
+    /** False when the work budget ran out and part of the diff is a plain replacement. */
+    public boolean isExact() { return exact; }
+    public List<Hunk> getHunks() { return hunks; }
+}
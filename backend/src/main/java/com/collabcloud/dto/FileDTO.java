@@ -0,0 +1,41 @@
+package com.collabcloud.dto;
+
+import com.collabcloud.entity.FileEntity;
+
+import java.time.LocalDateTime;
+
+public class FileDTO {
+    // Entity attribute paths in constructor order, for ProjectionRepository
+    public static final String[] ATTRIBUTES = { "fileId", "fileName", "fileType", "filePath", "uploadDate",
+            "project.projectId" };
+
+    private final Long fileId;
+    private final String fileName;
+    private final String fileType;
+    private final String filePath;
+    private final LocalDateTime uploadDate;
+    private final Long projectId;
+
+    public FileDTO(Long fileId, String fileName, String fileType, String filePath, LocalDateTime uploadDate,
+            Long projectId) {
+        this.fileId = fileId;
+        this.fileName = fileName;
+        this.fileType = fileType;
+        this.filePath = filePath;
+        this.uploadDate = uploadDate;
+        this.projectId = projectId;
+    }
+
+    public static FileDTO from(FileEntity file) {
+        return new FileDTO(file.getFileId(), file.getFileName(), file.getFileType(), file.getFilePath(),
+                file.getUploadDate(), file.getProject() != null ? file.getProject().getProjectId() : null);
+    }
+
+    // Getters
+    public Long getFileId() { return fileId; }
+    public String getFileName() { return fileName; }
+    public String getFileType() { return fileType; }
+    public String getFilePath() { return filePath; }
+    public LocalDateTime getUploadDate() { return uploadDate; }
+    public Long getProjectId() { return projectId; }
+}
@@ -0,0 +1,85 @@
+package com.collabcloud.dto;
+
+import com.collabcloud.entity.FileEntity;
+import com.collabcloud.entity.FileHistoryEntity;
+import com.collabcloud.entity.UserEntity;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.LocalDateTime;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class FileHistoryDTO {
+    // Entity attribute paths in constructor order, for ProjectionRepository
+    public static final String[] ATTRIBUTES = { "historyId", "file.fileId", "file.fileName",
+            "modifiedBy.userId", "modifiedBy.name", "modifiedBy.email", "content", "modifiedDate", "changeDescription",
+            "changeType", "versionReference", "filePath" };
+
+    private Long historyId;
+    private Long fileId;
+    private String fileName;
+    private Long userId;
+    private String userName;
+    private String userEmail;
+    private String content;
+    private LocalDateTime modifiedDate;
+    private String changeDescription;
+    private String changeType;
+    private Long versionReference;
+    private String filePath;
+
+    public FileHistoryDTO(Long historyId, Long fileId, String fileName, Long userId, String userName,
+            String userEmail, String content, LocalDateTime modifiedDate, String changeDescription,
+            String changeType, Long versionReference, String filePath) {
+        this.historyId = historyId;
+        this.fileId = fileId;
+        this.fileName = fileName;
+        this.userId = userId;
+        this.userName = userName;
+        this.userEmail = userEmail;
+        this.content = content;
+        this.modifiedDate = modifiedDate;
+        this.changeDescription = changeDescription;
+        this.changeType = changeType;
+        this.versionReference = versionReference;
+        this.filePath = filePath;
+    }
+
+    public static FileHistoryDTO from(FileHistoryEntity entity) {
+        FileEntity file = entity.getFile();
+        UserEntity user = entity.getModifiedBy();
+        return new FileHistoryDTO(entity.getHistoryId(),
+                file != null ? file.getFileId() : null,
+                file != null ? file.getFileName() : null,
+                user != null ? user.getUserId() : null,
+                user != null ? user.getName() : null,
+                user != null ? user.getEmail() : null,
+                entity.getContent(), entity.getModifiedDate(), entity.getChangeDescription(),
+                entity.getChangeType(), entity.getVersionReference(), entity.getFilePath());
+    }
+
+    // Getters and setters
+    public Long getHistoryId() { return historyId; }
+    public void setHistoryId(Long historyId) { this.historyId = historyId; }
+    public Long getFileId() { return fileId; }
+    public void setFileId(Long fileId) { this.fileId = fileId; }
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public String getUserName() { return userName; }
+    public void setUserName(String userName) { this.userName = userName; }
+    public String getUserEmail() { return userEmail; }
+    public void setUserEmail(String userEmail) { this.userEmail = userEmail; }
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+    public LocalDateTime getModifiedDate() { return modifiedDate; }
+    public void setModifiedDate(LocalDateTime modifiedDate) { this.modifiedDate = modifiedDate; }
+    public String getChangeDescription() { return changeDescription; }
+    public void setChangeDescription(String changeDescription) { this.changeDescription = changeDescription; }
+    public String getChangeType() { return changeType; }
+    public void setChangeType(String changeType) { this.changeType = changeType; }
+    public Long getVersionReference() { return versionReference; }
+    public void setVersionReference(Long versionReference) { this.versionReference = versionReference; }
+    public String getFilePath() { return filePath; }
+    public void setFilePath(String filePath) { this.filePath = filePath; }
+}
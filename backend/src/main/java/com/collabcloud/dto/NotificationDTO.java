@@ -0,0 +1,41 @@
+package com.collabcloud.dto;
+
+import java.time.LocalDateTime;
+
+public class NotificationDTO {
+    // Entity attribute paths in constructor order, for ProjectionRepository
+    public static final String[] ATTRIBUTES = { "notificationId", "type", "refId", "message", "createdAt",
+            "readAt", "project.projectId", "project.title", "actor.userId", "actor.name", "actor.email" };
+
+    private final Long notificationId;
+    private final String type;
+    private final Long refId;
+    private final String message;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime readAt;
+    private final ProjectSummaryDTO project;
+    private final UserSummaryDTO actor;
+
+    public NotificationDTO(Long notificationId, String type, Long refId, String message, LocalDateTime createdAt,
+            LocalDateTime readAt, Long projectId, String projectTitle, Long actorId, String actorName,
+            String actorEmail) {
+        this.notificationId = notificationId;
+        this.type = type;
+        this.refId = refId;
+        this.message = message;
+        this.createdAt = createdAt;
+        this.readAt = readAt;
+        this.project = ProjectSummaryDTO.of(projectId, projectTitle);
+        this.actor = UserSummaryDTO.of(actorId, actorName, actorEmail);
+    }
+
+    // Getters
+    public Long getNotificationId() { return notificationId; }
+    public String getType() { return type; }
+    public Long getRefId() { return refId; }
+    public String getMessage() { return message; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getReadAt() { return readAt; }
+    public ProjectSummaryDTO getProject() { return project; }
+    public UserSummaryDTO getActor() { return actor; }
+}
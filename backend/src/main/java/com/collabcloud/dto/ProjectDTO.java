@@ -0,0 +1,79 @@
+package com.collabcloud.dto;
+
+import com.collabcloud.entity.ProjectEntity;
+import com.collabcloud.entity.ProjectStatsEntity;
+import com.collabcloud.entity.UserEntity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class ProjectDTO {
+    // Entity attribute paths in constructor order, for ProjectionRepository
+    public static final String[] ATTRIBUTES = { "projectId", "title", "description", "createdDate",
+            "lastModified", "creator.userId", "creator.name", "creator.email", "stats.fileCount",
+            "stats.commentCount", "stats.collaboratorCount", "stats.lastActivity" };
+
+    private final Long projectId;
+    private final String title;
+    private final String description;
+    private final LocalDateTime createdDate;
+    private final LocalDateTime lastModified;
+    private final UserSummaryDTO creator;
+    private final long fileCount;
+    private final long commentCount;
+    private final long collaboratorCount;
+    private final LocalDateTime lastActivity;
+    private List<CollaboratorDTO> collaborators = new ArrayList<>();
+
+    public ProjectDTO(Long projectId, String title, String description, LocalDateTime createdDate,
+            LocalDateTime lastModified, Long creatorId, String creatorName, String creatorEmail, Long fileCount,
+            Long commentCount, Long collaboratorCount, LocalDateTime lastActivity) {
+        this.projectId = projectId;
+        this.title = title;
+        this.description = description;
+        this.createdDate = createdDate;
+        this.lastModified = lastModified;
+        this.creator = UserSummaryDTO.of(creatorId, creatorName, creatorEmail);
+        // Null when the stats row is missing from the left join
+        this.fileCount = fileCount != null ? fileCount : 0;
+        this.commentCount = commentCount != null ? commentCount : 0;
+        this.collaboratorCount = collaboratorCount != null ? collaboratorCount : 0;
+        this.lastActivity = lastActivity;
+    }
+
+    public static ProjectDTO from(ProjectEntity project) {
+        UserEntity creator = project.getCreator();
+        ProjectStatsEntity stats = project.getStats();
+        ProjectDTO dto = new ProjectDTO(project.getProjectId(), project.getTitle(), project.getDescription(),
+                project.getCreatedDate(), project.getLastModified(),
+                creator != null ? creator.getUserId() : null,
+                creator != null ? creator.getName() : null,
+                creator != null ? creator.getEmail() : null,
+                stats != null ? stats.getFileCount() : null,
+                stats != null ? stats.getCommentCount() : null,
+                stats != null ? stats.getCollaboratorCount() : null,
+                stats != null ? stats.getLastActivity() : null);
+        dto.collaborators = project.getCollaborators().stream()
+                .map(CollaboratorDTO::from)
+                .sorted(Comparator.comparing(CollaboratorDTO::getId))
+                .collect(Collectors.toList());
+        return dto;
+    }
+
+    // Getters and setters
+    public Long getProjectId() { return projectId; }
+    public String getTitle() { return title; }
+    public String getDescription() { return description; }
+    public LocalDateTime getCreatedDate() { return createdDate; }
+    public LocalDateTime getLastModified() { return lastModified; }
+    public UserSummaryDTO getCreator() { return creator; }
+    public long getFileCount() { return fileCount; }
+    public long getCommentCount() { return commentCount; }
+    public long getCollaboratorCount() { return collaboratorCount; }
+    public LocalDateTime getLastActivity() { return lastActivity; }
+    public List<CollaboratorDTO> getCollaborators() { return collaborators; }
+    public void setCollaborators(List<CollaboratorDTO> collaborators) { this.collaborators = collaborators; }
+}
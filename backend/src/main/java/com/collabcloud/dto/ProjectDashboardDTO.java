@@ -0,0 +1,61 @@
+package com.collabcloud.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the project page loads, in one response. Sections that were
+ * not requested are left out of the JSON; each list is the newest entries
+ * up to the requested limit, with the section's total alongside.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProjectDashboardDTO {
+    private final ProjectDTO project;
+    private List<FileDTO> files;
+    private Long fileCount;
+    private Map<Long, Long> fileSizes;
+    private List<CommentDTO> comments;
+    private Long commentCount;
+    private List<ActivityLogDTO> activity;
+    private Long activityCount;
+    // Some file sizes could not be read, so the response must not be tagged
+    private boolean partial;
+
+    public ProjectDashboardDTO(ProjectDTO project) {
+        this.project = project;
+    }
+
+    public ProjectDTO getProject() { return project; }
+    public List<FileDTO> getFiles() { return files; }
+    public Long getFileCount() { return fileCount; }
+    public Map<Long, Long> getFileSizes() { return fileSizes; }
+    public List<CommentDTO> getComments() { return comments; }
+    public Long getCommentCount() { return commentCount; }
+    public List<ActivityLogDTO> getActivity() { return activity; }
+    public Long getActivityCount() { return activityCount; }
+    @JsonIgnore
+    public boolean isPartial() { return partial; }
+
+    public void setFiles(List<FileDTO> files, long fileCount) {
+        this.files = files;
+        this.fileCount = fileCount;
+    }
+
+    public void setFileSizes(Map<Long, Long> fileSizes, boolean partial) {
+        this.fileSizes = fileSizes;
+        this.partial = partial;
+    }
+
+    public void setComments(List<CommentDTO> comments, long commentCount) {
+        this.comments = comments;
+        this.commentCount = commentCount;
+    }
+
+    public void setActivity(List<ActivityLogDTO> activity, long activityCount) {
+        this.activity = activity;
+        this.activityCount = activityCount;
+    }
+}
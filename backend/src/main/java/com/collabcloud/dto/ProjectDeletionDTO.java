@@ -0,0 +1,56 @@
+package com.collabcloud.dto;
+
+import com.collabcloud.entity.ProjectDeletionEntity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a project deletion, as returned by DELETE /api/projects/{id}
+ * and GET /api/projects/{id}/deletion.
+ */
+public class ProjectDeletionDTO {
+    private final Long projectId;
+    private final String status;
+    private final long filesTotal;
+    private final long filesDeleted;
+    private final long objectsDeleted;
+    private final int attempts;
+    private final String lastError;
+    private final LocalDateTime requestedAt;
+    private final LocalDateTime updatedAt;
+    private final LocalDateTime completedAt;
+
+    public ProjectDeletionDTO(Long projectId, String status, long filesTotal, long filesDeleted,
+            long objectsDeleted, int attempts, String lastError, LocalDateTime requestedAt,
+            LocalDateTime updatedAt, LocalDateTime completedAt) {
+        this.projectId = projectId;
+        this.status = status;
+        this.filesTotal = filesTotal;
+        this.filesDeleted = filesDeleted;
+        this.objectsDeleted = objectsDeleted;
+        this.attempts = attempts;
+        this.lastError = lastError;
+        this.requestedAt = requestedAt;
+        this.updatedAt = updatedAt;
+        this.completedAt = completedAt;
+    }
+
+    public static ProjectDeletionDTO from(ProjectDeletionEntity deletion) {
+        return new ProjectDeletionDTO(deletion.getProjectId(), deletion.getStatus(), deletion.getFilesTotal(),
+                deletion.getFilesDeleted(), deletion.getObjectsDeleted(), deletion.getAttempts(),
+                deletion.getLastError(), deletion.getRequestedAt(), deletion.getUpdatedAt(),
+                deletion.getCompletedAt());
+    }
+
+    // Getters
+    public Long getProjectId() { return projectId; }
+    public String getStatus() { return status; }
+    public long getFilesTotal() { return filesTotal; }
+    public long getFilesDeleted() { return filesDeleted; }
+    public long getObjectsDeleted() { return objectsDeleted; }
+    public int getAttempts() { return attempts; }
+    public String getLastError() { return lastError; }
+    public LocalDateTime getRequestedAt() { return requestedAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public LocalDateTime getCompletedAt() { return completedAt; }
+}
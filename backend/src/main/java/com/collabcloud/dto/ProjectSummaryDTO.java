@@ -0,0 +1,28 @@
+package com.collabcloud.dto;
+
+import com.collabcloud.entity.ProjectEntity;
+
+/**
+ * The project fields embedded in other responses.
+ */
+public class ProjectSummaryDTO {
+    private final Long projectId;
+    private final String title;
+
+    public ProjectSummaryDTO(Long projectId, String title) {
+        this.projectId = projectId;
+        this.title = title;
+    }
+
+    static ProjectSummaryDTO of(Long projectId, String title) {
+        return projectId == null ? null : new ProjectSummaryDTO(projectId, title);
+    }
+
+    public static ProjectSummaryDTO from(ProjectEntity project) {
+        return project == null ? null : of(project.getProjectId(), project.getTitle());
+    }
+
+    // Getters
+    public Long getProjectId() { return projectId; }
+    public String getTitle() { return title; }
+}
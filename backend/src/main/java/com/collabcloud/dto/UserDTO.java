@@ -0,0 +1,44 @@
+package com.collabcloud.dto;
+
+import com.collabcloud.entity.UserEntity;
+
+import java.time.LocalDate;
+
+public class UserDTO {
+    // Entity attribute paths in constructor order, for ProjectionRepository
+    public static final String[] ATTRIBUTES = { "userId", "name", "email", "role", "bio",
+            "profilePicture", "lastLogin" };
+
+    private final Long userId;
+    private final String name;
+    private final String email;
+    private final String role;
+    private final String bio;
+    private final String profilePicture;
+    private final LocalDate lastLogin;
+
+    public UserDTO(Long userId, String name, String email, String role, String bio, String profilePicture,
+            LocalDate lastLogin) {
+        this.userId = userId;
+        this.name = name;
+        this.email = email;
+        this.role = role;
+        this.bio = bio;
+        this.profilePicture = profilePicture;
+        this.lastLogin = lastLogin;
+    }
+
+    public static UserDTO from(UserEntity user) {
+        return new UserDTO(user.getUserId(), user.getName(), user.getEmail(), user.getRole(), user.getBio(),
+                user.getProfilePicture(), user.getLastLogin());
+    }
+
+    // Getters
+    public Long getUserId() { return userId; }
+    public String getName() { return name; }
+    public String getEmail() { return email; }
+    public String getRole() { return role; }
+    public String getBio() { return bio; }
+    public String getProfilePicture() { return profilePicture; }
+    public LocalDate getLastLogin() { return lastLogin; }
+}
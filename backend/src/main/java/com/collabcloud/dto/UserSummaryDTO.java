@@ -0,0 +1,32 @@
+package com.collabcloud.dto;
+
+import com.collabcloud.entity.UserEntity;
+
+/**
+ * The user fields embedded in other responses (project creator, comment
+ * author, collaborator).
+ */
+public class UserSummaryDTO {
+    private final Long userId;
+    private final String name;
+    private final String email;
+
+    public UserSummaryDTO(Long userId, String name, String email) {
+        this.userId = userId;
+        this.name = name;
+        this.email = email;
+    }
+
+    static UserSummaryDTO of(Long userId, String name, String email) {
+        return userId == null ? null : new UserSummaryDTO(userId, name, email);
+    }
+
+    public static UserSummaryDTO from(UserEntity user) {
+        return user == null ? null : of(user.getUserId(), user.getName(), user.getEmail());
+    }
+
+    // Getters
+    public Long getUserId() { return userId; }
+    public String getName() { return name; }
+    public String getEmail() { return email; }
+}
@@ -0,0 +1,54 @@
+package com.collabcloud.dto;
+
+import com.collabcloud.entity.FileEntity;
+import com.collabcloud.entity.VersionEntity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version metadata only; the body is served by GET /api/versions/{id}/content.
+ */
+public class VersionDTO {
+    // Entity attribute paths in constructor order, for ProjectionRepository
+    public static final String[] ATTRIBUTES = { "versionId", "versionMessage", "versionNumber", "timestamp",
+            "contentHash", "contentLength", "file.fileId", "file.project.projectId" };
+
+    private final Long versionId;
+    private final String versionMessage;
+    private final String versionNumber;
+    private final LocalDateTime timestamp;
+    private final String contentHash;
+    private final Long contentLength;
+    private final Long fileId;
+    private final Long projectId;
+
+    public VersionDTO(Long versionId, String versionMessage, String versionNumber, LocalDateTime timestamp,
+            String contentHash, Long contentLength, Long fileId, Long projectId) {
+        this.versionId = versionId;
+        this.versionMessage = versionMessage;
+        this.versionNumber = versionNumber;
+        this.timestamp = timestamp;
+        this.contentHash = contentHash;
+        this.contentLength = contentLength;
+        this.fileId = fileId;
+        this.projectId = projectId;
+    }
+
+    public static VersionDTO from(VersionEntity version) {
+        FileEntity file = version.getFile();
+        return new VersionDTO(version.getVersionId(), version.getVersionMessage(), version.getVersionNumber(),
+                version.getTimestamp(), version.getContentHash(), version.getContentLength(),
+                file != null ? file.getFileId() : null,
+                file != null && file.getProject() != null ? file.getProject().getProjectId() : null);
+    }
+
+    // Getters
+    public Long getVersionId() { return versionId; }
+    public String getVersionMessage() { return versionMessage; }
+    public String getVersionNumber() { return versionNumber; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public String getContentHash() { return contentHash; }
+    public Long getContentLength() { return contentLength; }
+    public Long getFileId() { return fileId; }
+    public Long getProjectId() { return projectId; }
+}
@@ -5,11 +5,15 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "activity_logs")
+@Table(name = "activity_logs", indexes = {
+        @Index(name = "idx_activity_logs_project_timestamp", columnList = "project_id, timestamp"),
+        @Index(name = "idx_activity_logs_user", columnList = "user_id")
+})
 public class ActivityLogEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "activity_logs_seq")
+    @SequenceGenerator(name = "activity_logs_seq", sequenceName = "activity_logs_seq", allocationSize = 50)
     private Long activityId;
 
     @Column(nullable = false)
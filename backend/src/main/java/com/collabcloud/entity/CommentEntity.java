@@ -5,7 +5,12 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_file_created", columnList = "file_id, createdDate"),
+        @Index(name = "idx_comments_project_created", columnList = "project_id, createdDate"),
+        @Index(name = "idx_comments_user_created", columnList = "user_id, createdDate"),
+        @Index(name = "idx_comments_parent", columnList = "parent_id, commentId")
+})
 public class CommentEntity {
 
     @Id
@@ -38,6 +43,21 @@ public class CommentEntity {
     @JsonIgnoreProperties({ "files", "collaborators", "versions" })
     private ProjectEntity project;
 
+    // The thread's root; null for a root. Replies go with their root (ON DELETE CASCADE).
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "parent_id")
+    @JsonIgnoreProperties({ "user", "file", "project", "parent" })
+    private CommentEntity parent;
+
+    // 1-based, inclusive line range of the file content a root refers to
+    private Integer lineStart;
+
+    private Integer lineEnd;
+
+    // Content tag of the file when the anchor was set; a different current tag means the lines may have moved
+    @Column(length = 64)
+    private String anchorTag;
+
     public CommentEntity() {
     }
 
@@ -115,4 +135,36 @@ public class CommentEntity {
     public void setProject(ProjectEntity project) {
         this.project = project;
     }
+
+    public CommentEntity getParent() {
+        return parent;
+    }
+
+    public void setParent(CommentEntity parent) {
+        this.parent = parent;
+    }
+
+    public Integer getLineStart() {
+        return lineStart;
+    }
+
+    public void setLineStart(Integer lineStart) {
+        this.lineStart = lineStart;
+    }
+
+    public Integer getLineEnd() {
+        return lineEnd;
+    }
+
+    public void setLineEnd(Integer lineEnd) {
+        this.lineEnd = lineEnd;
+    }
+
+    public String getAnchorTag() {
+        return anchorTag;
+    }
+
+    public void setAnchorTag(String anchorTag) {
+        this.anchorTag = anchorTag;
+    }
 }
@@ -8,11 +8,15 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "files")
+@Table(name = "files", indexes = {
+        @Index(name = "idx_files_project_upload", columnList = "project_id, uploadDate"),
+        @Index(name = "idx_files_file_path", columnList = "filePath")
+})
 public class FileEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "files_seq")
+    @SequenceGenerator(name = "files_seq", sequenceName = "files_seq", allocationSize = 50)
     private Long fileId;
 
     @Column(nullable = false)
@@ -27,6 +31,22 @@ public class FileEntity {
     @Column(nullable = false)
     private LocalDateTime uploadDate;
 
+    @Column(name = "content_version", nullable = false)
+    @JsonIgnore
+    private long contentVersion;
+
+    @Column(name = "content_codec", length = 16)
+    @JsonIgnore
+    private String contentCodec;
+
+    @Column(name = "thumbnail_tag", length = 64)
+    @JsonIgnore
+    private String thumbnailTag;
+
+    @Column(name = "thumbnail_status", length = 16)
+    @JsonIgnore
+    private String thumbnailStatus;
+
     @ManyToOne
     @JoinColumn(name = "project_id", nullable = false)
     @JsonIgnoreProperties({ "creator", "collaborators", "files", "activityLogs" })
@@ -93,6 +113,38 @@ public class FileEntity {
         this.uploadDate = uploadDate;
     }
 
+    public long getContentVersion() {
+        return contentVersion;
+    }
+
+    public void setContentVersion(long contentVersion) {
+        this.contentVersion = contentVersion;
+    }
+
+    public String getContentCodec() {
+        return contentCodec;
+    }
+
+    public void setContentCodec(String contentCodec) {
+        this.contentCodec = contentCodec;
+    }
+
+    public String getThumbnailTag() {
+        return thumbnailTag;
+    }
+
+    public void setThumbnailTag(String thumbnailTag) {
+        this.thumbnailTag = thumbnailTag;
+    }
+
+    public String getThumbnailStatus() {
+        return thumbnailStatus;
+    }
+
+    public void setThumbnailStatus(String thumbnailStatus) {
+        this.thumbnailStatus = thumbnailStatus;
+    }
+
     public ProjectEntity getProject() {
         return project;
     }
@@ -4,11 +4,16 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "file_history")
+@Table(name = "file_history", indexes = {
+        @Index(name = "idx_file_history_file_modified", columnList = "file_id, modifiedDate"),
+        @Index(name = "idx_file_history_user_modified", columnList = "user_id, modifiedDate"),
+        @Index(name = "idx_file_history_file_path", columnList = "filePath")
+})
 public class FileHistoryEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "file_history_seq")
+    @SequenceGenerator(name = "file_history_seq", sequenceName = "file_history_seq", allocationSize = 50)
     private Long historyId;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,92 @@
+package com.collabcloud.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Something a user should know about in one of their projects. Rows are
+ * inserted by NotificationService's outbox handler in JDBC batches; the
+ * entity is here for reads and for the read flag.
+ */
+@Entity
+@Table(name = "notifications", indexes = {
+        @Index(name = "idx_notifications_user", columnList = "user_id, notificationId")
+})
+public class NotificationEntity {
+
+    public static final String COMMENT = "COMMENT";
+    public static final String MENTION = "MENTION";
+    public static final String FILE_UPDATED = "FILE_UPDATED";
+    public static final String COLLABORATOR_ADDED = "COLLABORATOR_ADDED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long notificationId;
+
+    // The recipient
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private UserEntity user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "project_id", nullable = false)
+    private ProjectEntity project;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "actor_id")
+    private UserEntity actor;
+
+    @Column(nullable = false, length = 40)
+    private String type;
+
+    // The comment, file or project the notification is about, by type
+    private Long refId;
+
+    @Column(columnDefinition = "text")
+    private String message;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime readAt;
+
+    public NotificationEntity() {
+    }
+
+    // Getters
+    public Long getNotificationId() {
+        return notificationId;
+    }
+
+    public UserEntity getUser() {
+        return user;
+    }
+
+    public ProjectEntity getProject() {
+        return project;
+    }
+
+    public UserEntity getActor() {
+        return actor;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getRefId() {
+        return refId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getReadAt() {
+        return readAt;
+    }
+}
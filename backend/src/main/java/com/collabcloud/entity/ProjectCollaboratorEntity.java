@@ -1,10 +1,19 @@
 package com.collabcloud.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "project_collaborators")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "project-collaborators")
+@Table(name = "project_collaborators", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_project_collaborators_project_user", columnNames = { "project_id", "user_id" })
+}, indexes = {
+        @Index(name = "idx_project_collaborators_user", columnList = "user_id")
+})
 public class ProjectCollaboratorEntity {
 
     @Id
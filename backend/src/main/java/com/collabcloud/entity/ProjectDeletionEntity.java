@@ -0,0 +1,143 @@
+package com.collabcloud.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a background project deletion, keyed by the project's id.
+ * PENDING until a worker claims it, RUNNING while batches are deleted (each
+ * batch refreshes updatedAt, the worker's lease), then DONE or FAILED.
+ */
+@Entity
+@Table(name = "project_deletions", indexes = {
+        @Index(name = "idx_project_deletions_status", columnList = "status")
+})
+public class ProjectDeletionEntity {
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @Column(name = "project_id")
+    private Long projectId;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(nullable = false)
+    private long filesTotal;
+
+    @Column(nullable = false)
+    private long filesDeleted;
+
+    @Column(nullable = false)
+    private long objectsDeleted;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(columnDefinition = "text")
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime requestedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime completedAt;
+
+    public ProjectDeletionEntity() {
+    }
+
+    public ProjectDeletionEntity(Long projectId, long filesTotal) {
+        this.projectId = projectId;
+        this.status = PENDING;
+        this.filesTotal = filesTotal;
+        this.requestedAt = LocalDateTime.now();
+        this.updatedAt = this.requestedAt;
+    }
+
+    // Getters and Setters
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(Long projectId) {
+        this.projectId = projectId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getFilesTotal() {
+        return filesTotal;
+    }
+
+    public void setFilesTotal(long filesTotal) {
+        this.filesTotal = filesTotal;
+    }
+
+    public long getFilesDeleted() {
+        return filesDeleted;
+    }
+
+    public void setFilesDeleted(long filesDeleted) {
+        this.filesDeleted = filesDeleted;
+    }
+
+    public long getObjectsDeleted() {
+        return objectsDeleted;
+    }
+
+    public void setObjectsDeleted(long objectsDeleted) {
+        this.objectsDeleted = objectsDeleted;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getRequestedAt() {
+        return requestedAt;
+    }
+
+    public void setRequestedAt(LocalDateTime requestedAt) {
+        this.requestedAt = requestedAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
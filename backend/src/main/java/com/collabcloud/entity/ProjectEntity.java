@@ -2,13 +2,20 @@ package com.collabcloud.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "projects")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "projects")
+@Table(name = "projects", indexes = {
+        @Index(name = "idx_projects_creator_modified", columnList = "creator_id, lastModified")
+})
 public class ProjectEntity {
 
     @Id
@@ -34,6 +41,7 @@ public class ProjectEntity {
 
     @OneToMany(mappedBy = "project", cascade = CascadeType.ALL)
     @JsonIgnoreProperties("project")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "projects.collaborators")
     private Set<ProjectCollaboratorEntity> collaborators = new HashSet<>();
 
     @OneToMany(mappedBy = "project", cascade = CascadeType.ALL)
@@ -44,6 +52,12 @@ public class ProjectEntity {
     @JsonIgnore
     private Set<ActivityLogEntity> activityLogs = new HashSet<>();
 
+    // Joined on the project's own id, so it is a lazy proxy and never written from here
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "project_id", insertable = false, updatable = false)
+    @JsonIgnore
+    private ProjectStatsEntity stats;
+
     // Constructors
     public ProjectEntity() {
     }
@@ -128,4 +142,12 @@ public class ProjectEntity {
     public void setActivityLogs(Set<ActivityLogEntity> activityLogs) {
         this.activityLogs = activityLogs;
     }
+
+    public ProjectStatsEntity getStats() {
+        return stats;
+    }
+
+    public void setStats(ProjectStatsEntity stats) {
+        this.stats = stats;
+    }
 }
@@ -0,0 +1,58 @@
+package com.collabcloud.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Running counts for one project, keyed by the project's id. Saved once
+ * with the project; after that only ProjectStatsRepository's relative
+ * updates write it, so concurrent writers never overwrite each other's counts.
+ */
+@Entity
+@Table(name = "project_stats")
+public class ProjectStatsEntity {
+
+    @Id
+    @Column(name = "project_id")
+    private Long projectId;
+
+    @Column(nullable = false)
+    private long fileCount;
+
+    @Column(nullable = false)
+    private long commentCount;
+
+    @Column(nullable = false)
+    private long collaboratorCount;
+
+    private LocalDateTime lastActivity;
+
+    public ProjectStatsEntity() {
+    }
+
+    public ProjectStatsEntity(Long projectId, long collaboratorCount) {
+        this.projectId = projectId;
+        this.collaboratorCount = collaboratorCount;
+    }
+
+    // Getters
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public long getFileCount() {
+        return fileCount;
+    }
+
+    public long getCommentCount() {
+        return commentCount;
+    }
+
+    public long getCollaboratorCount() {
+        return collaboratorCount;
+    }
+
+    public LocalDateTime getLastActivity() {
+        return lastActivity;
+    }
+}
@@ -0,0 +1,111 @@
+package com.collabcloud.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One row of the full-text index. Rows are keyed by (docType, refId) and
+ * written through native upserts in SearchDocumentRepository, which also
+ * maintains the weighted tsvector column.
+ */
+@Entity
+@Table(name = "search_documents", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_search_documents_doc", columnNames = { "doc_type", "ref_id" })
+}, indexes = {
+        @Index(name = "idx_search_documents_project", columnList = "project_id")
+})
+public class SearchDocumentEntity {
+
+    public static final String TYPE_PROJECT = "PROJECT";
+    public static final String TYPE_FILE = "FILE";
+    public static final String TYPE_COMMENT = "COMMENT";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "doc_type", nullable = false, length = 20)
+    private String docType;
+
+    @Column(name = "ref_id", nullable = false)
+    private Long refId;
+
+    @Column(name = "project_id", nullable = false)
+    private Long projectId;
+
+    @Column(columnDefinition = "text")
+    private String title;
+
+    @Column(columnDefinition = "text")
+    private String body;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(columnDefinition = "tsvector", insertable = false, updatable = false)
+    private String tsv;
+
+    public SearchDocumentEntity() {
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getDocType() {
+        return docType;
+    }
+
+    public void setDocType(String docType) {
+        this.docType = docType;
+    }
+
+    public Long getRefId() {
+        return refId;
+    }
+
+    public void setRefId(Long refId) {
+        this.refId = refId;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(Long projectId) {
+        this.projectId = projectId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public String getTsv() {
+        return tsv;
+    }
+}
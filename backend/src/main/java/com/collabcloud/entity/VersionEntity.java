@@ -5,11 +5,15 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "versions")
+@Table(name = "versions", indexes = {
+        @Index(name = "idx_versions_file_timestamp", columnList = "file_id, timestamp"),
+        @Index(name = "idx_versions_content_path", columnList = "contentPath")
+})
 public class VersionEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "versions_seq")
+    @SequenceGenerator(name = "versions_seq", sequenceName = "versions_seq", allocationSize = 50)
     private Long versionId;
 
     @Column(nullable = false)
@@ -21,9 +25,22 @@ public class VersionEntity {
     @Column(nullable = false)
     private String versionNumber;
 
-    @Column(nullable = false, columnDefinition = "text")
+    // Only set on rows written before bodies moved to storage; new versions
+    // keep their content in the object at contentPath
+    @Column(columnDefinition = "text")
     private String content;
 
+    @Column(length = 500)
+    private String contentPath;
+
+    @Column(length = 64)
+    private String contentHash; // SHA-256 hex of the UTF-8 body
+
+    private Long contentLength;
+
+    @Column(name = "content_codec", length = 16)
+    private String contentCodec; // How the object at contentPath is encoded; null for as is
+
     @ManyToOne
     @JoinColumn(name = "file_id", nullable = false)
     private FileEntity file;
@@ -88,4 +105,36 @@ public class VersionEntity {
     public void setFile(FileEntity file) {
         this.file = file;
     }
+
+    public String getContentPath() {
+        return contentPath;
+    }
+
+    public void setContentPath(String contentPath) {
+        this.contentPath = contentPath;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Long getContentLength() {
+        return contentLength;
+    }
+
+    public void setContentLength(Long contentLength) {
+        this.contentLength = contentLength;
+    }
+
+    public String getContentCodec() {
+        return contentCodec;
+    }
+
+    public void setContentCodec(String contentCodec) {
+        this.contentCodec = contentCodec;
+    }
 }
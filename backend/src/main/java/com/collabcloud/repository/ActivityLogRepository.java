@@ -2,7 +2,11 @@ package com.collabcloud.repository;
 
 import com.collabcloud.entity.ActivityLogEntity;
 import com.collabcloud.entity.ProjectEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +18,11 @@ public interface ActivityLogRepository extends JpaRepository<ActivityLogEntity,
     List<ActivityLogEntity> findByProjectProjectId(Long projectId);
 
     List<ActivityLogEntity> findByProjectOrderByTimestampDesc(ProjectEntity project);
+
+    @Query("SELECT a.activityId FROM ActivityLogEntity a WHERE a.project.projectId = :projectId ORDER BY a.activityId")
+    List<Long> findIdsByProjectId(@Param("projectId") Long projectId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM ActivityLogEntity a WHERE a.activityId IN :activityIds")
+    int deleteByIds(@Param("activityIds") List<Long> activityIds);
 }
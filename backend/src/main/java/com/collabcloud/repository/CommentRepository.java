@@ -4,9 +4,14 @@ import com.collabcloud.entity.CommentEntity;
 import com.collabcloud.entity.FileEntity;
 import com.collabcloud.entity.ProjectEntity;
 import com.collabcloud.entity.UserEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -22,4 +27,42 @@ public interface CommentRepository extends JpaRepository<CommentEntity, Long> {
     List<CommentEntity> findByProject(ProjectEntity project);
 
     List<CommentEntity> findByProjectProjectId(Long projectId);
+
+    long countByFileFileIdAndProjectProjectId(Long fileId, Long projectId);
+
+    long countByParentCommentId(Long parentId);
+
+    // Per project, what deleteByUserId removes: the user's comments and the replies in their threads
+    @Query("SELECT c.project.projectId, count(c) FROM CommentEntity c LEFT JOIN c.parent p "
+            + "WHERE c.project IS NOT NULL AND (c.user.userId = :userId OR p.user.userId = :userId) "
+            + "GROUP BY c.project.projectId")
+    List<Object[]> countProjectCommentsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Each thread's first replies by id, as rows of (comment_id, parent_id,
+     * position, reply_count). A thread with replies always returns its
+     * first, so its count is there even when perThread is 0.
+     */
+    @Query(value = "SELECT comment_id, parent_id, position, reply_count FROM (SELECT comment_id, parent_id, "
+            + "row_number() OVER (PARTITION BY parent_id ORDER BY comment_id) AS position, "
+            + "count(*) OVER (PARTITION BY parent_id) AS reply_count "
+            + "FROM comments WHERE parent_id IN (:parentIds)) replies "
+            + "WHERE position <= GREATEST(:perThread, 1)", nativeQuery = true)
+    List<Object[]> findFirstReplies(@Param("parentIds") Collection<Long> parentIds,
+            @Param("perThread") int perThread);
+
+    @Query("SELECT c.commentId FROM CommentEntity c WHERE c.project.projectId = :projectId ORDER BY c.commentId")
+    List<Long> findIdsByProjectId(@Param("projectId") Long projectId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM CommentEntity c WHERE c.file.fileId IN :fileIds")
+    int deleteByFileIds(@Param("fileIds") List<Long> fileIds);
+
+    @Modifying
+    @Query("DELETE FROM CommentEntity c WHERE c.user.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM CommentEntity c WHERE c.commentId IN :commentIds")
+    int deleteByIds(@Param("commentIds") List<Long> commentIds);
 }
@@ -2,6 +2,7 @@ package com.collabcloud.repository;
 
 import com.collabcloud.entity.FileHistoryEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,4 +20,8 @@ public interface FileHistoryRepository extends JpaRepository<FileHistoryEntity,
     
     @Query("SELECT fh FROM FileHistoryEntity fh WHERE fh.modifiedBy.userId = :userId ORDER BY fh.modifiedDate DESC")
     List<FileHistoryEntity> findByUserIdOrderByModifiedDateDesc(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM FileHistoryEntity fh WHERE fh.file.fileId IN :fileIds")
+    int deleteByFileIds(@Param("fileIds") List<Long> fileIds);
 }
@@ -2,14 +2,52 @@ package com.collabcloud.repository;
 
 import com.collabcloud.entity.FileEntity;
 import com.collabcloud.entity.ProjectEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface FileRepository extends JpaRepository<FileEntity, Long> {
     List<FileEntity> findByProject(ProjectEntity project);
 
     List<FileEntity> findByProjectProjectId(Long projectId);
+
+    @Modifying
+    @Query("UPDATE FileEntity f SET f.contentVersion = f.contentVersion + 1 WHERE f.fileId = :fileId")
+    int incrementContentVersion(@Param("fileId") Long fileId);
+
+    // Clears the persistence context, so the row is read again with its new path
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE FileEntity f SET f.filePath = :filePath, f.contentCodec = :codec, "
+            + "f.contentVersion = f.contentVersion + 1 WHERE f.fileId = :fileId")
+    int moveContent(@Param("fileId") Long fileId, @Param("filePath") String filePath, @Param("codec") String codec);
+
+    @Query("SELECT f.thumbnailStatus FROM FileEntity f WHERE f.fileId = :fileId AND f.thumbnailTag = :tag")
+    Optional<String> findThumbnailStatus(@Param("fileId") Long fileId, @Param("tag") String tag);
+
+    @Modifying
+    @Query("UPDATE FileEntity f SET f.thumbnailTag = :tag, f.thumbnailStatus = :status WHERE f.fileId = :fileId")
+    int recordThumbnails(@Param("fileId") Long fileId, @Param("tag") String tag, @Param("status") String status);
+
+    // Bulk deletion helpers for ProjectDeletionService; dependent rows must be deleted first
+    @Query("SELECT f.fileId FROM FileEntity f WHERE f.project.projectId = :projectId ORDER BY f.fileId")
+    List<Long> findIdsByProjectId(@Param("projectId") Long projectId, Pageable pageable);
+
+    @Query("SELECT f.filePath FROM FileEntity f WHERE f.fileId IN :fileIds")
+    List<String> findPathsByIds(@Param("fileIds") List<Long> fileIds);
+
+    @Query("SELECT f.fileId FROM FileEntity f WHERE f.fileId IN :fileIds AND f.thumbnailStatus = 'READY'")
+    List<Long> findThumbnailedIds(@Param("fileIds") List<Long> fileIds);
+
+    @Modifying
+    @Query("DELETE FROM FileEntity f WHERE f.fileId IN :fileIds")
+    int deleteByIds(@Param("fileIds") List<Long> fileIds);
+
+    long countByProjectProjectId(Long projectId);
 }
@@ -0,0 +1,36 @@
+package com.collabcloud.repository;
+
+import com.collabcloud.entity.OutboxEventEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, Long> {
+
+    // Due events in order, locked until the transaction ends; rows another relay holds are skipped, not waited for
+    @Query(value = "SELECT * FROM outbox_events WHERE processed_at IS NULL AND available_at <= :now "
+            + "ORDER BY event_id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEventEntity> claimDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM outbox_events WHERE event_id = :eventId AND processed_at IS NULL "
+            + "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<OutboxEventEntity> claim(@Param("eventId") Long eventId);
+
+    @Modifying
+    @Query("UPDATE OutboxEventEntity e SET e.processedAt = :now WHERE e.eventId IN :eventIds")
+    int markProcessed(@Param("eventIds") List<Long> eventIds, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEventEntity e WHERE e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+
+    @Query("SELECT count(e) FROM OutboxEventEntity e WHERE e.processedAt IS NULL")
+    long countPending();
+}
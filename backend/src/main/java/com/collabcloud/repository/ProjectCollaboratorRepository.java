@@ -4,11 +4,22 @@ import com.collabcloud.entity.ProjectCollaboratorEntity;
 import com.collabcloud.entity.ProjectEntity;
 import com.collabcloud.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.Optional;
 
 @Repository
 public interface ProjectCollaboratorRepository extends JpaRepository<ProjectCollaboratorEntity, Long> {
+    // Collaborator lookups; the cached result is invalidated by any write to project_collaborators
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<ProjectCollaboratorEntity> findByProjectAndUser(ProjectEntity project, UserEntity user);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("DELETE FROM ProjectCollaboratorEntity c WHERE c.project.projectId = :projectId")
+    int deleteByProjectId(@Param("projectId") Long projectId);
+}
@@ -0,0 +1,35 @@
+package com.collabcloud.repository;
+
+import com.collabcloud.entity.ProjectDeletionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProjectDeletionRepository extends JpaRepository<ProjectDeletionEntity, Long> {
+
+    // Jobs a worker may pick up: waiting, failed under the attempt limit, or running on an expired lease
+    @Query("SELECT d.projectId FROM ProjectDeletionEntity d WHERE d.status = 'PENDING' "
+            + "OR (d.status = 'FAILED' AND d.attempts < :maxAttempts) "
+            + "OR (d.status = 'RUNNING' AND d.updatedAt < :staleBefore) ORDER BY d.requestedAt")
+    List<Long> findResumable(@Param("maxAttempts") int maxAttempts, @Param("staleBefore") LocalDateTime staleBefore);
+
+    // Take the job for this worker; 0 when another worker holds a live lease or it is done
+    @Modifying
+    @Query("UPDATE ProjectDeletionEntity d SET d.status = 'RUNNING', d.attempts = d.attempts + 1, "
+            + "d.updatedAt = :now WHERE d.projectId = :projectId AND (d.status IN ('PENDING', 'FAILED') "
+            + "OR (d.status = 'RUNNING' AND d.updatedAt < :staleBefore))")
+    int claim(@Param("projectId") Long projectId, @Param("now") LocalDateTime now,
+            @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Query("UPDATE ProjectDeletionEntity d SET d.filesDeleted = d.filesDeleted + :files, "
+            + "d.objectsDeleted = d.objectsDeleted + :objects, d.updatedAt = :now WHERE d.projectId = :projectId")
+    int recordProgress(@Param("projectId") Long projectId, @Param("files") long files,
+            @Param("objects") long objects, @Param("now") LocalDateTime now);
+}
@@ -3,6 +3,7 @@ package com.collabcloud.repository;
 import com.collabcloud.entity.ProjectEntity;
 import com.collabcloud.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -15,4 +16,9 @@ public interface ProjectRepository extends JpaRepository<ProjectEntity, Long> {
 
     @Query("SELECT p FROM ProjectEntity p JOIN p.collaborators c WHERE c.user = :user")
     List<ProjectEntity> findByCollaboratorsContaining(@Param("user") UserEntity user);
+
+    // Bulk delete without loading the cascaded collections; everything referencing the project must be gone
+    @Modifying
+    @Query("DELETE FROM ProjectEntity p WHERE p.projectId = :projectId")
+    int deleteProjectRow(@Param("projectId") Long projectId);
 }
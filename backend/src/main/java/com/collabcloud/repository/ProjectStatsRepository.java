@@ -0,0 +1,69 @@
+package com.collabcloud.repository;
+
+import com.collabcloud.entity.ProjectStatsEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+
+@Repository
+public interface ProjectStatsRepository extends JpaRepository<ProjectStatsEntity, Long> {
+
+    // Native, for nextval; every write here also moves the row's change_version
+    String NEXT_CHANGE = "change_version = nextval('project_change_seq')";
+
+    // Relative updates, so concurrent writers only queue on the row lock instead of losing counts
+    @Modifying
+    @QueryHints(@QueryHint(name = SearchDocumentRepository.NATIVE_SPACES, value = "project_stats"))
+    @Query(value = "UPDATE project_stats SET file_count = file_count + :files, "
+            + "comment_count = comment_count + :comments, "
+            + "collaborator_count = collaborator_count + :collaborators, " + NEXT_CHANGE
+            + " WHERE project_id = :projectId", nativeQuery = true)
+    int add(@Param("projectId") Long projectId, @Param("files") long files, @Param("comments") long comments,
+            @Param("collaborators") long collaborators);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = SearchDocumentRepository.NATIVE_SPACES, value = "project_stats"))
+    @Query(value = "UPDATE project_stats SET file_count = file_count + :files, "
+            + "comment_count = comment_count + :comments, "
+            + "last_activity = GREATEST(last_activity, :at), " + NEXT_CHANGE
+            + " WHERE project_id = :projectId", nativeQuery = true)
+    int addActive(@Param("projectId") Long projectId, @Param("files") long files,
+            @Param("comments") long comments, @Param("at") LocalDateTime at);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = SearchDocumentRepository.NATIVE_SPACES, value = "project_stats"))
+    @Query(value = "UPDATE project_stats SET " + NEXT_CHANGE + " WHERE project_id = :projectId",
+            nativeQuery = true)
+    int touch(@Param("projectId") Long projectId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = SearchDocumentRepository.NATIVE_SPACES, value = "project_stats"))
+    @Query(value = "UPDATE project_stats SET " + NEXT_CHANGE
+            + " WHERE project_id = (SELECT project_id FROM files WHERE file_id = :fileId)", nativeQuery = true)
+    int touchFile(@Param("fileId") Long fileId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = SearchDocumentRepository.NATIVE_SPACES, value = "project_stats"))
+    @Query(value = "UPDATE project_stats SET " + NEXT_CHANGE + " WHERE project_id = (SELECT f.project_id "
+            + "FROM file_history h JOIN files f ON f.file_id = h.file_id WHERE h.history_id = :historyId)",
+            nativeQuery = true)
+    int touchHistory(@Param("historyId") Long historyId);
+
+    // Every project whose listings show the user's name: created, joined, edited, commented on or active in
+    @Modifying
+    @QueryHints(@QueryHint(name = SearchDocumentRepository.NATIVE_SPACES, value = "project_stats"))
+    @Query(value = "UPDATE project_stats SET " + NEXT_CHANGE + " WHERE project_id IN ("
+            + "SELECT project_id FROM projects WHERE creator_id = :userId "
+            + "UNION SELECT project_id FROM project_collaborators WHERE user_id = :userId "
+            + "UNION SELECT f.project_id FROM file_history h JOIN files f ON f.file_id = h.file_id "
+            + "WHERE h.user_id = :userId "
+            + "UNION SELECT project_id FROM comments WHERE user_id = :userId "
+            + "UNION SELECT project_id FROM activity_logs WHERE user_id = :userId)", nativeQuery = true)
+    int touchUser(@Param("userId") Long userId);
+}
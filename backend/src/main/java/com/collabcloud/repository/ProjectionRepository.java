@@ -0,0 +1,126 @@
+package com.collabcloud.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the same Specifications as the entity repositories but selects only
+ * the listed attributes into a DTO constructor, so list endpoints never load
+ * or serialize whole entity graphs.
+ */
+@Repository
+public class ProjectionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Page of DTOs built from the given attribute paths, in constructor
+     * order. A path such as "user.name" left-joins the association once; a
+     * path ending in the association's id ("project.projectId") reads the
+     * foreign key without a join.
+     */
+    public <T, D> Page<D> findAll(Class<T> domainClass, Specification<T> spec, Pageable pageable,
+            Class<D> dtoClass, String... attributePaths) {
+        TypedQuery<D> query = createQuery(domainClass, spec, pageable.getSort(), dtoClass, attributePaths);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> count(domainClass, spec));
+    }
+
+    public <T, D> List<D> findAll(Class<T> domainClass, Specification<T> spec, Sort sort, Class<D> dtoClass,
+            String... attributePaths) {
+        return createQuery(domainClass, spec, sort, dtoClass, attributePaths).getResultList();
+    }
+
+    /**
+     * The first limit DTOs in sort order, without a count query: a keyset
+     * page, where spec holds the condition for rows after the last one seen.
+     */
+    public <T, D> List<D> findFirst(Class<T> domainClass, Specification<T> spec, Sort sort, int limit,
+            Class<D> dtoClass, String... attributePaths) {
+        return createQuery(domainClass, spec, sort, dtoClass, attributePaths).setMaxResults(limit).getResultList();
+    }
+
+    private <T, D> TypedQuery<D> createQuery(Class<T> domainClass, Specification<T> spec, Sort sort,
+            Class<D> dtoClass, String... attributePaths) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<D> query = cb.createQuery(dtoClass);
+        Root<T> root = query.from(domainClass);
+
+        Map<String, Join<?, ?>> joins = new HashMap<>();
+        Selection<?>[] selections = new Selection<?>[attributePaths.length];
+        for (int i = 0; i < attributePaths.length; i++) {
+            selections[i] = resolve(root, joins, attributePaths[i]);
+        }
+        query.select(cb.construct(dtoClass, selections));
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+        return entityManager.createQuery(query);
+    }
+
+    private <T> long count(Class<T> domainClass, Specification<T> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(domainClass);
+        query.select(cb.count(root));
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private Selection<?> resolve(Root<?> root, Map<String, Join<?, ?>> joins, String attributePath) {
+        String[] parts = attributePath.split("\\.");
+        From<?, ?> from = root;
+        String joinPath = "";
+        for (int i = 0; i < parts.length - 1; i++) {
+            Class<?> target = entityManager.getMetamodel().entity(from.getJavaType())
+                    .getAttribute(parts[i]).getJavaType();
+            if (i == parts.length - 2 && isId(target, parts[i + 1])) {
+                return from.get(parts[i]).get(parts[i + 1]);
+            }
+            joinPath = joinPath + "." + parts[i];
+            final From<?, ?> parent = from;
+            final String attribute = parts[i];
+            from = joins.computeIfAbsent(joinPath, key -> parent.join(attribute, JoinType.LEFT));
+        }
+        return from.get(parts[parts.length - 1]);
+    }
+
+    private boolean isId(Class<?> entityClass, String attribute) {
+        EntityType<?> type = entityManager.getMetamodel().entity(entityClass);
+        SingularAttribute<?, ?> id = type.getId(type.getIdType().getJavaType());
+        return id.getName().equals(attribute);
+    }
+}
@@ -0,0 +1,86 @@
+package com.collabcloud.repository;
+
+import com.collabcloud.entity.SearchDocumentEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+
+@Repository
+public interface SearchDocumentRepository extends JpaRepository<SearchDocumentEntity, Long> {
+
+    /**
+     * Query space for the native writes below. Without it Hibernate assumes a
+     * native update may touch any table and clears every second-level cache
+     * region, which the indexing that follows each write would do constantly.
+     */
+    String NATIVE_SPACES = "org.hibernate.query.native.spaces";
+
+    /**
+     * Ranked search result row; the snippet is produced by ts_headline.
+     */
+    interface SearchHit {
+        String getDocType();
+
+        Long getRefId();
+
+        Long getProjectId();
+
+        String getTitle();
+
+        String getSnippet();
+
+        Float getRank();
+    }
+
+    @Modifying
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "search_documents"))
+    @Query(value = "INSERT INTO search_documents (doc_type, ref_id, project_id, title, body, updated_at, tsv) "
+            + "VALUES (:docType, :refId, :projectId, :title, :body, now(), "
+            + "setweight(to_tsvector('simple', :title), 'A') || setweight(to_tsvector('simple', :body), 'B')) "
+            + "ON CONFLICT (doc_type, ref_id) DO UPDATE SET project_id = EXCLUDED.project_id, "
+            + "title = EXCLUDED.title, body = EXCLUDED.body, updated_at = EXCLUDED.updated_at, tsv = EXCLUDED.tsv",
+            nativeQuery = true)
+    void upsert(@Param("docType") String docType, @Param("refId") Long refId, @Param("projectId") Long projectId,
+            @Param("title") String title, @Param("body") String body);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "search_documents"))
+    @Query(value = "DELETE FROM search_documents WHERE doc_type = :docType AND ref_id = :refId", nativeQuery = true)
+    void deleteDocument(@Param("docType") String docType, @Param("refId") Long refId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "search_documents"))
+    @Query(value = "DELETE FROM search_documents WHERE project_id = :projectId", nativeQuery = true)
+    void deleteByProjectId(@Param("projectId") Long projectId);
+
+    /**
+     * Ranked search restricted to projects the user created or collaborates
+     * on. Empty docType and a zero projectId disable those filters.
+     */
+    @Query(value = "SELECT d.doc_type AS docType, d.ref_id AS refId, d.project_id AS projectId, d.title AS title, "
+            + "ts_headline('simple', coalesce(d.body, ''), q, 'MaxFragments=1, MaxWords=24, MinWords=8') AS snippet, "
+            + "ts_rank_cd(d.tsv, q) AS rank "
+            + "FROM search_documents d, websearch_to_tsquery('simple', :query) q "
+            + "WHERE d.tsv @@ q "
+            + "AND (:docType = '' OR d.doc_type = :docType) "
+            + "AND (:projectId = 0 OR d.project_id = :projectId) "
+            + "AND d.project_id IN (SELECT p.project_id FROM projects p WHERE p.creator_id = :userId "
+            + "UNION SELECT c.project_id FROM project_collaborators c WHERE c.user_id = :userId) "
+            + "ORDER BY rank DESC, d.id DESC",
+            countQuery = "SELECT count(*) FROM search_documents d, websearch_to_tsquery('simple', :query) q "
+                    + "WHERE d.tsv @@ q "
+                    + "AND (:docType = '' OR d.doc_type = :docType) "
+                    + "AND (:projectId = 0 OR d.project_id = :projectId) "
+                    + "AND d.project_id IN (SELECT p.project_id FROM projects p WHERE p.creator_id = :userId "
+                    + "UNION SELECT c.project_id FROM project_collaborators c WHERE c.user_id = :userId)",
+            nativeQuery = true)
+    Page<SearchHit> search(@Param("query") String query, @Param("userId") Long userId,
+            @Param("docType") String docType, @Param("projectId") Long projectId, Pageable pageable);
+}
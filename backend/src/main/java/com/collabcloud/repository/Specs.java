@@ -0,0 +1,119 @@
+package com.collabcloud.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Small building blocks for list filters. Every factory returns null for an
+ * absent filter value, which Specification.where/and treat as "no condition".
+ */
+public final class Specs {
+
+    private Specs() {
+    }
+
+    public static <T> Specification<T> containsIgnoreCase(String attribute, String value) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        String pattern = "%" + escapeLike(value.trim().toLowerCase(Locale.ROOT)) + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get(attribute)), pattern, '\\');
+    }
+
+    public static <T> Specification<T> startsWithIgnoreCase(String attribute, String value) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        String pattern = escapeLike(value.trim().toLowerCase(Locale.ROOT)) + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get(attribute)), pattern, '\\');
+    }
+
+    /**
+     * Equality on an attribute path such as "project.projectId".
+     */
+    public static <T> Specification<T> equal(String attributePath, Object value) {
+        if (value == null || (value instanceof String && !StringUtils.hasText((String) value))) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(path(root, attributePath), value);
+    }
+
+    public static <T> Specification<T> between(String attribute, LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            Path<LocalDateTime> path = root.get(attribute);
+            if (from == null) {
+                return cb.lessThan(path, to);
+            }
+            if (to == null) {
+                return cb.greaterThanOrEqualTo(path, from);
+            }
+            return cb.and(cb.greaterThanOrEqualTo(path, from), cb.lessThan(path, to));
+        };
+    }
+
+    /**
+     * Rows after a keyset cursor: the attribute greater than the last value
+     * the client saw.
+     */
+    public static <T> Specification<T> greaterThan(String attributePath, Long value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThan(path(root, attributePath), value);
+    }
+
+    /** Rows before a keyset cursor, for pages in descending order. */
+    public static <T> Specification<T> lessThan(String attributePath, Long value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThan(path(root, attributePath), value);
+    }
+
+    public static <T> Specification<T> isNull(String attributePath) {
+        return (root, query, cb) -> cb.isNull(path(root, attributePath));
+    }
+
+    /**
+     * Rows whose inclusive startAttribute..endAttribute range overlaps
+     * from..to; either bound may be open. Rows without a range never match.
+     */
+    public static <T> Specification<T> overlaps(String startAttribute, String endAttribute, Integer from, Integer to) {
+        if (from == null && to == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            Path<Integer> start = root.get(startAttribute);
+            Path<Integer> end = root.get(endAttribute);
+            if (from == null) {
+                return cb.lessThanOrEqualTo(start, to);
+            }
+            if (to == null) {
+                return cb.greaterThanOrEqualTo(end, from);
+            }
+            return cb.and(cb.lessThanOrEqualTo(start, to), cb.greaterThanOrEqualTo(end, from));
+        };
+    }
+
+    private static <T, Y> Path<Y> path(Root<T> root, String attributePath) {
+        Path<?> path = root;
+        for (String part : attributePath.split("\\.")) {
+            path = path.get(part);
+        }
+        @SuppressWarnings("unchecked")
+        Path<Y> typed = (Path<Y>) path;
+        return typed;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
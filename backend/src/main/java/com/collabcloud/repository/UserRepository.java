@@ -2,12 +2,16 @@ package com.collabcloud.repository;
 
 import com.collabcloud.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
+    // Login lookup; the cached result is invalidated by any write to users
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<UserEntity> findByEmail(String email);
 
     boolean existsByEmail(String email);
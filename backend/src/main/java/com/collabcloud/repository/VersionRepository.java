@@ -2,7 +2,11 @@ package com.collabcloud.repository;
 
 import com.collabcloud.entity.VersionEntity;
 import com.collabcloud.entity.FileEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +18,18 @@ public interface VersionRepository extends JpaRepository<VersionEntity, Long> {
     List<VersionEntity> findByFileFileId(Long fileId);
 
     List<VersionEntity> findByFileOrderByTimestampDesc(FileEntity file);
+
+    @Query("SELECT DISTINCT v.contentPath FROM VersionEntity v WHERE v.file.fileId = :fileId AND v.contentPath IS NOT NULL")
+    List<String> findContentPathsByFileId(@Param("fileId") Long fileId);
+
+    // Versions whose body still lives in the legacy content column, in id order
+    @Query("SELECT v.versionId FROM VersionEntity v WHERE v.contentPath IS NULL AND v.versionId > :after ORDER BY v.versionId")
+    List<Long> findLegacyContentIds(@Param("after") Long after, Pageable pageable);
+
+    @Query("SELECT DISTINCT v.contentPath FROM VersionEntity v WHERE v.file.fileId IN :fileIds AND v.contentPath IS NOT NULL")
+    List<String> findContentPathsByFileIds(@Param("fileIds") List<Long> fileIds);
+
+    @Modifying
+    @Query("DELETE FROM VersionEntity v WHERE v.file.fileId IN :fileIds")
+    int deleteByFileIds(@Param("fileIds") List<Long> fileIds);
 }
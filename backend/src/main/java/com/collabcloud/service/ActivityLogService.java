@@ -1,15 +1,25 @@
 package com.collabcloud.service;
 
+import com.collabcloud.dto.ActivityLogDTO;
 import com.collabcloud.entity.ActivityLogEntity;
 import com.collabcloud.entity.ProjectEntity;
 import com.collabcloud.repository.ActivityLogRepository;
 import com.collabcloud.repository.ProjectRepository;
+import com.collabcloud.repository.ProjectionRepository;
+import com.collabcloud.repository.Specs;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collectors;
 
 @Service
 public class ActivityLogService {
@@ -20,24 +30,46 @@ public class ActivityLogService {
     @Autowired
     private ProjectRepository projectRepository;
 
-    public List<ActivityLogEntity> getAllActivityLogs() {
-        return activityLogRepository.findAll();
+    @Autowired
+    private ProjectionRepository projectionRepository;
+
+    @Autowired
+    private ProjectStatsService projectStatsService;
+
+    @Transactional(readOnly = true)
+    public Page<ActivityLogDTO> getAllActivityLogs(String actionType, LocalDateTime from, LocalDateTime to,
+            Pageable pageable) {
+        return getActivityLogsByProjectId(null, actionType, from, to, pageable);
     }
 
     public Optional<ActivityLogEntity> getActivityLogById(Long activityId) {
         return activityLogRepository.findById(activityId);
     }
 
-    public List<ActivityLogEntity> getActivityLogsByProjectId(Long projectId) {
-        return activityLogRepository.findByProjectProjectId(projectId);
+    @Transactional(readOnly = true)
+    public Page<ActivityLogDTO> getActivityLogsByProjectId(Long projectId, String actionType, LocalDateTime from,
+            LocalDateTime to, Pageable pageable) {
+        Specification<ActivityLogEntity> spec = Specification
+                .<ActivityLogEntity>where(Specs.equal("project.projectId", projectId))
+                .and(Specs.equal("actionType", actionType))
+                .and(Specs.between("timestamp", from, to));
+        return findActivityLogs(spec, pageable);
     }
 
-    public List<ActivityLogEntity> getActivityLogsByProjectIdOrdered(Long projectId) {
-        ProjectEntity project = projectRepository.findById(projectId)
-                .orElseThrow(() -> new RuntimeException("Project not found with id: " + projectId));
-        return activityLogRepository.findByProjectOrderByTimestampDesc(project);
+    @Transactional(readOnly = true)
+    public Page<ActivityLogDTO> getActivityLogsByProjectIdOrdered(Long projectId, Pageable pageable) {
+        if (!projectRepository.existsById(projectId)) {
+            throw new RuntimeException("Project not found with id: " + projectId);
+        }
+        return findActivityLogs(Specs.equal("project.projectId", projectId), pageable);
     }
 
+    private Page<ActivityLogDTO> findActivityLogs(Specification<ActivityLogEntity> spec, Pageable pageable) {
+        return projectionRepository.findAll(ActivityLogEntity.class, spec, pageable, ActivityLogDTO.class,
+                ActivityLogDTO.ATTRIBUTES);
+    }
+
+    @Transactional
     public ActivityLogEntity createActivityLog(ActivityLogEntity activityLog) {
         // If project is provided with only ID, fetch the full entity
         if (activityLog.getProject() != null && activityLog.getProject().getProjectId() != null) {
@@ -49,12 +81,34 @@ public class ActivityLogService {
 
         activityLog.setTimestamp(LocalDateTime.now());
         activityLog.setActionTimestamp(LocalDateTime.now());
-        return activityLogRepository.save(activityLog);
+        ActivityLogEntity saved = activityLogRepository.save(activityLog);
+        if (saved.getProject() != null) {
+            projectStatsService.activity(saved.getProject().getProjectId(), saved.getTimestamp());
+        }
+        return saved;
     }
 
+    /**
+     * Save entries the server writes for its own events in one batch, and
+     * move each project's last activity once.
+     */
+    @Transactional
+    public void createActivityLogs(List<ActivityLogEntity> activityLogs) {
+        activityLogRepository.saveAll(activityLogs);
+        activityLogs.stream()
+                .filter(activityLog -> activityLog.getProject() != null)
+                .collect(Collectors.toMap(activityLog -> activityLog.getProject().getProjectId(),
+                        ActivityLogEntity::getTimestamp, BinaryOperator.maxBy(Comparator.naturalOrder())))
+                .forEach(projectStatsService::activity);
+    }
+
+    @Transactional
     public void deleteActivityLog(Long activityId) {
         ActivityLogEntity activityLog = activityLogRepository.findById(activityId)
                 .orElseThrow(() -> new RuntimeException("ActivityLog not found with id: " + activityId));
         activityLogRepository.delete(activityLog);
+        if (activityLog.getProject() != null) {
+            projectStatsService.changed(activityLog.getProject().getProjectId());
+        }
     }
 }
@@ -0,0 +1,66 @@
+package com.collabcloud.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Set membership in about 10 bits per element at a 1% false-positive rate,
+ * with no false negatives. Sized for an expected element count; past it
+ * the false-positive rate climbs. The seed varies the hash functions, so
+ * separate filters over the same elements err on different values.
+ */
+final class BloomFilter {
+
+    private final long[] words;
+    private final long bitCount;
+    private final int hashCount;
+    private final long seed;
+
+    BloomFilter(long expectedElements, double falsePositiveRate, long seed) {
+        long n = Math.max(1, expectedElements);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.words = new long[(int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64)];
+        this.bitCount = (long) words.length * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.seed = seed;
+    }
+
+    void add(String value) {
+        long h1 = hash(value, seed);
+        long h2 = hash(value, ~seed) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(String value) {
+        long h1 = hash(value, seed);
+        long h2 = hash(value, ~seed) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long sizeInBytes() {
+        return (long) words.length * 8;
+    }
+
+    /** Seeded FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer. */
+    private static long hash(String value, long seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
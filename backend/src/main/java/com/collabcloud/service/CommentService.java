@@ -1,5 +1,7 @@
 package com.collabcloud.service;
 
+import com.collabcloud.dto.CommentDTO;
+import com.collabcloud.dto.CommentThreadDTO;
 import com.collabcloud.entity.CommentEntity;
 import com.collabcloud.entity.FileEntity;
 import com.collabcloud.entity.ProjectEntity;
@@ -7,13 +9,27 @@ import com.collabcloud.entity.UserEntity;
 import com.collabcloud.repository.CommentRepository;
 import com.collabcloud.repository.FileRepository;
 import com.collabcloud.repository.ProjectRepository;
+import com.collabcloud.repository.ProjectionRepository;
+import com.collabcloud.repository.Specs;
 import com.collabcloud.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class CommentService {
@@ -30,26 +46,109 @@ public class CommentService {
     @Autowired
     private UserRepository userRepository;
 
-    public List<CommentEntity> getAllComments() {
-        return commentRepository.findAll();
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private ProjectionRepository projectionRepository;
+
+    @Autowired
+    private ProjectStatsService projectStatsService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Transactional(readOnly = true)
+    public Page<CommentDTO> getAllComments(LocalDateTime from, LocalDateTime to, Pageable pageable) {
+        return findComments(Specs.between("createdDate", from, to), pageable);
     }
 
     public Optional<CommentEntity> getCommentById(Long commentId) {
         return commentRepository.findById(commentId);
     }
 
-    public List<CommentEntity> getCommentsByFileId(Long fileId) {
-        return commentRepository.findByFileFileId(fileId);
+    @Transactional(readOnly = true)
+    public Page<CommentDTO> getCommentsByFileId(Long fileId, Pageable pageable) {
+        return findComments(Specs.equal("file.fileId", fileId), pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<CommentDTO> getCommentsByUserId(Long userId, Pageable pageable) {
+        return findComments(Specs.equal("user.userId", userId), pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<CommentDTO> getCommentsByProjectId(Long projectId, Pageable pageable) {
+        return findComments(Specs.equal("project.projectId", projectId), pageable);
     }
 
-    public List<CommentEntity> getCommentsByUserId(Long userId) {
-        return commentRepository.findByUserUserId(userId);
+    /**
+     * A keyset page of the file's threads, oldest first: roots after the
+     * given id, optionally only those anchored to lines overlapping
+     * fromLine..toLine, each with up to replies of its first replies. Three
+     * queries whatever the page size: roots, reply positions and counts,
+     * then the replies, each joined to their authors.
+     */
+    @Transactional(readOnly = true)
+    public List<CommentThreadDTO> getThreadsByFileId(Long fileId, Long after, Integer fromLine, Integer toLine,
+            int limit, int replies) {
+        if (!fileRepository.existsById(fileId)) {
+            throw new RuntimeException("File not found with id: " + fileId);
+        }
+        Specification<CommentEntity> spec = Specification.<CommentEntity>where(Specs.equal("file.fileId", fileId))
+                .and(Specs.isNull("parent"))
+                .and(Specs.greaterThan("commentId", after))
+                .and(Specs.overlaps("lineStart", "lineEnd", fromLine, toLine));
+        List<CommentDTO> roots = projectionRepository.findFirst(CommentEntity.class, spec, Sort.by("commentId"),
+                limit, CommentDTO.class, CommentDTO.ATTRIBUTES);
+        if (roots.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> rootIds = roots.stream().map(CommentDTO::getCommentId).collect(Collectors.toList());
+        Map<Long, Long> replyCounts = new HashMap<>();
+        List<Long> replyIds = new ArrayList<>();
+        for (Object[] row : commentRepository.findFirstReplies(rootIds, replies)) {
+            replyCounts.put(((Number) row[1]).longValue(), ((Number) row[3]).longValue());
+            if (((Number) row[2]).intValue() <= replies) {
+                replyIds.add(((Number) row[0]).longValue());
+            }
+        }
+        Map<Long, List<CommentDTO>> repliesByThread = replyIds.isEmpty() ? Collections.emptyMap()
+                : projectionRepository.findAll(CommentEntity.class,
+                        (root, query, cb) -> root.get("commentId").in(replyIds), Sort.by("commentId"),
+                        CommentDTO.class, CommentDTO.ATTRIBUTES)
+                        .stream()
+                        .collect(Collectors.groupingBy(CommentDTO::getParentId));
+        return roots.stream()
+                .map(root -> new CommentThreadDTO(root, replyCounts.getOrDefault(root.getCommentId(), 0L),
+                        repliesByThread.getOrDefault(root.getCommentId(), Collections.emptyList())))
+                .collect(Collectors.toList());
     }
 
-    public List<CommentEntity> getCommentsByProjectId(Long projectId) {
-        return commentRepository.findByProjectProjectId(projectId);
+    /** A keyset page of a thread's replies after the given id, oldest first. */
+    @Transactional(readOnly = true)
+    public List<CommentDTO> getReplies(Long commentId, Long after, int limit) {
+        if (!commentRepository.existsById(commentId)) {
+            throw new RuntimeException("Comment not found with id: " + commentId);
+        }
+        Specification<CommentEntity> spec = Specification
+                .<CommentEntity>where(Specs.equal("parent.commentId", commentId))
+                .and(Specs.greaterThan("commentId", after));
+        return projectionRepository.findFirst(CommentEntity.class, spec, Sort.by("commentId"), limit,
+                CommentDTO.class, CommentDTO.ATTRIBUTES);
     }
 
+    private Page<CommentDTO> findComments(Specification<CommentEntity> spec, Pageable pageable) {
+        return projectionRepository.findAll(CommentEntity.class, spec, pageable, CommentDTO.class,
+                CommentDTO.ATTRIBUTES);
+    }
+
+    /**
+     * The comment, its project's counts and the notification outbox event
+     * commit together.
+     */
+    @Transactional
     public CommentEntity createComment(CommentEntity comment) {
         // If user is provided with only ID, fetch the full entity
         if (comment.getUser() != null && comment.getUser().getUserId() != null) {
@@ -59,6 +158,45 @@ public class CommentService {
             comment.setUser(user);
         }
 
+        if (comment.getParent() != null && comment.getParent().getCommentId() != null) {
+            joinThread(comment);
+        } else {
+            comment.setParent(null);
+            resolveTargets(comment);
+            anchor(comment);
+        }
+
+        comment.setCreatedDate(LocalDateTime.now());
+        comment.setUpdatedDate(LocalDateTime.now());
+        CommentEntity saved = commentRepository.save(comment);
+        indexAfterCommit(saved.getCommentId());
+        if (saved.getProject() != null) {
+            projectStatsService.commentAdded(saved.getProject().getProjectId(), saved.getCreatedDate());
+        }
+        notificationService.commentCreated(saved);
+        return saved;
+    }
+
+    /**
+     * Threads are one level deep: a reply to a reply joins the root's
+     * thread. Replies belong where their root does and carry no anchor.
+     */
+    private void joinThread(CommentEntity comment) {
+        CommentEntity parent = commentRepository.findById(comment.getParent().getCommentId())
+                .orElseThrow(() -> new RuntimeException(
+                        "Comment not found with id: " + comment.getParent().getCommentId()));
+        if (parent.getParent() != null) {
+            parent = parent.getParent();
+        }
+        comment.setParent(parent);
+        comment.setFile(parent.getFile());
+        comment.setProject(parent.getProject());
+        comment.setLineStart(null);
+        comment.setLineEnd(null);
+        comment.setAnchorTag(null);
+    }
+
+    private void resolveTargets(CommentEntity comment) {
         // If file is provided with only ID, fetch the full entity (file is optional)
         if (comment.getFile() != null && comment.getFile().getFileId() != null) {
             FileEntity file = fileRepository.findById(comment.getFile().getFileId())
@@ -80,12 +218,31 @@ public class CommentService {
         } else {
             comment.setProject(null);
         }
+    }
 
-        comment.setCreatedDate(LocalDateTime.now());
-        comment.setUpdatedDate(LocalDateTime.now());
-        return commentRepository.save(comment);
+    /**
+     * Validate a root's line range (a single line may give just one end) and
+     * record the content tag the lines refer to.
+     */
+    private void anchor(CommentEntity comment) {
+        Integer start = comment.getLineStart() != null ? comment.getLineStart() : comment.getLineEnd();
+        Integer end = comment.getLineEnd() != null ? comment.getLineEnd() : start;
+        if (start == null) {
+            comment.setAnchorTag(null);
+            return;
+        }
+        if (comment.getFile() == null) {
+            throw new RuntimeException("A line anchor needs a file");
+        }
+        if (start < 1 || end < start) {
+            throw new RuntimeException("Invalid line range: " + start + "-" + end);
+        }
+        comment.setLineStart(start);
+        comment.setLineEnd(end);
+        comment.setAnchorTag(FileService.contentTag(comment.getFile()));
     }
 
+    @Transactional
     public CommentEntity updateComment(Long commentId, CommentEntity commentDetails) {
         CommentEntity comment = commentRepository.findById(commentId)
                 .orElseThrow(() -> new RuntimeException("Comment not found with id: " + commentId));
@@ -93,12 +250,41 @@ public class CommentService {
         comment.setContent(commentDetails.getContent());
         comment.setUpdatedDate(LocalDateTime.now());
 
-        return commentRepository.save(comment);
+        CommentEntity saved = commentRepository.save(comment);
+        if (saved.getProject() != null) {
+            projectStatsService.changed(saved.getProject().getProjectId());
+        }
+        indexAfterCommit(saved.getCommentId());
+        return saved;
     }
 
+    @Transactional
     public void deleteComment(Long commentId) {
         CommentEntity comment = commentRepository.findById(commentId)
                 .orElseThrow(() -> new RuntimeException("Comment not found with id: " + commentId));
+        long replies = comment.getParent() == null ? commentRepository.countByParentCommentId(commentId) : 0;
+        searchService.removeComment(commentId);
+        if (replies > 0) {
+            searchService.removeReplies(commentId);
+        }
+        // A root's replies go with it through the foreign key
         commentRepository.delete(comment);
+        if (comment.getProject() != null) {
+            projectStatsService.commentsRemoved(comment.getProject().getProjectId(), 1 + replies);
+        }
+    }
+
+    // The indexer runs on another thread, which would not see the comment before the commit
+    private void indexAfterCommit(Long commentId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    searchService.indexComment(commentId);
+                }
+            });
+        } else {
+            searchService.indexComment(commentId);
+        }
     }
 }
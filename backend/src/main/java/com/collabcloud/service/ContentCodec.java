@@ -0,0 +1,96 @@
+package com.collabcloud.service;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * How a stored object's bytes are encoded at rest. The name is recorded on
+ * the row that points at the object (null for IDENTITY), so objects written
+ * before compression was enabled, or with another codec, read back alike.
+ */
+public enum ContentCodec {
+    IDENTITY(null, "") {
+        @Override
+        public byte[] encode(byte[] bytes) {
+            return bytes;
+        }
+
+        @Override
+        public InputStream decode(InputStream in) {
+            return in;
+        }
+    },
+    GZIP("gzip", ".gz") {
+        @Override
+        public byte[] encode(byte[] bytes) {
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream(bytes.length / 3 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(encoded, 8192)) {
+                out.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return encoded.toByteArray();
+        }
+
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+            return new GZIPInputStream(in, 8192);
+        }
+    },
+    ZSTD("zstd", ".zst") {
+        @Override
+        public byte[] encode(byte[] bytes) {
+            return Zstd.compress(bytes, ZSTD_LEVEL);
+        }
+
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+            return new ZstdInputStream(in);
+        }
+    };
+
+    // zstd's default: about gzip -6's ratio on source text at several times its speed
+    private static final int ZSTD_LEVEL = 3;
+
+    private final String name;
+    private final String extension;
+
+    ContentCodec(String name, String extension) {
+        this.name = name;
+        this.extension = extension;
+    }
+
+    /** The name recorded on the row; null for IDENTITY. */
+    public String getName() {
+        return name;
+    }
+
+    /** Suffix for object names chosen from content, so differently encoded copies never share a name. */
+    public String getExtension() {
+        return extension;
+    }
+
+    public abstract byte[] encode(byte[] bytes);
+
+    /** Wrap a stream of encoded bytes; closing the result closes in. */
+    public abstract InputStream decode(InputStream in) throws IOException;
+
+    public static ContentCodec forName(String name) {
+        if (name == null) {
+            return IDENTITY;
+        }
+        for (ContentCodec codec : values()) {
+            if (name.equals(codec.name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown content codec: " + name);
+    }
+}
@@ -0,0 +1,285 @@
+package com.collabcloud.service;
+
+import com.collabcloud.dto.DiffDTO;
+import com.collabcloud.entity.FileHistoryEntity;
+import com.collabcloud.entity.VersionEntity;
+import com.collabcloud.repository.FileHistoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Server-side line diffs between two versions or two history entries.
+ * Results are cached by (old hash, new hash, context), so for versions a
+ * repeated request is answered from the row hashes without reading either
+ * body from storage.
+ */
+@Service
+public class DiffService {
+
+    public static final int DEFAULT_CONTEXT = 3;
+    public static final int MAX_CONTEXT = 20;
+
+    @Autowired
+    private VersionService versionService;
+
+    @Autowired
+    private FileHistoryRepository fileHistoryRepository;
+
+    @Value("${app.diff.max-lines:100000}")
+    private int maxLines;
+
+    @Value("${app.diff.max-bytes:5242880}")
+    private long maxBytes;
+
+    @Value("${app.diff.max-cost:20000000}")
+    private long maxCost;
+
+    private final Map<String, DiffDTO> cache;
+
+    public DiffService(@Value("${app.diff.cache-size:256}") int cacheSize) {
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, DiffDTO>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DiffDTO> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Diff of two versions, or empty when either does not exist.
+     */
+    public Optional<DiffDTO> diffVersions(Long fromId, Long toId, int context) {
+        Optional<VersionEntity> from = versionService.getVersionById(fromId);
+        Optional<VersionEntity> to = versionService.getVersionById(toId);
+        if (from.isEmpty() || to.isEmpty()) {
+            return Optional.empty();
+        }
+        checkSize(from.get().getContentLength());
+        checkSize(to.get().getContentLength());
+        return Optional.of(diff(versionService.getContentHash(from.get()), versionService.getContentHash(to.get()),
+                context, () -> new InputStreamReader(bounded(versionService.openContent(from.get())),
+                        StandardCharsets.UTF_8),
+                () -> new InputStreamReader(bounded(versionService.openContent(to.get())), StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Diff of two file history entries, or empty when either does not exist.
+     */
+    public Optional<DiffDTO> diffHistory(Long fromId, Long toId, int context) {
+        Optional<FileHistoryEntity> from = fileHistoryRepository.findById(fromId);
+        Optional<FileHistoryEntity> to = fileHistoryRepository.findById(toId);
+        if (from.isEmpty() || to.isEmpty()) {
+            return Optional.empty();
+        }
+        String fromContent = from.get().getContent();
+        String toContent = to.get().getContent();
+        checkSize(utf8Length(fromContent));
+        checkSize(utf8Length(toContent));
+        return Optional.of(diff(ContentHashes.sha256Hex(nullToEmpty(fromContent)),
+                ContentHashes.sha256Hex(nullToEmpty(toContent)), context,
+                () -> new StringReader(nullToEmpty(fromContent)), () -> new StringReader(nullToEmpty(toContent))));
+    }
+
+    private DiffDTO diff(String fromHash, String toHash, int context, Supplier<Reader> fromSource,
+            Supplier<Reader> toSource) {
+        int boundedContext = Math.max(0, Math.min(context, MAX_CONTEXT));
+        String key = fromHash + ":" + toHash + ":" + boundedContext;
+        DiffDTO cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> fromLines = new ArrayList<>();
+        List<String> toLines = new ArrayList<>();
+        int[] a = readLines(fromSource, ids, fromLines);
+        int[] b = readLines(toSource, ids, toLines);
+        DiffDTO result = buildHunks(fromHash, toHash, fromLines, toLines, LineDiff.compute(a, b, maxCost),
+                boundedContext);
+        cache.put(key, result);
+        return result;
+    }
+
+    /** Reject a body whose known size in bytes is over app.diff.max-bytes before anything is read. */
+    private void checkSize(Long size) {
+        if (size != null && size > maxBytes) {
+            throw new DiffTooLargeException("Content exceeds " + maxBytes + " bytes and cannot be diffed");
+        }
+    }
+
+    /** Size of the text encoded as UTF-8, without encoding it. */
+    private static Long utf8Length(String content) {
+        if (content == null) {
+            return null;
+        }
+        long length = 0;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < content.length()
+                    && Character.isLowSurrogate(content.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Read a body line by line, interning each distinct line to an int id so
+     * the diff compares ints. Bodies over app.diff.max-lines are rejected.
+     */
+    private int[] readLines(Supplier<Reader> source, Map<String, Integer> ids, List<String> lines) {
+        try (BufferedReader reader = new BufferedReader(source.get())) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (lines.size() >= maxLines) {
+                    throw new DiffTooLargeException("Content exceeds " + maxLines + " lines and cannot be diffed");
+                }
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int[] interned = new int[lines.size()];
+        for (int i = 0; i < interned.length; i++) {
+            interned[i] = ids.computeIfAbsent(lines.get(i), k -> ids.size());
+        }
+        return interned;
+    }
+
+    /**
+     * A stored body that stops with DiffTooLargeException past
+     * app.diff.max-bytes, for bodies whose length was not recorded. The
+     * limit applies as the bytes arrive, so a single long line is not
+     * buffered whole first.
+     */
+    private InputStream bounded(InputStream in) {
+        return new FilterInputStream(in) {
+            private long read;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    count(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) {
+                    count(n);
+                }
+                return n;
+            }
+
+            private void count(int n) {
+                read += n;
+                if (read > maxBytes) {
+                    throw new DiffTooLargeException("Content exceeds " + maxBytes + " bytes and cannot be diffed");
+                }
+            }
+        };
+    }
+
+    private DiffDTO buildHunks(String fromHash, String toHash, List<String> a, List<String> b, LineDiff diff,
+            int context) {
+        // Walk both sides once, recording each step as (type, old index, new index)
+        int capacity = a.size() + b.size();
+        char[] types = new char[capacity];
+        int[] aIndex = new int[capacity];
+        int[] bIndex = new int[capacity];
+        int steps = 0;
+        int additions = 0;
+        int deletions = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            aIndex[steps] = i;
+            bIndex[steps] = j;
+            if (i < a.size() && diff.isDeleted(i)) {
+                types[steps++] = '-';
+                i++;
+                deletions++;
+            } else if (j < b.size() && diff.isInserted(j)) {
+                types[steps++] = '+';
+                j++;
+                additions++;
+            } else {
+                types[steps++] = ' ';
+                i++;
+                j++;
+            }
+        }
+
+        List<DiffDTO.Hunk> hunks = new ArrayList<>();
+        int step = 0;
+        while (step < steps) {
+            if (types[step] == ' ') {
+                step++;
+                continue;
+            }
+            int start = Math.max(0, step - context);
+            // Extend over following changes separated by at most 2 * context unchanged lines
+            int lastChange = step;
+            for (int s = step; s < steps; s++) {
+                if (types[s] != ' ') {
+                    lastChange = s;
+                } else if (s - lastChange > 2 * context) {
+                    break;
+                }
+            }
+            int end = Math.min(steps, lastChange + 1 + context);
+
+            List<String> lines = new ArrayList<>(end - start);
+            int fromCount = 0;
+            int toCount = 0;
+            for (int s = start; s < end; s++) {
+                char type = types[s];
+                lines.add(type + (type == '+' ? b.get(bIndex[s]) : a.get(aIndex[s])));
+                if (type != '+') {
+                    fromCount++;
+                }
+                if (type != '-') {
+                    toCount++;
+                }
+            }
+            // Unified-diff numbering: 1-based, or the preceding line when the side is empty
+            int fromStart = fromCount > 0 ? aIndex[start] + 1 : aIndex[start];
+            int toStart = toCount > 0 ? bIndex[start] + 1 : bIndex[start];
+            hunks.add(new DiffDTO.Hunk(fromStart, fromCount, toStart, toCount, lines));
+            step = end;
+        }
+        return new DiffDTO(fromHash, toHash, a.size(), b.size(), additions, deletions, diff.isExact(), hunks);
+    }
+
+    private static String nullToEmpty(String content) {
+        return content != null ? content : "";
+    }
+}
@@ -0,0 +1,12 @@
+package com.collabcloud.service;
+
+/**
+ * A diff was refused because a body is over app.diff.max-lines or
+ * app.diff.max-bytes.
+ */
+public class DiffTooLargeException extends RuntimeException {
+
+    public DiffTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,326 @@
+package com.collabcloud.service;
+
+import com.collabcloud.entity.ActivityLogEntity;
+import com.collabcloud.entity.FileEntity;
+import com.collabcloud.entity.FileHistoryEntity;
+import com.collabcloud.entity.OutboxEventEntity;
+import com.collabcloud.entity.ProjectEntity;
+import com.collabcloud.entity.UserEntity;
+import com.collabcloud.repository.FileHistoryRepository;
+import com.collabcloud.repository.FileRepository;
+import com.collabcloud.repository.ProjectRepository;
+import com.collabcloud.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Side effects of file and project writes. Each write records its event in
+ * the transaction that makes it, so the event exists exactly when the write
+ * committed; the outbox relay then hands the events back here a batch at a
+ * time to index them for search, log their activity, queue thumbnails, drop
+ * cached sizes and delete the storage objects the write left behind.
+ *
+ * Database effects commit with the events' processed mark, so they happen
+ * once. Storage deletes and cache drops may be repeated after a failure,
+ * which is harmless.
+ */
+@Service
+public class DomainEventService implements OutboxHandler {
+
+    static final String FILES_CREATED = "FILES_CREATED";
+    static final String FILE_DETAILS_CHANGED = "FILE_DETAILS_CHANGED";
+    static final String FILE_CONTENT_CHANGED = "FILE_CONTENT_CHANGED";
+    static final String FILE_DELETED = "FILE_DELETED";
+    static final String PROJECT_SAVED = "PROJECT_SAVED";
+
+    // Activity types, as the client logs them
+    private static final String UPLOAD_FILE = "UPLOAD_FILE";
+    private static final String EDIT_FILE = "EDIT_FILE_ONLINE";
+    private static final String DELETE_FILE = "DELETE_FILE";
+    private static final String CREATE_PROJECT = "CREATE_PROJECT";
+
+    @Autowired
+    private OutboxService outboxService;
+
+    // FileService records events here, so it is looked up on first use
+    @Autowired
+    private ObjectProvider<FileService> fileService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private ActivityLogService activityLogService;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FileHistoryRepository fileHistoryRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** What one batch of events asks for, gathered so each effect runs once per batch. */
+    private static final class Effects {
+        private final Set<Long> indexFiles = new LinkedHashSet<>();
+        private final Map<Long, Long> contentHistory = new HashMap<>();
+        private final Set<Long> indexProjects = new LinkedHashSet<>();
+        private final Set<Long> thumbnails = new LinkedHashSet<>();
+        private final Set<Long> evictSizes = new LinkedHashSet<>();
+        private final List<String> deletePaths = new ArrayList<>();
+        private final List<JsonNode> activity = new ArrayList<>();
+    }
+
+    /** New files, uploaded by the given user when known. */
+    public void filesCreated(Collection<FileEntity> files, Long actorId) {
+        List<Long> fileIds = files.stream().map(FileEntity::getFileId).collect(Collectors.toList());
+        if (!fileIds.isEmpty()) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("fileIds", fileIds);
+            payload.put("actorId", actorId);
+            outboxService.record(FILES_CREATED, payload);
+        }
+    }
+
+    public void fileDetailsChanged(FileEntity file) {
+        outboxService.record(FILE_DETAILS_CHANGED, Map.of("fileId", file.getFileId()));
+    }
+
+    /**
+     * The file's content was rewritten as the history entry records; a
+     * replaced object (the content moved to a new one) is deleted.
+     */
+    public void fileContentChanged(FileEntity file, FileHistoryEntity history, UserEntity actor, String replacedPath) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("fileId", file.getFileId());
+        payload.put("projectId", file.getProject().getProjectId());
+        payload.put("fileName", file.getFileName());
+        payload.put("historyId", history.getHistoryId());
+        payload.put("actorId", actor != null ? actor.getUserId() : null);
+        payload.put("replacedPath", replacedPath);
+        outboxService.record(FILE_CONTENT_CHANGED, payload);
+    }
+
+    /** The file's row is gone; its stored objects are deleted by the relay. */
+    public void fileDeleted(FileEntity file, List<String> storedPaths, Long actorId) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("fileId", file.getFileId());
+        payload.put("projectId", file.getProject().getProjectId());
+        payload.put("fileName", file.getFileName());
+        payload.put("actorId", actorId);
+        payload.put("paths", storedPaths);
+        outboxService.record(FILE_DELETED, payload);
+    }
+
+    public void projectSaved(ProjectEntity project, boolean created) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("projectId", project.getProjectId());
+        payload.put("created", created);
+        payload.put("title", project.getTitle());
+        payload.put("actorId", created && project.getCreator() != null ? project.getCreator().getUserId() : null);
+        outboxService.record(PROJECT_SAVED, payload);
+    }
+
+    @Override
+    public Set<String> eventTypes() {
+        return Set.of(FILES_CREATED, FILE_DETAILS_CHANGED, FILE_CONTENT_CHANGED, FILE_DELETED, PROJECT_SAVED);
+    }
+
+    @Override
+    public void handle(List<OutboxEventEntity> events) {
+        Effects effects = new Effects();
+        for (OutboxEventEntity event : events) {
+            collect(event, parse(event), effects);
+        }
+        if (!effects.indexFiles.isEmpty()) {
+            Map<Long, String> contents = new HashMap<>();
+            fileHistoryRepository.findAllById(effects.contentHistory.values()).forEach(history -> contents.put(
+                    history.getFile().getFileId(), history.getContent()));
+            searchService.indexFilesNow(effects.indexFiles, contents);
+        }
+        if (!effects.indexProjects.isEmpty()) {
+            searchService.indexProjectsNow(effects.indexProjects);
+        }
+        if (!effects.activity.isEmpty()) {
+            activityLogService.createActivityLogs(activityLogs(effects.activity));
+        }
+        if (!effects.deletePaths.isEmpty()) {
+            // Anything a failed delete leaves behind is also found by StorageGarbageCollector
+            fileStorageService.deleteFiles(effects.deletePaths);
+        }
+        if (!effects.evictSizes.isEmpty()) {
+            fileService.getObject().evictContentSizes(effects.evictSizes);
+        }
+        if (!effects.thumbnails.isEmpty()) {
+            fileRepository.findAllById(effects.thumbnails).forEach(thumbnailService::generateLater);
+        }
+    }
+
+    private void collect(OutboxEventEntity event, JsonNode payload, Effects effects) {
+        switch (event.getEventType()) {
+            case FILES_CREATED:
+                payload.path("fileIds").forEach(id -> {
+                    effects.indexFiles.add(id.asLong());
+                    effects.thumbnails.add(id.asLong());
+                });
+                effects.activity.add(activity(event, UPLOAD_FILE, payload));
+                break;
+            case FILE_DETAILS_CHANGED:
+                effects.indexFiles.add(payload.path("fileId").asLong());
+                break;
+            case FILE_CONTENT_CHANGED: {
+                long fileId = payload.path("fileId").asLong();
+                effects.indexFiles.add(fileId);
+                // Events come in id order, so the latest content wins
+                effects.contentHistory.put(fileId, payload.path("historyId").asLong());
+                effects.evictSizes.add(fileId);
+                if (payload.hasNonNull("replacedPath")) {
+                    effects.deletePaths.add(payload.get("replacedPath").asText());
+                }
+                effects.activity.add(activity(event, EDIT_FILE, payload));
+                break;
+            }
+            case FILE_DELETED: {
+                long fileId = payload.path("fileId").asLong();
+                // A file deleted in the same batch needs no indexing
+                effects.indexFiles.remove(fileId);
+                effects.contentHistory.remove(fileId);
+                effects.thumbnails.remove(fileId);
+                effects.evictSizes.add(fileId);
+                payload.path("paths").forEach(path -> effects.deletePaths.add(path.asText()));
+                effects.activity.add(activity(event, DELETE_FILE, payload));
+                break;
+            }
+            case PROJECT_SAVED:
+                effects.indexProjects.add(payload.path("projectId").asLong());
+                if (payload.path("created").asBoolean()) {
+                    effects.activity.add(activity(event, CREATE_PROJECT, payload));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Not a domain event: " + event.getEventType());
+        }
+    }
+
+    /** The event's payload with what an activity entry needs added. */
+    private JsonNode activity(OutboxEventEntity event, String actionType, JsonNode payload) {
+        return objectMapper.createObjectNode()
+                .put("actionType", actionType)
+                .put("at", event.getCreatedAt().toString())
+                .set("payload", payload);
+    }
+
+    /**
+     * One entry per event, or per file for a batch upload, with projects and
+     * users loaded in one query each. Entries for projects deleted since
+     * are dropped.
+     */
+    private List<ActivityLogEntity> activityLogs(List<JsonNode> activity) {
+        Set<Long> projectIds = new LinkedHashSet<>();
+        Set<Long> userIds = new LinkedHashSet<>();
+        Set<Long> uploadedIds = new LinkedHashSet<>();
+        for (JsonNode entry : activity) {
+            JsonNode payload = entry.get("payload");
+            if (payload.hasNonNull("projectId")) {
+                projectIds.add(payload.get("projectId").asLong());
+            }
+            if (payload.hasNonNull("actorId")) {
+                userIds.add(payload.get("actorId").asLong());
+            }
+            payload.path("fileIds").forEach(id -> uploadedIds.add(id.asLong()));
+        }
+        Map<Long, FileEntity> uploaded = uploadedIds.isEmpty() ? Map.of()
+                : fileRepository.findAllById(uploadedIds).stream()
+                        .collect(Collectors.toMap(FileEntity::getFileId, Function.identity()));
+        uploaded.values().forEach(file -> projectIds.add(file.getProject().getProjectId()));
+        Map<Long, ProjectEntity> projects = projectRepository.findAllById(projectIds).stream()
+                .collect(Collectors.toMap(ProjectEntity::getProjectId, Function.identity()));
+        Map<Long, UserEntity> users = userIds.isEmpty() ? Map.of()
+                : userRepository.findAllById(userIds).stream()
+                        .collect(Collectors.toMap(UserEntity::getUserId, Function.identity()));
+
+        List<ActivityLogEntity> logs = new ArrayList<>();
+        for (JsonNode entry : activity) {
+            String actionType = entry.get("actionType").asText();
+            LocalDateTime at = LocalDateTime.parse(entry.get("at").asText());
+            JsonNode payload = entry.get("payload");
+            UserEntity user = users.get(payload.path("actorId").asLong());
+            if (UPLOAD_FILE.equals(actionType)) {
+                payload.path("fileIds").forEach(id -> {
+                    FileEntity file = uploaded.get(id.asLong());
+                    if (file != null) {
+                        logs.add(activityLog(actionType, "Uploaded file: " + file.getFileName(),
+                                Map.of("fileId", file.getFileId(), "fileName", file.getFileName()),
+                                file.getProject(), user, at));
+                    }
+                });
+                continue;
+            }
+            ProjectEntity project = projects.get(payload.path("projectId").asLong());
+            if (project == null) {
+                continue;
+            }
+            if (CREATE_PROJECT.equals(actionType)) {
+                logs.add(activityLog(actionType, "Created project: " + project.getTitle(),
+                        Map.of("projectId", project.getProjectId()), project, user, at));
+            } else {
+                String fileName = payload.path("fileName").asText();
+                logs.add(activityLog(actionType, (EDIT_FILE.equals(actionType) ? "Edited file: " : "Deleted file: ")
+                        + fileName, Map.of("fileId", payload.path("fileId").asLong(), "fileName", fileName),
+                        project, user, at));
+            }
+        }
+        return logs;
+    }
+
+    private ActivityLogEntity activityLog(String actionType, String description, Map<String, Object> data,
+            ProjectEntity project, UserEntity user, LocalDateTime at) {
+        ActivityLogEntity log;
+        try {
+            log = new ActivityLogEntity(actionType, objectMapper.writeValueAsString(data), description, project);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Activity data is not serializable", e);
+        }
+        log.setUser(user);
+        log.setTimestamp(at);
+        log.setActionTimestamp(at);
+        return log;
+    }
+
+    private JsonNode parse(OutboxEventEntity event) {
+        try {
+            return objectMapper.readTree(event.getPayload());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unreadable payload in outbox event " + event.getEventId(), e);
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.collabcloud.service;
 
+import com.collabcloud.dto.FileHistoryDTO;
 import com.collabcloud.entity.FileEntity;
 import com.collabcloud.entity.FileHistoryEntity;
 import com.collabcloud.entity.UserEntity;
 import com.collabcloud.repository.FileHistoryRepository;
+import com.collabcloud.repository.ProjectionRepository;
+import com.collabcloud.repository.Specs;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -17,6 +22,12 @@ public class FileHistoryService {
     @Autowired
     private FileHistoryRepository fileHistoryRepository;
 
+    @Autowired
+    private ProjectionRepository projectionRepository;
+
+    @Autowired
+    private ProjectStatsService projectStatsService;
+
     @Transactional
     public FileHistoryEntity createHistoryEntry(FileEntity file, UserEntity user, String content, String changeType, String description) {
         FileHistoryEntity history = new FileHistoryEntity(file, user, content, changeType, description);
@@ -30,16 +41,24 @@ public class FileHistoryService {
         return fileHistoryRepository.save(history);
     }
 
-    public List<FileHistoryEntity> getFileHistory(Long fileId) {
-        return fileHistoryRepository.findByFileIdOrderByModifiedDateDesc(fileId);
+    @Transactional(readOnly = true)
+    public Page<FileHistoryDTO> getFileHistory(Long fileId, Pageable pageable) {
+        return findHistory(Specs.equal("file.fileId", fileId), pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<FileHistoryDTO> getProjectHistory(Long projectId, Pageable pageable) {
+        return findHistory(Specs.equal("file.project.projectId", projectId), pageable);
     }
 
-    public List<FileHistoryEntity> getProjectHistory(Long projectId) {
-        return fileHistoryRepository.findByProjectIdOrderByModifiedDateDesc(projectId);
+    @Transactional(readOnly = true)
+    public Page<FileHistoryDTO> getUserHistory(Long userId, Pageable pageable) {
+        return findHistory(Specs.equal("modifiedBy.userId", userId), pageable);
     }
 
-    public List<FileHistoryEntity> getUserHistory(Long userId) {
-        return fileHistoryRepository.findByUserIdOrderByModifiedDateDesc(userId);
+    private Page<FileHistoryDTO> findHistory(Specification<FileHistoryEntity> spec, Pageable pageable) {
+        return projectionRepository.findAll(FileHistoryEntity.class, spec, pageable, FileHistoryDTO.class,
+                FileHistoryDTO.ATTRIBUTES);
     }
 
     public Optional<FileHistoryEntity> getHistoryById(Long historyId) {
@@ -48,6 +67,7 @@ public class FileHistoryService {
 
     @Transactional
     public void deleteHistoryEntry(Long historyId) {
+        projectStatsService.historyChanged(historyId);
         fileHistoryRepository.deleteById(historyId);
     }
 }
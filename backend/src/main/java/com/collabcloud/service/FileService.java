@@ -1,17 +1,40 @@
 package com.collabcloud.service;
 
+import com.collabcloud.dto.FileDTO;
 import com.collabcloud.entity.FileEntity;
+import com.collabcloud.entity.FileHistoryEntity;
 import com.collabcloud.entity.ProjectEntity;
+import com.collabcloud.entity.UserEntity;
+import com.collabcloud.repository.CommentRepository;
+import com.collabcloud.repository.FileHistoryRepository;
 import com.collabcloud.repository.FileRepository;
 import com.collabcloud.repository.ProjectRepository;
+import com.collabcloud.repository.ProjectionRepository;
+import com.collabcloud.repository.VersionRepository;
+import com.collabcloud.repository.Specs;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PostConstruct;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class FileService {
@@ -26,19 +49,79 @@ public class FileService {
     @Autowired
     private FileStorageService fileStorageService;
 
-    public List<FileEntity> getAllFiles() {
-        return fileRepository.findAll();
+    @Autowired
+    private VersionRepository versionRepository;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private ProjectionRepository projectionRepository;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private ProjectStatsService projectStatsService;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private FileHistoryRepository fileHistoryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DomainEventService domainEventService;
+
+    @Autowired
+    private FileHistoryService fileHistoryService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.files.size-cache.max-size:10000}")
+    private long sizeCacheMaxSize;
+
+    @Value("${app.files.size-cache.ttl:P1D}")
+    private Duration sizeCacheTtl;
+
+    // Keyed by file id and content tag, so an entry never outlives the content it measured
+    private Cache<String, Long> contentSizes;
+
+    @PostConstruct
+    void createSizeCache() {
+        contentSizes = Caffeine.newBuilder()
+                .maximumSize(sizeCacheMaxSize)
+                .expireAfterWrite(sizeCacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, contentSizes, "file-sizes");
+    }
+
+    @Transactional(readOnly = true)
+    public Page<FileDTO> getAllFiles(String name, String fileType, Pageable pageable) {
+        return getFilesByProjectId(null, name, fileType, pageable);
     }
 
     public Optional<FileEntity> getFileById(Long fileId) {
         return fileRepository.findById(fileId);
     }
 
-    public List<FileEntity> getFilesByProjectId(Long projectId) {
-        return fileRepository.findByProjectProjectId(projectId);
+    @Transactional(readOnly = true)
+    public Page<FileDTO> getFilesByProjectId(Long projectId, String name, String fileType, Pageable pageable) {
+        Specification<FileEntity> spec = Specification.<FileEntity>where(Specs.equal("project.projectId", projectId))
+                .and(Specs.containsIgnoreCase("fileName", name))
+                .and(Specs.startsWithIgnoreCase("fileType", fileType));
+        return projectionRepository.findAll(FileEntity.class, spec, pageable, FileDTO.class, FileDTO.ATTRIBUTES);
     }
 
-    public FileEntity createFile(FileEntity file) {
+    public FileEntity createFile(FileEntity file, Long actorId) {
         logger.debug("Creating file: name={}, type={}, projectId={}", file.getFileName(), file.getFileType(),
                 file.getProject() != null ? file.getProject().getProjectId() : null);
         // If project is provided with only ID, fetch the full entity
@@ -50,12 +133,36 @@ public class FileService {
         }
 
         file.setUploadDate(LocalDateTime.now());
-        FileEntity saved = fileRepository.save(file);
-        logger.info("Saved file: id={}, name={}, projectId={}", saved.getFileId(), saved.getFileName(),
+        FileEntity saved = transactionTemplate.execute(status -> {
+            FileEntity created = fileRepository.save(file);
+            projectStatsService.filesAdded(created.getProject() != null ? created.getProject().getProjectId() : null,
+                    1, created.getUploadDate());
+            domainEventService.filesCreated(List.of(created), actorId);
+            return created;
+        });
+        logger.debug("Saved file: id={}, name={}, projectId={}", saved.getFileId(), saved.getFileName(),
                 saved.getProject() != null ? saved.getProject().getProjectId() : null);
         return saved;
     }
 
+    /**
+     * Save several files in one transaction, so their inserts go out as JDBC
+     * batches, with one event for all of them. Projects must already be
+     * resolved; the uploader may be null.
+     */
+    public List<FileEntity> createFiles(List<FileEntity> files, Long actorId) {
+        LocalDateTime now = LocalDateTime.now();
+        files.forEach(file -> file.setUploadDate(now));
+        return transactionTemplate.execute(status -> {
+            List<FileEntity> saved = fileRepository.saveAll(files);
+            saved.stream()
+                    .collect(Collectors.groupingBy(file -> file.getProject().getProjectId(), Collectors.counting()))
+                    .forEach((projectId, count) -> projectStatsService.filesAdded(projectId, count, now));
+            domainEventService.filesCreated(saved, actorId);
+            return saved;
+        });
+    }
+
     public FileEntity updateFile(Long fileId, FileEntity fileDetails) {
         FileEntity file = fileRepository.findById(fileId)
                 .orElseThrow(() -> new RuntimeException("File not found with id: " + fileId));
@@ -64,29 +171,105 @@ public class FileService {
         file.setFileType(fileDetails.getFileType());
         file.setFilePath(fileDetails.getFilePath());
 
-        return fileRepository.save(file);
+        return transactionTemplate.execute(status -> {
+            FileEntity saved = fileRepository.save(file);
+            projectStatsService.changed(saved.getProject().getProjectId());
+            domainEventService.fileDetailsChanged(saved);
+            return saved;
+        });
     }
 
-    public void deleteFile(Long fileId) {
-        logger.info("[FileService] Attempting to delete file with ID: {}", fileId);
-        FileEntity file = fileRepository.findById(fileId)
-                .orElseThrow(() -> new RuntimeException("File not found with id: " + fileId));
-
-        logger.info("[FileService] Found file: {} with path: {}", file.getFileName(), file.getFilePath());
+    /**
+     * Record that the file's stored bytes were rewritten. Call after the
+     * write succeeds, so a reader holding the new tag always gets the new
+     * bytes.
+     */
+    @Transactional
+    public void markContentChanged(Long fileId) {
+        fileRepository.incrementContentVersion(fileId);
+        projectStatsService.fileChanged(fileId);
+    }
 
-        // Delete the physical file if it exists
-        if (file.getFilePath() != null && !file.getFilePath().startsWith("data:")) {
-            try {
-                logger.info("[FileService] Deleting physical file: {}", file.getFilePath());
-                fileStorageService.deleteFile(file.getFilePath());
-                logger.info("[FileService] ✅ Physical file deleted successfully");
-            } catch (Exception e) {
-                logger.warn("[FileService] ⚠️ Could not delete physical file: {}", file.getFilePath(), e);
+    /**
+     * Record a write made with FileStorageService.updateFileContent: the
+     * history entry, the new content version and the events, in one
+     * transaction. When the write went to a new object (the codec changed),
+     * the row is pointed there and the relay deletes the old object; the
+     * row is read again on the next lookup.
+     */
+    public void recordContentUpdate(FileEntity file, UserEntity user, String content,
+            FileStorageService.StoredContent stored) {
+        Long fileId = file.getFileId();
+        boolean moved = !stored.getFilePath().equals(file.getFilePath());
+        transactionTemplate.executeWithoutResult(status -> {
+            FileHistoryEntity history = fileHistoryService.createHistoryEntry(file, user, content, "UPDATE",
+                    "File content updated");
+            if (moved) {
+                fileRepository.moveContent(fileId, stored.getFilePath(), stored.getCodec());
+            } else {
+                fileRepository.incrementContentVersion(fileId);
             }
+            projectStatsService.changed(file.getProject().getProjectId());
+            domainEventService.fileContentChanged(file, history, user, moved ? file.getFilePath() : null);
+            notificationService.fileUpdated(file, user);
+        });
+    }
+
+    /** Drop every cached size of the files, whatever content version it was for. */
+    public void evictContentSizes(Collection<Long> fileIds) {
+        contentSizes.asMap().keySet()
+                .removeIf(key -> fileIds.contains(Long.valueOf(key.substring(0, key.indexOf(':')))));
+    }
+
+    /**
+     * Validator for the file's content: it changes with every content write
+     * and with the path or type, so it is known without reading storage.
+     */
+    public String getContentTag(FileEntity file) {
+        return contentTag(file);
+    }
+
+    static String contentTag(FileEntity file) {
+        return ContentHashes.sha256Hex(file.getFilePath() + "\n" + file.getFileType() + "\n"
+                + file.getContentVersion());
+    }
+
+    /**
+     * Size of the file's content, decoded. Storage is asked once per content
+     * version; data URLs are estimated from their length.
+     */
+    public long getContentSize(FileEntity file) {
+        String filePath = file.getFilePath();
+        if (filePath.startsWith("data:")) {
+            int comma = filePath.indexOf(',');
+            return comma >= 0 ? (long) (filePath.length() - comma - 1) * 3 / 4 : 0L;
         }
+        return contentSizes.get(file.getFileId() + ":" + contentTag(file),
+                key -> fileStorageService.getContentSize(filePath, file.getContentCodec()));
+    }
+
+    public void deleteFile(Long fileId, Long actorId) {
+        FileEntity file = fileRepository.findById(fileId)
+                .orElseThrow(() -> new RuntimeException("File not found with id: " + fileId));
+
+        List<String> storedPaths = new ArrayList<>(versionRepository.findContentPathsByFileId(fileId));
+        storedPaths.add(file.getFilePath());
+        storedPaths.addAll(thumbnailService.objectPaths(file));
+        Long projectId = file.getProject().getProjectId();
+        long projectComments = commentRepository.countByFileFileIdAndProjectProjectId(fileId, projectId);
 
-        logger.info("[FileService] Deleting file entity from database");
-        fileRepository.delete(file);
-        logger.info("[FileService] ✅ File entity deleted from database");
+        transactionTemplate.executeWithoutResult(status -> {
+            searchService.removeFile(fileId);
+            // Comments in one statement first: removing a thread root also removes its replies, which a
+            // one-by-one cascade would then fail to find
+            commentRepository.deleteByFileIds(List.of(fileId));
+            fileHistoryRepository.deleteByFileIds(List.of(fileId));
+            // Version rows go with the file through the cascade; their bodies go through the outbox, along
+            // with the file's body and thumbnails
+            fileRepository.delete(file);
+            projectStatsService.fileRemoved(projectId, projectComments);
+            domainEventService.fileDeleted(file, storedPaths, actorId);
+        });
+        logger.debug("Deleted file: id={}, name={}", fileId, file.getFileName());
     }
 }
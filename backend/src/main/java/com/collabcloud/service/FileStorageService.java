@@ -1,27 +1,63 @@
 package com.collabcloud.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import com.github.luben.zstd.util.Native;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 
+/**
+ * Supabase storage access. Text file content is compressed at rest
+ * (app.compression.*): zstd, or gzip where the zstd native library cannot
+ * load, for text types of at least min-size that shrink below max-ratio. The
+ * store methods return the codec with the path, for the row to record; reads
+ * given that codec decode transparently, so plain objects from before stay
+ * readable.
+ */
 @Service
 public class FileStorageService {
     private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
 
+    // Object names per bulk delete request; Supabase caps the prefixes list at 1000
+    private static final int MAX_DELETE_OBJECTS = 1000;
+
     @Value("${supabase.url}")
     private String supabaseUrl;
 
@@ -31,57 +67,140 @@ public class FileStorageService {
     @Value("${supabase.bucket}")
     private String bucket;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OpenTelemetry openTelemetry;
+
+    @Autowired
+    private Tracer tracer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.compression.enabled:true}")
+    private boolean compressionEnabled;
+
+    @Value("${app.compression.codec:zstd}")
+    private String codecName;
+
+    @Value("${app.compression.min-size:1KB}")
+    private DataSize compressionMinSize;
+
+    @Value("${app.compression.max-ratio:0.9}")
+    private double compressionMaxRatio;
+
+    private ContentCodec codec;
+
     private final HttpClient httpClient = HttpClient.newHttpClient();
 
+    /** Where content was stored and the codec it was written with (null: as is). */
+    public static final class StoredContent {
+        private final String filePath;
+        private final String codec;
+
+        StoredContent(String filePath, String codec) {
+            this.filePath = filePath;
+            this.codec = codec;
+        }
+
+        public String getFilePath() { return filePath; }
+        public String getCodec() { return codec; }
+    }
+
+    /** Bytes as they go to storage. */
+    private static final class Encoded {
+        final ContentCodec codec;
+        final byte[] bytes;
+
+        Encoded(ContentCodec codec, byte[] bytes) {
+            this.codec = codec;
+            this.bytes = bytes;
+        }
+    }
+
+    @PostConstruct
+    void chooseCodec() {
+        codec = ContentCodec.forName(codecName);
+        if (codec == ContentCodec.ZSTD) {
+            try {
+                Native.load();
+            } catch (Throwable e) {
+                logger.warn("zstd is not available on this platform, compressing with gzip: {}", e.getMessage());
+                codec = ContentCodec.GZIP;
+            }
+        }
+    }
+
     /**
-     * Store a multipart file and return the relative file path
+     * Store a multipart file under a unique name
      */
-    public String storeFile(MultipartFile file) {
+    public StoredContent storeFile(MultipartFile file) {
         String rawOriginalFileName = file.getOriginalFilename();
         String originalFileName = "file";
         if (rawOriginalFileName != null && !rawOriginalFileName.isBlank()) {
             originalFileName = StringUtils.cleanPath(rawOriginalFileName);
         }
-        String fileName = generateUniqueFileName(originalFileName);
 
         try {
-            byte[] bytes = file.getBytes();
-            uploadBytes(fileName, bytes);
-            logger.info("File stored successfully in Supabase: {}", fileName);
-            return getStoredFilePath(fileName);
+            StoredContent stored = storeUnique(originalFileName, file.getContentType(), file.getBytes());
+            logger.debug("File stored in Supabase: {}", stored.getFilePath());
+            return stored;
         } catch (Exception ex) {
-            throw new RuntimeException("Could not store file " + fileName, ex);
+            throw new RuntimeException("Could not store file " + originalFileName, ex);
         }
     }
 
     /**
-     * Store a file from data URL (base64 encoded) and return the relative file path
+     * Store a file from data URL (base64 encoded) under a unique name
      */
-    public String storeFileFromDataUrl(String dataUrl, String fileName) {
+    public StoredContent storeFileFromDataUrl(String dataUrl, String fileName, String fileType) {
         try {
-            logger.info("[FileStorageService] Storing file from data URL in Supabase: {}", fileName);
-
-            // Extract base64 data from data URL
-            String base64Data;
-            if (dataUrl.contains(",")) {
-                base64Data = dataUrl.split(",")[1];
-                logger.info("[FileStorageService] Extracted base64 data (length: {})", base64Data.length());
-            } else {
-                base64Data = dataUrl;
-                logger.warn("[FileStorageService] No comma found in data URL, using entire string");
+            if (dataUrl.indexOf(',') < 0) {
+                logger.warn("No comma found in data URL for {}, using entire string", fileName);
             }
+            byte[] decodedBytes = decodeDataUrl(dataUrl);
+
+            StoredContent stored = storeUnique(fileName, fileType, decodedBytes);
+            logger.debug("Stored {} bytes from data URL: {}", decodedBytes.length, stored.getFilePath());
+            return stored;
+        } catch (Exception ex) {
+            throw new RuntimeException("Could not store file from data URL: " + fileName, ex);
+        }
+    }
 
-            byte[] decodedBytes = Base64.getDecoder().decode(base64Data);
-            logger.info("[FileStorageService] Decoded {} bytes", decodedBytes.length);
+    /**
+     * Store bytes under a unique name derived from fileName
+     */
+    public StoredContent storeBytes(String fileName, String fileType, byte[] bytes) {
+        try {
+            return storeUnique(fileName, fileType, bytes);
+        } catch (Exception ex) {
+            throw new RuntimeException("Could not store file " + fileName, ex);
+        }
+    }
 
-            String uniqueFileName = generateUniqueFileName(fileName);
-            uploadBytes(uniqueFileName, decodedBytes);
+    /**
+     * Store content under objectPath, plus the extension of the codec it is
+     * compressed with, replacing any existing object
+     */
+    public StoredContent storeContentObject(String objectPath, String fileType, byte[] bytes) {
+        Encoded encoded = compress(objectPath, fileType, bytes);
+        return new StoredContent(storeObject(objectPath + encoded.codec.getExtension(), encoded.bytes),
+                encoded.codec.getName());
+    }
 
-            String relativePath = getStoredFilePath(uniqueFileName);
-            logger.info("✅ [FileStorageService] Returning relative path: {}", relativePath);
-            return relativePath;
+    /**
+     * Store bytes under a caller-chosen object path, replacing any existing
+     * object, and return the relative file path
+     */
+    public String storeObject(String objectPath, byte[] bytes) {
+        try {
+            uploadBytes(objectPath, bytes);
+            return getStoredFilePath(objectPath);
         } catch (Exception ex) {
-            throw new RuntimeException("Could not store file from data URL: " + fileName, ex);
+            throw new RuntimeException("Could not store object " + objectPath, ex);
         }
     }
 
@@ -91,21 +210,95 @@ public class FileStorageService {
     public void deleteFile(String filePath) {
         try {
             String objectPath = extractObjectPath(filePath);
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(buildObjectDeleteUrl()))
+            sendDelete(List.of(objectPath));
+            logger.debug("File deleted from Supabase: {}", objectPath);
+        } catch (Exception ex) {
+            logger.error("Could not delete file: " + filePath, ex);
+            throw new RuntimeException("Could not delete file: " + filePath, ex);
+        }
+    }
+
+    /**
+     * Delete several stored files, up to MAX_DELETE_OBJECTS per request, and
+     * return how many objects were requested. Paths already gone are not an
+     * error. Data URLs are skipped.
+     */
+    public int deleteFiles(Collection<String> filePaths) {
+        List<String> objectPaths = new ArrayList<>();
+        for (String filePath : filePaths) {
+            if (filePath != null && !filePath.startsWith("data:")) {
+                objectPaths.add(extractObjectPath(filePath));
+            }
+        }
+        deleteObjects(objectPaths);
+        return objectPaths.size();
+    }
+
+    /**
+     * Delete objects by their path inside the bucket, as listObjects
+     * returns them, up to MAX_DELETE_OBJECTS per request
+     */
+    public void deleteObjects(List<String> objectPaths) {
+        for (int from = 0; from < objectPaths.size(); from += MAX_DELETE_OBJECTS) {
+            List<String> chunk = objectPaths.subList(from, Math.min(from + MAX_DELETE_OBJECTS, objectPaths.size()));
+            try {
+                sendDelete(chunk);
+            } catch (Exception ex) {
+                throw new RuntimeException("Could not delete " + chunk.size() + " files", ex);
+            }
+        }
+    }
+
+    /** An entry of a bucket listing: an object, or a folder to list in turn. */
+    public static final class StoredObject {
+        private final String objectPath;
+        private final boolean folder;
+        private final Instant createdAt;
+
+        StoredObject(String objectPath, boolean folder, Instant createdAt) {
+            this.objectPath = objectPath;
+            this.folder = folder;
+            this.createdAt = createdAt;
+        }
+
+        public String getObjectPath() { return objectPath; }
+        public boolean isFolder() { return folder; }
+        public Instant getCreatedAt() { return createdAt; }
+    }
+
+    /**
+     * One page of the objects and folders directly inside folder ("" for the
+     * bucket root), in name order. Object paths are relative to the bucket.
+     */
+    public List<StoredObject> listObjects(String folder, int limit, int offset) {
+        try {
+            ObjectNode body = objectMapper.createObjectNode()
+                    .put("prefix", folder)
+                    .put("limit", limit)
+                    .put("offset", offset);
+            body.putObject("sortBy").put("column", "name").put("order", "asc");
+            HttpRequest.Builder request = HttpRequest.newBuilder()
+                    .uri(URI.create(buildBaseUrl() + "/storage/v1/object/list/" + bucket))
                     .header("Authorization", "Bearer " + serviceKey)
                     .header("Content-Type", "application/json")
-                    .method("DELETE", HttpRequest.BodyPublishers.ofString("{\"prefixes\":[\"" + escapeJson(objectPath) + "\"]}"))
-                    .build();
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
 
-            HttpResponse<String> response = sendStringRequest(request);
+            HttpResponse<String> response = send("list", request, HttpResponse.BodyHandlers.ofString());
             if (!isSuccess(response.statusCode())) {
-                throw new RuntimeException("Supabase delete failed with status " + response.statusCode() + ": " + response.body());
+                throw new RuntimeException("Supabase list failed with status " + response.statusCode() + ": " + response.body());
+            }
+            List<StoredObject> objects = new ArrayList<>();
+            String parent = folder.isEmpty() ? "" : folder + "/";
+            for (JsonNode entry : objectMapper.readTree(response.body())) {
+                // Folders are listed with a null id
+                boolean isFolder = entry.path("id").isNull() || entry.path("id").isMissingNode();
+                String createdAt = entry.path("created_at").asText(null);
+                objects.add(new StoredObject(parent + entry.path("name").asText(), isFolder,
+                        createdAt != null ? OffsetDateTime.parse(createdAt).toInstant() : null));
             }
-            logger.info("File deleted from Supabase: {}", objectPath);
+            return objects;
         } catch (Exception ex) {
-            logger.error("Could not delete file: " + filePath, ex);
-            throw new RuntimeException("Could not delete file: " + filePath, ex);
+            throw new RuntimeException("Could not list folder: " + folder, ex);
         }
     }
 
@@ -113,71 +306,215 @@ public class FileStorageService {
      * Read file content as bytes
      */
     public byte[] readFile(String filePath) {
+        return readFile(filePath, null);
+    }
+
+    /**
+     * Read file content stored with the given codec, decoded
+     */
+    public byte[] readFile(String filePath, String codecName) {
         try {
             if (filePath != null && filePath.startsWith("data:")) {
-                int commaIndex = filePath.indexOf(',');
-                String base64 = commaIndex >= 0 ? filePath.substring(commaIndex + 1) : filePath;
-                byte[] bytes = Base64.getDecoder().decode(base64);
-                ByteArrayResource resource = new ByteArrayResource(bytes != null ? bytes : new byte[0]);
-                return resource.getByteArray();
+                return decodeDataUrl(filePath);
             }
 
-                String objectPath = extractObjectPath(filePath);
-            HttpRequest request = HttpRequest.newBuilder()
+            String objectPath = extractObjectPath(filePath);
+            HttpRequest.Builder request = HttpRequest.newBuilder()
                     .uri(URI.create(buildObjectReadUrl(objectPath)))
                     .header("Authorization", "Bearer " + serviceKey)
-                    .GET()
-                    .build();
+                    .GET();
 
-            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            HttpResponse<byte[]> response = send("read", request, HttpResponse.BodyHandlers.ofByteArray());
             if (!isSuccess(response.statusCode())) {
                 String errorBody = new String(response.body(), StandardCharsets.UTF_8);
                 throw new RuntimeException("Supabase read failed with status " + response.statusCode() + ": " + errorBody);
             }
 
             byte[] bytes = response.body();
+            countBytes("read", bytes != null ? bytes.length : 0);
             ByteArrayResource resource = new ByteArrayResource(bytes != null ? bytes : new byte[0]);
-            return resource.getByteArray();
+            ContentCodec storedWith = ContentCodec.forName(codecName);
+            if (storedWith == ContentCodec.IDENTITY) {
+                return resource.getByteArray();
+            }
+            try (InputStream decoded = storedWith.decode(resource.getInputStream())) {
+                return decoded.readAllBytes();
+            }
         } catch (Exception ex) {
             throw new RuntimeException("Could not read file: " + filePath, ex);
         }
     }
 
     /**
-     * Update file content (overwrite existing file)
+     * Open a stream over a stored file without buffering it; the caller must
+     * close the stream
      */
-    public void updateFileContent(String filePath, String content) {
+    public InputStream openFile(String filePath) {
+        return openFile(filePath, null);
+    }
+
+    /**
+     * Open a stream over file content stored with the given codec, decoding
+     * as it is read; the caller must close the stream
+     */
+    public InputStream openFile(String filePath, String codecName) {
         try {
             if (filePath != null && filePath.startsWith("data:")) {
-                logger.info("Skipping Supabase update for inline data URL: {}", filePath);
-                return;
+                return new ByteArrayInputStream(decodeDataUrl(filePath));
             }
 
             String objectPath = extractObjectPath(filePath);
-            uploadBytes(objectPath, content.getBytes(StandardCharsets.UTF_8));
-            logger.info("File content updated in Supabase: {}", objectPath);
+            HttpRequest.Builder request = HttpRequest.newBuilder()
+                    .uri(URI.create(buildObjectReadUrl(objectPath)))
+                    .header("Authorization", "Bearer " + serviceKey)
+                    .GET();
+
+            // Timed until the headers arrive; the body is streamed by the caller
+            HttpResponse<InputStream> response = send("read", request, HttpResponse.BodyHandlers.ofInputStream());
+            if (!isSuccess(response.statusCode())) {
+                try (InputStream body = response.body()) {
+                    String errorBody = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                    throw new RuntimeException("Supabase read failed with status " + response.statusCode() + ": " + errorBody);
+                }
+            }
+            response.headers().firstValueAsLong("content-length").ifPresent(length -> countBytes("read", length));
+            InputStream body = response.body();
+            try {
+                return ContentCodec.forName(codecName).decode(body);
+            } catch (IOException | RuntimeException e) {
+                body.close();
+                throw e;
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException("Could not read file: " + filePath, ex);
+        }
+    }
+
+    /**
+     * Update file content. The object is overwritten when the content is
+     * encoded as before; otherwise the content goes to a new object, so a
+     * reader still holding the old path and codec never sees the new
+     * encoding, and the caller records the new path and deletes the old one.
+     */
+    public StoredContent updateFileContent(String filePath, String codecName, String fileName, String fileType,
+            String content) {
+        try {
+            if (filePath != null && filePath.startsWith("data:")) {
+                logger.debug("Skipping Supabase update for inline data URL: {}", LogValues.dataUrl(filePath));
+                return new StoredContent(filePath, codecName);
+            }
+
+            Encoded encoded = compress(fileName, fileType, content.getBytes(StandardCharsets.UTF_8));
+            if (Objects.equals(encoded.codec.getName(), codecName)) {
+                String objectPath = extractObjectPath(filePath);
+                uploadBytes(objectPath, encoded.bytes);
+                logger.debug("File content updated in Supabase: {}", objectPath);
+                return new StoredContent(filePath, codecName);
+            }
+            String objectPath = generateUniqueFileName(fileName != null ? fileName : "file")
+                    + encoded.codec.getExtension();
+            uploadBytes(objectPath, encoded.bytes);
+            logger.debug("File content moved to {} ({})", objectPath, encoded.codec);
+            return new StoredContent(getStoredFilePath(objectPath), encoded.codec.getName());
         } catch (Exception ex) {
             throw new RuntimeException("Could not update file content: " + filePath, ex);
         }
     }
 
+    private StoredContent storeUnique(String fileName, String fileType, byte[] bytes)
+            throws IOException, InterruptedException {
+        Encoded encoded = compress(fileName, fileType, bytes);
+        String objectPath = generateUniqueFileName(fileName) + encoded.codec.getExtension();
+        uploadBytes(objectPath, encoded.bytes);
+        return new StoredContent(getStoredFilePath(objectPath), encoded.codec.getName());
+    }
+
+    /** Compress text of at least the minimum size, unless it would not get smaller by enough to matter. */
+    private Encoded compress(String fileName, String fileType, byte[] bytes) {
+        if (compressionEnabled && bytes.length >= compressionMinSize.toBytes()
+                && FileTypes.isText(fileName, fileType)) {
+            byte[] compressed = codec.encode(bytes);
+            if (compressed.length <= bytes.length * compressionMaxRatio) {
+                meterRegistry.counter("storage.compression.bytes", "form", "original").increment(bytes.length);
+                meterRegistry.counter("storage.compression.bytes", "form", "compressed").increment(compressed.length);
+                return new Encoded(codec, compressed);
+            }
+        }
+        return new Encoded(ContentCodec.IDENTITY, bytes);
+    }
+
+    private void sendDelete(List<String> objectPaths) throws IOException, InterruptedException {
+        StringBuilder body = new StringBuilder("{\"prefixes\":[");
+        for (int i = 0; i < objectPaths.size(); i++) {
+            body.append(i > 0 ? ",\"" : "\"").append(escapeJson(objectPaths.get(i))).append('"');
+        }
+        body.append("]}");
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(buildObjectDeleteUrl()))
+                .header("Authorization", "Bearer " + serviceKey)
+                .header("Content-Type", "application/json")
+                .method("DELETE", HttpRequest.BodyPublishers.ofString(body.toString()));
+
+        HttpResponse<String> response = send("delete", request, HttpResponse.BodyHandlers.ofString());
+        if (!isSuccess(response.statusCode())) {
+            throw new RuntimeException("Supabase delete failed with status " + response.statusCode() + ": " + response.body());
+        }
+    }
+
     private void uploadBytes(String fileName, byte[] bytes) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
+        HttpRequest.Builder request = HttpRequest.newBuilder()
                 .uri(URI.create(buildObjectUploadUrl(fileName)))
                 .header("Authorization", "Bearer " + serviceKey)
                 .header("Content-Type", "application/octet-stream")
                 .header("x-upsert", "true")
-                .POST(HttpRequest.BodyPublishers.ofByteArray(bytes))
-                .build();
+                .POST(HttpRequest.BodyPublishers.ofByteArray(bytes));
 
-        HttpResponse<String> response = sendStringRequest(request);
+        HttpResponse<String> response = send("upload", request, HttpResponse.BodyHandlers.ofString());
         if (!isSuccess(response.statusCode())) {
             throw new RuntimeException("Supabase upload failed with status " + response.statusCode() + ": " + response.body());
         }
+        countBytes("upload", bytes.length);
     }
 
-    private HttpResponse<String> sendStringRequest(HttpRequest request) throws IOException, InterruptedException {
-        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Send a storage request in a client span, timing it as storage.requests
+     * tagged with the operation and an outcome derived from the status code
+     */
+    private <T> HttpResponse<T> send(String operation, HttpRequest.Builder builder, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        Span span = tracer.spanBuilder("storage " + operation).setSpanKind(SpanKind.CLIENT).startSpan();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try (Scope ignored = span.makeCurrent()) {
+            // Carry the trace context to the storage API as a traceparent header
+            openTelemetry.getPropagators().getTextMapPropagator().inject(Context.current(), builder, HttpRequest.Builder::header);
+            HttpRequest request = builder.build();
+            span.setAttribute("http.method", request.method());
+            span.setAttribute("storage.operation", operation);
+            HttpResponse<T> response = httpClient.send(request, handler);
+            span.setAttribute("http.status_code", response.statusCode());
+            outcome = isSuccess(response.statusCode()) ? "success"
+                    : response.statusCode() < 500 ? "client_error" : "server_error";
+            if (!isSuccess(response.statusCode())) {
+                span.setStatus(StatusCode.ERROR);
+            }
+            return response;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        } finally {
+            span.end();
+            RequestTimings.recordStorageCall(sample.stop(Timer.builder("storage.requests")
+                    .description("Supabase storage API calls")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)));
+        }
+    }
+
+    private void countBytes(String operation, long bytes) {
+        meterRegistry.counter("storage.bytes", "operation", operation).increment(bytes);
     }
 
     private boolean isSuccess(int statusCode) {
@@ -204,7 +541,7 @@ public class FileStorageService {
         return bucket + "/" + fileName;
     }
 
-    private String extractObjectPath(String filePath) {
+    String extractObjectPath(String filePath) {
         if (filePath == null || filePath.isBlank()) {
             throw new RuntimeException("File path is required");
         }
@@ -219,6 +556,23 @@ public class FileStorageService {
         return cleaned.startsWith("/") ? cleaned.substring(1) : cleaned;
     }
 
+    /**
+     * The forms a row may store for this object path; extractObjectPath
+     * maps each of them back to it
+     */
+    List<String> pathForms(String objectPath) {
+        return List.of(getStoredFilePath(objectPath), "/" + bucket + "/" + objectPath, objectPath, "/" + objectPath);
+    }
+
+    /**
+     * Decode the base64 payload of a data URL, or of the whole string when it
+     * has no "data:...," header
+     */
+    static byte[] decodeDataUrl(String dataUrl) {
+        int commaIndex = dataUrl.indexOf(',');
+        return Base64.getDecoder().decode(commaIndex >= 0 ? dataUrl.substring(commaIndex + 1) : dataUrl);
+    }
+
     private String escapeJson(String value) {
         return value.replace("\\", "\\\\").replace("\"", "\\\"");
     }
@@ -227,7 +581,7 @@ public class FileStorageService {
         return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
     }
 
-    private String encodeObjectPath(String objectPath) {
+    String encodeObjectPath(String objectPath) {
         String[] parts = objectPath.split("/");
         StringBuilder builder = new StringBuilder();
         for (int i = 0; i < parts.length; i++) {
@@ -244,14 +598,13 @@ public class FileStorageService {
             String objectPath = extractObjectPath(filePath);
             String url = buildBaseUrl() + "/storage/v1/object/sign/" + bucket + "/" + encodeObjectPath(objectPath);
 
-            HttpRequest request = HttpRequest.newBuilder()
+            HttpRequest.Builder request = HttpRequest.newBuilder()
                     .uri(URI.create(url))
                     .header("Authorization", "Bearer " + serviceKey)
                     .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString("{\"expiresIn\":3600}"))
-                    .build();
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"expiresIn\":3600}"));
 
-            HttpResponse<String> response = sendStringRequest(request);
+            HttpResponse<String> response = send("sign", request, HttpResponse.BodyHandlers.ofString());
             if (!isSuccess(response.statusCode())) {
                 throw new RuntimeException("Failed to get signed URL: " + response.body());
             }
@@ -292,12 +645,11 @@ public class FileStorageService {
     public long getFileSize(String filePath) {
         try {
             String signed = getSignedUrl(filePath);
-            HttpRequest request = HttpRequest.newBuilder()
+            HttpRequest.Builder request = HttpRequest.newBuilder()
                     .uri(URI.create(signed))
-                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
-                    .build();
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody());
 
-            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            HttpResponse<Void> response = send("head", request, HttpResponse.BodyHandlers.discarding());
             if (!isSuccess(response.statusCode())) {
                 throw new RuntimeException("Failed to fetch metadata, status=" + response.statusCode());
             }
@@ -313,6 +665,21 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Size of the content as stored with the given codec, decoded; compressed
+     * content has to be read through to know it
+     */
+    public long getContentSize(String filePath, String codecName) {
+        if (codecName == null) {
+            return getFileSize(filePath);
+        }
+        try (InputStream in = openFile(filePath, codecName)) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not get file size for: " + filePath, ex);
+        }
+    }
+
     /**
      * Generate a unique file name to avoid conflicts
      */
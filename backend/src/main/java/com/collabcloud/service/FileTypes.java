@@ -0,0 +1,37 @@
+package com.collabcloud.service;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Content-type helpers shared by services that treat text files specially.
+ */
+public final class FileTypes {
+
+    // Mirrors isTextFile() in the frontend helpers, plus a few common extras
+    private static final Set<String> TEXT_EXTENSIONS = Set.of(
+            "txt", "md", "js", "ts", "jsx", "tsx", "py", "java", "cpp", "c", "h", "html", "css", "json",
+            "xml", "yml", "yaml", "csv", "sql", "sh", "properties");
+
+    private FileTypes() {
+    }
+
+    public static boolean isText(String fileName, String fileType) {
+        if (fileType != null) {
+            String type = fileType.toLowerCase(Locale.ROOT);
+            if (type.startsWith("text/") || type.contains("json") || type.contains("xml")
+                    || type.contains("javascript") || type.contains("typescript")) {
+                return true;
+            }
+        }
+        return TEXT_EXTENSIONS.contains(extension(fileName));
+    }
+
+    public static String extension(String fileName) {
+        if (fileName == null) {
+            return "";
+        }
+        int lastDotIndex = fileName.lastIndexOf('.');
+        return lastDotIndex >= 0 ? fileName.substring(lastDotIndex + 1).toLowerCase(Locale.ROOT) : "";
+    }
+}
@@ -0,0 +1,167 @@
+package com.collabcloud.service;
+
+import java.util.Arrays;
+
+/**
+ * Myers' O(ND) line diff in linear space: common prefix and suffix are
+ * trimmed, then the middle snake of each remaining region is found by
+ * searching from both ends and the halves are solved recursively. Lines are
+ * compared as interned ids, and the result is one flag per line marking it
+ * deleted (old side) or inserted (new side).
+ *
+ * Work is bounded by a budget of snake-search steps; once it is spent, any
+ * remaining region is reported as a plain replacement and the diff is
+ * flagged as not minimal.
+ */
+final class LineDiff {
+
+    private final int[] a;
+    private final int[] b;
+    private final boolean[] deleted;
+    private final boolean[] inserted;
+    private long budget;
+    private boolean exact = true;
+
+    private LineDiff(int[] a, int[] b, long budget) {
+        this.a = a;
+        this.b = b;
+        this.deleted = new boolean[a.length];
+        this.inserted = new boolean[b.length];
+        this.budget = budget;
+    }
+
+    static LineDiff compute(int[] a, int[] b, long budget) {
+        LineDiff diff = new LineDiff(a, b, budget);
+        diff.compare(0, a.length, 0, b.length);
+        return diff;
+    }
+
+    boolean isDeleted(int i) {
+        return deleted[i];
+    }
+
+    boolean isInserted(int j) {
+        return inserted[j];
+    }
+
+    boolean isExact() {
+        return exact;
+    }
+
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo++;
+            bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi--;
+            bHi--;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            replace(aLo, aHi, bLo, bHi);
+            return;
+        }
+        int[] split = budget > 0 ? middleSnake(aLo, aHi, bLo, bHi) : null;
+        if (split == null) {
+            if (budget <= 0) {
+                exact = false;
+            }
+            replace(aLo, aHi, bLo, bHi);
+            return;
+        }
+        compare(aLo, split[0], bLo, split[1]);
+        compare(split[0], aHi, split[1], bHi);
+    }
+
+    private void replace(int aLo, int aHi, int bLo, int bHi) {
+        for (int i = aLo; i < aHi; i++) {
+            deleted[i] = true;
+        }
+        for (int j = bLo; j < bHi; j++) {
+            inserted[j] = true;
+        }
+    }
+
+    /**
+     * Returns a split point (x, y) on an optimal edit path through the
+     * region, or null when the regions share nothing or the budget ran out.
+     * The search arrays are released before the caller recurses.
+     */
+    private int[] middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int length = 2 * maxD + 2;
+        int[] forward = new int[length];
+        int[] reverse = new int[length];
+        Arrays.fill(forward, -1);
+        Arrays.fill(reverse, -1);
+        forward[offset + 1] = 0;
+        reverse[offset + 1] = 0;
+        int delta = n - m;
+        boolean oddDelta = (delta & 1) != 0;
+        int kForwardStart = 0;
+        int kForwardEnd = 0;
+        int kReverseStart = 0;
+        int kReverseEnd = 0;
+
+        for (int d = 0; d < maxD; d++) {
+            if (--budget <= 0) {
+                return null;
+            }
+            for (int k = -d + kForwardStart; k <= d - kForwardEnd; k += 2) {
+                int kOffset = offset + k;
+                int x = (k == -d || (k != d && forward[kOffset - 1] < forward[kOffset + 1]))
+                        ? forward[kOffset + 1]
+                        : forward[kOffset - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                    x++;
+                    y++;
+                }
+                forward[kOffset] = x;
+                if (x > n) {
+                    kForwardEnd += 2; // Ran off the right edge
+                } else if (y > m) {
+                    kForwardStart += 2; // Ran off the bottom edge
+                } else if (oddDelta) {
+                    int reverseOffset = offset + delta - k;
+                    if (reverseOffset >= 0 && reverseOffset < length && reverse[reverseOffset] != -1
+                            && x >= n - reverse[reverseOffset]) {
+                        return new int[] { aLo + x, bLo + y };
+                    }
+                }
+            }
+            budget -= d;
+            for (int k = -d + kReverseStart; k <= d - kReverseEnd; k += 2) {
+                int kOffset = offset + k;
+                int x = (k == -d || (k != d && reverse[kOffset - 1] < reverse[kOffset + 1]))
+                        ? reverse[kOffset + 1]
+                        : reverse[kOffset - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[aHi - x - 1] == b[bHi - y - 1]) {
+                    x++;
+                    y++;
+                }
+                reverse[kOffset] = x;
+                if (x > n) {
+                    kReverseEnd += 2;
+                } else if (y > m) {
+                    kReverseStart += 2;
+                } else if (!oddDelta) {
+                    int forwardOffset = offset + delta - k;
+                    if (forwardOffset >= 0 && forwardOffset < length && forward[forwardOffset] != -1) {
+                        int forwardX = forward[forwardOffset];
+                        int forwardY = offset + forwardX - forwardOffset;
+                        if (forwardX >= n - x) {
+                            return new int[] { aLo + forwardX, bLo + forwardY };
+                        }
+                    }
+                }
+            }
+            budget -= d;
+        }
+        return null;
+    }
+}
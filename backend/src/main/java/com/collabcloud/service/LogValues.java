@@ -0,0 +1,87 @@
+package com.collabcloud.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Makes request values safe to log: data URLs are reduced to their media
+ * type and length, credentials are redacted and long strings truncated, so
+ * a log line never carries a file body or a secret.
+ */
+public final class LogValues {
+
+    public static final int MAX_STRING = 200;
+
+    private static final int MAX_ITEMS = 20;
+
+    private LogValues() {
+    }
+
+    /**
+     * The string cut to max characters, noting how many were dropped.
+     */
+    public static String truncate(String value, int max) {
+        if (value == null || value.length() <= max) {
+            return value;
+        }
+        return value.substring(0, max) + "...(" + (value.length() - max) + " more chars)";
+    }
+
+    /**
+     * A data URL as its header and length ("data:image/png;base64,[48213 chars]");
+     * any other value is truncated.
+     */
+    public static String dataUrl(String value) {
+        if (value == null || !value.startsWith("data:")) {
+            return truncate(value, MAX_STRING);
+        }
+        int comma = value.indexOf(',');
+        String header = comma < 0 ? "data:" : truncate(value.substring(0, comma + 1), 100);
+        return header + "[" + (value.length() - header.length()) + " chars]";
+    }
+
+    /**
+     * A loggable copy of a JSON payload: credential fields redacted, data URLs
+     * summarized, strings truncated and collections capped at 20 items.
+     */
+    public static Object payload(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (copy.size() == MAX_ITEMS) {
+                    copy.put("...", ((Map<?, ?>) value).size() - MAX_ITEMS + " more");
+                    break;
+                }
+                String key = String.valueOf(entry.getKey());
+                copy.put(key, isSecret(key) ? "[redacted]" : payload(entry.getValue()));
+            }
+            return copy;
+        }
+        if (value instanceof Collection) {
+            Collection<?> items = (Collection<?>) value;
+            List<Object> copy = new ArrayList<>(Math.min(items.size(), MAX_ITEMS + 1));
+            for (Object item : items) {
+                if (copy.size() == MAX_ITEMS) {
+                    copy.add(items.size() - MAX_ITEMS + " more");
+                    break;
+                }
+                copy.add(payload(item));
+            }
+            return copy;
+        }
+        if (value instanceof String) {
+            return dataUrl((String) value);
+        }
+        return value;
+    }
+
+    private static boolean isSecret(String key) {
+        String lower = key.toLowerCase(Locale.ROOT);
+        return lower.contains("password") || lower.contains("token") || lower.contains("secret")
+                || lower.equals("authorization") || lower.endsWith("key");
+    }
+}
@@ -0,0 +1,486 @@
+package com.collabcloud.service;
+
+import com.collabcloud.dto.NotificationDTO;
+import com.collabcloud.entity.CommentEntity;
+import com.collabcloud.entity.FileEntity;
+import com.collabcloud.entity.NotificationEntity;
+import com.collabcloud.entity.OutboxEventEntity;
+import com.collabcloud.entity.ProjectEntity;
+import com.collabcloud.entity.UserEntity;
+import com.collabcloud.repository.ProjectionRepository;
+import com.collabcloud.repository.Specs;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Notifications for project members. Comments, file updates and new
+ * collaborators are recorded as outbox events by the request that made
+ * them; the outbox relay hands them back here in batches, and each batch's
+ * notifications are written with one JDBC batch plus one counter update per
+ * recipient.
+ *
+ * A comment notifies every member but its author, as a MENTION for those it
+ * @-mentions (by email, or by a name without spaces) and a COMMENT for the
+ * rest. A file update notifies every member but the editor, at most once
+ * until they read it. The unread count is kept in notification_counts and
+ * cached for app.notifications.unread-cache.ttl.
+ */
+@Service
+public class NotificationService implements OutboxHandler {
+
+    static final String COMMENT_CREATED = "COMMENT_CREATED";
+    static final String FILE_UPDATED = "FILE_UPDATED";
+    static final String COLLABORATOR_ADDED = "COLLABORATOR_ADDED";
+
+    // @someone@example.com or @someone; not the @ inside an email address
+    private static final Pattern MENTION = Pattern
+            .compile("(?<![\\w@.])@([\\w.+-]+@[\\w-]+(?:\\.[\\w-]+)+|\\w(?:[\\w.-]*\\w)?)");
+    private static final int MAX_MENTIONS = 20;
+    private static final int EXCERPT_LENGTH = 140;
+
+    private static final String MEMBERS_SQL = "SELECT project_id, creator_id FROM projects WHERE project_id IN (:ids) "
+            + "UNION SELECT project_id, user_id FROM project_collaborators WHERE project_id IN (:ids)";
+    private static final String MENTIONED_SQL = "SELECT user_id, lower(email), lower(name) FROM users "
+            + "WHERE lower(email) IN (:tokens) OR lower(name) IN (:tokens)";
+    // One row per array element. Skips recipients and projects deleted since the event, and a coalesced type
+    // the recipient has unread; returns the recipient of each row actually inserted
+    private static final String INSERT_SQL = "INSERT INTO notifications "
+            + "(user_id, project_id, actor_id, type, ref_id, message, created_at) "
+            + "SELECT u.user_id, p.project_id, a.user_id, d.type, d.ref_id, d.message, d.created_at "
+            + "FROM unnest(?, ?, ?, ?, ?, ?, ?, ?) "
+            + "AS d (user_id, project_id, actor_id, type, ref_id, message, created_at, coalesced) "
+            + "JOIN users u ON u.user_id = d.user_id JOIN projects p ON p.project_id = d.project_id "
+            + "LEFT JOIN users a ON a.user_id = d.actor_id "
+            + "WHERE NOT (d.coalesced AND EXISTS (SELECT 1 FROM notifications n "
+            + "WHERE n.user_id = u.user_id AND n.type = d.type AND n.ref_id = d.ref_id AND n.read_at IS NULL)) "
+            + "RETURNING user_id";
+    private static final String ADD_UNREAD_SQL = "INSERT INTO notification_counts (user_id, unread) VALUES (?, ?) "
+            + "ON CONFLICT (user_id) DO UPDATE SET unread = notification_counts.unread + EXCLUDED.unread";
+    private static final String SUBTRACT_UNREAD_SQL = "UPDATE notification_counts "
+            + "SET unread = GREATEST(unread - ?, 0) WHERE user_id = ?";
+    private static final String RECOUNT_UNREAD_SQL = "UPDATE notification_counts SET unread = "
+            + "(SELECT count(*) FROM notifications WHERE user_id = ? AND read_at IS NULL) WHERE user_id = ?";
+    // Removes the project's notifications and takes its unread ones off each recipient's count
+    private static final String REMOVE_PROJECT_SQL = "WITH removed AS "
+            + "(DELETE FROM notifications WHERE project_id = ? RETURNING user_id, read_at) "
+            + "UPDATE notification_counts c SET unread = GREATEST(c.unread - r.unread, 0) "
+            + "FROM (SELECT user_id, count(*) AS unread FROM removed WHERE read_at IS NULL GROUP BY user_id) r "
+            + "WHERE c.user_id = r.user_id RETURNING c.user_id";
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private ProjectionRepository projectionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.notifications.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.notifications.unread-cache.max-size:100000}")
+    private long unreadCacheMaxSize;
+
+    @Value("${app.notifications.unread-cache.ttl:PT30S}")
+    private Duration unreadCacheTtl;
+
+    private Cache<Long, Long> unreadCounts;
+
+    /** One notification to write. */
+    private static final class Delivery {
+        private final long userId;
+        private final long projectId;
+        private final Long actorId;
+        private final String type;
+        private final Long refId;
+        private final String message;
+        private final LocalDateTime createdAt;
+
+        Delivery(long userId, long projectId, Long actorId, String type, Long refId, String message,
+                LocalDateTime createdAt) {
+            this.userId = userId;
+            this.projectId = projectId;
+            this.actorId = actorId;
+            this.type = type;
+            this.refId = refId;
+            this.message = message;
+            this.createdAt = createdAt;
+        }
+
+        boolean coalesced() {
+            return NotificationEntity.FILE_UPDATED.equals(type);
+        }
+    }
+
+    @PostConstruct
+    void createUnreadCache() {
+        unreadCounts = Caffeine.newBuilder()
+                .maximumSize(unreadCacheMaxSize)
+                .expireAfterWrite(unreadCacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, unreadCounts, "notification-unread");
+    }
+
+    public void commentCreated(CommentEntity comment) {
+        ProjectEntity project = comment.getProject() != null ? comment.getProject()
+                : comment.getFile() != null ? comment.getFile().getProject() : null;
+        if (project == null) {
+            return;
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("projectId", project.getProjectId());
+        payload.put("commentId", comment.getCommentId());
+        payload.put("actorId", comment.getUser() != null ? comment.getUser().getUserId() : null);
+        payload.put("excerpt", excerpt(comment.getContent()));
+        payload.put("mentions", mentions(comment.getContent()));
+        outboxService.record(COMMENT_CREATED, payload);
+    }
+
+    public void fileUpdated(FileEntity file, UserEntity actor) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("projectId", file.getProject().getProjectId());
+        payload.put("fileId", file.getFileId());
+        payload.put("actorId", actor != null ? actor.getUserId() : null);
+        payload.put("fileName", file.getFileName());
+        outboxService.record(FILE_UPDATED, payload);
+    }
+
+    public void collaboratorAdded(ProjectEntity project, UserEntity user, Long actorId) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("projectId", project.getProjectId());
+        payload.put("userId", user.getUserId());
+        payload.put("actorId", actorId);
+        payload.put("title", project.getTitle());
+        outboxService.record(COLLABORATOR_ADDED, payload);
+    }
+
+    /** The distinct @-mentions in text, lower-cased. */
+    static Set<String> mentions(String text) {
+        Set<String> mentions = new LinkedHashSet<>();
+        if (text == null) {
+            return mentions;
+        }
+        Matcher matcher = MENTION.matcher(text);
+        while (matcher.find() && mentions.size() < MAX_MENTIONS) {
+            mentions.add(matcher.group(1).toLowerCase());
+        }
+        return mentions;
+    }
+
+    private static String excerpt(String text) {
+        if (text == null) {
+            return null;
+        }
+        String flat = text.strip().replaceAll("\\s+", " ");
+        return flat.length() <= EXCERPT_LENGTH ? flat : flat.substring(0, EXCERPT_LENGTH - 1) + "…";
+    }
+
+    @Override
+    public Set<String> eventTypes() {
+        return Set.of(COMMENT_CREATED, FILE_UPDATED, COLLABORATOR_ADDED);
+    }
+
+    @Override
+    public void handle(List<OutboxEventEntity> events) {
+        Map<OutboxEventEntity, JsonNode> payloads = new LinkedHashMap<>();
+        Set<Long> projectIds = new HashSet<>();
+        Set<String> tokens = new HashSet<>();
+        for (OutboxEventEntity event : events) {
+            JsonNode payload = parse(event);
+            payloads.put(event, payload);
+            projectIds.add(payload.path("projectId").asLong());
+            payload.path("mentions").forEach(token -> tokens.add(token.asText()));
+        }
+        Map<Long, Set<Long>> members = members(projectIds);
+        Map<String, Set<Long>> mentioned = resolveMentions(tokens);
+
+        // Repeats of a coalesced type within the batch collapse into the latest
+        Map<String, Delivery> deliveries = new LinkedHashMap<>();
+        payloads.forEach((event, payload) -> {
+            for (Delivery delivery : deliveries(event, payload, members, mentioned)) {
+                String key = delivery.coalesced()
+                        ? delivery.userId + ":" + delivery.type + ":" + delivery.refId
+                        : "event:" + event.getEventId() + ":" + delivery.userId;
+                deliveries.remove(key);
+                deliveries.put(key, delivery);
+            }
+        });
+        if (!deliveries.isEmpty()) {
+            write(deliveries.values());
+        }
+    }
+
+    private List<Delivery> deliveries(OutboxEventEntity event, JsonNode payload, Map<Long, Set<Long>> members,
+            Map<String, Set<Long>> mentioned) {
+        long projectId = payload.path("projectId").asLong();
+        Long actorId = payload.hasNonNull("actorId") ? payload.get("actorId").asLong() : null;
+        LocalDateTime at = event.getCreatedAt();
+        List<Delivery> deliveries = new ArrayList<>();
+        switch (event.getEventType()) {
+            case COMMENT_CREATED: {
+                Set<Long> mentionedIds = new HashSet<>();
+                payload.path("mentions").forEach(token -> mentionedIds.addAll(
+                        mentioned.getOrDefault(token.asText(), Set.of())));
+                Long commentId = payload.path("commentId").asLong();
+                String excerpt = payload.path("excerpt").asText(null);
+                for (Long member : members.getOrDefault(projectId, Set.of())) {
+                    if (!member.equals(actorId)) {
+                        String type = mentionedIds.contains(member) ? NotificationEntity.MENTION
+                                : NotificationEntity.COMMENT;
+                        deliveries.add(new Delivery(member, projectId, actorId, type, commentId, excerpt, at));
+                    }
+                }
+                break;
+            }
+            case FILE_UPDATED: {
+                Long fileId = payload.path("fileId").asLong();
+                String fileName = payload.path("fileName").asText(null);
+                for (Long member : members.getOrDefault(projectId, Set.of())) {
+                    if (!member.equals(actorId)) {
+                        deliveries.add(new Delivery(member, projectId, actorId, NotificationEntity.FILE_UPDATED,
+                                fileId, fileName, at));
+                    }
+                }
+                break;
+            }
+            case COLLABORATOR_ADDED: {
+                long userId = payload.path("userId").asLong();
+                if (actorId == null || userId != actorId) {
+                    deliveries.add(new Delivery(userId, projectId, actorId, NotificationEntity.COLLABORATOR_ADDED,
+                            projectId, payload.path("title").asText(null), at));
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Not a notification event: " + event.getEventType());
+        }
+        return deliveries;
+    }
+
+    /**
+     * Insert the notifications batchSize rows to a statement, counting the
+     * recipients of the rows each statement reports inserted, then add those
+     * to each recipient's count in one statement per recipient, in id order
+     * so concurrent relays lock counters alike.
+     */
+    private void write(Collection<Delivery> deliveries) {
+        Map<Long, Long> unread = new TreeMap<>();
+        List<Delivery> chunk = new ArrayList<>(Math.min(deliveries.size(), batchSize));
+        for (Delivery delivery : deliveries) {
+            chunk.add(delivery);
+            if (chunk.size() == batchSize) {
+                insert(chunk, unread);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insert(chunk, unread);
+        }
+        if (unread.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(ADD_UNREAD_SQL, unread.entrySet(), batchSize, (statement, entry) -> {
+            statement.setLong(1, entry.getKey());
+            statement.setLong(2, entry.getValue());
+        });
+        evictAfterCommit(unread.keySet());
+    }
+
+    private void insert(List<Delivery> chunk, Map<Long, Long> unread) {
+        int size = chunk.size();
+        Long[] userIds = new Long[size];
+        Long[] projectIds = new Long[size];
+        Long[] actorIds = new Long[size];
+        String[] types = new String[size];
+        Long[] refIds = new Long[size];
+        String[] messages = new String[size];
+        Timestamp[] createdAt = new Timestamp[size];
+        Boolean[] coalesced = new Boolean[size];
+        for (int i = 0; i < size; i++) {
+            Delivery delivery = chunk.get(i);
+            userIds[i] = delivery.userId;
+            projectIds[i] = delivery.projectId;
+            actorIds[i] = delivery.actorId;
+            types[i] = delivery.type;
+            refIds[i] = delivery.refId;
+            messages[i] = delivery.message;
+            createdAt[i] = Timestamp.valueOf(delivery.createdAt);
+            coalesced[i] = delivery.coalesced();
+        }
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_SQL);
+            statement.setArray(1, connection.createArrayOf("int8", userIds));
+            statement.setArray(2, connection.createArrayOf("int8", projectIds));
+            statement.setArray(3, connection.createArrayOf("int8", actorIds));
+            statement.setArray(4, connection.createArrayOf("varchar", types));
+            statement.setArray(5, connection.createArrayOf("int8", refIds));
+            statement.setArray(6, connection.createArrayOf("text", messages));
+            statement.setArray(7, connection.createArrayOf("timestamp", createdAt));
+            statement.setArray(8, connection.createArrayOf("bool", coalesced));
+            return statement;
+        }, (RowCallbackHandler) row -> unread.merge(row.getLong(1), 1L, Long::sum));
+    }
+
+    private Map<Long, Set<Long>> members(Set<Long> projectIds) {
+        Map<Long, Set<Long>> members = new HashMap<>();
+        if (!projectIds.isEmpty()) {
+            namedParameterJdbcTemplate.query(MEMBERS_SQL, Map.of("ids", projectIds),
+                    (RowCallbackHandler) row -> members.computeIfAbsent(row.getLong(1), id -> new LinkedHashSet<>())
+                            .add(row.getLong(2)));
+        }
+        return members;
+    }
+
+    /** User ids by the mention token that names them. */
+    private Map<String, Set<Long>> resolveMentions(Set<String> tokens) {
+        Map<String, Set<Long>> users = new HashMap<>();
+        if (!tokens.isEmpty()) {
+            namedParameterJdbcTemplate.query(MENTIONED_SQL, Map.of("tokens", tokens), (RowCallbackHandler) row -> {
+                long userId = row.getLong(1);
+                for (String key : new String[] { row.getString(2), row.getString(3) }) {
+                    if (tokens.contains(key)) {
+                        users.computeIfAbsent(key, token -> new HashSet<>()).add(userId);
+                    }
+                }
+            });
+        }
+        return users;
+    }
+
+    private JsonNode parse(OutboxEventEntity event) {
+        try {
+            return objectMapper.readTree(event.getPayload());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unreadable payload in outbox event " + event.getEventId(), e);
+        }
+    }
+
+    /** The user's notifications, newest first, before the given id. */
+    @Transactional(readOnly = true)
+    public List<NotificationDTO> getNotifications(Long userId, Long before, boolean unreadOnly, int limit) {
+        Specification<NotificationEntity> spec = Specification
+                .<NotificationEntity>where(Specs.equal("user.userId", userId))
+                .and(Specs.lessThan("notificationId", before))
+                .and(unreadOnly ? Specs.isNull("readAt") : null);
+        return projectionRepository.findFirst(NotificationEntity.class, spec,
+                Sort.by(Sort.Direction.DESC, "notificationId"), limit, NotificationDTO.class,
+                NotificationDTO.ATTRIBUTES);
+    }
+
+    public long getUnreadCount(Long userId) {
+        return unreadCounts.get(userId, id -> jdbcTemplate.query(
+                "SELECT unread FROM notification_counts WHERE user_id = ?",
+                row -> row.next() ? row.getLong(1) : 0L, id));
+    }
+
+    /** Mark one of the user's notifications read; false if they have no such notification. */
+    @Transactional
+    public boolean markRead(Long userId, Long notificationId) {
+        int updated = jdbcTemplate.update("UPDATE notifications SET read_at = ? "
+                + "WHERE notification_id = ? AND user_id = ? AND read_at IS NULL",
+                Timestamp.valueOf(LocalDateTime.now()), notificationId, userId);
+        if (updated == 0) {
+            Integer exists = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM notifications WHERE notification_id = ? AND user_id = ?",
+                    Integer.class, notificationId, userId);
+            return exists != null && exists > 0;
+        }
+        subtractUnread(userId, updated);
+        return true;
+    }
+
+    /**
+     * Mark all of the user's notifications read; returns how many were
+     * unread. The count is recomputed rather than decremented, which also
+     * repairs any drift.
+     */
+    @Transactional
+    public int markAllRead(Long userId) {
+        int updated = jdbcTemplate.update("UPDATE notifications SET read_at = ? "
+                + "WHERE user_id = ? AND read_at IS NULL", Timestamp.valueOf(LocalDateTime.now()), userId);
+        jdbcTemplate.update(RECOUNT_UNREAD_SQL, userId, userId);
+        evictAfterCommit(Set.of(userId));
+        return updated;
+    }
+
+    /**
+     * Delete a project's notifications before the project row goes; the
+     * foreign key would cascade them without touching the unread counts.
+     * Run in the transaction that deletes the project: the row lock waits
+     * for a relay that is inserting notifications for it and keeps new ones
+     * out until the project is gone.
+     */
+    @Transactional
+    public void projectDeleted(Long projectId) {
+        jdbcTemplate.queryForList("SELECT project_id FROM projects WHERE project_id = ? FOR UPDATE", Long.class,
+                projectId);
+        List<Long> recipients = jdbcTemplate.queryForList(REMOVE_PROJECT_SQL, Long.class, projectId);
+        if (!recipients.isEmpty()) {
+            evictAfterCommit(new HashSet<>(recipients));
+        }
+    }
+
+    private void subtractUnread(Long userId, int count) {
+        jdbcTemplate.update(SUBTRACT_UNREAD_SQL, count, userId);
+        evictAfterCommit(Set.of(userId));
+    }
+
+    // Not before: a read in between would cache the old count again
+    private void evictAfterCommit(Set<Long> userIds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    unreadCounts.invalidateAll(userIds);
+                }
+            });
+        } else {
+            unreadCounts.invalidateAll(userIds);
+        }
+    }
+}
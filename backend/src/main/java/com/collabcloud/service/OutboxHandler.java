@@ -0,0 +1,20 @@
+package com.collabcloud.service;
+
+import com.collabcloud.entity.OutboxEventEntity;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Consumer of outbox events. The relay passes each batch's events of the
+ * handler's types in id order, inside the transaction that marks them
+ * processed, so database writes commit with the mark. Throwing rolls the
+ * batch back, and its events are retried one at a time. Delivery is at
+ * least once: an event may be seen again after a crash.
+ */
+public interface OutboxHandler {
+
+    Set<String> eventTypes();
+
+    void handle(List<OutboxEventEntity> events);
+}
@@ -0,0 +1,262 @@
+package com.collabcloud.service;
+
+import com.collabcloud.entity.OutboxEventEntity;
+import com.collabcloud.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Durable hand-off of work that should not hold up a request. record()
+ * appends an event row; one relay thread per instance claims due events a
+ * batch at a time (FOR UPDATE SKIP LOCKED, so instances never take the same
+ * rows) and passes them to the OutboxHandler for their type.
+ *
+ * The relay runs every app.outbox.poll-interval and right after an event is
+ * committed. A batch whose handler throws is rolled back and its events are
+ * retried one by one, so one bad event cannot hold back the others; a failed
+ * event waits app.outbox.retry-backoff times its attempt count, and after
+ * app.outbox.max-attempts it is set aside with its error. Processed rows are
+ * deleted after app.outbox.retention.
+ */
+@Service
+public class OutboxService {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    // Looked up on first use: handlers record events here, so injecting them directly would be a cycle
+    @Autowired
+    private ObjectProvider<OutboxHandler> handlers;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.outbox.poll-interval:PT2S}")
+    private Duration pollInterval;
+
+    @Value("${app.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.retry-backoff:PT5S}")
+    private Duration retryBackoff;
+
+    @Value("${app.outbox.retention:P7D}")
+    private Duration retention;
+
+    private volatile Map<String, OutboxHandler> handlersByType;
+    private final AtomicBoolean relayQueued = new AtomicBoolean();
+    private ThreadPoolTaskScheduler worker;
+
+    @PostConstruct
+    void startWorker() {
+        worker = new ThreadPoolTaskScheduler();
+        worker.setPoolSize(1);
+        worker.setThreadNamePrefix("outbox-relay-");
+        worker.initialize();
+        Gauge.builder("outbox.events.pending", outboxEventRepository, OutboxEventRepository::countPending)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stopWorker() {
+        worker.shutdown();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void schedule() {
+        worker.scheduleWithFixedDelay(this::relayQuietly, pollInterval);
+        worker.scheduleWithFixedDelay(this::deleteProcessed, Duration.ofHours(1));
+    }
+
+    /**
+     * Append an event with the payload as JSON. Inside a transaction the row
+     * commits with it and the relay is woken after the commit.
+     */
+    public OutboxEventEntity record(String eventType, Object payload) {
+        if (!handlersByType().containsKey(eventType)) {
+            throw new IllegalArgumentException("No outbox handler for " + eventType);
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload for " + eventType + " is not serializable", e);
+        }
+        OutboxEventEntity event = outboxEventRepository.save(new OutboxEventEntity(eventType, json));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake();
+                }
+            });
+        } else {
+            wake();
+        }
+        return event;
+    }
+
+    /** Queue one relay pass unless one is already waiting. */
+    private void wake() {
+        if (relayQueued.compareAndSet(false, true)) {
+            worker.execute(this::relayQuietly);
+        }
+    }
+
+    private void relayQuietly() {
+        relayQueued.set(false);
+        try {
+            while (relayBatch() == batchSize) {
+                // A full batch: there may be more waiting
+            }
+        } catch (Exception e) {
+            // An exception would cancel the schedule
+            logger.warn("Outbox relay failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /** Relay one batch of due events; returns how many were claimed. */
+    private int relayBatch() {
+        List<Long> failed = new ArrayList<>();
+        Integer claimed = transactionTemplate.execute(status -> {
+            List<OutboxEventEntity> batch = outboxEventRepository.claimDue(LocalDateTime.now(), batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            try {
+                dispatch(batch);
+                outboxEventRepository.markProcessed(ids(batch), LocalDateTime.now());
+                count("processed", batch.size());
+            } catch (RuntimeException e) {
+                status.setRollbackOnly();
+                failed.addAll(ids(batch));
+                logger.debug("Outbox batch of {} failed, retrying singly: {}", batch.size(), e.getMessage());
+            }
+            return batch.size();
+        });
+        failed.forEach(this::relayOne);
+        return claimed != null ? claimed : 0;
+    }
+
+    private void relayOne(Long eventId) {
+        String[] error = new String[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<OutboxEventEntity> event = outboxEventRepository.claim(eventId);
+            if (event.isEmpty()) {
+                return; // Done meanwhile, or another relay has it
+            }
+            try {
+                dispatch(List.of(event.get()));
+                outboxEventRepository.markProcessed(List.of(eventId), LocalDateTime.now());
+                count("processed", 1);
+            } catch (RuntimeException e) {
+                status.setRollbackOnly();
+                error[0] = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            }
+        });
+        if (error[0] != null) {
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.findById(eventId)
+                    .ifPresent(event -> recordFailure(event, error[0])));
+        }
+    }
+
+    private void recordFailure(OutboxEventEntity event, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        event.setAttempts(event.getAttempts() + 1);
+        event.setLastError(error);
+        if (event.getAttempts() >= maxAttempts) {
+            event.setProcessedAt(now);
+            count("dead", 1);
+            logger.error("Outbox event {} ({}) gave up after {} attempts: {}", event.getEventId(),
+                    event.getEventType(), event.getAttempts(), error);
+        } else {
+            event.setAvailableAt(now.plus(retryBackoff.multipliedBy(event.getAttempts())));
+            count("retried", 1);
+            logger.warn("Outbox event {} ({}) failed, attempt {}: {}", event.getEventId(), event.getEventType(),
+                    event.getAttempts(), error);
+        }
+        outboxEventRepository.save(event);
+    }
+
+    /** Each handler gets its events of the batch in one call, in id order. */
+    private void dispatch(List<OutboxEventEntity> events) {
+        Map<OutboxHandler, List<OutboxEventEntity>> byHandler = events.stream()
+                .collect(Collectors.groupingBy(event -> handlerFor(event.getEventType()), LinkedHashMap::new,
+                        Collectors.toList()));
+        byHandler.forEach(OutboxHandler::handle);
+    }
+
+    private Map<String, OutboxHandler> handlersByType() {
+        if (handlersByType == null) {
+            Map<String, OutboxHandler> byType = new HashMap<>();
+            handlers.forEach(handler -> handler.eventTypes().forEach(type -> byType.put(type, handler)));
+            handlersByType = byType;
+        }
+        return handlersByType;
+    }
+
+    private OutboxHandler handlerFor(String eventType) {
+        OutboxHandler handler = handlersByType().get(eventType);
+        if (handler == null) {
+            throw new IllegalStateException("No outbox handler for " + eventType);
+        }
+        return handler;
+    }
+
+    private void deleteProcessed() {
+        try {
+            Integer deleted = transactionTemplate.execute(status -> outboxEventRepository
+                    .deleteProcessedBefore(LocalDateTime.now().minus(retention)));
+            if (deleted != null && deleted > 0) {
+                logger.debug("Deleted {} processed outbox events", deleted);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not delete processed outbox events: {}", e.getMessage());
+        }
+    }
+
+    private List<Long> ids(List<OutboxEventEntity> events) {
+        return events.stream().map(OutboxEventEntity::getEventId).collect(Collectors.toList());
+    }
+
+    private void count(String result, long amount) {
+        meterRegistry.counter("outbox.events", "result", result).increment(amount);
+    }
+}
@@ -0,0 +1,394 @@
+package com.collabcloud.service;
+
+import com.collabcloud.entity.FileEntity;
+import com.collabcloud.entity.ProjectEntity;
+import com.collabcloud.repository.FileRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Whole-project export and import as ZIP archives, streamed in both
+ * directions: the export writes each file into the response as it arrives
+ * from storage, and the import uploads each entry as it is unpacked. A
+ * window of app.archive.prefetch storage transfers runs ahead on a pool of
+ * its own, so a slow or large project neither waits on one round trip per
+ * file nor ties up the shared task executor.
+ *
+ * An archive holds project.json (title, description and each file's name,
+ * type and entry) followed by the files under files/.
+ */
+@Service
+public class ProjectArchiveService {
+    private static final Logger logger = LoggerFactory.getLogger(ProjectArchiveService.class);
+
+    static final String MANIFEST = "project.json";
+    static final String ERRORS = "export-errors.txt";
+    private static final String FILES_DIR = "files/";
+    private static final int FORMAT = 1;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TaskExecutorBuilder taskExecutorBuilder;
+
+    @Value("${app.archive.threads:8}")
+    private int threads;
+
+    @Value("${app.archive.prefetch:4}")
+    private int prefetch;
+
+    @Value("${app.archive.insert-batch-size:50}")
+    private int insertBatchSize;
+
+    @Value("${app.archive.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.archive.max-entry-size:50MB}")
+    private DataSize maxEntrySize;
+
+    @Value("${app.archive.max-total-size:2GB}")
+    private DataSize maxTotalSize;
+
+    private ThreadPoolTaskExecutor executor;
+
+    @PostConstruct
+    void startExecutor() {
+        // Built from the application's builder so transfers keep the tracing decorator
+        executor = taskExecutorBuilder.corePoolSize(threads).maxPoolSize(threads)
+                .threadNamePrefix("archive-").build();
+        executor.initialize();
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdown();
+    }
+
+    /** A file as it goes into the archive, read before streaming starts. */
+    private static final class ExportEntry {
+        final String entryName;
+        final String fileName;
+        final String fileType;
+        final String filePath;
+        final String contentCodec;
+        final String uploadDate;
+
+        ExportEntry(String entryName, FileEntity file) {
+            this.entryName = entryName;
+            this.fileName = file.getFileName();
+            this.fileType = file.getFileType();
+            this.filePath = file.getFilePath();
+            this.contentCodec = file.getContentCodec();
+            this.uploadDate = file.getUploadDate() != null ? file.getUploadDate().toString() : null;
+        }
+    }
+
+    /** An archive entry to become a file in the project. */
+    private static final class ImportEntry {
+        final String fileName;
+        final String fileType;
+        final byte[] bytes;
+
+        ImportEntry(String fileName, String fileType, byte[] bytes) {
+            this.fileName = fileName;
+            this.fileType = fileType;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Write the project's files to out as a ZIP. Files that cannot be read
+     * from storage are left out and listed in export-errors.txt; the
+     * archive is never buffered as a whole.
+     */
+    public void writeArchive(ProjectEntity project, OutputStream out) throws IOException {
+        List<ExportEntry> entries = new ArrayList<>();
+        Set<String> used = new HashSet<>();
+        for (FileEntity file : fileRepository.findByProjectProjectId(project.getProjectId())) {
+            entries.add(new ExportEntry(uniqueEntryName(file.getFileName(), used), file));
+        }
+
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        zip.putNextEntry(new ZipEntry(MANIFEST));
+        zip.write(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest(project, entries)));
+        zip.closeEntry();
+
+        List<String> failures = new ArrayList<>();
+        Deque<Future<InputStream>> window = new ArrayDeque<>();
+        Iterator<ExportEntry> pending = entries.iterator();
+        try {
+            for (ExportEntry entry : entries) {
+                while (window.size() < prefetch && pending.hasNext()) {
+                    ExportEntry next = pending.next();
+                    window.addLast(executor.submit(
+                            () -> fileStorageService.openFile(next.filePath, next.contentCodec)));
+                }
+                InputStream body;
+                try {
+                    body = window.removeFirst().get();
+                } catch (ExecutionException e) {
+                    logger.warn("Leaving {} out of the archive of project {}", entry.entryName,
+                            project.getProjectId(), e.getCause());
+                    failures.add(entry.entryName + ": " + e.getCause().getMessage());
+                    continue;
+                }
+                try (InputStream in = body) {
+                    // Images, media and office files are compressed already
+                    zip.setLevel(FileTypes.isText(entry.fileName, entry.fileType)
+                            ? Deflater.DEFAULT_COMPRESSION : Deflater.BEST_SPEED);
+                    zip.putNextEntry(new ZipEntry(entry.entryName));
+                    in.transferTo(zip);
+                    zip.closeEntry();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Archive export interrupted", e);
+        } finally {
+            window.forEach(this::discard);
+        }
+
+        if (!failures.isEmpty()) {
+            zip.putNextEntry(new ZipEntry(ERRORS));
+            zip.write(String.join("\n", failures).concat("\n").getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        zip.finish();
+        logger.info("Exported {} files of project {} ({} unreadable)", entries.size() - failures.size(),
+                project.getProjectId(), failures.size());
+    }
+
+    /**
+     * Unpack a ZIP into the project: each entry is uploaded to storage as it
+     * is read and the new rows are inserted in batches. With a project.json
+     * only the files it lists are imported, under their recorded names and
+     * types; without one every file entry is. Returns the number imported.
+     */
+    public int importArchive(ProjectEntity project, InputStream in) throws IOException {
+        Map<String, JsonNode> listed = null;
+        List<FileEntity> batch = new ArrayList<>();
+        Deque<Future<FileEntity>> window = new ArrayDeque<>();
+        int entryCount = 0;
+        boolean firstFile = true;
+        long totalBytes = 0;
+        int imported = 0;
+        try (ZipInputStream zip = new ZipInputStream(in, StandardCharsets.UTF_8)) {
+            ZipEntry zipEntry;
+            while ((zipEntry = zip.getNextEntry()) != null) {
+                if (++entryCount > maxEntries) {
+                    throw new IllegalArgumentException("Archive has more than " + maxEntries + " entries");
+                }
+                String name = zipEntry.getName().replace('\\', '/');
+                if (zipEntry.isDirectory() || isIgnored(name)) {
+                    continue;
+                }
+                byte[] bytes = readEntry(zip, name, maxTotalSize.toBytes() - totalBytes);
+                totalBytes += bytes.length;
+                if (firstFile && name.equals(MANIFEST)) {
+                    firstFile = false;
+                    listed = listedFiles(bytes);
+                    continue;
+                }
+                firstFile = false;
+
+                ImportEntry entry = toImportEntry(name, bytes, listed);
+                if (entry == null) {
+                    continue;
+                }
+                window.addLast(executor.submit(() -> upload(project, entry)));
+                if (window.size() >= prefetch) {
+                    batch.add(await(window.removeFirst()));
+                }
+                if (batch.size() >= insertBatchSize) {
+                    imported += insert(batch);
+                }
+            }
+            while (!window.isEmpty()) {
+                batch.add(await(window.removeFirst()));
+            }
+            imported += insert(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Archive import interrupted", e);
+        } catch (RuntimeException | IOException e) {
+            // Blobs uploaded for rows never inserted are left for cleanup
+            throw new RuntimeException("Import into project " + project.getProjectId() + " stopped after "
+                    + imported + " files: " + e.getMessage(), e);
+        } finally {
+            window.forEach(future -> future.cancel(true));
+        }
+        logger.info("Imported {} files into project {}", imported, project.getProjectId());
+        return imported;
+    }
+
+    private Map<String, Object> manifest(ProjectEntity project, List<ExportEntry> entries) {
+        Map<String, Object> projectInfo = new LinkedHashMap<>();
+        projectInfo.put("title", project.getTitle());
+        projectInfo.put("description", project.getDescription());
+        List<Map<String, Object>> files = new ArrayList<>();
+        for (ExportEntry entry : entries) {
+            Map<String, Object> file = new LinkedHashMap<>();
+            file.put("entry", entry.entryName);
+            file.put("fileName", entry.fileName);
+            file.put("fileType", entry.fileType);
+            file.put("uploadDate", entry.uploadDate);
+            files.add(file);
+        }
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("format", FORMAT);
+        manifest.put("project", projectInfo);
+        manifest.put("files", files);
+        return manifest;
+    }
+
+    /** Cancel a prefetch the export will not use, closing its stream if it already opened. */
+    private void discard(Future<InputStream> future) {
+        if (future.cancel(true)) {
+            return;
+        }
+        try {
+            future.get().close();
+        } catch (Exception e) {
+            // Failed or cancelled: nothing to close
+        }
+    }
+
+    /** files/ plus the file name with separators replaced, numbered on collision. */
+    private static String uniqueEntryName(String fileName, Set<String> used) {
+        String safe = fileName == null || fileName.isBlank() ? "file" : fileName.replaceAll("[/\\\\]", "_");
+        if (safe.equals(".") || safe.equals("..")) {
+            safe = "file";
+        }
+        String candidate = FILES_DIR + safe;
+        int dot = safe.lastIndexOf('.');
+        String stem = dot > 0 ? safe.substring(0, dot) : safe;
+        String extension = dot > 0 ? safe.substring(dot) : "";
+        for (int n = 2; !used.add(candidate.toLowerCase(Locale.ROOT)); n++) {
+            candidate = FILES_DIR + stem + " (" + n + ")" + extension;
+        }
+        return candidate;
+    }
+
+    private static boolean isIgnored(String name) {
+        String last = name.substring(name.lastIndexOf('/') + 1);
+        return name.startsWith("__MACOSX/") || last.startsWith(".") || name.equals(ERRORS);
+    }
+
+    /** Read the current entry, failing once it passes the per-entry or remaining total limit. */
+    private byte[] readEntry(ZipInputStream zip, String name, long remaining) throws IOException {
+        long limit = Math.min(maxEntrySize.toBytes(), remaining);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = zip.read(chunk)) != -1) {
+            if (buffer.size() + read > limit) {
+                throw new IllegalArgumentException(buffer.size() + read > maxEntrySize.toBytes()
+                        ? "Entry " + name + " is larger than " + maxEntrySize
+                        : "Archive expands to more than " + maxTotalSize);
+            }
+            buffer.write(chunk, 0, read);
+        }
+        return buffer.toByteArray();
+    }
+
+    private Map<String, JsonNode> listedFiles(byte[] manifest) throws IOException {
+        Map<String, JsonNode> listed = new HashMap<>();
+        for (JsonNode file : objectMapper.readTree(manifest).path("files")) {
+            listed.put(file.path("entry").asText(), file);
+        }
+        return listed;
+    }
+
+    private static ImportEntry toImportEntry(String name, byte[] bytes, Map<String, JsonNode> listed) {
+        String baseName = name.substring(name.lastIndexOf('/') + 1);
+        if (listed == null) {
+            return new ImportEntry(baseName, guessType(baseName), bytes);
+        }
+        JsonNode file = listed.get(name);
+        if (file == null) {
+            return null;
+        }
+        String fileName = file.path("fileName").asText(baseName);
+        String fileType = file.hasNonNull("fileType") ? file.get("fileType").asText() : guessType(fileName);
+        return new ImportEntry(fileName, fileType, bytes);
+    }
+
+    private static String guessType(String fileName) {
+        String type = URLConnection.guessContentTypeFromName(fileName);
+        if (FileTypes.isText(fileName, null) && (type == null || !FileTypes.isText(null, type))) {
+            return "text/plain";
+        }
+        return type != null ? type : "application/octet-stream";
+    }
+
+    private FileEntity upload(ProjectEntity project, ImportEntry entry) {
+        FileStorageService.StoredContent stored = fileStorageService.storeBytes(entry.fileName, entry.fileType,
+                entry.bytes);
+        FileEntity file = new FileEntity(entry.fileName, entry.fileType, stored.getFilePath(), project);
+        file.setContentCodec(stored.getCodec());
+        return file;
+    }
+
+    private static FileEntity await(Future<FileEntity> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+        }
+    }
+
+    private int insert(List<FileEntity> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int size = fileService.createFiles(new ArrayList<>(batch), null).size();
+        batch.clear();
+        return size;
+    }
+}
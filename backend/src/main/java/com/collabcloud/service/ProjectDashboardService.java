@@ -0,0 +1,173 @@
+package com.collabcloud.service;
+
+import com.collabcloud.dto.ActivityLogDTO;
+import com.collabcloud.dto.CommentDTO;
+import com.collabcloud.dto.FileDTO;
+import com.collabcloud.dto.ProjectDTO;
+import com.collabcloud.dto.ProjectDashboardDTO;
+import com.collabcloud.entity.FileEntity;
+import com.collabcloud.entity.ProjectEntity;
+import com.collabcloud.repository.FileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The project page in one call. The file, comment and activity listings run
+ * in parallel on the shared task executor, each in its own read-only
+ * transaction (so on the read replica when there is one), while the calling
+ * thread builds the project itself. File sizes come from FileService's
+ * cache; the ones it lacks are fetched from storage in parallel too.
+ */
+@Service
+public class ProjectDashboardService {
+    private static final Logger logger = LoggerFactory.getLogger(ProjectDashboardService.class);
+
+    public static final String FILES = "files";
+    public static final String SIZES = "sizes";
+    public static final String COMMENTS = "comments";
+    public static final String ACTIVITY = "activity";
+    public static final Set<String> SECTIONS = Set.of(FILES, SIZES, COMMENTS, ACTIVITY);
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private ActivityLogService activityLogService;
+
+    @Autowired
+    private TaskExecutor taskExecutor;
+
+    @Value("${app.dashboard.max-limit:100}")
+    private int maxLimit;
+
+    @Value("${app.dashboard.timeout:PT10S}")
+    private Duration timeout;
+
+    /**
+     * The requested sections of the project's dashboard, each list holding
+     * the newest entries up to its limit (capped at app.dashboard.max-limit);
+     * empty if there is no such project.
+     */
+    public Optional<ProjectDashboardDTO> getDashboard(Long projectId, Set<String> include, int fileLimit,
+            int commentLimit, int activityLimit) {
+        Optional<ProjectEntity> project = projectService.getProjectById(projectId);
+        if (project.isEmpty()) {
+            return Optional.empty();
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        CompletableFuture<Page<FileDTO>> files = include.contains(FILES) || include.contains(SIZES)
+                ? async(() -> fileService.getFilesByProjectId(projectId, null, null, newest(fileLimit, "uploadDate")))
+                : null;
+        CompletableFuture<Page<CommentDTO>> comments = include.contains(COMMENTS)
+                ? async(() -> commentService.getCommentsByProjectId(projectId, newest(commentLimit, "createdDate")))
+                : null;
+        CompletableFuture<Page<ActivityLogDTO>> activity = include.contains(ACTIVITY)
+                ? async(() -> activityLogService.getActivityLogsByProjectId(projectId, null, null, null,
+                        newest(activityLimit, "timestamp")))
+                : null;
+
+        // Here, where the request's session can load the collaborators
+        ProjectDashboardDTO dashboard = new ProjectDashboardDTO(ProjectDTO.from(project.get()));
+        if (files != null) {
+            Page<FileDTO> page = await(files, deadline);
+            if (include.contains(FILES)) {
+                dashboard.setFiles(page.getContent(), page.getTotalElements());
+            }
+            if (include.contains(SIZES)) {
+                Map<Long, Long> sizes = sizes(page.getContent(), deadline);
+                dashboard.setFileSizes(sizes, sizes.size() < page.getNumberOfElements());
+            }
+        }
+        if (comments != null) {
+            Page<CommentDTO> page = await(comments, deadline);
+            dashboard.setComments(page.getContent(), page.getTotalElements());
+        }
+        if (activity != null) {
+            Page<ActivityLogDTO> page = await(activity, deadline);
+            dashboard.setActivity(page.getContent(), page.getTotalElements());
+        }
+        return Optional.of(dashboard);
+    }
+
+    /** Sizes by file id, in listing order; a file whose size cannot be read is left out. */
+    private Map<Long, Long> sizes(List<FileDTO> files, long deadline) {
+        List<Long> ids = files.stream().map(FileDTO::getFileId).collect(Collectors.toList());
+        Map<Long, FileEntity> byId = fileRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(FileEntity::getFileId, file -> file));
+        Map<Long, CompletableFuture<Long>> lookups = new LinkedHashMap<>();
+        for (Long id : ids) {
+            FileEntity file = byId.get(id);
+            if (file != null) {
+                lookups.put(id, async(() -> fileService.getContentSize(file)));
+            }
+        }
+        Map<Long, Long> sizes = new LinkedHashMap<>();
+        List<Long> failed = new ArrayList<>();
+        lookups.forEach((id, lookup) -> {
+            try {
+                sizes.put(id, await(lookup, deadline));
+            } catch (RuntimeException e) {
+                failed.add(id);
+            }
+        });
+        if (!failed.isEmpty()) {
+            logger.warn("Dashboard left out the sizes of files {}", failed);
+        }
+        return sizes;
+    }
+
+    private Pageable newest(int limit, String property) {
+        return PageRequest.of(0, Math.max(1, Math.min(limit, maxLimit)), Sort.by(Sort.Direction.DESC, property));
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> section) {
+        return CompletableFuture.supplyAsync(section, taskExecutor);
+    }
+
+    private <T> T await(CompletableFuture<T> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                    : new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new RuntimeException("Dashboard timed out after " + timeout, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading the dashboard", e);
+        }
+    }
+}
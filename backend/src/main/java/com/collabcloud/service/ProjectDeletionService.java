@@ -0,0 +1,230 @@
+package com.collabcloud.service;
+
+import com.collabcloud.entity.ProjectDeletionEntity;
+import com.collabcloud.repository.ActivityLogRepository;
+import com.collabcloud.repository.CommentRepository;
+import com.collabcloud.repository.FileHistoryRepository;
+import com.collabcloud.repository.FileRepository;
+import com.collabcloud.repository.ProjectCollaboratorRepository;
+import com.collabcloud.repository.ProjectDeletionRepository;
+import com.collabcloud.repository.ProjectRepository;
+import com.collabcloud.repository.VersionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Deletes projects in the background. A request records a project_deletions
+ * row and returns; one worker thread then removes the project's files a
+ * batch at a time (their storage objects in one bulk request, then the rows
+ * and the job's progress in one transaction), the remaining comments and
+ * activity in batches, and finally the collaborators and the project row.
+ *
+ * Every step only deletes what is still there, so an interrupted job simply
+ * runs again: the worker sweeps for pending, failed and stale jobs at
+ * startup and every app.deletion.lease, and a job whose lease lapsed is
+ * taken over by whichever instance sweeps first.
+ */
+@Service
+public class ProjectDeletionService {
+    private static final Logger logger = LoggerFactory.getLogger(ProjectDeletionService.class);
+
+    @Autowired
+    private ProjectDeletionRepository projectDeletionRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ProjectCollaboratorRepository projectCollaboratorRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private VersionRepository versionRepository;
+
+    @Autowired
+    private FileHistoryRepository fileHistoryRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private ActivityLogRepository activityLogRepository;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private ProjectStatsService projectStatsService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.deletion.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.deletion.lease:PT5M}")
+    private Duration lease;
+
+    @Value("${app.deletion.max-attempts:5}")
+    private int maxAttempts;
+
+    private ThreadPoolTaskScheduler worker;
+
+    @PostConstruct
+    void startWorker() {
+        worker = new ThreadPoolTaskScheduler();
+        worker.setPoolSize(1);
+        worker.setThreadNamePrefix("project-deletion-");
+        worker.initialize();
+    }
+
+    @PreDestroy
+    void stopWorker() {
+        worker.shutdown();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleSweep() {
+        worker.scheduleWithFixedDelay(this::resumeJobs, lease);
+    }
+
+    /**
+     * Start deleting the project, or return the job already doing so (a
+     * failed one is retried). Search results drop the project at once.
+     */
+    public ProjectDeletionEntity requestDeletion(Long projectId) {
+        ProjectDeletionEntity deletion = projectDeletionRepository.findById(projectId).orElse(null);
+        if (deletion == null) {
+            if (!projectRepository.existsById(projectId)) {
+                throw new RuntimeException("Project not found with id: " + projectId);
+            }
+            deletion = projectDeletionRepository.save(
+                    new ProjectDeletionEntity(projectId, fileRepository.countByProjectProjectId(projectId)));
+            searchService.removeProject(projectId);
+        } else if (ProjectDeletionEntity.DONE.equals(deletion.getStatus())) {
+            throw new RuntimeException("Project not found with id: " + projectId);
+        }
+        worker.execute(() -> run(projectId));
+        return deletion;
+    }
+
+    public Optional<ProjectDeletionEntity> getDeletion(Long projectId) {
+        return projectDeletionRepository.findById(projectId);
+    }
+
+    private void resumeJobs() {
+        try {
+            LocalDateTime staleBefore = LocalDateTime.now().minus(lease);
+            projectDeletionRepository.findResumable(maxAttempts, staleBefore).forEach(this::run);
+        } catch (Exception e) {
+            // An exception would cancel the periodic sweep
+            logger.warn("Could not resume project deletions: {}", e.getMessage());
+        }
+    }
+
+    private void run(Long projectId) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(
+                status -> projectDeletionRepository.claim(projectId, now, now.minus(lease)));
+        if (claimed == null || claimed == 0) {
+            return; // Done, or another worker holds the lease
+        }
+        logger.info("Deleting project {}", projectId);
+        try {
+            deleteFiles(projectId);
+            deleteInBatches(projectId, commentRepository::findIdsByProjectId, commentRepository::deleteByIds);
+            deleteInBatches(projectId, activityLogRepository::findIdsByProjectId, activityLogRepository::deleteByIds);
+            transactionTemplate.executeWithoutResult(status -> {
+                // Again, for anything indexed while the job ran
+                searchService.removeProject(projectId);
+                notificationService.projectDeleted(projectId);
+                projectCollaboratorRepository.deleteByProjectId(projectId);
+                projectRepository.deleteProjectRow(projectId);
+                finish(projectId, ProjectDeletionEntity.DONE, null);
+            });
+            logger.info("Deleted project {}", projectId);
+        } catch (Exception e) {
+            logger.warn("Deletion of project {} stopped and will be retried", projectId, e);
+            transactionTemplate.executeWithoutResult(
+                    status -> finish(projectId, ProjectDeletionEntity.FAILED, e.getMessage()));
+        }
+    }
+
+    private void deleteFiles(Long projectId) {
+        List<Long> fileIds = fileRepository.findIdsByProjectId(projectId, PageRequest.of(0, batchSize));
+        while (!fileIds.isEmpty()) {
+            List<Long> batch = fileIds;
+            List<String> paths = new ArrayList<>(fileRepository.findPathsByIds(batch));
+            paths.addAll(versionRepository.findContentPathsByFileIds(batch));
+            paths.addAll(thumbnailService.objectPaths(fileRepository.findThumbnailedIds(batch)));
+            // Objects before rows: a crash in between leaves rows to retry, not objects nothing points to
+            int objects = fileStorageService.deleteFiles(paths);
+            transactionTemplate.executeWithoutResult(status -> {
+                commentRepository.deleteByFileIds(batch);
+                fileHistoryRepository.deleteByFileIds(batch);
+                versionRepository.deleteByFileIds(batch);
+                fileRepository.deleteByIds(batch);
+                projectStatsService.changed(projectId);
+                projectDeletionRepository.recordProgress(projectId, batch.size(), objects, LocalDateTime.now());
+            });
+            fileIds = fileRepository.findIdsByProjectId(projectId, PageRequest.of(0, batchSize));
+        }
+    }
+
+    private void deleteInBatches(Long projectId, BiFunction<Long, Pageable, List<Long>> findIds,
+            Function<List<Long>, Integer> delete) {
+        List<Long> ids = findIds.apply(projectId, PageRequest.of(0, batchSize));
+        while (!ids.isEmpty()) {
+            List<Long> batch = ids;
+            transactionTemplate.executeWithoutResult(status -> {
+                delete.apply(batch);
+                projectStatsService.changed(projectId);
+                projectDeletionRepository.recordProgress(projectId, 0, 0, LocalDateTime.now());
+            });
+            ids = findIds.apply(projectId, PageRequest.of(0, batchSize));
+        }
+    }
+
+    private void finish(Long projectId, String status, String error) {
+        projectDeletionRepository.findById(projectId).ifPresent(deletion -> {
+            LocalDateTime now = LocalDateTime.now();
+            deletion.setStatus(status);
+            deletion.setLastError(error);
+            deletion.setUpdatedAt(now);
+            if (ProjectDeletionEntity.DONE.equals(status)) {
+                deletion.setCompletedAt(now);
+            }
+            projectDeletionRepository.save(deletion);
+        });
+    }
+}
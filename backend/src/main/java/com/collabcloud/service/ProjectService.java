@@ -1,17 +1,32 @@
 package com.collabcloud.service;
 
+import com.collabcloud.dto.CollaboratorDTO;
+import com.collabcloud.dto.ProjectDTO;
 import com.collabcloud.entity.ProjectEntity;
 import com.collabcloud.entity.ProjectCollaboratorEntity;
+import com.collabcloud.entity.ProjectDeletionEntity;
 import com.collabcloud.entity.UserEntity;
 import com.collabcloud.repository.ProjectRepository;
 import com.collabcloud.repository.ProjectCollaboratorRepository;
+import com.collabcloud.repository.ProjectionRepository;
+import com.collabcloud.repository.Specs;
 import com.collabcloud.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class ProjectService {
@@ -25,26 +40,79 @@ public class ProjectService {
     @Autowired
     private UserRepository userRepository;
 
-    public List<ProjectEntity> getAllProjects() {
-        return projectRepository.findAll();
+    @Autowired
+    private ProjectionRepository projectionRepository;
+
+    @Autowired
+    private DomainEventService domainEventService;
+
+    @Autowired
+    private ProjectDeletionService projectDeletionService;
+
+    @Autowired
+    private ProjectStatsService projectStatsService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Transactional(readOnly = true)
+    public Page<ProjectDTO> getAllProjects(String title, Long creatorId, Pageable pageable) {
+        Specification<ProjectEntity> spec = Specification.<ProjectEntity>where(Specs.containsIgnoreCase("title", title))
+                .and(Specs.equal("creator.userId", creatorId));
+        return findProjects(spec, pageable);
     }
 
     public Optional<ProjectEntity> getProjectById(Long projectId) {
         return projectRepository.findById(projectId);
     }
 
-    public List<ProjectEntity> getProjectsByCreator(Long userId) {
-        UserEntity creator = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
-        return projectRepository.findByCreator(creator);
+    @Transactional(readOnly = true)
+    public Page<ProjectDTO> getProjectsByCreator(Long userId, Pageable pageable) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found with id: " + userId);
+        }
+        return findProjects(Specs.equal("creator.userId", userId), pageable);
     }
 
-    public List<ProjectEntity> getProjectsByCollaborator(Long userId) {
-        UserEntity user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
-        return projectRepository.findByCollaboratorsContaining(user);
+    @Transactional(readOnly = true)
+    public Page<ProjectDTO> getProjectsByCollaborator(Long userId, Pageable pageable) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found with id: " + userId);
+        }
+        Specification<ProjectEntity> spec = (root, query, cb) -> {
+            Subquery<Long> projectIds = query.subquery(Long.class);
+            Root<ProjectCollaboratorEntity> collaborator = projectIds.from(ProjectCollaboratorEntity.class);
+            projectIds.select(collaborator.get("project").get("projectId"))
+                    .where(cb.equal(collaborator.get("user").get("userId"), userId));
+            return root.get("projectId").in(projectIds);
+        };
+        return findProjects(spec, pageable);
     }
 
+    /**
+     * Project rows come from one projection query and their collaborators
+     * from a second query over the page's ids, instead of one lazy load per
+     * project during serialization.
+     */
+    private Page<ProjectDTO> findProjects(Specification<ProjectEntity> spec, Pageable pageable) {
+        Page<ProjectDTO> page = projectionRepository.findAll(ProjectEntity.class, spec, pageable, ProjectDTO.class,
+                ProjectDTO.ATTRIBUTES);
+        if (page.hasContent()) {
+            List<Long> ids = page.stream().map(ProjectDTO::getProjectId).collect(Collectors.toList());
+            Specification<ProjectCollaboratorEntity> byProject = (root, query, cb) -> root.get("project")
+                    .get("projectId").in(ids);
+            Map<Long, List<CollaboratorDTO>> collaborators = projectionRepository
+                    .findAll(ProjectCollaboratorEntity.class, byProject, Sort.by("id"), CollaboratorDTO.class,
+                            CollaboratorDTO.ATTRIBUTES)
+                    .stream()
+                    .collect(Collectors.groupingBy(CollaboratorDTO::getProjectId));
+            page.forEach(project -> project.setCollaborators(
+                    collaborators.getOrDefault(project.getProjectId(), Collections.emptyList())));
+        }
+        return page;
+    }
+
+    @Transactional
     public ProjectEntity createProject(ProjectEntity project) {
         // Validate that creator is provided
         if (project.getCreator() == null || project.getCreator().getUserId() == null) {
@@ -59,9 +127,13 @@ public class ProjectService {
 
         project.setCreatedDate(LocalDateTime.now());
         project.setLastModified(LocalDateTime.now());
-        return projectRepository.save(project);
+        ProjectEntity saved = projectRepository.save(project);
+        projectStatsService.create(saved);
+        domainEventService.projectSaved(saved, true);
+        return saved;
     }
 
+    @Transactional
     public ProjectEntity updateProject(Long projectId, ProjectEntity projectDetails) {
         ProjectEntity project = projectRepository.findById(projectId)
                 .orElseThrow(() -> new RuntimeException("Project not found with id: " + projectId));
@@ -70,15 +142,25 @@ public class ProjectService {
         project.setDescription(projectDetails.getDescription());
         project.setLastModified(LocalDateTime.now());
 
-        return projectRepository.save(project);
+        ProjectEntity saved = projectRepository.save(project);
+        projectStatsService.changed(projectId);
+        domainEventService.projectSaved(saved, false);
+        return saved;
     }
 
-    public void deleteProject(Long projectId) {
-        ProjectEntity project = projectRepository.findById(projectId)
-                .orElseThrow(() -> new RuntimeException("Project not found with id: " + projectId));
-        projectRepository.delete(project);
+    /**
+     * Queue the project for deletion; ProjectDeletionService removes it and
+     * everything in it in the background.
+     */
+    public ProjectDeletionEntity deleteProject(Long projectId) {
+        return projectDeletionService.requestDeletion(projectId);
+    }
+
+    public Optional<ProjectDeletionEntity> getDeletion(Long projectId) {
+        return projectDeletionService.getDeletion(projectId);
     }
 
+    @Transactional
     public ProjectEntity addCollaborator(Long projectId, Long userId, Long ownerId) {
         ProjectEntity project = projectRepository.findById(projectId)
                 .orElseThrow(() -> new RuntimeException("Project not found with id: " + projectId));
@@ -98,9 +180,13 @@ public class ProjectService {
         ProjectCollaboratorEntity collaborator = new ProjectCollaboratorEntity(project, user, "edit");
         project.getCollaborators().add(collaborator);
         project.setLastModified(LocalDateTime.now());
-        return projectRepository.save(project);
+        ProjectEntity saved = projectRepository.save(project);
+        projectStatsService.collaboratorsChanged(saved, 1);
+        notificationService.collaboratorAdded(saved, user, ownerId);
+        return saved;
     }
 
+    @Transactional
     public ProjectEntity removeCollaborator(Long projectId, Long userId, Long ownerId) {
         ProjectEntity project = projectRepository.findById(projectId)
                 .orElseThrow(() -> new RuntimeException("Project not found with id: " + projectId));
@@ -116,9 +202,12 @@ public class ProjectService {
         project.getCollaborators().remove(collaborator);
         projectCollaboratorRepository.delete(collaborator);
         project.setLastModified(LocalDateTime.now());
-        return projectRepository.save(project);
+        ProjectEntity saved = projectRepository.save(project);
+        projectStatsService.collaboratorsChanged(saved, -1);
+        return saved;
     }
 
+    @Transactional
     public ProjectEntity updateCollaboratorPermission(Long projectId, Long userId, String permission, Long ownerId) {
         ProjectEntity project = projectRepository.findById(projectId)
                 .orElseThrow(() -> new RuntimeException("Project not found with id: " + projectId));
@@ -134,6 +223,8 @@ public class ProjectService {
         collaborator.setPermission(permission);
         projectCollaboratorRepository.save(collaborator);
         project.setLastModified(LocalDateTime.now());
-        return projectRepository.save(project);
+        ProjectEntity saved = projectRepository.save(project);
+        projectStatsService.changed(projectId);
+        return saved;
     }
 }
@@ -0,0 +1,189 @@
+package com.collabcloud.service;
+
+import com.collabcloud.entity.ProjectEntity;
+import com.collabcloud.entity.ProjectStatsEntity;
+import com.collabcloud.repository.ProjectStatsRepository;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps each project's project_stats row in step with its files, comments,
+ * collaborators and activity, so listings read the counts from one joined
+ * row instead of counting. The write paths call in after their own change;
+ * each call is one relative UPDATE of the row. Rows go with their project
+ * through the foreign key's ON DELETE CASCADE.
+ *
+ * Every update also moves the row's change_version, and writes that change
+ * no count call changed(), so the version moves whenever anything listed
+ * under the project does. The tag methods read it for conditional GETs:
+ * being from one sequence, a set of projects' ids and versions differ from
+ * any earlier reading once any of them was written or one joined or left.
+ */
+@Service
+public class ProjectStatsService {
+    private static final Logger logger = LoggerFactory.getLogger(ProjectStatsService.class);
+
+    @Autowired
+    private ProjectStatsRepository projectStatsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private static final String VERSION_SQL = "SELECT change_version FROM project_stats WHERE project_id = ?";
+
+    private static final String FILE_VERSION_SQL = "SELECT s.change_version FROM files f "
+            + "JOIN project_stats s ON s.project_id = f.project_id WHERE f.file_id = ?";
+
+    private static final String HISTORY_VERSION_SQL = "SELECT s.change_version FROM file_history h "
+            + "JOIN files f ON f.file_id = h.file_id JOIN project_stats s ON s.project_id = f.project_id "
+            + "WHERE h.history_id = ?";
+
+    // The projects' ids and versions, folded to one value
+    private static final String SET_TAG = "SELECT count(*) || ':' || coalesce(md5(string_agg("
+            + "s.project_id || ':' || s.change_version, ',' ORDER BY s.project_id)), '') FROM project_stats s ";
+
+    private static final String CREATOR_TAG_SQL = SET_TAG
+            + "JOIN projects p ON p.project_id = s.project_id WHERE p.creator_id = ?";
+
+    private static final String COLLABORATOR_TAG_SQL = SET_TAG
+            + "JOIN project_collaborators c ON c.project_id = s.project_id WHERE c.user_id = ?";
+
+    /** The row for a newly saved project, attached to it. */
+    @Transactional
+    public ProjectStatsEntity create(ProjectEntity project) {
+        ProjectStatsEntity stats = projectStatsRepository.save(
+                new ProjectStatsEntity(project.getProjectId(), project.getCollaborators().size()));
+        project.setStats(stats);
+        return stats;
+    }
+
+    @Transactional
+    public void filesAdded(Long projectId, long count, LocalDateTime at) {
+        if (projectId != null && count > 0) {
+            check(projectId, projectStatsRepository.addActive(projectId, count, 0, at));
+        }
+    }
+
+    /** A file is gone, with the comments on it that counted toward the project. */
+    @Transactional
+    public void fileRemoved(Long projectId, long comments) {
+        if (projectId != null) {
+            check(projectId, projectStatsRepository.add(projectId, -1, -comments, 0));
+        }
+    }
+
+    @Transactional
+    public void commentAdded(Long projectId, LocalDateTime at) {
+        if (projectId != null) {
+            check(projectId, projectStatsRepository.addActive(projectId, 0, 1, at));
+        }
+    }
+
+    @Transactional
+    public void commentsRemoved(Long projectId, long count) {
+        if (projectId != null) {
+            check(projectId, projectStatsRepository.add(projectId, 0, -count, 0));
+        }
+    }
+
+    /** Also refreshes the project's stats if already loaded, since the caller returns them. */
+    @Transactional
+    public void collaboratorsChanged(ProjectEntity project, long delta) {
+        check(project.getProjectId(), projectStatsRepository.add(project.getProjectId(), 0, 0, delta));
+        ProjectStatsEntity stats = project.getStats();
+        if (stats != null && Hibernate.isInitialized(stats) && entityManager.contains(stats)) {
+            entityManager.refresh(stats);
+        }
+    }
+
+    @Transactional
+    public void activity(Long projectId, LocalDateTime at) {
+        if (projectId != null) {
+            check(projectId, projectStatsRepository.addActive(projectId, 0, 0, at));
+        }
+    }
+
+    /** Something listed under the project changed without changing a count. */
+    @Transactional
+    public void changed(Long projectId) {
+        if (projectId != null) {
+            check(projectId, projectStatsRepository.touch(projectId));
+        }
+    }
+
+    @Transactional
+    public void fileChanged(Long fileId) {
+        projectStatsRepository.touchFile(fileId);
+    }
+
+    @Transactional
+    public void historyChanged(Long historyId) {
+        projectStatsRepository.touchHistory(historyId);
+    }
+
+    /** The user's name or email changed, which listings show wherever the user appears. */
+    @Transactional
+    public void userChanged(Long userId) {
+        projectStatsRepository.touchUser(userId);
+    }
+
+    /** Validator for what is listed under the project; empty if there is no such project. */
+    @Transactional(readOnly = true)
+    public Optional<String> projectTag(Long projectId) {
+        return single(VERSION_SQL, projectId);
+    }
+
+    /** Validator for the file and what is listed under it; empty if there is no such file. */
+    @Transactional(readOnly = true)
+    public Optional<String> fileTag(Long fileId) {
+        return single(FILE_VERSION_SQL, fileId);
+    }
+
+    /** Validator for a history entry; empty if there is no such entry. */
+    @Transactional(readOnly = true)
+    public Optional<String> historyTag(Long historyId) {
+        return single(HISTORY_VERSION_SQL, historyId);
+    }
+
+    /** Validator for listings that may draw on any project. */
+    @Transactional(readOnly = true)
+    public String allTag() {
+        return jdbcTemplate.queryForObject(SET_TAG, String.class);
+    }
+
+    @Transactional(readOnly = true)
+    public String creatorTag(Long userId) {
+        return jdbcTemplate.queryForObject(CREATOR_TAG_SQL, String.class, userId);
+    }
+
+    @Transactional(readOnly = true)
+    public String collaboratorTag(Long userId) {
+        return jdbcTemplate.queryForObject(COLLABORATOR_TAG_SQL, String.class, userId);
+    }
+
+    private Optional<String> single(String sql, Long id) {
+        List<Long> versions = jdbcTemplate.queryForList(sql, Long.class, id);
+        return versions.stream().findFirst().map(String::valueOf);
+    }
+
+    private void check(Long projectId, int updated) {
+        if (updated == 0) {
+            // The project is gone, or being deleted
+            logger.debug("No stats row for project {}", projectId);
+        }
+    }
+}
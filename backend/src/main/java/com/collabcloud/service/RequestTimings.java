@@ -0,0 +1,46 @@
+package com.collabcloud.service;
+
+/**
+ * Per-request totals of time spent outside the application, collected on
+ * the request thread for the request summary log line. Calls made on other
+ * threads (or outside a request) are not counted.
+ */
+public final class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private int storageCalls;
+    private long storageNanos;
+
+    private RequestTimings() {
+    }
+
+    /**
+     * Start collecting for the current thread.
+     */
+    public static RequestTimings begin() {
+        RequestTimings timings = new RequestTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    static void recordStorageCall(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.storageCalls++;
+            timings.storageNanos += nanos;
+        }
+    }
+
+    public int getStorageCalls() {
+        return storageCalls;
+    }
+
+    public long getStorageMillis() {
+        return storageNanos / 1_000_000;
+    }
+}
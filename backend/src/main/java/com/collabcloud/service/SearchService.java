@@ -0,0 +1,246 @@
+package com.collabcloud.service;
+
+import com.collabcloud.entity.CommentEntity;
+import com.collabcloud.entity.FileEntity;
+import com.collabcloud.entity.ProjectEntity;
+import com.collabcloud.entity.SearchDocumentEntity;
+import com.collabcloud.repository.CommentRepository;
+import com.collabcloud.repository.FileRepository;
+import com.collabcloud.repository.ProjectRepository;
+import com.collabcloud.repository.SearchDocumentRepository;
+import com.collabcloud.repository.SearchDocumentRepository.SearchHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Maintains the Postgres full-text index in search_documents. Files and
+ * projects are indexed by the outbox relay (see DomainEventService);
+ * comments through the async index method. Either way the rows are read
+ * again, so a detached entity from the caller's request is never used.
+ */
+@Service
+public class SearchService {
+    private static final Logger logger = LoggerFactory.getLogger(SearchService.class);
+
+    private static final int REINDEX_PAGE_SIZE = 200;
+
+    @Autowired
+    private SearchDocumentRepository searchDocumentRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TaskExecutor taskExecutor;
+
+    @Value("${app.search.max-content-chars:200000}")
+    private int maxContentChars;
+
+    // One rebuild at a time on this instance
+    private final AtomicBoolean reindexing = new AtomicBoolean();
+
+    @Transactional(readOnly = true)
+    public Page<SearchHit> search(String query, Long userId, String docType, Long projectId, Pageable pageable) {
+        String type = docType == null ? "" : docType.trim().toUpperCase(Locale.ROOT);
+        return searchDocumentRepository.search(query.trim(), userId, type, projectId == null ? 0L : projectId,
+                pageable);
+    }
+
+    @Transactional
+    public void indexProjectsNow(Collection<Long> projectIds) {
+        projectRepository.findAllById(projectIds).forEach(this::writeProject);
+    }
+
+    /**
+     * Index files on the calling thread. Content given by file id is used
+     * as is, skipping the storage round trip.
+     */
+    @Transactional
+    public void indexFilesNow(Collection<Long> fileIds, Map<Long, String> contents) {
+        fileRepository.findAllById(fileIds).forEach(file -> writeFile(file, contents.get(file.getFileId())));
+    }
+
+    @Async
+    @Transactional
+    public void indexComment(Long commentId) {
+        commentRepository.findById(commentId).ifPresent(this::writeComment);
+    }
+
+    @Transactional
+    public void removeFile(Long fileId) {
+        searchDocumentRepository.deleteDocument(SearchDocumentEntity.TYPE_FILE, fileId);
+        jdbcTemplate.update("DELETE FROM search_documents WHERE doc_type = ? AND ref_id IN "
+                + "(SELECT comment_id FROM comments WHERE file_id = ?)", SearchDocumentEntity.TYPE_COMMENT, fileId);
+    }
+
+    @Transactional
+    public void removeComment(Long commentId) {
+        searchDocumentRepository.deleteDocument(SearchDocumentEntity.TYPE_COMMENT, commentId);
+    }
+
+    /** Before the root goes, since its replies go with it. */
+    @Transactional
+    public void removeReplies(Long commentId) {
+        jdbcTemplate.update("DELETE FROM search_documents WHERE doc_type = ? AND ref_id IN "
+                + "(SELECT comment_id FROM comments WHERE parent_id = ?)", SearchDocumentEntity.TYPE_COMMENT, commentId);
+    }
+
+    @Transactional
+    public void removeProject(Long projectId) {
+        searchDocumentRepository.deleteByProjectId(projectId);
+    }
+
+    /**
+     * Start rebuilding every document from the source tables, a page at a
+     * time, in the background. False, and nothing started, while a rebuild
+     * is already running.
+     */
+    public boolean startReindex() {
+        if (!reindexing.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            taskExecutor.execute(this::reindexAll);
+        } catch (RuntimeException e) {
+            reindexing.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    public boolean isReindexing() {
+        return reindexing.get();
+    }
+
+    private void reindexAll() {
+        try {
+            logger.info("Rebuilding search index");
+            reindex(projectRepository::findAll, this::writeProject);
+            reindex(fileRepository::findAll, file -> writeFile(file, null));
+            reindex(commentRepository::findAll, this::writeComment);
+            logger.info("Search index rebuilt: {} documents", searchDocumentRepository.count());
+        } catch (RuntimeException e) {
+            logger.warn("Search index rebuild stopped: {}", e.getMessage(), e);
+        } finally {
+            reindexing.set(false);
+        }
+    }
+
+    /** Fill an empty index, as on the first start after search was added. The table and its indexes are V1's. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIndex() {
+        try {
+            if (searchDocumentRepository.count() == 0 && projectRepository.count() > 0) {
+                startReindex();
+            }
+        } catch (Exception e) {
+            logger.warn("Could not backfill search index: {}", e.getMessage());
+        }
+    }
+
+    private <T> void reindex(Function<Pageable, Page<T>> source, Consumer<T> writer) {
+        Pageable pageable = PageRequest.of(0, REINDEX_PAGE_SIZE);
+        boolean hasNext = true;
+        while (hasNext) {
+            final Pageable current = pageable;
+            Page<T> page = transactionTemplate.execute(status -> {
+                Page<T> batch = source.apply(current);
+                batch.forEach(item -> {
+                    try {
+                        writer.accept(item);
+                    } catch (Exception e) {
+                        logger.warn("Skipping search document during reindex: {}", e.getMessage());
+                    }
+                });
+                return batch;
+            });
+            hasNext = page != null && page.hasNext();
+            pageable = hasNext ? page.nextPageable() : pageable;
+        }
+    }
+
+    private void writeProject(ProjectEntity project) {
+        searchDocumentRepository.upsert(SearchDocumentEntity.TYPE_PROJECT, project.getProjectId(),
+                project.getProjectId(), clean(project.getTitle()), clean(project.getDescription()));
+    }
+
+    private void writeFile(FileEntity file, String knownContent) {
+        if (file.getProject() == null) {
+            return;
+        }
+        String content = knownContent;
+        if (content == null && FileTypes.isText(file.getFileName(), file.getFileType())) {
+            try {
+                content = new String(fileStorageService.readFile(file.getFilePath(), file.getContentCodec()), StandardCharsets.UTF_8);
+            } catch (Exception e) {
+                logger.warn("Indexing file {} without content: {}", file.getFileId(), e.getMessage());
+            }
+        }
+        String title = clean(file.getFileName());
+        String type = file.getFileType() != null ? file.getFileType() : "";
+        String body = clean(type + " " + FileTypes.extension(file.getFileName()) + "\n" + (content != null ? content : ""));
+        searchDocumentRepository.upsert(SearchDocumentEntity.TYPE_FILE, file.getFileId(),
+                file.getProject().getProjectId(), title, body);
+    }
+
+    private void writeComment(CommentEntity comment) {
+        ProjectEntity project = comment.getProject();
+        if (project == null && comment.getFile() != null) {
+            project = comment.getFile().getProject();
+        }
+        if (project == null) {
+            return; // Unscoped comments cannot be permission-filtered, so they are not searchable
+        }
+        String title = comment.getFile() != null ? comment.getFile().getFileName() : project.getTitle();
+        searchDocumentRepository.upsert(SearchDocumentEntity.TYPE_COMMENT, comment.getCommentId(),
+                project.getProjectId(), clean(title), clean(comment.getContent()));
+    }
+
+    /**
+     * Postgres rejects NUL in text and caps a tsvector at 1MB, so strip the
+     * former and bound the length.
+     */
+    private String clean(String value) {
+        if (value == null) {
+            return "";
+        }
+        String cleaned = value.indexOf('\0') >= 0 ? value.replace("\0", "") : value;
+        return cleaned.length() > maxContentChars ? cleaned.substring(0, maxContentChars) : cleaned;
+    }
+}
@@ -0,0 +1,310 @@
+package com.collabcloud.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds and deletes bucket objects that no row refers to: bodies left
+ * behind when a file's storage delete failed, uploads whose row was never
+ * written, and anything else that leaked.
+ *
+ * A run loads every stored path (files, versions, file history, and the
+ * thumbnails of files that have them) into a Bloom filter, then walks the bucket listing folder by folder. An object
+ * the filter has never seen is an orphan candidate; once it is older than
+ * app.gc.min-age and a lookup by path confirms no row points at it, it is
+ * deleted in bulk requests. False positives only spare an orphan until a
+ * later run, which uses a different seed. Storage calls are paced to
+ * app.gc.requests-per-second and a run deletes at most
+ * app.gc.max-deletes-per-run objects.
+ */
+@Service
+public class StorageGarbageCollector {
+    private static final Logger logger = LoggerFactory.getLogger(StorageGarbageCollector.class);
+
+    private static final String REFERENCES_SQL = "SELECT file_path FROM files "
+            + "UNION ALL SELECT content_path FROM versions WHERE content_path IS NOT NULL "
+            + "UNION ALL SELECT file_path FROM file_history WHERE file_path IS NOT NULL";
+    private static final String COUNT_SQL = "SELECT (SELECT count(*) FROM files) "
+            + "+ (SELECT count(*) FROM versions) + (SELECT count(*) FROM file_history)";
+    private static final String THUMBNAILED_SQL = "SELECT file_id FROM files WHERE thumbnail_status = '"
+            + ThumbnailService.READY + "'";
+    private static final String THUMBNAILED_COUNT_SQL = "SELECT count(*) FROM files WHERE thumbnail_status = '"
+            + ThumbnailService.READY + "'";
+    private static final String THUMBNAILED_IDS_SQL = THUMBNAILED_SQL + " AND file_id IN (:ids)";
+    private static final String REFERENCED_SQL = "SELECT file_path FROM files WHERE file_path IN (:paths) "
+            + "UNION SELECT content_path FROM versions WHERE content_path IN (:paths) "
+            + "UNION SELECT file_path FROM file_history WHERE file_path IN (:paths)";
+    // Supabase keeps one of these in folders created from the dashboard
+    private static final String FOLDER_PLACEHOLDER = ".emptyFolderPlaceholder";
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.gc.dry-run:false}")
+    private boolean dryRun;
+
+    @Value("${app.gc.initial-delay:PT10M}")
+    private Duration initialDelay;
+
+    @Value("${app.gc.interval:PT24H}")
+    private Duration interval;
+
+    @Value("${app.gc.min-age:P1D}")
+    private Duration minAge;
+
+    @Value("${app.gc.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${app.gc.list-page-size:1000}")
+    private int listPageSize;
+
+    @Value("${app.gc.delete-batch-size:1000}")
+    private int deleteBatchSize;
+
+    @Value("${app.gc.requests-per-second:5}")
+    private double requestsPerSecond;
+
+    @Value("${app.gc.max-deletes-per-run:100000}")
+    private int maxDeletesPerRun;
+
+    private ThreadPoolTaskScheduler worker;
+    private long nextRequestAt;
+
+    /** Counts for one run. */
+    public static final class Result {
+        private long references;
+        private long scanned;
+        private long candidates;
+        private long deleted;
+
+        public long getReferences() { return references; }
+        public long getScanned() { return scanned; }
+        public long getCandidates() { return candidates; }
+        public long getDeleted() { return deleted; }
+    }
+
+    @PostConstruct
+    void startWorker() {
+        worker = new ThreadPoolTaskScheduler();
+        worker.setPoolSize(1);
+        worker.setThreadNamePrefix("storage-gc-");
+        worker.initialize();
+    }
+
+    @PreDestroy
+    void stopWorker() {
+        worker.shutdown();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void schedule() {
+        if (enabled) {
+            worker.scheduleWithFixedDelay(this::collectQuietly, Instant.now().plus(initialDelay), interval);
+        }
+    }
+
+    private void collectQuietly() {
+        try {
+            collect();
+        } catch (Exception e) {
+            // An exception would cancel the schedule
+            logger.warn("Storage garbage collection failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Run one collection now, on the calling thread.
+     */
+    public synchronized Result collect() {
+        long started = System.nanoTime();
+        Result result = new Result();
+        BloomFilter references = loadReferences(result);
+        Instant cutoff = Instant.now().minus(minAge);
+
+        Deque<String> folders = new ArrayDeque<>();
+        folders.push("");
+        while (!folders.isEmpty() && result.deleted < maxDeletesPerRun) {
+            String folder = folders.pop();
+            List<String> candidates = new ArrayList<>();
+            // List the whole folder before deleting from it, so deletes do not shift the pages
+            for (int offset = 0; ; offset += listPageSize) {
+                pace();
+                List<FileStorageService.StoredObject> page = fileStorageService.listObjects(folder, listPageSize, offset);
+                for (FileStorageService.StoredObject object : page) {
+                    if (object.isFolder()) {
+                        folders.push(object.getObjectPath());
+                        continue;
+                    }
+                    result.scanned++;
+                    if (!references.mightContain(object.getObjectPath())
+                            && !object.getObjectPath().endsWith(FOLDER_PLACEHOLDER)
+                            // Unknown age counts as new: the upload may be waiting for its row
+                            && object.getCreatedAt() != null && object.getCreatedAt().isBefore(cutoff)
+                            && result.candidates + candidates.size() < maxDeletesPerRun) {
+                        candidates.add(object.getObjectPath());
+                    }
+                }
+                if (page.size() < listPageSize) {
+                    break;
+                }
+            }
+            result.candidates += candidates.size();
+            deleteOrphans(candidates, result);
+        }
+
+        count("scanned", result.scanned);
+        count("candidates", result.candidates);
+        count("deleted", result.deleted);
+        logger.info("Storage GC{}: {} references ({} byte filter), {} objects scanned, {} orphans, {} deleted in {} ms",
+                dryRun ? " (dry run)" : "", result.references, references.sizeInBytes(), result.scanned,
+                result.candidates, result.deleted, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return result;
+    }
+
+    /**
+     * Every stored path in a Bloom filter, read with a cursor so the rows
+     * are never held at once. Read-only but unnamed, so it runs on the
+     * primary: a lagging replica could miss a path written moments ago.
+     */
+    private BloomFilter loadReferences(Result result) {
+        Long paths = jdbcTemplate.queryForObject(COUNT_SQL, Long.class);
+        Long thumbnailed = jdbcTemplate.queryForObject(THUMBNAILED_COUNT_SQL, Long.class);
+        long expected = (paths != null ? paths : 0)
+                + (thumbnailed != null ? thumbnailed : 0) * thumbnailService.sizeCount();
+        BloomFilter filter = new BloomFilter(expected, falsePositiveRate, ThreadLocalRandom.current().nextLong());
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(REFERENCES_SQL);
+            statement.setFetchSize(10000);
+            return statement;
+        }, (RowCallbackHandler) row -> {
+            String path = row.getString(1);
+            if (path != null && !path.isBlank() && !path.startsWith("data:")) {
+                filter.add(fileStorageService.extractObjectPath(path));
+                result.references++;
+            }
+        }));
+        readOnly.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(THUMBNAILED_SQL);
+            statement.setFetchSize(10000);
+            return statement;
+        }, (RowCallbackHandler) row -> {
+            for (String path : thumbnailService.objectPaths(List.of(row.getLong(1)))) {
+                filter.add(path);
+                result.references++;
+            }
+        }));
+        return filter;
+    }
+
+    private void deleteOrphans(List<String> candidates, Result result) {
+        for (int from = 0; from < candidates.size(); from += deleteBatchSize) {
+            List<String> batch = new ArrayList<>(candidates.subList(from,
+                    Math.min(from + deleteBatchSize, candidates.size())));
+            batch.removeAll(stillReferenced(batch));
+            if (batch.isEmpty()) {
+                continue;
+            }
+            if (dryRun) {
+                logger.info("Storage GC would delete {} objects, e.g. {}", batch.size(), batch.get(0));
+                continue;
+            }
+            pace();
+            fileStorageService.deleteObjects(batch);
+            result.deleted += batch.size();
+            logger.debug("Storage GC deleted {} objects", batch.size());
+        }
+    }
+
+    /**
+     * Candidates some row does point at, in any of the forms a stored path
+     * takes; a thumbnail counts while its file has thumbnails.
+     */
+    private Set<String> stillReferenced(List<String> objectPaths) {
+        Map<String, String> byForm = new HashMap<>();
+        Map<Long, List<String>> thumbnailsByFile = new HashMap<>();
+        for (String objectPath : objectPaths) {
+            for (String form : fileStorageService.pathForms(objectPath)) {
+                byForm.put(form, objectPath);
+            }
+            Long fileId = thumbnailService.fileIdOf(objectPath);
+            if (fileId != null) {
+                thumbnailsByFile.computeIfAbsent(fileId, id -> new ArrayList<>()).add(objectPath);
+            }
+        }
+        Set<String> referenced = new HashSet<>();
+        namedParameterJdbcTemplate.query(REFERENCED_SQL, Map.of("paths", byForm.keySet()),
+                (RowCallbackHandler) row -> referenced.add(byForm.get(row.getString(1))));
+        if (!thumbnailsByFile.isEmpty()) {
+            namedParameterJdbcTemplate.query(THUMBNAILED_IDS_SQL, Map.of("ids", thumbnailsByFile.keySet()),
+                    (RowCallbackHandler) row -> referenced.addAll(thumbnailsByFile.get(row.getLong(1))));
+        }
+        return referenced;
+    }
+
+    /** Space storage calls at least 1/requestsPerSecond apart. */
+    private void pace() {
+        long now = System.nanoTime();
+        long wait = nextRequestAt - now;
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Storage GC interrupted", e);
+            }
+        }
+        nextRequestAt = Math.max(now, nextRequestAt) + (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+    }
+
+    private void count(String result, long amount) {
+        meterRegistry.counter("storage.gc.objects", "result", result).increment(amount);
+    }
+}
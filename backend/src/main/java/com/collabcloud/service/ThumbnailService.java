@@ -0,0 +1,335 @@
+package com.collabcloud.service;
+
+import com.collabcloud.entity.FileEntity;
+import com.collabcloud.repository.FileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * JPEG thumbnails of image files, one per size in app.thumbnails.sizes,
+ * stored as thumbnails/{fileId}/{size}.jpg.
+ *
+ * New files are queued for generation on a bounded pool of their own
+ * (app.thumbnails.threads, app.thumbnails.queue-capacity); when the queue is
+ * full the job is dropped and the first request for the thumbnail makes it.
+ * The row records the content tag the thumbnails were made from, so they go
+ * stale with the content and are remade on the next request. Images are
+ * decoded subsampled, at no more than twice the largest size, so a large
+ * photo never has to fit in memory at full resolution.
+ */
+@Service
+public class ThumbnailService {
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    public static final String READY = "READY";
+    public static final String FAILED = "FAILED";
+
+    private static final String PREFIX = "thumbnails/";
+    private static final String SUFFIX = ".jpg";
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TaskExecutorBuilder taskExecutorBuilder;
+
+    @Value("${app.thumbnails.sizes:128,256,512}")
+    private int[] sizes;
+
+    @Value("${app.thumbnails.quality:0.85}")
+    private float quality;
+
+    @Value("${app.thumbnails.max-pixels:100000000}")
+    private long maxPixels;
+
+    @Value("${app.thumbnails.threads:2}")
+    private int threads;
+
+    @Value("${app.thumbnails.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.thumbnails.wait:PT5S}")
+    private Duration wait;
+
+    private ThreadPoolTaskExecutor executor;
+    private final ConcurrentMap<Long, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void startExecutor() {
+        Arrays.sort(sizes);
+        executor = taskExecutorBuilder.corePoolSize(threads).maxPoolSize(threads).queueCapacity(queueCapacity)
+                .threadNamePrefix("thumbnail-").build();
+        executor.initialize();
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdown();
+    }
+
+    /** Whether thumbnails can be made for the file: an image format ImageIO reads. */
+    public boolean supports(FileEntity file) {
+        String type = file.getFileType();
+        if (type != null && type.startsWith("image/") && ImageIO.getImageReadersByMIMEType(type).hasNext()) {
+            return true;
+        }
+        String name = file.getFileName();
+        int dot = name != null ? name.lastIndexOf('.') : -1;
+        return dot >= 0 && ImageIO.getImageReadersBySuffix(name.substring(dot + 1)).hasNext();
+    }
+
+    /** The configured size closest to the requested one without going under it; the smallest when none is given. */
+    public int fitSize(Integer requested) {
+        for (int size : sizes) {
+            if (requested == null || size >= requested) {
+                return size;
+            }
+        }
+        return sizes[sizes.length - 1];
+    }
+
+    /** Queue thumbnail generation for a new file, if it is an image. */
+    public void generateLater(FileEntity file) {
+        if (supports(file)) {
+            request(file.getFileId());
+        }
+    }
+
+    public boolean isPending(Long fileId) {
+        return pending.containsKey(fileId);
+    }
+
+    /**
+     * The thumbnail of the given size, made first if the file has none for its
+     * current content. Empty when the image cannot be read, or when generation
+     * is still running after app.thumbnails.wait.
+     */
+    public Optional<byte[]> getThumbnail(FileEntity file, int size) {
+        String tag = FileService.contentTag(file);
+        String status = tag.equals(file.getThumbnailTag()) ? file.getThumbnailStatus() : null;
+        if (status == null) {
+            try {
+                request(file.getFileId()).get(wait.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                return Optional.empty();
+            } catch (ExecutionException e) {
+                logger.warn("Could not make thumbnails for file {}: {}", file.getFileId(), e.getCause().getMessage());
+                return Optional.empty();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Optional.empty();
+            }
+            status = fileRepository.findThumbnailStatus(file.getFileId(), tag).orElse(null);
+        }
+        if (!READY.equals(status)) {
+            return Optional.empty();
+        }
+        return Optional.of(fileStorageService.readFile(objectPath(file.getFileId(), size)));
+    }
+
+    /** Object paths of every thumbnail the given files may have. */
+    public List<String> objectPaths(Collection<Long> fileIds) {
+        List<String> paths = new ArrayList<>(fileIds.size() * sizes.length);
+        for (Long fileId : fileIds) {
+            for (int size : sizes) {
+                paths.add(objectPath(fileId, size));
+            }
+        }
+        return paths;
+    }
+
+    /** Object paths of the file's stored thumbnails, if it has any. */
+    public List<String> objectPaths(FileEntity file) {
+        return READY.equals(file.getThumbnailStatus()) ? objectPaths(List.of(file.getFileId())) : List.of();
+    }
+
+    /** The file a thumbnail object belongs to, or null if the path is not one of a configured size. */
+    public Long fileIdOf(String objectPath) {
+        if (!objectPath.startsWith(PREFIX) || !objectPath.endsWith(SUFFIX)) {
+            return null;
+        }
+        String[] parts = objectPath.substring(PREFIX.length(), objectPath.length() - SUFFIX.length()).split("/");
+        try {
+            if (parts.length == 2 && Arrays.binarySearch(sizes, Integer.parseInt(parts[1])) >= 0) {
+                return Long.parseLong(parts[0]);
+            }
+        } catch (NumberFormatException e) {
+            // Not a name this service writes
+        }
+        return null;
+    }
+
+    int sizeCount() {
+        return sizes.length;
+    }
+
+    private String objectPath(Long fileId, int size) {
+        return PREFIX + fileId + "/" + size + SUFFIX;
+    }
+
+    /** Start generation unless it is already queued or running; the future completes when it is done. */
+    private CompletableFuture<Void> request(Long fileId) {
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> existing = pending.putIfAbsent(fileId, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(fileId);
+                    created.complete(null);
+                } catch (Exception e) {
+                    created.completeExceptionally(e);
+                } finally {
+                    pending.remove(fileId, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Thumbnail queue full, file {} waits for its first request", fileId);
+            pending.remove(fileId, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    private void generate(Long fileId) throws IOException {
+        FileEntity file = fileRepository.findById(fileId).orElse(null);
+        if (file == null) {
+            return; // Deleted, or not committed yet
+        }
+        String tag = FileService.contentTag(file);
+        if (tag.equals(file.getThumbnailTag())) {
+            return;
+        }
+        String status;
+        try {
+            BufferedImage image = decode(file.getFilePath(), file.getContentCodec());
+            for (int size : sizes) {
+                fileStorageService.storeObject(objectPath(fileId, size), encode(scale(image, size)));
+            }
+            status = READY;
+            logger.debug("Stored {} thumbnails for file {}", sizes.length, fileId);
+        } catch (IIOException e) {
+            // Not an image after all, or a broken one; storage and network failures are thrown on and retried later
+            logger.info("No thumbnails for file {}: {}", fileId, e.getMessage());
+            status = FAILED;
+        }
+        String recorded = status;
+        transactionTemplate.executeWithoutResult(s -> fileRepository.recordThumbnails(fileId, tag, recorded));
+    }
+
+    private BufferedImage decode(String filePath, String codec) throws IOException {
+        int largest = sizes[sizes.length - 1];
+        try (InputStream body = fileStorageService.openFile(filePath, codec);
+                ImageInputStream in = ImageIO.createImageInputStream(body)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IIOException("Not a readable image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IIOException("Image too large: " + width + "x" + height);
+                }
+                // Every nth pixel, keeping at least twice the largest thumbnail for a clean downscale
+                int step = Math.max(1, Math.max(width, height) / (2 * largest));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Fit within size x size, halving first so bilinear steps never skip pixels; flattened onto white. */
+    private BufferedImage scale(BufferedImage image, int size) {
+        double ratio = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        return draw(current, width, height);
+    }
+
+    private BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
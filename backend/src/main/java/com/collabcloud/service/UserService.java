@@ -1,10 +1,18 @@
 package com.collabcloud.service;
 
+import com.collabcloud.dto.UserDTO;
 import com.collabcloud.entity.UserEntity;
+import com.collabcloud.repository.CommentRepository;
+import com.collabcloud.repository.Specs;
+import com.collabcloud.repository.ProjectionRepository;
 import com.collabcloud.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -19,8 +27,24 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
-    public List<UserEntity> getAllUsers() {
-        return userRepository.findAll();
+    @Autowired
+    private ProjectionRepository projectionRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private ProjectStatsService projectStatsService;
+
+    /**
+     * Page through users, optionally matching q against name or email.
+     */
+    @Transactional(readOnly = true)
+    public Page<UserDTO> getAllUsers(String q, Pageable pageable) {
+        Specification<UserEntity> byName = Specs.containsIgnoreCase("name", q);
+        Specification<UserEntity> spec = byName == null ? null
+                : byName.or(Specs.containsIgnoreCase("email", q));
+        return projectionRepository.findAll(UserEntity.class, spec, pageable, UserDTO.class, UserDTO.ATTRIBUTES);
     }
 
     public Optional<UserEntity> getUserById(Long userId) {
@@ -35,9 +59,12 @@ public class UserService {
         return userRepository.save(user);
     }
 
+    @Transactional
     public UserEntity updateUser(Long userId, UserEntity userDetails) {
         UserEntity user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
+        boolean renamed = userDetails.getName() != null && !userDetails.getName().equals(user.getName())
+                || userDetails.getEmail() != null && !userDetails.getEmail().equals(user.getEmail());
 
         // Only update fields that are provided (not null)
         if (userDetails.getName() != null) {
@@ -59,12 +86,24 @@ public class UserService {
             user.setProfilePicture(userDetails.getProfilePicture());
         }
 
-        return userRepository.save(user);
+        UserEntity saved = userRepository.save(user);
+        if (renamed) {
+            projectStatsService.userChanged(userId);
+        }
+        return saved;
     }
 
+    @Transactional
     public void deleteUser(Long userId) {
         UserEntity user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
+        List<Object[]> projectComments = commentRepository.countProjectCommentsByUserId(userId);
+        // In one statement, as in FileService.deleteFile: a root's replies go with it
+        commentRepository.deleteByUserId(userId);
+        projectComments.forEach(row -> projectStatsService.commentsRemoved((Long) row[0], (Long) row[1]));
+        // Collaborations go through the cascade
+        user.getProjectCollaborations()
+                .forEach(collaboration -> projectStatsService.collaboratorsChanged(collaboration.getProject(), -1));
         userRepository.delete(user);
     }
 
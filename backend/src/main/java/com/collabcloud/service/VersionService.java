@@ -1,18 +1,49 @@
 package com.collabcloud.service;
 
+import com.collabcloud.dto.VersionDTO;
 import com.collabcloud.entity.VersionEntity;
 import com.collabcloud.entity.FileEntity;
 import com.collabcloud.repository.VersionRepository;
 import com.collabcloud.repository.FileRepository;
+import com.collabcloud.repository.ProjectionRepository;
+import com.collabcloud.repository.Specs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Version metadata lives in the versions table; each body is stored once per
+ * file and content hash under versions/{fileId}/{sha256}.txt (plus .zst or
+ * .gz when compressed at rest), so listings never read snapshot text and
+ * identical snapshots share one object. Bodies no version points at any
+ * more are left to StorageGarbageCollector: deciding here would race a
+ * concurrent createVersion of the same content, while the collector spares
+ * objects younger than app.gc.min-age and every store rewrites the object.
+ */
 @Service
 public class VersionService {
+    private static final Logger logger = LoggerFactory.getLogger(VersionService.class);
+
+    private static final String CONTENT_PREFIX = "versions/";
+    private static final int OFFLOAD_BATCH_SIZE = 50;
 
     @Autowired
     private VersionRepository versionRepository;
@@ -20,22 +51,65 @@ public class VersionService {
     @Autowired
     private FileRepository fileRepository;
 
-    public List<VersionEntity> getAllVersions() {
-        return versionRepository.findAll();
+    @Autowired
+    private ProjectionRepository projectionRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TaskExecutor taskExecutor;
+
+    @Value("${app.versions.offload-legacy-content:true}")
+    private boolean offloadLegacyContent;
+
+    @Transactional(readOnly = true)
+    public Page<VersionDTO> getAllVersions(Pageable pageable) {
+        return findVersions(null, pageable);
     }
 
     public Optional<VersionEntity> getVersionById(Long versionId) {
         return versionRepository.findById(versionId);
     }
 
-    public List<VersionEntity> getVersionsByFileId(Long fileId) {
-        return versionRepository.findByFileFileId(fileId);
+    @Transactional(readOnly = true)
+    public Page<VersionDTO> getVersionsByFileId(Long fileId, Pageable pageable) {
+        return findVersions(Specs.equal("file.fileId", fileId), pageable);
     }
 
-    public List<VersionEntity> getVersionsByFileIdOrdered(Long fileId) {
-        FileEntity file = fileRepository.findById(fileId)
-                .orElseThrow(() -> new RuntimeException("File not found with id: " + fileId));
-        return versionRepository.findByFileOrderByTimestampDesc(file);
+    @Transactional(readOnly = true)
+    public Page<VersionDTO> getVersionsByFileIdOrdered(Long fileId, Pageable pageable) {
+        if (!fileRepository.existsById(fileId)) {
+            throw new RuntimeException("File not found with id: " + fileId);
+        }
+        return findVersions(Specs.equal("file.fileId", fileId), pageable);
+    }
+
+    private Page<VersionDTO> findVersions(Specification<VersionEntity> spec, Pageable pageable) {
+        return projectionRepository.findAll(VersionEntity.class, spec, pageable, VersionDTO.class,
+                VersionDTO.ATTRIBUTES);
+    }
+
+    /**
+     * Stream a version's body; rows not yet offloaded are served from the
+     * legacy column.
+     */
+    public InputStream openContent(VersionEntity version) {
+        if (version.getContentPath() == null) {
+            String content = version.getContent() != null ? version.getContent() : "";
+            return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return fileStorageService.openFile(version.getContentPath(), version.getContentCodec());
+    }
+
+    public String getContentHash(VersionEntity version) {
+        if (version.getContentHash() != null) {
+            return version.getContentHash();
+        }
+        return ContentHashes.sha256Hex(version.getContent() != null ? version.getContent() : "");
     }
 
     public VersionEntity createVersion(VersionEntity version) {
@@ -45,9 +119,12 @@ public class VersionService {
                     .orElseThrow(
                             () -> new RuntimeException("File not found with id: " + version.getFile().getFileId()));
             version.setFile(file);
+        } else {
+            throw new RuntimeException("File is required to create a version");
         }
 
         version.setTimestamp(LocalDateTime.now());
+        storeContent(version, version.getContent());
         return versionRepository.save(version);
     }
 
@@ -57,7 +134,9 @@ public class VersionService {
 
         version.setVersionMessage(versionDetails.getVersionMessage());
         version.setVersionNumber(versionDetails.getVersionNumber());
-        version.setContent(versionDetails.getContent());
+        if (versionDetails.getContent() != null) {
+            storeContent(version, versionDetails.getContent());
+        }
 
         return versionRepository.save(version);
     }
@@ -67,4 +146,53 @@ public class VersionService {
                 .orElseThrow(() -> new RuntimeException("Version not found with id: " + versionId));
         versionRepository.delete(version);
     }
+
+    /**
+     * Move any bodies still stored inline in versions.content to storage in
+     * the background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareContentStorage() {
+        if (offloadLegacyContent) {
+            taskExecutor.execute(this::offloadLegacyContent);
+        }
+    }
+
+    private void offloadLegacyContent() {
+        long after = 0L;
+        int moved = 0;
+        List<Long> ids = versionRepository.findLegacyContentIds(after, PageRequest.of(0, OFFLOAD_BATCH_SIZE));
+        while (!ids.isEmpty()) {
+            for (Long id : ids) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> versionRepository.findById(id)
+                            .ifPresent(version -> {
+                                storeContent(version, version.getContent());
+                                versionRepository.save(version);
+                            }));
+                    moved++;
+                } catch (Exception e) {
+                    logger.warn("Leaving version {} content inline: {}", id, e.getMessage());
+                }
+            }
+            after = ids.get(ids.size() - 1);
+            ids = versionRepository.findLegacyContentIds(after, PageRequest.of(0, OFFLOAD_BATCH_SIZE));
+        }
+        if (moved > 0) {
+            logger.info("Moved {} version bodies to storage", moved);
+        }
+    }
+
+    private void storeContent(VersionEntity version, String content) {
+        byte[] bytes = (content != null ? content : "").getBytes(StandardCharsets.UTF_8);
+        String hash = ContentHashes.sha256Hex(bytes);
+        String objectPath = CONTENT_PREFIX + version.getFile().getFileId() + "/" + hash + ".txt";
+        FileStorageService.StoredContent stored = fileStorageService.storeContentObject(objectPath, "text/plain",
+                bytes);
+        version.setContentPath(stored.getFilePath());
+        version.setContentCodec(stored.getCodec());
+        version.setContentHash(hash);
+        version.setContentLength((long) bytes.length);
+        version.setContent(null);
+    }
 }
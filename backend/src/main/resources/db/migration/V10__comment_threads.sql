@@ -0,0 +1,16 @@
+-- Threads are one level deep: a root comment and its replies, which point at
+-- the root and go with it. Roots on a file may anchor to a line range of the
+-- content identified by anchor_tag.
+ALTER TABLE comments ADD COLUMN parent_id int8;
+ALTER TABLE comments ADD COLUMN line_start int4;
+ALTER TABLE comments ADD COLUMN line_end int4;
+ALTER TABLE comments ADD COLUMN anchor_tag varchar(64);
+ALTER TABLE comments ADD CONSTRAINT fk_comments_parent
+    FOREIGN KEY (parent_id) REFERENCES comments ON DELETE CASCADE;
+
+-- Replies in order, and the cascade from their root
+CREATE INDEX idx_comments_parent ON comments (parent_id, comment_id);
+-- Keyset pages of a file's threads, and the ones overlapping a line range
+CREATE INDEX idx_comments_file_threads ON comments (file_id, comment_id) WHERE parent_id IS NULL;
+CREATE INDEX idx_comments_file_lines ON comments (file_id, line_start, line_end)
+    WHERE parent_id IS NULL AND line_start IS NOT NULL;
@@ -0,0 +1,49 @@
+-- Durable outbox: request paths append an event, a background relay on each
+-- instance claims pending rows (FOR UPDATE SKIP LOCKED) and hands them to
+-- their handler. Processed rows are kept for a while, then deleted.
+CREATE TABLE outbox_events (
+    event_id bigserial NOT NULL,
+    event_type varchar(40) NOT NULL,
+    payload text NOT NULL,
+    created_at timestamp NOT NULL,
+    available_at timestamp NOT NULL,
+    attempts int4 NOT NULL,
+    last_error text,
+    processed_at timestamp,
+    PRIMARY KEY (event_id)
+);
+
+CREATE INDEX idx_outbox_events_pending ON outbox_events (available_at, event_id) WHERE processed_at IS NULL;
+CREATE INDEX idx_outbox_events_processed ON outbox_events (processed_at) WHERE processed_at IS NOT NULL;
+
+-- One row per recipient. They go with their recipient or project; the actor may
+-- be gone.
+CREATE TABLE notifications (
+    notification_id bigserial NOT NULL,
+    user_id int8 NOT NULL,
+    project_id int8 NOT NULL,
+    actor_id int8,
+    type varchar(40) NOT NULL,
+    ref_id int8,
+    message text,
+    created_at timestamp NOT NULL,
+    read_at timestamp,
+    PRIMARY KEY (notification_id),
+    CONSTRAINT fk_notifications_user FOREIGN KEY (user_id) REFERENCES users ON DELETE CASCADE,
+    CONSTRAINT fk_notifications_project FOREIGN KEY (project_id) REFERENCES projects ON DELETE CASCADE,
+    CONSTRAINT fk_notifications_actor FOREIGN KEY (actor_id) REFERENCES users ON DELETE SET NULL
+);
+
+CREATE INDEX idx_notifications_user ON notifications (user_id, notification_id);
+CREATE INDEX idx_notifications_user_unread ON notifications (user_id, type, ref_id) WHERE read_at IS NULL;
+CREATE INDEX idx_notifications_project ON notifications (project_id);
+CREATE INDEX idx_notifications_actor ON notifications (actor_id);
+
+-- Unread notifications per user, kept by the relay and by mark-read, so the
+-- count never scans notifications
+CREATE TABLE notification_counts (
+    user_id int8 NOT NULL,
+    unread int8 NOT NULL,
+    PRIMARY KEY (user_id),
+    CONSTRAINT fk_notification_counts_user FOREIGN KEY (user_id) REFERENCES users ON DELETE CASCADE
+);
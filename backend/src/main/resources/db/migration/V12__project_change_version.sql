@@ -0,0 +1,7 @@
+-- Moved to a fresh value from one sequence by every write to a project or to
+-- anything listed under it, in the write's transaction. Listings read it
+-- before running to make their ETags, so an unchanged GET is answered with
+-- 304 without running the listing.
+CREATE SEQUENCE project_change_seq;
+
+ALTER TABLE project_stats ADD COLUMN change_version int8 NOT NULL DEFAULT nextval('project_change_seq');
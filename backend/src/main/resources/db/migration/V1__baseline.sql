@@ -0,0 +1,138 @@
+-- Schema as Hibernate generated it before migrations took over (ddl-auto=update).
+-- Databases created that way are baselined at this version and skip this script;
+-- constraint names are Hibernate's, so both kinds of database end up identical.
+
+CREATE SEQUENCE files_seq START 1 INCREMENT 50;
+CREATE SEQUENCE versions_seq START 1 INCREMENT 50;
+CREATE SEQUENCE file_history_seq START 1 INCREMENT 50;
+CREATE SEQUENCE activity_logs_seq START 1 INCREMENT 50;
+
+CREATE TABLE users (
+    user_id bigserial NOT NULL,
+    bio varchar(255),
+    email varchar(255) NOT NULL,
+    last_login date,
+    name varchar(255) NOT NULL,
+    password varchar(255) NOT NULL,
+    profile_picture varchar(255),
+    role varchar(255) NOT NULL,
+    PRIMARY KEY (user_id),
+    CONSTRAINT uk_6dotkott2kjsp8vw4d0m25fb7 UNIQUE (email)
+);
+
+CREATE TABLE projects (
+    project_id bigserial NOT NULL,
+    created_date timestamp NOT NULL,
+    description text,
+    last_modified timestamp NOT NULL,
+    title varchar(255) NOT NULL,
+    creator_id int8 NOT NULL,
+    PRIMARY KEY (project_id),
+    CONSTRAINT fk14mww7skdu5cpg6nq2kwcnx0e FOREIGN KEY (creator_id) REFERENCES users
+);
+
+CREATE TABLE project_collaborators (
+    id bigserial NOT NULL,
+    added_at timestamp NOT NULL,
+    permission varchar(255) NOT NULL,
+    project_id int8 NOT NULL,
+    user_id int8 NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk6jm69ckt1k99lmtb50ckx5u89 FOREIGN KEY (project_id) REFERENCES projects,
+    CONSTRAINT fk8hyigkyeagt8sh0aqpcr5ouvd FOREIGN KEY (user_id) REFERENCES users
+);
+
+CREATE TABLE files (
+    file_id int8 NOT NULL,
+    file_name varchar(255) NOT NULL,
+    file_path text NOT NULL,
+    file_type varchar(255) NOT NULL,
+    upload_date timestamp NOT NULL,
+    project_id int8 NOT NULL,
+    PRIMARY KEY (file_id),
+    CONSTRAINT fkncpjdlvw4479eu6qnh5a4fo9t FOREIGN KEY (project_id) REFERENCES projects
+);
+
+CREATE TABLE versions (
+    version_id int8 NOT NULL,
+    content text,
+    content_hash varchar(64),
+    content_length int8,
+    content_path varchar(500),
+    timestamp timestamp NOT NULL,
+    version_message varchar(255) NOT NULL,
+    version_number varchar(255) NOT NULL,
+    file_id int8 NOT NULL,
+    PRIMARY KEY (version_id),
+    CONSTRAINT fkio7f4mo8crbpt2a1v94vyyliw FOREIGN KEY (file_id) REFERENCES files
+);
+
+CREATE TABLE file_history (
+    history_id int8 NOT NULL,
+    change_description varchar(100),
+    change_type varchar(50),
+    content text NOT NULL,
+    file_path varchar(500),
+    modified_date timestamp NOT NULL,
+    version_reference int8,
+    file_id int8 NOT NULL,
+    user_id int8,
+    PRIMARY KEY (history_id),
+    CONSTRAINT fk57jm9l9o9gcdeaamdp2lurxah FOREIGN KEY (file_id) REFERENCES files,
+    CONSTRAINT fkex4t9e62f4wjet7sv3wc6vmva FOREIGN KEY (user_id) REFERENCES users
+);
+
+CREATE TABLE comments (
+    comment_id bigserial NOT NULL,
+    content text NOT NULL,
+    created_date timestamp,
+    email varchar(255) NOT NULL,
+    updated_date timestamp,
+    file_id int8,
+    project_id int8,
+    user_id int8 NOT NULL,
+    PRIMARY KEY (comment_id),
+    CONSTRAINT fkr9lyd4h3md3nxcpde95yhyj9t FOREIGN KEY (file_id) REFERENCES files,
+    CONSTRAINT fkgkoamotsfr3mc0pwa1qrrmwhi FOREIGN KEY (project_id) REFERENCES projects,
+    CONSTRAINT fk8omq0tc18jd43bu5tjh6jvraq FOREIGN KEY (user_id) REFERENCES users
+);
+
+CREATE TABLE activity_logs (
+    activity_id int8 NOT NULL,
+    action_description varchar(255) NOT NULL,
+    action_timestamp timestamp NOT NULL,
+    action_type varchar(255) NOT NULL,
+    data text NOT NULL,
+    timestamp timestamp NOT NULL,
+    project_id int8,
+    user_id int8,
+    PRIMARY KEY (activity_id),
+    CONSTRAINT fkavkl7v9l6yfc9hhpaqi1q6f5u FOREIGN KEY (project_id) REFERENCES projects,
+    CONSTRAINT fk5bm1lt4f4eevt8lv2517soakd FOREIGN KEY (user_id) REFERENCES users
+);
+
+CREATE TABLE search_documents (
+    id bigserial NOT NULL,
+    body text,
+    doc_type varchar(20) NOT NULL,
+    project_id int8 NOT NULL,
+    ref_id int8 NOT NULL,
+    title text,
+    tsv tsvector,
+    updated_at timestamp NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_search_documents_doc UNIQUE (doc_type, ref_id)
+);
+
+CREATE INDEX idx_projects_creator_modified ON projects (creator_id, last_modified);
+CREATE INDEX idx_project_collaborators_user ON project_collaborators (user_id);
+CREATE INDEX idx_files_project_upload ON files (project_id, upload_date);
+CREATE INDEX idx_versions_file_timestamp ON versions (file_id, timestamp);
+CREATE INDEX idx_file_history_file_modified ON file_history (file_id, modified_date);
+CREATE INDEX idx_file_history_user_modified ON file_history (user_id, modified_date);
+CREATE INDEX idx_comments_file_created ON comments (file_id, created_date);
+CREATE INDEX idx_comments_project_created ON comments (project_id, created_date);
+CREATE INDEX idx_comments_user_created ON comments (user_id, created_date);
+CREATE INDEX idx_activity_logs_project_timestamp ON activity_logs (project_id, timestamp);
+CREATE INDEX idx_search_documents_project ON search_documents (project_id);
+CREATE INDEX idx_search_documents_tsv ON search_documents USING GIN (tsv);
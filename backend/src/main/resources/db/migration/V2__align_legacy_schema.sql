@@ -0,0 +1,66 @@
+-- Brings a baselined database to V1 whatever application version created it:
+-- databases from before content storage and search (ddl-auto=update) have no
+-- search_documents table, no versions.content_* columns and none of the V1 indexes.
+-- Every statement is a no-op on a database built by V1.
+
+-- ddl-auto never relaxed constraints; version bodies now live in storage
+ALTER TABLE versions ALTER COLUMN content DROP NOT NULL;
+ALTER TABLE versions ADD COLUMN IF NOT EXISTS content_hash varchar(64);
+ALTER TABLE versions ADD COLUMN IF NOT EXISTS content_length int8;
+ALTER TABLE versions ADD COLUMN IF NOT EXISTS content_path varchar(500);
+
+CREATE TABLE IF NOT EXISTS search_documents (
+    id bigserial NOT NULL,
+    body text,
+    doc_type varchar(20) NOT NULL,
+    project_id int8 NOT NULL,
+    ref_id int8 NOT NULL,
+    title text,
+    tsv tsvector,
+    updated_at timestamp NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_search_documents_doc UNIQUE (doc_type, ref_id)
+);
+
+-- Search index columns added after the table existed
+ALTER TABLE search_documents ADD COLUMN IF NOT EXISTS tsv tsvector;
+
+CREATE INDEX IF NOT EXISTS idx_projects_creator_modified ON projects (creator_id, last_modified);
+CREATE INDEX IF NOT EXISTS idx_project_collaborators_user ON project_collaborators (user_id);
+CREATE INDEX IF NOT EXISTS idx_files_project_upload ON files (project_id, upload_date);
+CREATE INDEX IF NOT EXISTS idx_versions_file_timestamp ON versions (file_id, timestamp);
+CREATE INDEX IF NOT EXISTS idx_file_history_file_modified ON file_history (file_id, modified_date);
+CREATE INDEX IF NOT EXISTS idx_file_history_user_modified ON file_history (user_id, modified_date);
+CREATE INDEX IF NOT EXISTS idx_comments_file_created ON comments (file_id, created_date);
+CREATE INDEX IF NOT EXISTS idx_comments_project_created ON comments (project_id, created_date);
+CREATE INDEX IF NOT EXISTS idx_comments_user_created ON comments (user_id, created_date);
+CREATE INDEX IF NOT EXISTS idx_activity_logs_project_timestamp ON activity_logs (project_id, timestamp);
+CREATE INDEX IF NOT EXISTS idx_search_documents_project ON search_documents (project_id);
+CREATE INDEX IF NOT EXISTS idx_search_documents_tsv ON search_documents USING GIN (tsv);
+
+-- Pooled id sequences (allocationSize 50). Tables that used identity columns already
+-- hold ids, so each sequence is moved past its table's highest id; the pooled optimizer
+-- takes the 50 ids up to each nextval, so last_value = max(id) is enough.
+CREATE SEQUENCE IF NOT EXISTS files_seq START 1 INCREMENT 50;
+CREATE SEQUENCE IF NOT EXISTS versions_seq START 1 INCREMENT 50;
+CREATE SEQUENCE IF NOT EXISTS file_history_seq START 1 INCREMENT 50;
+CREATE SEQUENCE IF NOT EXISTS activity_logs_seq START 1 INCREMENT 50;
+
+SELECT setval('files_seq', m) FROM (SELECT max(file_id) AS m FROM files) t
+WHERE m > (SELECT last_value FROM files_seq);
+SELECT setval('versions_seq', m) FROM (SELECT max(version_id) AS m FROM versions) t
+WHERE m > (SELECT last_value FROM versions_seq);
+SELECT setval('file_history_seq', m) FROM (SELECT max(history_id) AS m FROM file_history) t
+WHERE m > (SELECT last_value FROM file_history_seq);
+SELECT setval('activity_logs_seq', m) FROM (SELECT max(activity_id) AS m FROM activity_logs) t
+WHERE m > (SELECT last_value FROM activity_logs_seq);
+
+-- The identity defaults those tables had are no longer used
+ALTER TABLE files ALTER COLUMN file_id DROP DEFAULT;
+ALTER TABLE versions ALTER COLUMN version_id DROP DEFAULT;
+ALTER TABLE file_history ALTER COLUMN history_id DROP DEFAULT;
+ALTER TABLE activity_logs ALTER COLUMN activity_id DROP DEFAULT;
+DROP SEQUENCE IF EXISTS files_file_id_seq;
+DROP SEQUENCE IF EXISTS versions_version_id_seq;
+DROP SEQUENCE IF EXISTS file_history_history_id_seq;
+DROP SEQUENCE IF EXISTS activity_logs_activity_id_seq;
@@ -0,0 +1,19 @@
+-- Indexes for the foreign-key lookups that still fell back to sequential scans,
+-- and one collaborator row per (project, user).
+
+-- findByProjectAndUser expects at most one row; keep the earliest of any duplicates
+DELETE FROM project_collaborators c
+USING project_collaborators earlier
+WHERE c.project_id = earlier.project_id
+  AND c.user_id = earlier.user_id
+  AND c.id > earlier.id;
+
+-- Also serves project_id alone: collaborator lists and FK checks when a project is deleted
+ALTER TABLE project_collaborators
+    ADD CONSTRAINT uk_project_collaborators_project_user UNIQUE (project_id, user_id);
+
+-- FK checks and lookups when a user is deleted; the (project_id, timestamp) index does not cover them
+CREATE INDEX IF NOT EXISTS idx_activity_logs_user ON activity_logs (user_id);
+
+-- existsByContentPath runs on every version delete to decide whether the stored body is still shared
+CREATE INDEX IF NOT EXISTS idx_versions_content_path ON versions (content_path);
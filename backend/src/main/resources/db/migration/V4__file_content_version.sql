@@ -0,0 +1,3 @@
+-- Bumped on every write to a file's stored content; with the path and type it
+-- makes the ETag for GET /api/files/{id}/content, known without reading storage
+ALTER TABLE files ADD COLUMN content_version int8 NOT NULL DEFAULT 0;
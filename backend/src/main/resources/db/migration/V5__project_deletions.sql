@@ -0,0 +1,18 @@
+-- One row per requested project deletion. The job deletes the project's rows in
+-- batches and records progress here, so a restarted instance resumes where it
+-- stopped. No foreign key: the row outlives the project it describes.
+CREATE TABLE project_deletions (
+    project_id int8 NOT NULL,
+    status varchar(20) NOT NULL,
+    files_total int8 NOT NULL,
+    files_deleted int8 NOT NULL,
+    objects_deleted int8 NOT NULL,
+    attempts int4 NOT NULL,
+    last_error text,
+    requested_at timestamp NOT NULL,
+    updated_at timestamp NOT NULL,
+    completed_at timestamp,
+    PRIMARY KEY (project_id)
+);
+
+CREATE INDEX idx_project_deletions_status ON project_deletions (status);
@@ -0,0 +1,4 @@
+-- Lookups by stored path, for the storage garbage collector's check that an
+-- orphan candidate really has no row before its object is deleted
+CREATE INDEX idx_files_file_path ON files (file_path);
+CREATE INDEX idx_file_history_file_path ON file_history (file_path);
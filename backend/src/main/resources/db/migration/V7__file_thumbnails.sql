@@ -0,0 +1,5 @@
+-- Thumbnails are generated in the background and stored under
+-- thumbnails/{file_id}/; thumbnail_tag is the content tag they were made from,
+-- so a content change makes them stale without touching storage
+ALTER TABLE files ADD COLUMN thumbnail_tag varchar(64);
+ALTER TABLE files ADD COLUMN thumbnail_status varchar(16);
@@ -0,0 +1,18 @@
+-- Codec of the stored object a row points at (NULL: stored as is), so
+-- compressed and plain objects read back alike
+ALTER TABLE files ADD COLUMN content_codec varchar(16);
+ALTER TABLE versions ADD COLUMN content_codec varchar(16);
+
+-- History text and legacy inline version text stay in Postgres, where TOAST
+-- compresses them. Try compression from 256 bytes instead of about 2 kB, and
+-- use lz4 (PostgreSQL 14+, when built with it) instead of pglz; both apply to
+-- values written from now on
+ALTER TABLE file_history SET (toast_tuple_target = 256);
+ALTER TABLE versions SET (toast_tuple_target = 256);
+DO $$
+BEGIN
+    ALTER TABLE file_history ALTER COLUMN content SET COMPRESSION lz4;
+    ALTER TABLE versions ALTER COLUMN content SET COMPRESSION lz4;
+EXCEPTION WHEN OTHERS THEN
+    RAISE NOTICE 'lz4 column compression not available (%), keeping pglz', SQLERRM;
+END $$;
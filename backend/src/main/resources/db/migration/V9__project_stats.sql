@@ -0,0 +1,21 @@
+-- Per-project counters kept up to date by the write paths, so project listings
+-- can show them without counting rows. One row per project, created with it.
+CREATE TABLE project_stats (
+    project_id int8 NOT NULL,
+    file_count int8 NOT NULL,
+    comment_count int8 NOT NULL,
+    collaborator_count int8 NOT NULL,
+    last_activity timestamp,
+    PRIMARY KEY (project_id),
+    CONSTRAINT fk_project_stats_project FOREIGN KEY (project_id) REFERENCES projects ON DELETE CASCADE
+);
+
+INSERT INTO project_stats (project_id, file_count, comment_count, collaborator_count, last_activity)
+SELECT p.project_id,
+       (SELECT count(*) FROM files f WHERE f.project_id = p.project_id),
+       (SELECT count(*) FROM comments c WHERE c.project_id = p.project_id),
+       (SELECT count(*) FROM project_collaborators pc WHERE pc.project_id = p.project_id),
+       GREATEST((SELECT max(f.upload_date) FROM files f WHERE f.project_id = p.project_id),
+                (SELECT max(c.created_date) FROM comments c WHERE c.project_id = p.project_id),
+                (SELECT max(a.timestamp) FROM activity_logs a WHERE a.project_id = p.project_id))
+FROM projects p;
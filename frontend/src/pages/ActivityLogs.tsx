@@ -1,13 +1,14 @@
 import React from 'react'
 import { Link } from 'react-router-dom'
 import { ActivityLogModel } from '../models'
+import api from '../services/api'
 
 export default function ActivityLogs() {
     const [logs, setLogs] = React.useState<any[]>([])
 
     React.useEffect(() => {
         let mounted = true
-        fetch('/api/activity-logs').then(r => r.ok ? r.json() : []).then(data => {
+        api.getActivityLogs().then(data => {
             if (mounted) setLogs((data || []).filter(log => log.project))
         }).catch(() => { })
         return () => { mounted = false }
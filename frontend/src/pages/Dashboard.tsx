@@ -12,10 +12,9 @@ export default function Dashboard() {
     React.useEffect(() => {
         async function loadStats() {
             try {
-                const [projects, files, activities] = await Promise.all([
+                const [projects, files] = await Promise.all([
                     api.getProjects(),
-                    api.getFiles(),
-                    api.getActivityLogs().catch(() => [])
+                    api.getFiles()
                 ])
                 const allCollaborators = new Set<string>()
                 // If backend returns collaborators in projects, collect them
@@ -355,7 +354,7 @@ function RecentActivity() {
 
     React.useEffect(() => {
         let mounted = true
-        api.getActivityLogs().then(logs => { if (mounted) setActivities((logs || []).slice(0, 8)) }).catch(() => { })
+        api.getActivityLogs(8).then(logs => { if (mounted) setActivities(logs || []) }).catch(() => { })
         return () => { mounted = false }
     }, [])
 
@@ -366,6 +365,7 @@ function RecentActivity() {
             'LOGIN': '🔐',
             'LOGOUT': '👋',
             'VIEW_DASHBOARD': '📊',
+            'VIEW_FILE': '👁️',
             'VIEW_PROJECTS': '📁',
             'CREATE_PROJECT': '➕',
             'DELETE_PROJECT': '🗑️',
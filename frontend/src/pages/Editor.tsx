@@ -59,13 +59,13 @@ function Editor() {
                 // If viewing a specific version, load that version's content from API
                 if (versionId && (urlParams.get('readonly') === 'true' || myPermission !== 'edit')) {
                     try {
-                        const versions = await api.listVersions()
-                        const version = versions.find((v: any) => String(v.id) === String(versionId))
+                        const version = await api.getVersion(versionId)
                         if (version) {
-                            setContent(version.content)
-                            setLineCount(version.content.split('\n').length)
-                            setCharCount(version.content.length)
-                            ActivityLogger.log(ActivityTypes.EDIT_FILE, `Viewing version: ${version.message}`, projectId)
+                            const versionContent = await api.getVersionContent(version.id)
+                            setContent(versionContent)
+                            setLineCount(versionContent.split('\n').length)
+                            setCharCount(versionContent.length)
+                            ActivityLogger.log(ActivityTypes.VIEW_FILE, `Viewing version: ${version.message}`, projectId)
                             setLoading(false)
                             return
                         }
@@ -73,7 +73,7 @@ function Editor() {
                         console.warn('[Editor] Failed to load versions from API:', err)
                     }
                 }
-                ActivityLogger.log(ActivityTypes.EDIT_FILE, `Opened file for ${myPermission === 'edit' ? 'editing' : 'viewing'}: ${f.name}`, projectId)
+                ActivityLogger.log(ActivityTypes.VIEW_FILE, `Opened file for ${myPermission === 'edit' ? 'editing' : 'viewing'}: ${f.name}`, projectId)
                 // Load file content
                 if (f.dataUrl && !f.dataUrl.startsWith('data:')) {
                     // File is stored on backend, fetch a signed URL for preview/download
@@ -138,11 +138,12 @@ export default function ProjectDetail() {
         async function loadVersions() {
             if (project?.files) {
                 try {
-                    const allVersions = await api.listVersions()
-                    // Filter versions for files in this project
-                    const projectFileIds = project.files.map((f: any) => String(f.id))
-                    const projectVersions = allVersions
-                        .filter((v: any) => projectFileIds.includes(String(v.fileId)))
+                    // Only this project's files, rather than every version there is
+                    const fileVersions = await Promise.all(
+                        project.files.map((f: any) => api.listFileVersions(String(f.id)))
+                    )
+                    const projectVersions = fileVersions
+                        .flat()
                         .sort((a: any, b: any) => b.ts - a.ts) // Sort by timestamp, newest first
                     setVersions(projectVersions)
                 } catch (error) {
@@ -185,7 +185,6 @@ export default function Projects() {
             // Ensure the project object placed into UI has an id field
             const projectForState = { ...(proj || {}), id: String(createdId || proj.id || proj.projectId || '') }
             setProjects(prev => [projectForState, ...prev])
-            ActivityLogger.log(ActivityTypes.UPLOAD_PROJECT, `Created project: ${name} with ${fileMetas.length} files`, projectForState.id)
             alert('Project created successfully!')
             setName('')
             setDescription('')
@@ -203,7 +202,7 @@ export default function Projects() {
         if (!confirm(`Delete project "${projectName}"? This cannot be undone.`)) return
         api.deleteProject(id).then(() => {
             setProjects(prev => prev.filter(p => p.id !== id))
-            ActivityLogger.log(ActivityTypes.CREATE_PROJECT, `Deleted project: ${projectName}`, id)
+            ActivityLogger.log(ActivityTypes.DELETE_PROJECT, `Deleted project: ${projectName}`, id)
         })
     }
 
@@ -2,7 +2,6 @@ import React from 'react'
 import { Link } from 'react-router-dom'
 import { encodeToBase64 } from '../utils/helpers'
 import api from '../services/api'
-import { ActivityLogger, ActivityTypes } from '../services/activityLogger'
 
 export default function Versions() {
     const [versions, setVersions] = React.useState<any[]>([])
@@ -30,7 +29,6 @@ export default function Versions() {
         try {
             await api.restoreVersion(v.projectId, v.fileId, v.id)
             alert('✅ Version restored successfully!')
-            ActivityLogger.log(ActivityTypes.SAVE_VERSION, `Restored version: ${v.message}`, v.projectId)
             loadData()
         } catch (err: any) {
             alert('Error restoring version: ' + err.message)
@@ -1,4 +1,5 @@
-// Activity Logger Service - logs all user actions
+// Activity Logger Service - logs user actions the server does not record itself.
+// File uploads, edits and deletes and project creation are logged by the backend.
 
 import api from './api'
 import session from './session'
@@ -14,11 +15,9 @@ export class ActivityLogger {
     }
 
     static async getLogs(): Promise<any[]> {
-        // Try fetching from backend endpoint
+        // Every page from the backend endpoint
         try {
-            const res = await fetch('/api/activity-logs')
-            if (res.ok) return await res.json()
-            return []
+            return await api.getActivityLogs()
         } catch (err) {
             console.warn('[ActivityLogger] Failed to fetch logs:', err)
             return []
@@ -54,5 +53,6 @@ export const ActivityTypes = {
     MANAGE_COLLABORATORS: 'MANAGE_COLLABORATORS',
     SEARCH_FILES: 'SEARCH_FILES',
     VIEW_DASHBOARD: 'VIEW_DASHBOARD',
+    VIEW_FILE: 'VIEW_FILE',
     CONNECT_WITH_USERS: 'CONNECT_WITH_USERS'
 }
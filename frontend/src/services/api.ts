@@ -35,6 +35,36 @@ function clearProjectsCache() {
 }
 
 async function restFetch(path: string, opts: RequestInit = {}): Promise<any> {
+    const res = await restRequest(path, opts)
+    const ct = res.headers.get('content-type') || ''
+    if (ct.includes('application/json')) {
+        const json = await res.json()
+        console.log('[restFetch] Response JSON:', json)
+        return json
+    }
+    const blob = await res.blob()
+    console.log('[restFetch] Response blob size:', blob.size)
+    return blob
+}
+
+// List endpoints return one page (100 rows unless asked) with the total in X-Total-Count;
+// this follows the pages until every row is in
+async function restFetchAll(path: string, pageSize = 100): Promise<any[]> {
+    const separator = path.includes('?') ? '&' : '?'
+    const items: any[] = []
+    for (let page = 0; ; page++) {
+        const res = await restRequest(`${path}${separator}page=${page}&size=${pageSize}`)
+        const data = await res.json()
+        const rows: any[] = Array.isArray(data) ? data : []
+        items.push(...rows)
+        const total = Number(res.headers.get('X-Total-Count'))
+        if (rows.length < pageSize || !Number.isFinite(total) || items.length >= total) {
+            return items
+        }
+    }
+}
+
+async function restRequest(path: string, opts: RequestInit = {}): Promise<Response> {
     const headers: Record<string, string> = opts.headers ? { ...(opts.headers as Record<string, string>) } : {}
     const token = session.getToken()
     if (token) {
@@ -77,16 +107,7 @@ async function restFetch(path: string, opts: RequestInit = {}): Promise<any> {
         console.error('[restFetch] Error response:', text)
         throw new Error(text || res.statusText)
     }
-
-    const ct = res.headers.get('content-type') || ''
-    if (ct.includes('application/json')) {
-        const json = await res.json()
-        console.log('[restFetch] Response JSON:', json)
-        return json
-    }
-    const blob = await res.blob()
-    console.log('[restFetch] Response blob size:', blob.size)
-    return blob
+    return res
 }
 
 // Normalize backend response to frontend shape
@@ -261,8 +282,8 @@ const api = {
 
             cachedProjectsUserId = String(userId)
             cachedProjectsPromise = Promise.all([
-                restFetch(`/api/projects/creator/${userId}`),
-                restFetch(`/api/projects/collaborator/${userId}`)
+                restFetchAll(`/api/projects/creator/${userId}`),
+                restFetchAll(`/api/projects/collaborator/${userId}`)
             ])
                 .then(([created, collaborated]) => {
                     const projects = dedupeProjects([...(created || []), ...(collaborated || [])].map(mapServerProject))
@@ -289,7 +310,7 @@ const api = {
 
         // Fetch files separately since the project endpoint doesn't include them
         console.log('[API] Fetching files for project:', id)
-        const files = await restFetch(`/api/files/project/${id}`)
+        const files = await restFetchAll(`/api/files/project/${id}`)
         console.log('[API] Files fetched:', files)
 
         // Merge files into the project data
@@ -354,6 +375,9 @@ const api = {
 
     async uploadFiles(projectId: string, fileMetas: ProjectFile[]): Promise<Project | undefined> {
         console.log('[API] uploadFiles called with projectId:', projectId, 'files:', fileMetas.length)
+        // The uploader, recorded with the server's activity entry
+        const user = session.getUser()
+        const userId = user?.userId || user?.id
         // Backend uses FileEntity, need to create files individually
         for (let i = 0; i < fileMetas.length; i++) {
             const f = fileMetas[i]
@@ -369,7 +393,7 @@ const api = {
             try {
                 const response = await restFetch('/api/files', {
                     method: 'POST',
-                    headers: { 'Content-Type': 'application/json' },
+                    headers: { 'Content-Type': 'application/json', ...(userId ? { 'X-User-Id': String(userId) } : {}) },
                     body: JSON.stringify(fileData)
                 })
                 console.log('[API] File upload response:', response)
@@ -384,7 +408,12 @@ const api = {
 
     async deleteFile(projectId: string, fileId: string): Promise<Project | undefined> {
         console.log('[API] deleteFile called with projectId:', projectId, 'fileId:', fileId)
-        await restFetch(`/api/files/${fileId}`, { method: 'DELETE' })
+        const user = session.getUser()
+        const userId = user?.userId || user?.id
+        await restFetch(`/api/files/${fileId}`, {
+            method: 'DELETE',
+            headers: userId ? { 'X-User-Id': String(userId) } : undefined
+        })
         console.log('[API] File deleted from backend, fetching updated project...')
         const updatedProject = await this.getProject(projectId)
         console.log('[API] Updated project after deletion:', updatedProject)
@@ -408,7 +437,7 @@ const api = {
     },
 
     async getFilesByProject(projectId: string): Promise<ProjectFile[]> {
-        const data = await restFetch(`/api/files/project/${projectId}`)
+        const data = await restFetchAll(`/api/files/project/${projectId}`)
         return (data || []).map(mapServerFile)
     },
 
@@ -436,8 +465,22 @@ const api = {
     },
 
     async listVersions(): Promise<Version[]> {
-        const data = await restFetch('/api/versions')
-        return (data || []).map(mapServerVersion)
+        const data = await restFetchAll('/api/versions')
+        return data.map(mapServerVersion)
+    },
+
+    async listFileVersions(fileId: string): Promise<Version[]> {
+        const data = await restFetchAll(`/api/versions/file/${fileId}/ordered`)
+        return data.map(mapServerVersion)
+    },
+
+    async getVersion(versionId: string): Promise<Version | undefined> {
+        try {
+            return mapServerVersion(await restFetch(`/api/versions/${versionId}`))
+        } catch (err) {
+            console.warn('[API] getVersion failed', err)
+            return undefined
+        }
     },
 
     async restoreVersion(projectId: string, fileId: string, versionId: string): Promise<{ ok: boolean }> {
@@ -445,38 +488,45 @@ const api = {
         const user = session.getUser()
         const userId = user?.userId || user?.id
 
-        // Fetch the version and update the file with its content
-        const version = await restFetch(`/api/versions/${versionId}`)
-        if (version) {
-            const mappedVersion = mapServerVersion(version)
-            // Update the file with the version content using the content endpoint
-            await restFetch(`/api/files/${fileId}/content`, {
-                method: 'PUT',
-                headers: { 'Content-Type': 'application/json' },
-                body: JSON.stringify({
-                    content: mappedVersion.content,
-                    userId: userId ? String(userId) : undefined
-                })
+        // Fetch the version body and update the file with it
+        const content = await this.getVersionContent(versionId)
+        await restFetch(`/api/files/${fileId}/content`, {
+            method: 'PUT',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({
+                content,
+                userId: userId ? String(userId) : undefined
             })
-        }
+        })
         return { ok: true }
     },
 
+    // Version listings carry metadata only; bodies come from the content endpoint
+    async getVersionContent(versionId: string): Promise<string> {
+        const blob = await restFetch(`/api/versions/${versionId}/content`)
+        return await blob.text()
+    },
+
+    // Line diff computed on the server; returns hunks rather than both bodies
+    async getVersionDiff(fromVersionId: string, toVersionId: string, context = 3): Promise<any> {
+        return await restFetch(`/api/versions/${fromVersionId}/diff/${toVersionId}?context=${context}`)
+    },
+
     // Comments
     async getComments(): Promise<Comment[]> {
-        const data = await restFetch('/api/comments')
+        const data = await restFetchAll('/api/comments')
         return (data || []).map(mapServerComment)
     },
 
     async getCommentsByProject(projectId: string): Promise<Comment[]> {
-        const data = await restFetch(`/api/comments/project/${projectId}`)
+        const data = await restFetchAll(`/api/comments/project/${projectId}`)
         return (data || []).map(mapServerComment)
     },
 
     // Users
     async getUsers(): Promise<User[]> {
         try {
-            const data = await restFetch('/api/users')
+            const data = await restFetchAll('/api/users')
             return (data || []).map(mapServerUser)
         } catch (err) {
             console.warn('[API] getUsers failed', err)
@@ -540,10 +590,14 @@ const api = {
             return null
         }
     },
-    async getActivityLogs(): Promise<any[]> {
+    // Newest first; limit fetches just that many instead of every page
+    async getActivityLogs(limit?: number): Promise<any[]> {
         try {
-            const data = await restFetch('/api/activity-logs')
-            return data || []
+            if (limit) {
+                const data = await restFetch(`/api/activity-logs?page=0&size=${limit}`)
+                return data || []
+            }
+            return await restFetchAll('/api/activity-logs')
         } catch (err) {
             console.warn('[API] Failed to fetch activity logs:', err)
             return []
@@ -684,20 +738,20 @@ const api = {
 
     async getProjectsByUser(userId: string): Promise<Project[]> {
         const [created, collaborated] = await Promise.all([
-            restFetch(`/api/projects/creator/${userId}`),
-            restFetch(`/api/projects/collaborator/${userId}`)
+            restFetchAll(`/api/projects/creator/${userId}`),
+            restFetchAll(`/api/projects/collaborator/${userId}`)
         ])
         return dedupeProjects([...(created || []), ...(collaborated || [])].map(mapServerProject))
     },
 
     // File History
     async getFileHistory(fileId: string): Promise<any[]> {
-        const data = await restFetch(`/api/file-history/file/${fileId}`)
+        const data = await restFetchAll(`/api/file-history/file/${fileId}`)
         return data || []
     },
 
     async getProjectHistory(projectId: string): Promise<any[]> {
-        const data = await restFetch(`/api/file-history/project/${projectId}`)
+        const data = await restFetchAll(`/api/file-history/project/${projectId}`)
         return data || []
     }
 }
@@ -122,6 +122,7 @@ export type ActivityType =
     | 'LOGIN'
     | 'LOGOUT'
     | 'VIEW_DASHBOARD'
+    | 'VIEW_FILE'
     | 'VIEW_PROJECTS'
     | 'CREATE_PROJECT'
     | 'DELETE_PROJECT'